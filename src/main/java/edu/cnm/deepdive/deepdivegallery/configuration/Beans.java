@@ -1,7 +1,5 @@
 package edu.cnm.deepdive.deepdivegallery.configuration;
 
-import java.security.SecureRandom;
-import java.util.Random;
 import org.springframework.boot.system.ApplicationHome;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,14 +12,6 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class Beans {
 
-  /**
-   * Constructs and returns an instance of {@link Random} (or a suitable subclass),
-   */
-  @Bean
-  public Random random() {
-    return new SecureRandom();
-  }
-
   /**
    * Constructs and returns an {@link ApplicationHome}, reflecting this application's runtime
    * location context.
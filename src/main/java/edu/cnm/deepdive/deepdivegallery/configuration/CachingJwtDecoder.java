@@ -0,0 +1,123 @@
+package edu.cnm.deepdive.deepdivegallery.configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.lang.NonNull;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * {@link JwtDecoder} that caches successfully decoded and validated tokens, so that a client
+ * presenting the same bearer token on many requests incurs the cost of signature verification and
+ * claim validation only once. Entries are keyed by the SHA-256 digest of the token (so that raw
+ * tokens are not retained as map keys), and expire no later than the token itself; tokens without
+ * an expiration time are not cached. Tokens that fail validation are never cached.
+ * <p>
+ * The cache is a {@link ConcurrentHashMap}, so that lookups by concurrent requests do not contend
+ * for a lock. It does not track recency of use: when it grows beyond its maximum size, expired
+ * entries are removed, followed (if it is still too large) by arbitrary entries, until a tenth of
+ * its capacity is free. An evicted token is simply decoded again when it is next presented.</p>
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final int EVICTION_DIVISOR = 10;
+
+  private final JwtDecoder delegate;
+  private final int maxSize;
+  private final Duration timeToLive;
+  private final ConcurrentMap<String, CachedJwt> cache;
+  private final AtomicBoolean evicting;
+
+  /**
+   * Initializes this instance to cache tokens decoded by {@code delegate}.
+   *
+   * @param delegate   Decoder that performs signature verification and claim validation.
+   * @param maxSize    Maximum number of cached tokens.
+   * @param timeToLive Maximum time for which a token is cached (regardless of its expiration).
+   */
+  public CachingJwtDecoder(@NonNull JwtDecoder delegate, int maxSize,
+      @NonNull Duration timeToLive) {
+    this.delegate = delegate;
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    cache = new ConcurrentHashMap<>();
+    evicting = new AtomicBoolean();
+  }
+
+  @Override
+  public Jwt decode(String token) throws JwtException {
+    String key = digest(token);
+    Instant now = Instant.now();
+    CachedJwt cached = cache.get(key);
+    Jwt jwt;
+    if (cached != null && now.isBefore(cached.expiry)) {
+      jwt = cached.jwt;
+    } else {
+      if (cached != null) {
+        cache.remove(key, cached);
+      }
+      jwt = delegate.decode(token);
+      Instant expiry = jwt.getExpiresAt();
+      if (expiry != null) {
+        Instant limit = now.plus(timeToLive);
+        cache.put(key, new CachedJwt(jwt, expiry.isBefore(limit) ? expiry : limit));
+        if (cache.size() > maxSize) {
+          evict(now);
+        }
+      }
+    }
+    return jwt;
+  }
+
+  private void evict(Instant now) {
+    // One thread evicts at a time; others proceed without waiting.
+    if (evicting.compareAndSet(false, true)) {
+      try {
+        cache.values().removeIf((cached) -> !now.isBefore(cached.expiry));
+        // Free a tenth of the capacity, so that a full cache is not scanned on every insertion.
+        int target = maxSize - maxSize / EVICTION_DIVISOR;
+        Iterator<Map.Entry<String, CachedJwt>> entries = cache.entrySet().iterator();
+        while (cache.size() > target && entries.hasNext()) {
+          entries.next();
+          entries.remove();
+        }
+      } finally {
+        evicting.set(false);
+      }
+    }
+  }
+
+  private String digest(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance(DIGEST_ALGORITHM)
+          .digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class CachedJwt {
+
+    private final Jwt jwt;
+    private final Instant expiry;
+
+    private CachedJwt(Jwt jwt, Instant expiry) {
+      this.jwt = jwt;
+      this.expiry = expiry;
+    }
+
+  }
+
+}
@@ -0,0 +1,108 @@
+package edu.cnm.deepdive.deepdivegallery.configuration;
+
+import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the Hibernate second-level cache: a local, size-bounded Ehcache (accessed through
+ * JCache) holding a region for each cached entity type, a region for cached query results, and the
+ * region of table update timestamps used to invalidate cached query results. Entity regions are
+ * updated or invalidated by Hibernate whenever an entity is saved or deleted, and query results
+ * are discarded whenever any table they read is modified. When a region is full, Ehcache evicts
+ * entries chosen by sampling, favoring those not accessed recently; eviction is therefore only
+ * approximately least-recently-used. Hit, miss, put, and eviction counts of every region are
+ * published as {@code cache.*} metrics, tagged with the region name.
+ */
+@Configuration
+public class EntityCacheConfiguration {
+
+  private static final URI CACHE_MANAGER_URI = URI.create("urn:deepdive-gallery:entity-cache");
+  private static final List<Class<?>> CACHED_ENTITIES = List.of(Image.class, Gallery.class,
+      User.class);
+  private static final long UPDATE_TIMESTAMPS_MAX_ENTRIES = 1000;
+
+  @Value("${entity-cache.max-entries:10000}")
+  private long entityMaxEntries;
+  @Value("${entity-cache.time-to-live:PT1H}")
+  private Duration entityTimeToLive;
+  @Value("${entity-cache.query-max-entries:2000}")
+  private long queryMaxEntries;
+  @Value("${entity-cache.query-time-to-live:PT10M}")
+  private Duration queryTimeToLive;
+
+  /**
+   * Constructs and returns the JCache {@link CacheManager} holding the second-level cache regions,
+   * with statistics enabled on each region.
+   */
+  @Bean(destroyMethod = "close")
+  public CacheManager entityCacheManager() {
+    Map<String, org.ehcache.config.CacheConfiguration<?, ?>> regions = new HashMap<>();
+    for (Class<?> type : CACHED_ENTITIES) {
+      regions.put(type.getName(), regionConfiguration(entityMaxEntries, entityTimeToLive));
+    }
+    regions.put(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+        regionConfiguration(queryMaxEntries, queryTimeToLive));
+    // Update timestamps must outlive every cached query result that depends on them.
+    regions.put(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+        CacheConfigurationBuilder.newCacheConfigurationBuilder(
+            Object.class, Object.class, ResourcePoolsBuilder.heap(UPDATE_TIMESTAMPS_MAX_ENTRIES))
+            .build());
+    EhcacheCachingProvider provider = (EhcacheCachingProvider)
+        Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+    CacheManager manager = provider.getCacheManager(CACHE_MANAGER_URI,
+        new DefaultConfiguration(regions, getClass().getClassLoader()));
+    regions.keySet().forEach((name) -> manager.enableStatistics(name, true));
+    return manager;
+  }
+
+  /**
+   * Returns a customizer that directs Hibernate to use {@code entityCacheManager} for its
+   * second-level cache regions.
+   */
+  @Bean
+  public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+    return (properties) -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+  }
+
+  /**
+   * Returns a {@link MeterBinder} publishing the statistics of every second-level cache region.
+   */
+  @Bean
+  public MeterBinder entityCacheMetrics(CacheManager entityCacheManager) {
+    return (registry) -> {
+      for (String name : entityCacheManager.getCacheNames()) {
+        JCacheMetrics.monitor(registry, entityCacheManager.getCache(name));
+      }
+    };
+  }
+
+  private org.ehcache.config.CacheConfiguration<Object, Object> regionConfiguration(
+      long maxEntries, Duration timeToLive) {
+    return CacheConfigurationBuilder.newCacheConfigurationBuilder(
+        Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive))
+        .build();
+  }
+
+}
@@ -0,0 +1,131 @@
+package edu.cnm.deepdive.deepdivegallery.configuration;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestOperations;
+
+/**
+ * Local copy of the identity provider's JSON Web Key Set, used by the {@link
+ * org.springframework.security.oauth2.jwt.NimbusJwtDecoder} to verify token signatures. The key set
+ * is fetched when the application starts and refreshed periodically in the background (as
+ * specified by the {@code jwt-cache.jwk-set-refresh} property), so that token verification never
+ * waits on a request to the identity provider; if a refresh fails, the previously fetched key set
+ * remains in use. When a token is signed with a key that is not in the cached key set (as happens
+ * shortly after the identity provider rotates its keys), the key set is fetched immediately, but
+ * no more often than specified by the {@code jwt-cache.jwk-set-min-refresh-interval} property, so
+ * that tokens with fabricated key identifiers cannot cause a fetch on every request.
+ */
+@Component
+public class JwkSetCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(JwkSetCache.class);
+
+  private static final String CACHE_NAME = "jwk-set";
+
+  private final Cache cache;
+  private final RestOperations restOperations;
+  private final String jwkSetUri;
+  private final Duration minRefreshInterval;
+
+  private volatile Set<String> keyIds;
+  private Instant lastRefresh;
+
+  @Autowired
+  public JwkSetCache(RestTemplateBuilder restTemplateBuilder,
+      @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+      @Value("${jwt-cache.jwk-set-min-refresh-interval:PT1M}") Duration minRefreshInterval) {
+    this.jwkSetUri = jwkSetUri;
+    this.minRefreshInterval = minRefreshInterval;
+    keyIds = Collections.emptySet();
+    restOperations = restTemplateBuilder.build();
+    cache = new ConcurrentMapCache(CACHE_NAME);
+  }
+
+  /**
+   * Returns the URI of the key set.
+   */
+  public String getJwkSetUri() {
+    return jwkSetUri;
+  }
+
+  /**
+   * Returns the {@link Cache} holding the key set content, keyed by URI.
+   */
+  public Cache getCache() {
+    return cache;
+  }
+
+  /**
+   * Fetches the key set and replaces the cached copy.
+   */
+  @Scheduled(fixedDelayString = "${jwt-cache.jwk-set-refresh:PT15M}")
+  public synchronized void refresh() {
+    lastRefresh = Instant.now();
+    try {
+      String jwkSet = restOperations.getForObject(jwkSetUri, String.class);
+      if (jwkSet != null) {
+        keyIds = JWKSet.parse(jwkSet).getKeys().stream()
+            .map(JWK::getKeyID)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toUnmodifiableSet());
+        cache.put(jwkSetUri, jwkSet);
+      }
+    } catch (RestClientException | ParseException e) {
+      logger.warn("Unable to refresh JWK set from {}", jwkSetUri, e);
+    }
+  }
+
+  /**
+   * Fetches the key set immediately if the key identified in the header of {@code token} is not in
+   * the cached key set, and the key set has not been fetched within the minimum refresh interval.
+   * If another thread is already fetching the key set, this method waits for it to finish.
+   *
+   * @param token Encoded JSON Web Token that failed verification.
+   * @return {@code true} if the key set was not known to contain the token's key before this
+   * invocation, but does now; {@code false} otherwise (including if the token has no key
+   * identifier, or cannot be parsed).
+   */
+  public boolean refreshForUnknownKey(String token) {
+    String keyId = getKeyId(token);
+    boolean found = false;
+    if (keyId != null && !keyIds.contains(keyId)) {
+      synchronized (this) {
+        boolean due = lastRefresh == null
+            || !Instant.now().isBefore(lastRefresh.plus(minRefreshInterval));
+        if (due && !keyIds.contains(keyId)) {
+          logger.info("Refreshing JWK set from {} for unknown key {}", jwkSetUri, keyId);
+          refresh();
+        }
+        found = keyIds.contains(keyId);
+      }
+    }
+    return found;
+  }
+
+  private String getKeyId(String token) {
+    try {
+      return SignedJWT.parse(token).getHeader().getKeyID();
+    } catch (ParseException e) {
+      return null;
+    }
+  }
+
+}
@@ -1,5 +1,6 @@
 package edu.cnm.deepdive.deepdivegallery.configuration;
 
+import java.time.Duration;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,11 +14,11 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimNames;
 import org.springframework.security.oauth2.jwt.JwtClaimValidator;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtDecoders;
 import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 
@@ -26,26 +27,37 @@ import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
   private final Converter<Jwt, ? extends AbstractAuthenticationToken> converter;
+  private final JwkSetCache jwkSetCache;
 
   @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
   private String issuerUri;
   @Value("${spring.security.oauth2.resourceserver.jwt.client-id}")
   private String clientId;
+  @Value("${jwt-cache.max-size:10000}")
+  private int jwtCacheMaxSize;
+  @Value("${jwt-cache.time-to-live:PT1H}")
+  private Duration jwtCacheTimeToLive;
 
   /**
    * Initializes this instance with the provided {@link Converter}, used to convert the Bearer token
-   * into a token useful for later injection into controller methods.
+   * into a token useful for later injection into controller methods, and the {@link JwkSetCache}
+   * holding the keys used to verify token signatures.
    *
-   * @param converter Token converter.
+   * @param converter   Token converter.
+   * @param jwkSetCache Local copy of the identity provider's key set.
    */
   @Autowired
-  public SecurityConfiguration(Converter<Jwt, ? extends AbstractAuthenticationToken> converter) {
+  public SecurityConfiguration(Converter<Jwt, ? extends AbstractAuthenticationToken> converter,
+      JwkSetCache jwkSetCache) {
     this.converter = converter;
+    this.jwkSetCache = jwkSetCache;
   }
 
   /**
    * Declares access-control rules on REST endpoints, based on HTTP method, authentication status,
-   * and roles/authorities granted.
+   * and roles/authorities granted. Actuator metrics, which expose cache and query statistics, are
+   * restricted to users with the {@code ADMIN} role (see {@link
+   * edu.cnm.deepdive.deepdivegallery.service.UserService#convert(Jwt)}).
    *
    * @param http Security builder.
    * @throws Exception If an error occurs.
@@ -55,6 +67,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     http
         .authorizeRequests((auth) ->
             auth
+                .antMatchers("/actuator/metrics/**").hasRole("ADMIN")
+                .antMatchers("/images/uploads/**").authenticated()
+                .antMatchers("/images/imports/**").authenticated()
                 .antMatchers(HttpMethod.GET, "/images/**").permitAll()
                 .anyRequest().authenticated()
         )
@@ -62,15 +77,34 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         .jwtAuthenticationConverter(converter);
   }
 
+  /**
+   * Returns a {@link JwtDecoder} that verifies token signatures against the locally cached key set,
+   * validates the issuer and audience claims, and caches successfully validated tokens until they
+   * expire. A token signed with a key missing from the cached key set is verified again after the
+   * key set is fetched (subject to the rate limit imposed by {@link
+   * JwkSetCache#refreshForUnknownKey(String)}).
+   */
   @Bean
   public JwtDecoder jwtDecoder() {
-    NimbusJwtDecoder decoder = (NimbusJwtDecoder) JwtDecoders.fromIssuerLocation(issuerUri);
+    NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(jwkSetCache.getJwkSetUri())
+        .cache(jwkSetCache.getCache())
+        .build();
     OAuth2TokenValidator<Jwt> audienceValidator =
         new JwtClaimValidator<List<String>>(JwtClaimNames.AUD, (aud) -> aud.contains(clientId));
     OAuth2TokenValidator<Jwt> withIssuer = JwtValidators.createDefaultWithIssuer(issuerUri);
     OAuth2TokenValidator<Jwt> withAudience = new DelegatingOAuth2TokenValidator<Jwt>(withIssuer,
         audienceValidator);
     decoder.setJwtValidator(withAudience);
-    return decoder;
+    JwtDecoder refreshingDecoder = (token) -> {
+      try {
+        return decoder.decode(token);
+      } catch (BadJwtException e) {
+        if (jwkSetCache.refreshForUnknownKey(token)) {
+          return decoder.decode(token);
+        }
+        throw e;
+      }
+    };
+    return new CachingJwtDecoder(refreshingDecoder, jwtCacheMaxSize, jwtCacheTimeToLive);
   }
 }
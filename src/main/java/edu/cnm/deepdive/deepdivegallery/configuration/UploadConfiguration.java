@@ -1,11 +1,15 @@
 package edu.cnm.deepdive.deepdivegallery.configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.system.ApplicationHome;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Declares a hierarchical set of properties, mapping to a corresponding hierarchy of application
@@ -18,9 +22,16 @@ import org.springframework.stereotype.Component;
 public class UploadConfiguration {
 
   private boolean applicationHome;
+  private String storage = "local";
   private String path;
   private List<String> contentTypes;
   private FilenameProperties filename;
+  private DerivativeProperties derivatives = new DerivativeProperties();
+  private ResizeProperties resize = new ResizeProperties();
+  private BulkProperties bulk = new BulkProperties();
+  private ChunkedProperties chunked = new ChunkedProperties();
+  private ImportProperties imports = new ImportProperties();
+  private ReconcileProperties reconcile = new ReconcileProperties();
 
   /**
    * Base directory of the file store, relative to the application home directory (if {@code
@@ -46,6 +57,19 @@ public class UploadConfiguration {
     this.applicationHome = applicationHome;
   }
 
+  /**
+   * Returns the storage implementation in use: {@code local} (the default) for generated,
+   * timestamp-based filenames, or {@code content-addressable} for deduplicating storage keyed by
+   * content digest.
+   */
+  public String getStorage() {
+    return storage;
+  }
+
+  public void setStorage(String storage) {
+    this.storage = storage;
+  }
+
   /**
    * Returns the base directory of the file store, relative to the application home directory (if
    * {@link #isApplicationHome()} returns {@code true}) or to the current working directory.
@@ -64,6 +88,17 @@ public class UploadConfiguration {
     this.directory = directory;
   }
 
+  /**
+   * Resolves the base directory of the file store, according to {@link #getDirectory()} and {@link
+   * #isApplicationHome()}.
+   *
+   * @param home Application home, used if {@link #isApplicationHome()} returns {@code true}.
+   * @return Base directory of the file store.
+   */
+  public Path resolveDirectory(ApplicationHome home) {
+    return applicationHome ? home.getDir().toPath().resolve(directory) : Path.of(directory);
+  }
+
   /**
    * Returns a regular expression pattern that (in general) includes one or more capture groups,
    * used for constructing a subdirectory path for any given generated filename.
@@ -95,6 +130,60 @@ public class UploadConfiguration {
     this.contentTypes = contentTypes;
   }
 
+  /**
+   * Returns the properties controlling generation of reduced-size image derivatives.
+   */
+  public DerivativeProperties getDerivatives() {
+    return derivatives;
+  }
+
+  public void setDerivatives(DerivativeProperties derivatives) {
+    this.derivatives = derivatives;
+  }
+
+  /**
+   * Returns the properties controlling on-demand resizing and caching of image content.
+   */
+  public ResizeProperties getResize() {
+    return resize;
+  }
+
+  public void setResize(ResizeProperties resize) {
+    this.resize = resize;
+  }
+
+  public BulkProperties getBulk() {
+    return bulk;
+  }
+
+  public void setBulk(BulkProperties bulk) {
+    this.bulk = bulk;
+  }
+
+  public ChunkedProperties getChunked() {
+    return chunked;
+  }
+
+  public void setChunked(ChunkedProperties chunked) {
+    this.chunked = chunked;
+  }
+
+  public ImportProperties getImports() {
+    return imports;
+  }
+
+  public void setImports(ImportProperties imports) {
+    this.imports = imports;
+  }
+
+  public ReconcileProperties getReconcile() {
+    return reconcile;
+  }
+
+  public void setReconcile(ReconcileProperties reconcile) {
+    this.reconcile = reconcile;
+  }
+
   public FilenameProperties getFilename() {
     return filename;
   }
@@ -180,4 +269,293 @@ public class UploadConfiguration {
     }
 
   }
-}
\ No newline at end of file
+
+  public static class DerivativeProperties {
+
+    private int threads = 2;
+    private int queueCapacity = 500;
+
+    /**
+     * Returns the number of worker threads used to generate derivatives.
+     */
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    /**
+     * Returns the maximum number of images that may be waiting for derivative generation.
+     */
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+  }
+
+  public static class ResizeProperties {
+
+    private int maxDimension = 4096;
+    private DataSize memoryCacheSize = DataSize.ofMegabytes(32);
+    private DataSize diskCacheSize = DataSize.ofMegabytes(512);
+
+    /**
+     * Returns the largest width or height (in pixels) that may be requested.
+     */
+    public int getMaxDimension() {
+      return maxDimension;
+    }
+
+    public void setMaxDimension(int maxDimension) {
+      this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Returns the maximum total size of resized content held in memory.
+     */
+    public DataSize getMemoryCacheSize() {
+      return memoryCacheSize;
+    }
+
+    public void setMemoryCacheSize(DataSize memoryCacheSize) {
+      this.memoryCacheSize = memoryCacheSize;
+    }
+
+    /**
+     * Returns the maximum total size of resized content held in the disk cache.
+     */
+    public DataSize getDiskCacheSize() {
+      return diskCacheSize;
+    }
+
+    public void setDiskCacheSize(DataSize diskCacheSize) {
+      this.diskCacheSize = diskCacheSize;
+    }
+
+  }
+
+  public static class BulkProperties {
+
+    private int maxFiles = 500;
+    private DataSize maxRequestSize = DataSize.ofMegabytes(500);
+
+    /**
+     * Returns the maximum number of files accepted in a single bulk upload request.
+     */
+    public int getMaxFiles() {
+      return maxFiles;
+    }
+
+    public void setMaxFiles(int maxFiles) {
+      this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Returns the maximum total size of a bulk upload request body.
+     */
+    public DataSize getMaxRequestSize() {
+      return maxRequestSize;
+    }
+
+    public void setMaxRequestSize(DataSize maxRequestSize) {
+      this.maxRequestSize = maxRequestSize;
+    }
+
+  }
+
+  public static class ChunkedProperties {
+
+    private DataSize maxSize = DataSize.ofMegabytes(200);
+    private int maxSessions = 10;
+    private DataSize maxStagedSize = DataSize.ofGigabytes(1);
+    private Duration timeToLive = Duration.ofHours(24);
+
+    /**
+     * Returns the maximum total size of a file uploaded in chunks.
+     */
+    public DataSize getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the maximum number of open upload sessions per contributor.
+     */
+    public int getMaxSessions() {
+      return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+      this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Returns the maximum total declared size of the files in a contributor's open upload
+     * sessions.
+     */
+    public DataSize getMaxStagedSize() {
+      return maxStagedSize;
+    }
+
+    public void setMaxStagedSize(DataSize maxStagedSize) {
+      this.maxStagedSize = maxStagedSize;
+    }
+
+    /**
+     * Returns the time after the last chunk is received at which an incomplete upload session
+     * expires, and its staged content is removed.
+     */
+    public Duration getTimeToLive() {
+      return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+      this.timeToLive = timeToLive;
+    }
+
+  }
+
+  public static class ImportProperties {
+
+    private int threads = 4;
+    private int maxPending = 16;
+    private int batchSize = 250;
+    private DataSize maxEntrySize = DataSize.ofMegabytes(50);
+    private Duration retention = Duration.ofHours(24);
+
+    /**
+     * Returns the number of worker threads writing imported files to the file store.
+     */
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    /**
+     * Returns the maximum number of extracted files, per import, that may be staged on disk,
+     * waiting to be written to the file store.
+     */
+    public int getMaxPending() {
+      return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+      this.maxPending = maxPending;
+    }
+
+    /**
+     * Returns the number of images persisted in each transaction.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the maximum size of a single file extracted from an archive; larger files are
+     * rejected.
+     */
+    public DataSize getMaxEntrySize() {
+      return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+      this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Returns the time for which the state of a finished import remains available; staged files
+     * older than this (e.g. left by an interrupted import) are removed.
+     */
+    public Duration getRetention() {
+      return retention;
+    }
+
+    public void setRetention(Duration retention) {
+      this.retention = retention;
+    }
+
+  }
+
+  public static class ReconcileProperties {
+
+    private boolean quarantine = true;
+    private Duration gracePeriod = Duration.ofHours(1);
+    private Duration quarantineRetention = Duration.ofDays(7);
+    private int batchSize = 500;
+    private int maxRemovalsPerSecond = 20;
+
+    /**
+     * Returns a flag indicating whether orphaned files are moved to the quarantine directory
+     * ({@code true}), or deleted immediately ({@code false}).
+     */
+    public boolean isQuarantine() {
+      return quarantine;
+    }
+
+    public void setQuarantine(boolean quarantine) {
+      this.quarantine = quarantine;
+    }
+
+    /**
+     * Returns the minimum age of a file before it may be treated as orphaned.
+     */
+    public Duration getGracePeriod() {
+      return gracePeriod;
+    }
+
+    public void setGracePeriod(Duration gracePeriod) {
+      this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * Returns the time for which quarantined files are kept before being deleted.
+     */
+    public Duration getQuarantineRetention() {
+      return quarantineRetention;
+    }
+
+    public void setQuarantineRetention(Duration quarantineRetention) {
+      this.quarantineRetention = quarantineRetention;
+    }
+
+    /**
+     * Returns the maximum number of files checked against the database in a single query.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the maximum rate at which orphaned files are deleted or quarantined.
+     */
+    public int getMaxRemovalsPerSecond() {
+      return maxRemovalsPerSecond;
+    }
+
+    public void setMaxRemovalsPerSecond(int maxRemovalsPerSecond) {
+      this.maxRemovalsPerSecond = maxRemovalsPerSecond;
+    }
+
+  }
+
+}
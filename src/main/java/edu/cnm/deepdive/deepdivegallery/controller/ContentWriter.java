@@ -0,0 +1,315 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Writes stored file content to an HTTP response, honoring conditional request headers ({@code
+ * If-None-Match}, {@code If-Modified-Since}, {@code If-Match}, {@code If-Unmodified-Since}) and
+ * byte-range requests ({@code Range}, {@code If-Range}). Single ranges are returned as a {@code 206
+ * Partial Content} response with a {@code Content-Range} header; multiple ranges are returned as a
+ * {@code multipart/byteranges} body.
+ * <p>
+ * Where the servlet container supports it (e.g. Tomcat's NIO connector), full and single-range
+ * responses of non-trivial size are handed off to the container's {@code sendfile} support, so that
+ * the container writes the file region to the socket itself, without passing the bytes through the
+ * JVM heap. Otherwise (small responses, {@code multipart/byteranges} bodies, and containers without
+ * {@code sendfile} support), content is copied with {@link FileChannel#transferTo(long, long,
+ * WritableByteChannel)} into a channel over the servlet output stream; since that target is neither
+ * a file nor a socket channel, the JDK copies through a small intermediate buffer, so this path is
+ * not zero-copy.</p>
+ */
+@Component
+public class ContentWriter {
+
+  private static final String BYTES_UNIT = "bytes";
+  private static final String CONTENT_RANGE_FORMAT = BYTES_UNIT + " %d-%d/%d";
+  private static final String UNSATISFIABLE_RANGE_FORMAT = BYTES_UNIT + " */%d";
+  private static final String BYTERANGES_CONTENT_TYPE_FORMAT =
+      "multipart/byteranges; boundary=%s";
+  private static final String PART_HEADER_FORMAT = "\r\n--%s\r\n"
+      + HttpHeaders.CONTENT_TYPE + ": %s\r\n"
+      + HttpHeaders.CONTENT_RANGE + ": %s\r\n\r\n";
+  private static final String CLOSE_DELIMITER_FORMAT = "\r\n--%s--\r\n";
+  private static final String WEAK_ETAG_PREFIX = "W/";
+  private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+  private static final long SENDFILE_THRESHOLD = 48 * 1024;
+  private static final String TRUNCATED_CONTENT_FORMAT =
+      "Content of %s ended after %d of %d bytes";
+
+  /**
+   * Writes the content of {@code resource} to {@code response}, or a {@code 304 Not Modified} (or
+   * {@code 412 Precondition Failed}) status, if the request preconditions indicate that the content
+   * should not be sent.
+   *
+   * @param resource     Stored content; must be resolvable to a file in the filesystem.
+   * @param contentType  MIME type of the content.
+   * @param disposition  Value of the {@code Content-Disposition} header.
+   * @param etag         Strong entity tag (including double quotes) for the content, or {@code
+   *                     null} if none is available.
+   * @param lastModified Last modification timestamp of the content, in milliseconds since the
+   *                     epoch.
+   * @param request      Current request.
+   * @param response     Current response.
+   * @throws IOException If the content cannot be read, or the response cannot be written.
+   */
+  public void write(@NonNull Resource resource, @NonNull String contentType, String disposition,
+      String etag, long lastModified, @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response) throws IOException {
+    if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+      return;
+    }
+    try (FileContent content = new FileContent(resource.getFile().toPath())) {
+      write(content, contentType, disposition, etag, lastModified, request, response);
+    }
+  }
+
+  /**
+   * Writes {@code content}, held in memory, to {@code response}, with the same handling of
+   * conditional and byte-range requests as {@link #write(Resource, String, String, String, long,
+   * HttpServletRequest, HttpServletResponse)}.
+   *
+   * @param content      Content to be written.
+   * @param contentType  MIME type of the content.
+   * @param disposition  Value of the {@code Content-Disposition} header.
+   * @param etag         Strong entity tag (including double quotes) for the content, or {@code
+   *                     null} if none is available.
+   * @param lastModified Last modification timestamp of the content, in milliseconds since the
+   *                     epoch.
+   * @param request      Current request.
+   * @param response     Current response.
+   * @throws IOException If the response cannot be written.
+   */
+  public void write(@NonNull byte[] content, @NonNull String contentType, String disposition,
+      String etag, long lastModified, @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response) throws IOException {
+    if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+      return;
+    }
+    write(new ByteContent(content), contentType, disposition, etag, lastModified,
+        request, response);
+  }
+
+  private void write(Content content, String contentType, String disposition, String etag,
+      long lastModified, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    long length = content.length();
+    boolean head = HttpMethod.HEAD.matches(request.getMethod());
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+    if (disposition != null) {
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition);
+    }
+    List<long[]> bounds = isRangeApplicable(request, etag, lastModified)
+        ? resolve(parseRanges(request.getHeader(HttpHeaders.RANGE)), length)
+        : null;
+    if (bounds == null) {
+      response.setContentType(contentType);
+      response.setContentLengthLong(length);
+      if (!head) {
+        content.send(0, length, request, response);
+      }
+    } else if (bounds.isEmpty()) {
+      response.setHeader(HttpHeaders.CONTENT_RANGE,
+          String.format(UNSATISFIABLE_RANGE_FORMAT, length));
+      response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+    } else if (bounds.size() == 1) {
+      long[] range = bounds.get(0);
+      response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+      response.setContentType(contentType);
+      response.setHeader(HttpHeaders.CONTENT_RANGE,
+          String.format(CONTENT_RANGE_FORMAT, range[0], range[1], length));
+      response.setContentLengthLong(range[1] - range[0] + 1);
+      if (!head) {
+        content.send(range[0], range[1] - range[0] + 1, request, response);
+      }
+    } else {
+      String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+      response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+      response.setContentType(String.format(BYTERANGES_CONTENT_TYPE_FORMAT, boundary));
+      if (!head) {
+        OutputStream output = response.getOutputStream();
+        for (long[] range : bounds) {
+          output.write(String.format(PART_HEADER_FORMAT, boundary, contentType,
+              String.format(CONTENT_RANGE_FORMAT, range[0], range[1], length))
+              .getBytes(StandardCharsets.US_ASCII));
+          content.transfer(range[0], range[1] - range[0] + 1, output);
+        }
+        output.write(
+            String.format(CLOSE_DELIMITER_FORMAT, boundary).getBytes(StandardCharsets.US_ASCII));
+      }
+    }
+  }
+
+  private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+    boolean applicable = true;
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange != null) {
+      if (ifRange.startsWith("\"") || ifRange.startsWith(WEAK_ETAG_PREFIX)) {
+        applicable = etag != null && etag.equals(ifRange);
+      } else {
+        try {
+          long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+          applicable = date >= 0 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+          applicable = false;
+        }
+      }
+    }
+    return applicable;
+  }
+
+  private List<HttpRange> parseRanges(String header) {
+    List<HttpRange> ranges;
+    try {
+      ranges = HttpRange.parseRanges(header);
+    } catch (IllegalArgumentException e) {
+      ranges = List.of();
+    }
+    return ranges;
+  }
+
+  /**
+   * Resolves the requested ranges to inclusive start/end positions, discarding unsatisfiable
+   * ranges. Returns {@code null} if no ranges were requested, or if the total length requested
+   * exceeds the content length; in either case, the full content should be returned instead.
+   */
+  private List<long[]> resolve(List<HttpRange> ranges, long length) {
+    List<long[]> bounds = new LinkedList<>();
+    long total = 0;
+    for (HttpRange range : ranges) {
+      long start = range.getRangeStart(length);
+      long end = range.getRangeEnd(length);
+      if (start < length && start <= end) {
+        bounds.add(new long[]{start, end});
+        total += end - start + 1;
+      }
+    }
+    return (ranges.isEmpty() || (bounds.size() > 1 && total > length)) ? null : bounds;
+  }
+
+  /**
+   * Source of content to be written in whole or in part.
+   */
+  private interface Content {
+
+    long length() throws IOException;
+
+    /**
+     * Sends the specified portion of the content as the response body.
+     */
+    void send(long position, long count, HttpServletRequest request, HttpServletResponse response)
+        throws IOException;
+
+    /**
+     * Writes the specified portion of the content to {@code output}.
+     */
+    void transfer(long position, long count, OutputStream output) throws IOException;
+
+  }
+
+  private static class FileContent implements Content, AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+
+    private FileContent(Path file) throws IOException {
+      this.file = file;
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @Override
+    public long length() throws IOException {
+      return channel.size();
+    }
+
+    @Override
+    public void send(long position, long count, HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+      if (count >= SENDFILE_THRESHOLD
+          && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, position);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, position + count);
+      } else {
+        transfer(position, count, response.getOutputStream());
+      }
+    }
+
+    /**
+     * Writes exactly {@code count} bytes, starting at {@code position}, to {@code output}. Since
+     * the length of the content (and possibly the {@code Content-Length} header) has already been
+     * sent, a file that ends early is reported as an {@link EOFException}, rather than silently
+     * truncating the response body.
+     */
+    @Override
+    public void transfer(long position, long count, OutputStream output) throws IOException {
+      WritableByteChannel target = Channels.newChannel(output);
+      long remaining = count;
+      while (remaining > 0) {
+        long transferred = channel.transferTo(position, remaining, target);
+        if (transferred <= 0) {
+          throw new EOFException(String.format(TRUNCATED_CONTENT_FORMAT,
+              file, count - remaining, count));
+        }
+        position += transferred;
+        remaining -= transferred;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+
+  }
+
+  private static class ByteContent implements Content {
+
+    private final byte[] content;
+
+    private ByteContent(byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    public long length() {
+      return content.length;
+    }
+
+    @Override
+    public void send(long position, long count, HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+      transfer(position, count, response.getOutputStream());
+    }
+
+    @Override
+    public void transfer(long position, long count, OutputStream output) throws IOException {
+      output.write(content, (int) position, (int) count);
+    }
+
+  }
+
+}
@@ -0,0 +1,60 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import org.springframework.lang.NonNull;
+
+/**
+ * Opaque position in a keyset-paginated listing, consisting of the sort key and the unique
+ * identifier of the last item returned. Tokens are exchanged with clients in a URL-safe Base64
+ * encoding; clients should not attempt to construct or interpret them.
+ */
+public class ContinuationToken {
+
+  private static final char DELIMITER = '\n';
+
+  private final String key;
+  private final UUID id;
+
+  /**
+   * Initializes this token with the specified sort key and item identifier.
+   */
+  public ContinuationToken(@NonNull String key, @NonNull UUID id) {
+    this.key = key;
+    this.id = id;
+  }
+
+  /**
+   * Decodes and returns the token represented by {@code token}.
+   *
+   * @throws IllegalArgumentException If {@code token} is not a valid encoded token.
+   */
+  public static ContinuationToken decode(@NonNull String token) throws IllegalArgumentException {
+    String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    int delimiter = decoded.lastIndexOf(DELIMITER);
+    if (delimiter < 0) {
+      throw new IllegalArgumentException("Malformed continuation token");
+    }
+    return new ContinuationToken(
+        decoded.substring(0, delimiter), UUID.fromString(decoded.substring(delimiter + 1)));
+  }
+
+  /**
+   * Returns the encoded form of this token.
+   */
+  public String encode() {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString((key + DELIMITER + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+}
@@ -3,20 +3,31 @@ package edu.cnm.deepdive.deepdivegallery.controller;
 import edu.cnm.deepdive.deepdivegallery.model.dao.GalleryRepository;
 import edu.cnm.deepdive.deepdivegallery.model.dao.UserRepository;
 import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
 import edu.cnm.deepdive.deepdivegallery.service.GalleryService;
 import edu.cnm.deepdive.deepdivegallery.service.GalleryService.GalleryNotFoundException;
+import edu.cnm.deepdive.deepdivegallery.service.GalleryService.ImageNotInGalleryException;
 import edu.cnm.deepdive.deepdivegallery.service.ImageService;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.ImageNotFoundException;
 import edu.cnm.deepdive.deepdivegallery.service.UserService;
+import edu.cnm.deepdive.deepdivegallery.view.GalleryItem;
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.hateoas.server.ExposesResourceFor;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -24,7 +35,15 @@ import org.springframework.web.bind.annotation.RestController;
 @ExposesResourceFor(Gallery.class)
 public class GalleryController {
 
+  private static final String IMAGES_PATH = "/{id}/images";
+  private static final String IMAGE_PATH = IMAGES_PATH + "/{imageId}";
+  private static final String ARCHIVE_PATH = "/{id}/archive";
+  private static final String BEFORE_PARAM_NAME = "before";
+  private static final String ARCHIVE_FILENAME_FORMAT = "%s.zip";
+
   private final UserService userService;
+  private final ImageService imageService;
+  private final ZipStreamWriter zipStreamWriter;
   private final UserRepository userRepository;
   private final GalleryService galleryService;
   private final GalleryRepository galleryRepository;
@@ -33,8 +52,11 @@ public class GalleryController {
       ImageService imageService,
       UserRepository userRepository,
       GalleryService galleryService,
-      GalleryRepository galleryRepository) {
+      GalleryRepository galleryRepository,
+      ZipStreamWriter zipStreamWriter) {
     this.userService = userService;
+    this.imageService = imageService;
+    this.zipStreamWriter = zipStreamWriter;
     this.userRepository = userRepository;
     this.galleryService = galleryService;
     this.galleryRepository = galleryRepository;
@@ -54,15 +76,95 @@ public class GalleryController {
   }
 
   /**
-   * Returns a list of images that have been associated to a given gallery stored in the database.
-   * @param id the identifying number of a gallery.
-   * @return a list containing the images associated with a given gallery.
+   * Returns a page of the images in the specified gallery, in gallery order. If there are more
+   * images following the page, the response includes a {@code next} link, with an {@code after}
+   * continuation token.
+   *
+   * @param id    Unique identifier of the gallery.
+   * @param after Continuation token from a previous page, or {@code null} for the first page.
+   * @param limit Maximum number of images to return (default 100, maximum 1000).
+   * @return Selected images.
    */
-/*  @GetMapping(value = "/{id}/images", produces = MediaType.APPLICATION_JSON_VALUE)
-  public List<Image> getImages(@PathVariable UUID id) {
-    return galleryService.getImages(id)
+  @GetMapping(value = IMAGES_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<GalleryItem>> getImages(@PathVariable UUID id,
+      @RequestParam(value = KeysetPaging.AFTER_PARAM_NAME, required = false) String after,
+      @RequestParam(value = KeysetPaging.LIMIT_PARAM_NAME, required = false) Integer limit) {
+    Gallery gallery = galleryService.get(id)
         .orElseThrow(GalleryNotFoundException::new);
-  }*/// TODO uncomment and solve null gallery_id problem
+    int pageSize = KeysetPaging.checkLimit(limit);
+    ContinuationToken token = KeysetPaging.parseToken(after);
+    List<GalleryItem> images = (token != null)
+        ? galleryService.getImages(gallery,
+            KeysetPaging.parsePosition(token.getKey()), token.getId(), pageSize + 1)
+        : galleryService.getImages(gallery, null, null, pageSize + 1);
+    return KeysetPaging.page(images, pageSize, (image) ->
+        new ContinuationToken(String.valueOf(image.getPosition()), image.getId()));
+  }
+
+  /**
+   * Writes the original content of all images in the specified gallery to the response, in gallery
+   * order, as a ZIP archive. The archive is streamed as it is assembled, so it may be arbitrarily
+   * large.
+   *
+   * @param id       Unique identifier of the gallery.
+   * @param response Current response.
+   * @throws IOException If the response cannot be written.
+   */
+  @GetMapping(value = ARCHIVE_PATH, produces = ZipStreamWriter.ZIP_CONTENT_TYPE)
+  public void getArchive(@PathVariable UUID id, HttpServletResponse response)
+      throws IOException {
+    Gallery gallery = galleryService.get(id)
+        .orElseThrow(GalleryNotFoundException::new);
+    String title = gallery.getTitle();
+    String filename = String.format(ARCHIVE_FILENAME_FORMAT,
+        (title != null && !title.isBlank()) ? title : gallery.getId().toString());
+    zipStreamWriter.write((consumer) -> galleryService.forEachImage(gallery, consumer),
+        filename, response);
+  }
+
+  /**
+   * Adds an image to the specified gallery, or moves it within the gallery. The image is placed
+   * immediately before the image identified by {@code before}, or at the end of the gallery if
+   * {@code before} is not specified. Only the creator of the gallery may change its contents.
+   *
+   * @param id      Unique identifier of the gallery.
+   * @param imageId Unique identifier of the image to add or move.
+   * @param before  Unique identifier of the member image before which the image is placed.
+   * @param auth    Authentication token with {@link User} principal.
+   * @return The image, as a member of the gallery.
+   */
+  @PutMapping(value = IMAGE_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+  public GalleryItem putImage(@PathVariable UUID id, @PathVariable UUID imageId,
+      @RequestParam(value = BEFORE_PARAM_NAME, required = false) UUID before,
+      Authentication auth) {
+    Gallery gallery = galleryService.get(id, (User) auth.getPrincipal())
+        .orElseThrow(GalleryNotFoundException::new);
+    Image image = imageService.get(imageId)
+        .orElseThrow(ImageNotFoundException::new);
+    Image next = (before != null)
+        ? imageService.get(before).orElseThrow(ImageNotInGalleryException::new)
+        : null;
+    galleryService.place(gallery, image, next);
+    return galleryService.getImage(gallery, image)
+        .orElseThrow(ImageNotInGalleryException::new);
+  }
+
+  /**
+   * Removes an image from the specified gallery. The image itself is not deleted. Only the creator
+   * of the gallery may change its contents.
+   *
+   * @param id      Unique identifier of the gallery.
+   * @param imageId Unique identifier of the image to remove.
+   * @param auth    Authentication token with {@link User} principal.
+   */
+  @DeleteMapping(value = IMAGE_PATH)
+  public void deleteImage(@PathVariable UUID id, @PathVariable UUID imageId,
+      Authentication auth) {
+    Gallery gallery = galleryService.get(id, (User) auth.getPrincipal())
+        .orElseThrow(GalleryNotFoundException::new);
+    imageService.get(imageId)
+        .ifPresent((image) -> galleryService.remove(gallery, image));
+  }
 
   /**
    * Creates a new Gallery
@@ -1,25 +1,46 @@
 package edu.cnm.deepdive.deepdivegallery.controller;
 
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.MalformedMultipartException;
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.Part;
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.RequestSizeLimitExceededException;
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.SizeLimitExceededException;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative.Size;
 import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
 import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.BulkUploadService;
+import edu.cnm.deepdive.deepdivegallery.service.BulkUploadService.Batch;
+import edu.cnm.deepdive.deepdivegallery.service.BulkUploadService.UploadResult;
 import edu.cnm.deepdive.deepdivegallery.service.GalleryService;
 import edu.cnm.deepdive.deepdivegallery.service.ImageService;
 import edu.cnm.deepdive.deepdivegallery.service.ImageService.ImageNotFoundException;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.InvalidMetadataException;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.MetadataError;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.MetadataUpdate;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.SearchResults;
+import edu.cnm.deepdive.deepdivegallery.service.ResizeService.Fit;
+import edu.cnm.deepdive.deepdivegallery.service.ResizeService.Rendition;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
 import edu.cnm.deepdive.deepdivegallery.service.UserService;
+import edu.cnm.deepdive.deepdivegallery.view.ImageSummary;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import org.hibernate.validator.constraints.Length;
-import org.springframework.core.io.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.hateoas.server.ExposesResourceFor;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -42,72 +63,256 @@ public class ImageController {
       ParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/description";
   private static final String CONTENT_PROPERTY_PATTERN =
       ParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/content";
+  private static final String BATCH_PATH = "/batch";
+  private static final String ID_PARAM_NAME = "id";
   private static final String CONTRIBUTOR_PARAM_NAME = "contributor";
+  private static final String FILE_PART_NAME = "file";
+  private static final String TITLE_PART_NAME = "title";
+  private static final String DESCRIPTION_PART_NAME = "description";
   private static final String FRAGMENT_PARAM_NAME = "q";
+  private static final String SIZE_PARAM_NAME = "size";
+  private static final String WIDTH_PARAM_NAME = "w";
+  private static final String HEIGHT_PARAM_NAME = "h";
+  private static final String FIT_PARAM_NAME = "fit";
+  private static final String STREAM_PARAM = "stream=true";
+  private static final int MAX_BATCH_SIZE = 200;
   private static final String ATTACHMENT_DISPOSITION_FORMAT = "attachment; filename=\"%s\"";
+  private static final String ENTITY_TAG_FORMAT = "\"%s\"";
   private static final String IMAGE_NOT_FOUND_REASON = "Image not found";
   private static final String USER_NOT_FOUND_REASON = "User not found";
+  private static final String MISSING_FILE_REASON = "No file part in upload";
+  private static final String MALFORMED_REQUEST_REASON = "Malformed multipart request";
+  private static final String TOO_LARGE_REASON = "Uploaded file too large";
+  private static final String REQUEST_TOO_LARGE_REASON = "Upload request too large";
+  private static final String INVALID_SIZE_REASON = "Unknown image size";
+  private static final String INVALID_DIMENSION_REASON = "Invalid image dimension";
+  private static final String INVALID_FIT_REASON = "Unknown fit method";
+  private static final String BATCH_TOO_LARGE_REASON = "Too many images in batch";
   private static final String NOT_RETRIEVED_MESSAGE = "Unable to retrieve previously uploaded file";
   private static final String NOT_STORED_MESSAGE = "Unable to store uploaded content";
 
   private final UserService userService;
   private final ImageService imageService;
   private final GalleryService galleryService;
+  private final BulkUploadService bulkUploadService;
+  private final ContentWriter contentWriter;
+  private final JsonStreamWriter jsonStreamWriter;
+  private final long maxFileSize;
+  private final long maxRequestSize;
 
   public ImageController(UserService userService,
       ImageService imageService,
-      GalleryService galleryService) {
+      GalleryService galleryService,
+      BulkUploadService bulkUploadService,
+      ContentWriter contentWriter,
+      JsonStreamWriter jsonStreamWriter,
+      MultipartProperties multipartProperties) {
     this.userService = userService;
     this.imageService = imageService;
     this.galleryService = galleryService;
+    this.bulkUploadService = bulkUploadService;
+    this.contentWriter = contentWriter;
+    this.jsonStreamWriter = jsonStreamWriter;
+    maxFileSize = multipartProperties.getMaxFileSize().toBytes();
+    long requestSize = multipartProperties.getMaxRequestSize().toBytes();
+    maxRequestSize = (requestSize >= 0) ? requestSize : Long.MAX_VALUE;
   }
 
   /**
-   * Selects and returns all images.
+   * Selects and returns a page of images, in created datetime (descending) order. If more images
+   * follow the returned page, a {@code Link} header with relation type {@code next} is included,
+   * giving the URL of the next page; the {@code after} parameter of that URL is an opaque
+   * continuation token. Since pages are selected by key (rather than by offset), the cost of
+   * retrieving a page does not depend on its position in the listing.
    *
-   * @param auth Authentication token with {@link User} principal.
+   * @param after Continuation token, as returned in the {@code next} link of a previous page.
+   * @param limit Maximum number of images to return (default 100, maximum 1000).
    * @return Selected images.
    */
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-  public Iterable<Image> list() {
-    return imageService.list();
+  public ResponseEntity<List<ImageSummary>> list(
+      @RequestParam(value = KeysetPaging.AFTER_PARAM_NAME, required = false) String after,
+      @RequestParam(value = KeysetPaging.LIMIT_PARAM_NAME, required = false) Integer limit) {
+    int pageSize = KeysetPaging.checkLimit(limit);
+    ContinuationToken token = KeysetPaging.parseToken(after);
+    List<ImageSummary> images = (token != null)
+        ? imageService.list(
+            KeysetPaging.parseTimestamp(token.getKey()), token.getId(), pageSize + 1)
+        : imageService.list(null, null, pageSize + 1);
+    return KeysetPaging.page(images, pageSize, (image) ->
+        new ContinuationToken(String.valueOf(image.getCreated().getTime()), image.getId()));
   }
 
+  /**
+   * Selects and returns a page of images matching {@code q} (and contributed by the specified user,
+   * if any), in descending order of relevance. Terms of {@code q} are matched against the name,
+   * title, and description of each image, exactly, by prefix, or approximately. Pagination is as
+   * for {@link #list(String, Integer)}.
+   *
+   * @param contributorId Unique identifier of contributor.
+   * @param fragment      Text to be matched.
+   * @param after         Continuation token, as returned in the {@code next} link of a previous
+   *                      page.
+   * @param limit         Maximum number of images to return (default 100, maximum 1000).
+   * @param auth          Authentication token with {@link User} principal.
+   * @return Selected images.
+   */
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = {"contributor", "q"})
-  public Iterable<Image> search(
+  public ResponseEntity<List<ImageSummary>> search(
       @RequestParam(value = CONTRIBUTOR_PARAM_NAME, required = false) UUID contributorId,
       @RequestParam(value = FRAGMENT_PARAM_NAME, required = false) String fragment,
+      @RequestParam(value = KeysetPaging.AFTER_PARAM_NAME, required = false) String after,
+      @RequestParam(value = KeysetPaging.LIMIT_PARAM_NAME, required = false) Integer limit,
       Authentication auth) {
-    return (
-        (contributorId != null)
-            ? userService.get(contributorId)
-            .map((contributor) -> imageService.search(contributor, fragment))
-            .orElseThrow(this::userNotFound)
-            : imageService.search(null, fragment)
-    ).toList();
+    int pageSize = KeysetPaging.checkLimit(limit);
+    ContinuationToken token = KeysetPaging.parseToken(after);
+    String key = (token != null) ? token.getKey() : null;
+    UUID id = (token != null) ? token.getId() : null;
+    User contributor = (contributorId != null)
+        ? userService.get(contributorId).orElseThrow(this::userNotFound)
+        : null;
+    SearchResults results = imageService.search(contributor, fragment, key, id, pageSize + 1);
+    return KeysetPaging.page(results.getImages(), pageSize, (image) ->
+        new ContinuationToken(results.getKey(image), image.getId()));
+  }
+
+  /**
+   * Writes all images to the response as a JSON array, in created datetime (descending) order.
+   * Images are serialized as they are read from the database, so memory use is independent of the
+   * number of images.
+   *
+   * @param response Current response.
+   * @throws IOException If the response cannot be written.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = STREAM_PARAM)
+  public void listAll(HttpServletResponse response) throws IOException {
+    jsonStreamWriter.write(imageService::forEach, response);
+  }
+
+  /**
+   * Writes all images matching the specified search criteria to the response as a JSON array, in
+   * the same order as {@link #search(UUID, String, String, Integer, Authentication)}. Images are
+   * serialized as they are read from the database, so memory use is independent of the number of
+   * matching images.
+   *
+   * @param contributorId Unique identifier of contributor.
+   * @param fragment      Text to be matched.
+   * @param auth          Authentication token with {@link User} principal.
+   * @param response      Current response.
+   * @throws IOException If the response cannot be written.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE,
+      params = {"contributor", "q", STREAM_PARAM})
+  public void searchAll(
+      @RequestParam(value = CONTRIBUTOR_PARAM_NAME, required = false) UUID contributorId,
+      @RequestParam(value = FRAGMENT_PARAM_NAME, required = false) String fragment,
+      Authentication auth, HttpServletResponse response) throws IOException {
+    User contributor = (contributorId != null)
+        ? userService.get(contributorId).orElseThrow(this::userNotFound)
+        : null;
+    jsonStreamWriter.write(
+        (consumer) -> imageService.forEachMatching(contributor, fragment, consumer), response);
   }
 
   /**
    * Stores uploaded file content along with a new {@link Image} instance referencing the content.
+   * The multipart request body is read as a stream, so that the file content is written directly to
+   * its final location in the file store (rather than first being buffered to a temporary file by
+   * the servlet container); the digest and size of the content are computed in the same pass. The
+   * container's {@code max-file-size} and {@code max-request-size} limits are enforced as the body
+   * is read. If the request fails after the file content has been stored (e.g. because a later part
+   * is malformed or too large), the stored content is removed. The request body may include the
+   * following parts:
+   * <ul>
+   *   <li>{@code file} (required): MIME content of single file upload.</li>
+   *   <li>{@code title} (optional): Summary of uploaded content.</li>
+   *   <li>{@code description} (optional): Detailed description of uploaded content.</li>
+   * </ul>
    *
-   * @param title       Summary of uploaded content.
-   * @param description Detailed description of uploaded content.
-   * @param file        MIME content of single file upload.
-   * @param auth        Authentication token with {@link User} principal.
+   * @param request Multipart request.
+   * @param auth    Authentication token with {@link User} principal.
    * @return Instance of {@link Image} created &amp; persisted for the uploaded content.
    */
   @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Image> post(
-      @RequestParam(required = false) @Length(min = 3) String title,
-      @RequestParam(required = false) @Length(min = 3) String description,
-      @RequestParam MultipartFile file, Authentication auth) {
+  public ResponseEntity<Image> post(HttpServletRequest request, Authentication auth) {
+    StorageReference reference = null;
+    Image image = null;
     try {
-      Image image = imageService.store(file, title, description, (User) auth.getPrincipal());
+      MultipartStreamReader reader = MultipartStreamReader.of(request, maxFileSize, maxRequestSize);
+      String title = null;
+      String description = null;
+      for (Part part = reader.next(); part != null; part = reader.next()) {
+        String name = part.getName();
+        if (FILE_PART_NAME.equals(name) && reference == null) {
+          reference = imageService.storeContent(
+              part.getInputStream(), part.getFilename(), part.getContentType());
+        } else if (TITLE_PART_NAME.equals(name)) {
+          title = part.getText();
+        } else if (DESCRIPTION_PART_NAME.equals(name)) {
+          description = part.getText();
+        }
+      }
+      if (reference == null) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, MISSING_FILE_REASON);
+      }
+      image = imageService.create(reference, title, description, (User) auth.getPrincipal());
       return ResponseEntity.created(image.getHref()).body(image);
+    } catch (SizeLimitExceededException e) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, TOO_LARGE_REASON, e);
+    } catch (RequestSizeLimitExceededException e) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, REQUEST_TOO_LARGE_REASON, e);
+    } catch (MalformedMultipartException | InvalidMediaTypeException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, MALFORMED_REQUEST_REASON, e);
     } catch (IOException e) {
       throw new StorageException(e);
     } catch (HttpMediaTypeNotAcceptableException e) {
       throw new MimeTypeNotAllowedException();
+    } finally {
+      if (reference != null && image == null) {
+        imageService.discardContent(reference);
+      }
+    }
+  }
+
+  /**
+   * Stores the content of multiple uploaded files, creating an {@link Image} instance for each. The
+   * multipart request body may include any number of {@code file} parts up to the configured
+   * maximum ({@code upload.bulk.max-files}), within the configured total size ({@code
+   * upload.bulk.max-request-size}); other parts are ignored. If either limit is exceeded, the
+   * response has status 413, and no files are stored. Each file is written to the file store as it
+   * is read from the request body, and all {@link Image} instances are persisted in a single
+   * transaction. The response contains a result for each file, in the order uploaded: either the
+   * {@link Image} created, or the reason the file was rejected (e.g. a disallowed content type, or
+   * excessive size); a rejected file does not prevent the others from being stored.
+   *
+   * @param request Multipart request.
+   * @param auth    Authentication token with {@link User} principal.
+   * @return Results for all uploaded files.
+   */
+  @PostMapping(value = BATCH_PATH,
+      consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<UploadResult> postBatch(HttpServletRequest request, Authentication auth) {
+    try (Batch batch = bulkUploadService.begin((User) auth.getPrincipal())) {
+      MultipartStreamReader reader =
+          MultipartStreamReader.of(request, maxFileSize, bulkUploadService.getMaxRequestSize());
+      for (Part part = reader.next(); part != null; part = reader.next()) {
+        if (FILE_PART_NAME.equals(part.getName())) {
+          try {
+            batch.add(part.getInputStream(), part.getFilename(), part.getContentType());
+          } catch (SizeLimitExceededException e) {
+            batch.reject(part.getFilename(), TOO_LARGE_REASON);
+          }
+        }
+      }
+      return batch.complete();
+    } catch (RequestSizeLimitExceededException e) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, REQUEST_TOO_LARGE_REASON, e);
+    } catch (SizeLimitExceededException e) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, TOO_LARGE_REASON, e);
+    } catch (MalformedMultipartException | InvalidMediaTypeException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, MALFORMED_REQUEST_REASON, e);
+    } catch (IOException e) {
+      throw new StorageException(e);
     }
   }
 
@@ -143,6 +348,70 @@ public class ImageController {
         .ifPresent(imageService::delete);
   }
 
+  /**
+   * Returns the images with the specified identifiers (given as repeated or comma-separated {@code
+   * id} parameters, up to 200), in the requested order. Identifiers of images that do not exist are
+   * ignored. All of the images are read in a single query.
+   *
+   * @param ids  Unique identifiers of images.
+   * @param auth Authentication token with {@link User} principal.
+   * @return Selected images.
+   */
+  @GetMapping(value = BATCH_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<Image> getBatch(
+      @RequestParam(ID_PARAM_NAME) List<UUID> ids, Authentication auth) {
+    return imageService.get(checkBatch(ids));
+  }
+
+  /**
+   * Applies title and description changes to multiple images (up to 200) contributed by the
+   * current user, in a single transaction. The request body is a JSON array of objects, each
+   * containing the {@code id} of an image, and the new {@code title} and/or {@code description};
+   * omitted properties are left unchanged. If any change omits the {@code id}, or specifies a
+   * title longer than 100 characters or a description longer than 1024, the response has status
+   * 400, and its body lists the problems found (see {@link
+   * #invalidMetadata(InvalidMetadataException)}); if any of the images does not exist, or was
+   * contributed by another user, the response has status 404. In either case, no changes are
+   * applied.
+   *
+   * @param updates Changes to apply.
+   * @param auth    Authentication token with {@link User} principal.
+   * @return Updated images.
+   */
+  @PutMapping(value = BATCH_PATH,
+      consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<Image> putBatch(@RequestBody List<MetadataUpdate> updates, Authentication auth) {
+    return imageService.update(checkBatch(updates), (User) auth.getPrincipal());
+  }
+
+  /**
+   * Responds to an invalid batch of metadata changes with status 400, and a JSON array describing
+   * each problem: the {@code index} of the change in the request, the {@code id} of the image (if
+   * specified), the invalid {@code field}, and a {@code message}.
+   *
+   * @param e Exception listing the problems found.
+   * @return Problems found.
+   */
+  @ExceptionHandler(InvalidMetadataException.class)
+  public ResponseEntity<List<MetadataError>> invalidMetadata(InvalidMetadataException e) {
+    return ResponseEntity.badRequest()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(e.getErrors());
+  }
+
+  /**
+   * Deletes the images with the specified identifiers (up to 200) contributed by the current user,
+   * in a single transaction. Identifiers of images that do not exist, or were contributed by other
+   * users, are ignored.
+   *
+   * @param ids  Unique identifiers of images.
+   * @param auth Authentication token with {@link User} principal.
+   */
+  @DeleteMapping(value = BATCH_PATH)
+  public void deleteBatch(@RequestParam(ID_PARAM_NAME) List<UUID> ids, Authentication auth) {
+    imageService.delete(checkBatch(ids), (User) auth.getPrincipal());
+  }
+
   @GetMapping(value = DESCRIPTION_PROPERTY_PATTERN,
       produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
   public String getDescription(@PathVariable UUID id, Authentication auth) {
@@ -164,21 +433,65 @@ public class ImageController {
         .orElseThrow(this::imageNotFound);
   }
 
+  /**
+   * Writes the content of the specified image to the response. Conditional ({@code If-None-Match},
+   * {@code If-Modified-Since}) and byte-range ({@code Range}, {@code If-Range}) requests are
+   * supported; the entity tag is derived from the digest of the stored content, and the
+   * last-modified timestamp is the time the content was stored ({@link Image#getCreated()} for the
+   * original content), since the content of an image never changes after upload; edits to the
+   * title or description do not invalidate cached copies. If {@code w} and/or {@code h} is
+   * specified, the image is resized (on first request, then cached) to fit the requested
+   * dimensions, using the specified {@code fit} method. Otherwise, if {@code size} is specified,
+   * and the corresponding derivative has been generated, the derivative is returned. In all other
+   * cases (including requests that would enlarge the image), the original content is returned.
+   *
+   * @param id       Unique identifier of image.
+   * @param size     Optional derivative size ({@code thumbnail} or {@code medium}).
+   * @param width    Optional requested width, in pixels.
+   * @param height   Optional requested height, in pixels.
+   * @param fit      Method used to fit the image to the requested width and height: {@code
+   *                 contain} (the default), {@code cover}, or {@code fill}.
+   * @param auth     Authentication token with {@link User} principal.
+   * @param request  Current request.
+   * @param response Current response.
+   */
   @GetMapping(value = CONTENT_PROPERTY_PATTERN)
-  public ResponseEntity<Resource> getContent(@PathVariable UUID id, Authentication auth) {
-    return imageService.get(id)
-        .map((image) -> {
-          try {
-            return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, dispositionHeader(image.getName()))
-                .header(HttpHeaders.CONTENT_TYPE, image.getContentType())
-                .body(imageService.retrieve(image));
-          } catch (MalformedURLException e) {
-            throw new ResponseStatusException(
-                HttpStatus.INTERNAL_SERVER_ERROR, NOT_RETRIEVED_MESSAGE, e);
-          }
-        })
+  public void getContent(@PathVariable UUID id,
+      @RequestParam(value = SIZE_PARAM_NAME, required = false) String size,
+      @RequestParam(value = WIDTH_PARAM_NAME, required = false) Integer width,
+      @RequestParam(value = HEIGHT_PARAM_NAME, required = false) Integer height,
+      @RequestParam(value = FIT_PARAM_NAME, required = false) String fit,
+      Authentication auth, HttpServletRequest request, HttpServletResponse response) {
+    Image image = imageService.get(id)
         .orElseThrow(this::imageNotFound);
+    try {
+      Optional<Rendition> rendition = (width != null || height != null)
+          ? imageService.resize(image, checkDimension(width), checkDimension(height), parseFit(fit))
+          : Optional.empty();
+      Optional<Derivative> derivative = (rendition.isEmpty() && size != null)
+          ? imageService.getDerivative(image, parseSize(size))
+          : Optional.empty();
+      if (rendition.isPresent()) {
+        Rendition resized = rendition.get();
+        contentWriter.write(resized.getContent(), resized.getContentType(),
+            dispositionHeader(image.getName()), entityTag(resized.getKey()),
+            image.getCreated().getTime(), request, response);
+      } else if (derivative.isPresent()) {
+        Derivative generated = derivative.get();
+        contentWriter.write(imageService.retrieve(generated), generated.getContentType(),
+            dispositionHeader(image.getName()), entityTag(generated.getContentHash()),
+            generated.getCreated().getTime(), request, response);
+      } else {
+        contentWriter.write(imageService.retrieve(image), image.getContentType(),
+            dispositionHeader(image.getName()), entityTag(image.getContentHash()),
+            image.getCreated().getTime(), request, response);
+      }
+    } catch (NoSuchFileException e) {
+      throw imageNotFound();
+    } catch (IOException e) {
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, NOT_RETRIEVED_MESSAGE, e);
+    }
   }
 
   private ResponseEntity<Image> securePost(Gallery gallery, MultipartFile file, User user,
@@ -193,6 +506,41 @@ public class ImageController {
     }
   }
 
+  private Size parseSize(String size) {
+    try {
+      return Size.forName(size);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SIZE_REASON, e);
+    }
+  }
+
+  private int checkDimension(Integer dimension) {
+    if (dimension != null
+        && (dimension < 1 || dimension > imageService.getMaxResizeDimension())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_DIMENSION_REASON);
+    }
+    return (dimension != null) ? dimension : 0;
+  }
+
+  private Fit parseFit(String fit) {
+    try {
+      return (fit != null) ? Fit.forName(fit) : Fit.CONTAIN;
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_FIT_REASON, e);
+    }
+  }
+
+  private <T> List<T> checkBatch(List<T> items) {
+    if (items.size() > MAX_BATCH_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, BATCH_TOO_LARGE_REASON);
+    }
+    return items;
+  }
+
+  private String entityTag(String hash) {
+    return (hash != null) ? String.format(ENTITY_TAG_FORMAT, hash) : null;
+  }
+
   private String dispositionHeader(String filename) {
     return String.format(ATTACHMENT_DISPOSITION_FORMAT, filename);
   }
@@ -0,0 +1,101 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService.ImportJob;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService.ImportNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Endpoints for bulk imports of images from ZIP or tar archives. A client creates an import job,
+ * sends the archive (as the body of a single {@code PUT} request) for that job, and may retrieve
+ * the job from another connection to follow its progress while the archive is being imported.
+ */
+@RestController
+@RequestMapping(ImportController.RELATIVE_PATH)
+public class ImportController {
+
+  public static final String RELATIVE_PATH = "/images/imports";
+
+  private static final String ID_PATH_TEMPLATE = "/{id}";
+  private static final String TAR_CONTENT_TYPE = "application/x-tar";
+  private static final String GZIP_CONTENT_TYPE = "application/gzip";
+
+  private final ArchiveImportService archiveImportService;
+
+  @Autowired
+  public ImportController(ArchiveImportService archiveImportService) {
+    this.archiveImportService = archiveImportService;
+  }
+
+  /**
+   * Creates a new import job.
+   *
+   * @param auth Authentication token with {@link User} principal.
+   * @return New job.
+   */
+  @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ImportJob> post(Authentication auth) {
+    ImportJob job = archiveImportService.create((User) auth.getPrincipal());
+    URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+        .path(ID_PATH_TEMPLATE)
+        .buildAndExpand(job.getId())
+        .toUri();
+    return ResponseEntity.created(location).body(job);
+  }
+
+  /**
+   * Returns the current progress of the specified import job.
+   *
+   * @param id   Unique identifier of job.
+   * @param auth Authentication token with {@link User} principal.
+   * @return Job state.
+   */
+  @GetMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ImportJob get(@PathVariable UUID id, Authentication auth) {
+    return getJob(id, auth);
+  }
+
+  /**
+   * Imports the images in the archive sent as the request body, returning when the import has
+   * finished. The archive may be in ZIP or tar format, and a tar archive may be gzip-compressed.
+   *
+   * @param id      Unique identifier of job.
+   * @param auth    Authentication token with {@link User} principal.
+   * @param request Current request, from which the archive is read.
+   * @return Final job state.
+   */
+  @PutMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
+      consumes = {ZipStreamWriter.ZIP_CONTENT_TYPE, TAR_CONTENT_TYPE, GZIP_CONTENT_TYPE,
+          MediaType.APPLICATION_OCTET_STREAM_VALUE},
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ImportJob put(@PathVariable UUID id, Authentication auth, HttpServletRequest request) {
+    ImportJob job = getJob(id, auth);
+    try {
+      return archiveImportService.run(job, (User) auth.getPrincipal(), request.getInputStream());
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  private ImportJob getJob(UUID id, Authentication auth) {
+    return archiveImportService.get(id, (User) auth.getPrincipal())
+        .orElseThrow(ImportNotFoundException::new);
+  }
+
+}
@@ -0,0 +1,49 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.cnm.deepdive.deepdivegallery.service.EntityStreams.EntitySource;
+import java.io.IOException;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a JSON array to an HTTP response, serializing each element as it is produced by an {@link
+ * EntitySource}, rather than first collecting all elements in memory. Elements are serialized
+ * synchronously (in the request thread), so that request-scoped state, such as that used to
+ * construct {@code href} links, remains available.
+ */
+@Component
+public class JsonStreamWriter {
+
+  private final ObjectWriter writer;
+
+  @Autowired
+  public JsonStreamWriter(ObjectMapper objectMapper) {
+    // Flushing after each element would turn every element into a separate chunk on the wire.
+    writer = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * Writes the elements produced by {@code source} to {@code response} as a JSON array.
+   *
+   * @param source   Source of elements.
+   * @param response Current response.
+   * @param <T>      Element type.
+   * @throws IOException If the response cannot be written.
+   */
+  public <T> void write(@NonNull EntitySource<T> source, @NonNull HttpServletResponse response)
+      throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    try (SequenceWriter sequence = writer.writeValuesAsArray(response.getOutputStream())) {
+      source.forEach(sequence::write);
+    }
+  }
+
+}
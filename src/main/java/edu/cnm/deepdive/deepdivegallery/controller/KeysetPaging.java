@@ -0,0 +1,105 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Request parameter handling and response construction shared by keyset-paginated listings. A
+ * listing accepts an optional {@code after} parameter (an opaque {@link ContinuationToken}) and an
+ * optional {@code limit} parameter; it selects one more item than the page size, so that the
+ * presence of a following page can be detected without a count query.
+ */
+public final class KeysetPaging {
+
+  public static final String AFTER_PARAM_NAME = "after";
+  public static final String LIMIT_PARAM_NAME = "limit";
+
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final String INVALID_TOKEN_REASON = "Invalid continuation token";
+  private static final String INVALID_LIMIT_REASON = "Invalid page size";
+
+  private KeysetPaging() {
+  }
+
+  /**
+   * Returns the page size for the requested {@code limit} (default 100, maximum 1000).
+   *
+   * @throws ResponseStatusException If {@code limit} is less than 1.
+   */
+  public static int checkLimit(Integer limit) {
+    if (limit != null && limit < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_LIMIT_REASON);
+    }
+    return (limit != null) ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+  }
+
+  /**
+   * Decodes and returns the continuation token {@code token}, or {@code null} if {@code token} is
+   * {@code null}.
+   *
+   * @throws ResponseStatusException If {@code token} is not a valid encoded token.
+   */
+  public static ContinuationToken parseToken(String token) {
+    try {
+      return (token != null) ? ContinuationToken.decode(token) : null;
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_TOKEN_REASON, e);
+    }
+  }
+
+  /**
+   * Returns the timestamp encoded (as milliseconds since the epoch) in a continuation token key.
+   *
+   * @throws ResponseStatusException If {@code key} is not a valid timestamp.
+   */
+  public static Date parseTimestamp(String key) {
+    try {
+      return new Date(Long.parseLong(key));
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_TOKEN_REASON, e);
+    }
+  }
+
+  /**
+   * Returns the position (ordinal key) encoded in a continuation token key.
+   *
+   * @throws ResponseStatusException If {@code key} is not a valid position.
+   */
+  public static long parsePosition(String key) {
+    try {
+      return Long.parseLong(key);
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_TOKEN_REASON, e);
+    }
+  }
+
+  /**
+   * Returns the first {@code limit} elements of {@code items} as the response body; if there are
+   * more (i.e. the query selected one more than the page size), a {@code next} link is added, with
+   * the continuation token produced by {@code tokenizer} for the last element of the page.
+   */
+  public static <T> ResponseEntity<List<T>> page(List<T> items, int limit,
+      Function<T, ContinuationToken> tokenizer) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+    List<T> page = items;
+    if (items.size() > limit) {
+      page = items.subList(0, limit);
+      String next = ServletUriComponentsBuilder.fromCurrentRequest()
+          .replaceQueryParam(AFTER_PARAM_NAME, tokenizer.apply(page.get(limit - 1)).encode())
+          .replaceQueryParam(LIMIT_PARAM_NAME, limit)
+          .toUriString();
+      builder.header(HttpHeaders.LINK, Link.of(next, IanaLinkRelations.NEXT).toString());
+    }
+    return builder.body(page);
+  }
+
+}
@@ -0,0 +1,400 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+
+/**
+ * Forward-only reader of a {@code multipart/form-data} request body. Unlike the servlet container's
+ * multipart support, this reader does not buffer parts in memory or temporary files: each part's
+ * content is exposed as an {@link InputStream} reading directly from the request body, and is valid
+ * only until {@link #next()} is invoked again.
+ * <p>
+ * Since the container's multipart limits do not apply to a body read this way, the reader enforces
+ * its own: no more than the maximum part size may be read from any one part, and no more than the
+ * maximum request size may be read from the body as a whole. Content that the caller skips (the
+ * preamble, and parts whose content is never opened) is discarded against the maximum part size as
+ * well, so that unexpected parts cannot be used to make the server read an unbounded body.</p>
+ */
+public class MultipartStreamReader {
+
+  private static final String BOUNDARY_PARAMETER = "boundary";
+  private static final String DELIMITER_PREFIX = "\r\n--";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_HEADER_SIZE = 16 * 1024;
+  private static final int MAX_TEXT_SIZE = 64 * 1024;
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  private static final byte DASH = '-';
+
+  private final InputStream input;
+  private final byte[] delimiter;
+  private final byte[] buffer;
+  private final byte[] scratch;
+  private final long maxPartSize;
+  private final long maxRequestSize;
+
+  private long received;
+  private int head;
+  private int tail;
+  private boolean exhausted;
+  private boolean atDelimiter;
+  private boolean finished;
+  private Part current;
+
+  /**
+   * Initializes this instance to read parts from {@code input}, delimited by {@code boundary}.
+   *
+   * @param input          Source of the multipart body.
+   * @param boundary       Boundary string, as specified in the {@code Content-Type} header.
+   * @param maxPartSize    Maximum number of bytes that may be read from any single part.
+   * @param maxRequestSize Maximum number of bytes that may be read from the body as a whole.
+   */
+  public MultipartStreamReader(@NonNull InputStream input, @NonNull String boundary,
+      long maxPartSize, long maxRequestSize) {
+    this.input = input;
+    this.maxPartSize = maxPartSize;
+    this.maxRequestSize = maxRequestSize;
+    delimiter = (DELIMITER_PREFIX + boundary).getBytes(StandardCharsets.US_ASCII);
+    buffer = new byte[Math.max(BUFFER_SIZE, 4 * delimiter.length)];
+    scratch = new byte[8 * 1024];
+    // The first boundary need not be preceded by CRLF; priming the buffer with CRLF lets it be
+    // matched by the same delimiter as all subsequent boundaries.
+    buffer[tail++] = CR;
+    buffer[tail++] = LF;
+  }
+
+  /**
+   * Creates and returns a reader for the body of {@code request}, which must have a {@code
+   * multipart/form-data} content type that includes a boundary parameter.
+   *
+   * @param request        Multipart request.
+   * @param maxPartSize    Maximum number of bytes that may be read from any single part.
+   * @param maxRequestSize Maximum number of bytes that may be read from the body as a whole.
+   * @return Reader of the request body.
+   * @throws RequestSizeLimitExceededException If the declared length of the request body exceeds
+   *                                           {@code maxRequestSize}.
+   * @throws IOException                       If the request body cannot be opened.
+   * @throws InvalidMediaTypeException         If the request content type is missing, malformed,
+   *                                           or is not {@code multipart/form-data} with a
+   *                                           boundary.
+   */
+  public static MultipartStreamReader of(@NonNull HttpServletRequest request, long maxPartSize,
+      long maxRequestSize) throws IOException, InvalidMediaTypeException {
+    String header = request.getContentType();
+    if (header == null) {
+      throw new InvalidMediaTypeException("", "Missing content type");
+    }
+    MediaType contentType = MediaType.parseMediaType(header);
+    String boundary = contentType.getParameter(BOUNDARY_PARAMETER);
+    if (!MediaType.MULTIPART_FORM_DATA.includes(contentType) || boundary == null) {
+      throw new InvalidMediaTypeException(header, "Not multipart/form-data with a boundary");
+    }
+    if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+      boundary = boundary.substring(1, boundary.length() - 1);
+    }
+    if (request.getContentLengthLong() > maxRequestSize) {
+      throw new RequestSizeLimitExceededException();
+    }
+    return new MultipartStreamReader(
+        request.getInputStream(), boundary, maxPartSize, maxRequestSize);
+  }
+
+  /**
+   * Advances to the next part of the multipart body, skipping any unread content of the current
+   * part, and returns it; if there are no more parts, {@code null} is returned. The content of a
+   * part that was never opened (with {@link Part#getInputStream()} or {@link Part#getText()}), or
+   * of the preamble, is discarded only up to the maximum part size.
+   *
+   * @return Next part, or {@code null}.
+   * @throws SizeLimitExceededException If the content being discarded exceeds the maximum part
+   *                                    size.
+   * @throws IOException                If the body cannot be read, or is malformed.
+   */
+  public Part next() throws IOException {
+    Part part = null;
+    if (!finished) {
+      long limit = (current != null && current.opened) ? Long.MAX_VALUE : maxPartSize;
+      long discarded = 0;
+      for (int count = readBody(scratch, 0, scratch.length); count >= 0;
+          count = readBody(scratch, 0, scratch.length)) {
+        if ((discarded += count) > limit) {
+          throw new SizeLimitExceededException();
+        }
+      }
+      if (readDelimiterSuffix()) {
+        atDelimiter = false;
+        part = new Part(readHeaders());
+      } else {
+        finished = true;
+      }
+    }
+    current = part;
+    return part;
+  }
+
+  private int readBody(byte[] destination, int offset, int length) throws IOException {
+    if (atDelimiter) {
+      return -1;
+    }
+    fill(delimiter.length);
+    int index = indexOfDelimiter();
+    int available;
+    if (index >= 0) {
+      available = index - head;
+      if (available == 0) {
+        head += delimiter.length;
+        atDelimiter = true;
+        return -1;
+      }
+    } else if (tail - head < delimiter.length) {
+      throw new MalformedMultipartException("Unexpected end of multipart body");
+    } else {
+      available = tail - head - delimiter.length + 1;
+    }
+    int count = Math.min(length, available);
+    System.arraycopy(buffer, head, destination, offset, count);
+    head += count;
+    return count;
+  }
+
+  private boolean readDelimiterSuffix() throws IOException {
+    byte first = readByte();
+    byte second = readByte();
+    boolean more;
+    if (first == DASH && second == DASH) {
+      more = false;
+    } else {
+      while (first == ' ' || first == '\t') {
+        first = second;
+        second = readByte();
+      }
+      if (first != CR || second != LF) {
+        throw new MalformedMultipartException("Invalid boundary delimiter");
+      }
+      more = true;
+    }
+    return more;
+  }
+
+  private HttpHeaders readHeaders() throws IOException {
+    HttpHeaders headers = new HttpHeaders();
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    byte previous = 0;
+    for (int total = 1; ; total++) {
+      if (total > MAX_HEADER_SIZE) {
+        throw new MalformedMultipartException("Part headers too large");
+      }
+      byte b = readByte();
+      if (b == LF && previous == CR) {
+        String text = new String(line.toByteArray(), 0, line.size() - 1, StandardCharsets.UTF_8);
+        if (text.isEmpty()) {
+          break;
+        }
+        int colon = text.indexOf(':');
+        if (colon > 0) {
+          headers.add(text.substring(0, colon).trim(), text.substring(colon + 1).trim());
+        }
+        line.reset();
+      } else {
+        line.write(b);
+      }
+      previous = b;
+    }
+    return headers;
+  }
+
+  private byte readByte() throws IOException {
+    fill(1);
+    if (head == tail) {
+      throw new MalformedMultipartException("Unexpected end of multipart body");
+    }
+    return buffer[head++];
+  }
+
+  private void fill(int minimum) throws IOException {
+    if (tail - head < minimum && !exhausted) {
+      if (head > 0) {
+        System.arraycopy(buffer, head, buffer, 0, tail - head);
+        tail -= head;
+        head = 0;
+      }
+      while (tail - head < minimum && !exhausted) {
+        int count = input.read(buffer, tail, buffer.length - tail);
+        if (count < 0) {
+          exhausted = true;
+        } else if ((received += count) > maxRequestSize) {
+          throw new RequestSizeLimitExceededException();
+        } else {
+          tail += count;
+        }
+      }
+    }
+  }
+
+  private int indexOfDelimiter() {
+    int last = tail - delimiter.length;
+    for (int i = head; i <= last; i++) {
+      if (buffer[i] == delimiter[0]) {
+        int j = 1;
+        while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+          j++;
+        }
+        if (j == delimiter.length) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Single part of a multipart body, consisting of headers and a content stream.
+   */
+  public class Part {
+
+    private final HttpHeaders headers;
+    private final ContentDisposition disposition;
+    private final InputStream content;
+
+    private boolean opened;
+
+    private Part(HttpHeaders headers) {
+      this.headers = headers;
+      String dispositionHeader = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+      disposition = (dispositionHeader != null)
+          ? ContentDisposition.parse(dispositionHeader)
+          : ContentDisposition.empty();
+      content = new PartInputStream(this);
+    }
+
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    /**
+     * Returns the form field name of this part, or {@code null} if none was specified.
+     */
+    public String getName() {
+      return disposition.getName();
+    }
+
+    /**
+     * Returns the original filename of this part, or {@code null} if this is not a file part.
+     */
+    public String getFilename() {
+      return disposition.getFilename();
+    }
+
+    /**
+     * Returns the MIME type of this part's content, or {@code null} if none was specified.
+     */
+    public String getContentType() {
+      return headers.getFirst(HttpHeaders.CONTENT_TYPE);
+    }
+
+    /**
+     * Returns a stream reading this part's content directly from the request body. The stream
+     * reports end-of-input at the end of the part; it throws {@link SizeLimitExceededException} if
+     * more than the maximum part size is read.
+     */
+    public InputStream getInputStream() {
+      opened = true;
+      return content;
+    }
+
+    /**
+     * Reads and returns this part's content as UTF-8 text.
+     *
+     * @throws IOException If the content cannot be read, or is unreasonably large for a form field.
+     */
+    public String getText() throws IOException {
+      opened = true;
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      int count;
+      while ((count = content.read(scratch, 0, scratch.length)) >= 0) {
+        output.write(scratch, 0, count);
+        if (output.size() > MAX_TEXT_SIZE) {
+          throw new SizeLimitExceededException();
+        }
+      }
+      return output.toString(StandardCharsets.UTF_8);
+    }
+
+  }
+
+  private class PartInputStream extends InputStream {
+
+    private final Part part;
+    private long count;
+
+    private PartInputStream(Part part) {
+      this.part = part;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int read = read(single, 0, 1);
+      return (read < 0) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(@NonNull byte[] b, int off, int len) throws IOException {
+      if (current != part) {
+        return -1;
+      }
+      if (len == 0) {
+        return 0;
+      }
+      int read = readBody(b, off, len);
+      if (read > 0 && (count += read) > maxPartSize) {
+        throw new SizeLimitExceededException();
+      }
+      return read;
+    }
+
+  }
+
+  /**
+   * Thrown when the multipart body does not conform to the expected format.
+   */
+  public static class MalformedMultipartException extends IOException {
+
+    public MalformedMultipartException(String message) {
+      super(message);
+    }
+
+  }
+
+  /**
+   * Thrown when the content of a single part exceeds the maximum size allowed.
+   */
+  public static class SizeLimitExceededException extends IOException {
+
+    public SizeLimitExceededException() {
+      super("Maximum part size exceeded");
+    }
+
+  }
+
+  /**
+   * Thrown when the multipart body as a whole exceeds the maximum size allowed. Unlike {@link
+   * SizeLimitExceededException}, this cannot be handled by skipping a single part.
+   */
+  public static class RequestSizeLimitExceededException extends IOException {
+
+    public RequestSizeLimitExceededException() {
+      super("Maximum request size exceeded");
+    }
+
+  }
+
+}
@@ -0,0 +1,154 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.Session;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.SessionNotFoundException;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.SessionRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Endpoints for resumable uploads, in which a single file is sent in a series of chunks. A client
+ * creates a session (declaring the file size, and optionally its SHA-256 digest), sends the content
+ * in one or more {@code PUT} requests, each specifying the offset of its first byte, and then
+ * completes the session, creating the {@link Image}. If a chunk fails, the client retrieves the
+ * session to find the offset from which to resume.
+ */
+@RestController
+@RequestMapping(UploadController.RELATIVE_PATH)
+public class UploadController {
+
+  public static final String RELATIVE_PATH = "/images/uploads";
+
+  private static final String ID_PATH_TEMPLATE = "/{id}";
+  private static final String OFFSET_PARAM_NAME = "offset";
+
+  private final UploadSessionService uploadSessionService;
+
+  @Autowired
+  public UploadController(UploadSessionService uploadSessionService) {
+    this.uploadSessionService = uploadSessionService;
+  }
+
+  /**
+   * Creates a new upload session. The declared content type must be on the whitelist, and the
+   * number and total declared size of the contributor's open sessions are limited.
+   *
+   * @param request Properties of the file to be uploaded.
+   * @param auth    Authentication token with {@link User} principal.
+   * @return New session.
+   */
+  @PostMapping(
+      consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Session> post(@RequestBody SessionRequest request, Authentication auth) {
+    try {
+      Session session = uploadSessionService.create(request, (User) auth.getPrincipal());
+      URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+          .path(ID_PATH_TEMPLATE)
+          .buildAndExpand(session.getId())
+          .toUri();
+      return ResponseEntity.created(location).body(session);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      throw new MimeTypeNotAllowedException();
+    }
+  }
+
+  /**
+   * Returns the current state of the specified session, including the offset from which the upload
+   * should continue.
+   *
+   * @param id   Unique identifier of session.
+   * @param auth Authentication token with {@link User} principal.
+   * @return Session state.
+   */
+  @GetMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public Session get(@PathVariable UUID id, Authentication auth) {
+    return getSession(id, auth);
+  }
+
+  /**
+   * Writes a chunk of content (the request body) to the specified session, starting at {@code
+   * offset}, which must not be beyond the content already received.
+   *
+   * @param id      Unique identifier of session.
+   * @param offset  Position in the file of the first byte of the chunk.
+   * @param auth    Authentication token with {@link User} principal.
+   * @param request Current request, from which the chunk content is read.
+   * @return Updated session state.
+   */
+  @PutMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public Session put(@PathVariable UUID id,
+      @RequestParam(OFFSET_PARAM_NAME) long offset,
+      Authentication auth, HttpServletRequest request) {
+    Session session = getSession(id, auth);
+    try {
+      return uploadSessionService.write(session, offset, request.getInputStream());
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /**
+   * Completes the specified session, once all content has been received, creating and returning
+   * an {@link Image} for the uploaded file.
+   *
+   * @param id   Unique identifier of session.
+   * @param auth Authentication token with {@link User} principal.
+   * @return Instance of {@link Image} created &amp; persisted for the uploaded content.
+   */
+  @PostMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Image> complete(@PathVariable UUID id, Authentication auth) {
+    Session session = getSession(id, auth);
+    try {
+      Image image = uploadSessionService.complete(session, (User) auth.getPrincipal());
+      return ResponseEntity.created(image.getHref()).body(image);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      throw new MimeTypeNotAllowedException();
+    }
+  }
+
+  /**
+   * Abandons the specified session, removing any content received.
+   *
+   * @param id   Unique identifier of session.
+   * @param auth Authentication token with {@link User} principal.
+   */
+  @DeleteMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN)
+  public void delete(@PathVariable UUID id, Authentication auth) {
+    uploadSessionService.get(id, (User) auth.getPrincipal())
+        .ifPresent(uploadSessionService::delete);
+  }
+
+  private Session getSession(UUID id, Authentication auth) {
+    return uploadSessionService.get(id, (User) auth.getPrincipal())
+        .orElseThrow(SessionNotFoundException::new);
+  }
+
+}
@@ -1,19 +1,25 @@
 package edu.cnm.deepdive.deepdivegallery.controller;
 
-import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService;
 import edu.cnm.deepdive.deepdivegallery.service.UserService;
+import edu.cnm.deepdive.deepdivegallery.view.ImageSummary;
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.hateoas.server.ExposesResourceFor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -28,14 +34,24 @@ public class UserController {
       ParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/name";
   private static final String IMAGES_PROPERTY_PATTERN =
       ParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/images";
+  private static final String IMAGES_ARCHIVE_PATTERN = IMAGES_PROPERTY_PATTERN + "/archive";
+  private static final String ARCHIVE_FILENAME_FORMAT = "%s.zip";
   private static final String CURRENT_USER = "/me";
+  private static final String STREAM_PARAM = "stream=true";
   private static final String NOT_FOUND_REASON = "User not found";
 
   private final UserService userService;
+  private final ImageService imageService;
+  private final JsonStreamWriter jsonStreamWriter;
+  private final ZipStreamWriter zipStreamWriter;
 
   @Autowired
-  public UserController(UserService userService) {
+  public UserController(UserService userService, ImageService imageService,
+      JsonStreamWriter jsonStreamWriter, ZipStreamWriter zipStreamWriter) {
     this.userService = userService;
+    this.imageService = imageService;
+    this.jsonStreamWriter = jsonStreamWriter;
+    this.zipStreamWriter = zipStreamWriter;
   }
 
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
@@ -43,6 +59,19 @@ public class UserController {
     return userService.getAll().toList();
   }
 
+  /**
+   * Writes all users to the response as a JSON array, in display name order. Users are serialized
+   * as they are read from the database, so memory use is independent of the number of users.
+   *
+   * @param auth     Authentication token with {@link User} principal.
+   * @param response Current response.
+   * @throws IOException If the response cannot be written.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = STREAM_PARAM)
+  public void getAll(Authentication auth, HttpServletResponse response) throws IOException {
+    jsonStreamWriter.write(userService::forEach, response);
+  }
+
   @GetMapping(value = ParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
       produces = MediaType.APPLICATION_JSON_VALUE)
   public User get(@PathVariable UUID id, Authentication auth) {
@@ -73,9 +102,48 @@ public class UserController {
         .orElseThrow(this::notFound);
   }
 
+  /**
+   * Selects and returns a page of the images contributed by the specified user, in created
+   * datetime (descending) order. Pagination is as for {@link ImageController#list(String,
+   * Integer)}.
+   *
+   * @param id    Unique identifier of user.
+   * @param after Continuation token, as returned in the {@code next} link of a previous page.
+   * @param limit Maximum number of images to return (default 100, maximum 1000).
+   * @param auth  Authentication token with {@link User} principal.
+   * @return Selected images.
+   */
   @GetMapping(value = IMAGES_PROPERTY_PATTERN, produces = MediaType.APPLICATION_JSON_VALUE)
-  public Iterable<Image> getImages(@PathVariable UUID id, Authentication auth) {
-    return get(id, auth).getImages();
+  public ResponseEntity<List<ImageSummary>> getImages(@PathVariable UUID id,
+      @RequestParam(value = KeysetPaging.AFTER_PARAM_NAME, required = false) String after,
+      @RequestParam(value = KeysetPaging.LIMIT_PARAM_NAME, required = false) Integer limit,
+      Authentication auth) {
+    User contributor = get(id, auth);
+    int pageSize = KeysetPaging.checkLimit(limit);
+    ContinuationToken token = KeysetPaging.parseToken(after);
+    List<ImageSummary> images = (token != null)
+        ? imageService.list(contributor,
+            KeysetPaging.parseTimestamp(token.getKey()), token.getId(), pageSize + 1)
+        : imageService.list(contributor, null, null, pageSize + 1);
+    return KeysetPaging.page(images, pageSize, (image) ->
+        new ContinuationToken(String.valueOf(image.getCreated().getTime()), image.getId()));
+  }
+
+  /**
+   * Writes the original content of all images contributed by the specified user to the response,
+   * as a ZIP archive. The archive is streamed as it is assembled, so it may be arbitrarily large.
+   *
+   * @param id       Unique identifier of user.
+   * @param auth     Authentication token with {@link User} principal.
+   * @param response Current response.
+   * @throws IOException If the response cannot be written.
+   */
+  @GetMapping(value = IMAGES_ARCHIVE_PATTERN, produces = ZipStreamWriter.ZIP_CONTENT_TYPE)
+  public void getImagesArchive(@PathVariable UUID id, Authentication auth,
+      HttpServletResponse response) throws IOException {
+    User contributor = get(id, auth);
+    zipStreamWriter.write((consumer) -> imageService.forEach(contributor, consumer),
+        String.format(ARCHIVE_FILENAME_FORMAT, contributor.getDisplayName()), response);
   }
 
   private ResponseStatusException notFound() {
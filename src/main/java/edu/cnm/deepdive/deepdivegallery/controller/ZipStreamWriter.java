@@ -0,0 +1,172 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import edu.cnm.deepdive.deepdivegallery.service.EntityStreams.EntitySource;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService;
+import edu.cnm.deepdive.deepdivegallery.view.FlatImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the original content of images to an HTTP response as a ZIP archive, adding each image as
+ * it is produced by an {@link EntitySource}. Neither the archive nor any image is staged on disk or
+ * in memory: each file is read from the file store through a single fixed-size buffer and written
+ * directly to the (chunked) response, so heap use is independent of the number and size of the
+ * images.
+ * <p>
+ * Content that is already compressed (JPEG, PNG, GIF) is written in {@link ZipEntry#STORED}
+ * entries, since deflating it costs CPU time for no useful reduction in size. The CRC-32 of a
+ * stored entry must be written before its data, so these files are read twice: once to compute the
+ * checksum, and again to copy the content. Other content is written in {@link ZipEntry#DEFLATED}
+ * entries. Archives larger than 4 GB, or with more than 65,535 entries, are written in ZIP64
+ * format.</p>
+ */
+@Component
+public class ZipStreamWriter {
+
+  /** MIME type of the archives written by this class. */
+  public static final String ZIP_CONTENT_TYPE = "application/zip";
+
+  private static final Logger logger = LoggerFactory.getLogger(ZipStreamWriter.class);
+
+  private static final String ATTACHMENT_DISPOSITION = "attachment";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Set<String> STORED_CONTENT_TYPES = Set.of(
+      MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE);
+  private static final Pattern UNSAFE_NAME_CHARACTERS = Pattern.compile("[:*?\"<>|\\p{Cntrl}]");
+  private static final String UNSAFE_NAME_REPLACEMENT = "_";
+  private static final String DUPLICATE_NAME_FORMAT = "%s (%d)%s";
+
+  private final ImageService imageService;
+
+  @Autowired
+  public ZipStreamWriter(ImageService imageService) {
+    this.imageService = imageService;
+  }
+
+  /**
+   * Writes the original content of the images produced by {@code source} to {@code response} as a
+   * ZIP archive. Entries are named with the original filenames of the images, made unique within
+   * the archive where necessary. Images whose content cannot be found or read in the file store
+   * (including the checksum pass over stored entries) are omitted.
+   * <p>
+   * Once the entry for an image has been started, its headers have already been sent, so a
+   * failure to copy its content cannot be recovered from: the exception is rethrown, and the
+   * client receives a truncated archive, without the central directory, which archive tools
+   * reject as damaged. The same applies if the content of a stored entry changes between the
+   * checksum pass and the copy, since the checksum and size no longer match.</p>
+   *
+   * @param source   Source of images.
+   * @param filename Filename of the archive, for the {@code Content-Disposition} header.
+   * @param response Current response.
+   * @throws IOException If the response cannot be written, or the content of an image cannot be
+   *                     copied after its entry has been started.
+   */
+  public void write(@NonNull EntitySource<? extends FlatImage> source, @NonNull String filename,
+      @NonNull HttpServletResponse response) throws IOException {
+    response.setContentType(ZIP_CONTENT_TYPE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.builder(ATTACHMENT_DISPOSITION)
+            .filename(filename, StandardCharsets.UTF_8)
+            .build()
+            .toString());
+    response.setBufferSize(BUFFER_SIZE);
+    byte[] buffer = new byte[BUFFER_SIZE];
+    Set<String> names = new HashSet<>();
+    try (ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+      source.forEach((image) -> writeEntry(image, zip, names, buffer));
+    }
+  }
+
+  private void writeEntry(FlatImage image, ZipOutputStream zip, Set<String> names, byte[] buffer)
+      throws IOException {
+    boolean stored = STORED_CONTENT_TYPES.contains(image.getContentType());
+    CRC32 crc = new CRC32();
+    long size = 0;
+    InputStream content;
+    // Nothing has been written for this image yet, so any failure here only omits it.
+    try {
+      Resource resource = imageService.retrieve(image);
+      if (stored) {
+        try (InputStream input = resource.getInputStream()) {
+          for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+            crc.update(buffer, 0, count);
+            size += count;
+          }
+        }
+      }
+      content = resource.getInputStream();
+    } catch (IOException | InvalidPathException e) {
+      logger.warn("Unable to read content of image {}; omitted from archive", image.getId(), e);
+      return;
+    }
+    try (InputStream input = content) {
+      ZipEntry entry = new ZipEntry(uniqueName(image, names));
+      if (image.getCreated() != null) {
+        entry.setTime(image.getCreated().getTime());
+      }
+      if (stored) {
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+      } else {
+        entry.setMethod(ZipEntry.DEFLATED);
+      }
+      zip.putNextEntry(entry);
+      copy(input, zip, buffer);
+      zip.closeEntry();
+    }
+  }
+
+  private void copy(InputStream input, OutputStream output, byte[] buffer) throws IOException {
+    for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+      output.write(buffer, 0, count);
+    }
+  }
+
+  /**
+   * Returns the original filename of {@code image}, stripped of any directory components and
+   * characters that are not portable in filenames, and with a numeric suffix added if the name has
+   * already been used in the archive.
+   */
+  private String uniqueName(FlatImage image, Set<String> names) {
+    String name = image.getName();
+    name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+    name = UNSAFE_NAME_CHARACTERS.matcher(name).replaceAll(UNSAFE_NAME_REPLACEMENT).trim();
+    if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+      name = image.getId().toString();
+    }
+    if (!names.add(name)) {
+      int extensionStart = name.lastIndexOf('.');
+      String base = (extensionStart > 0) ? name.substring(0, extensionStart) : name;
+      String extension = (extensionStart > 0) ? name.substring(extensionStart) : "";
+      String candidate;
+      int suffix = 2;
+      do {
+        candidate = String.format(DUPLICATE_NAME_FORMAT, base, suffix++, extension);
+      } while (!names.add(candidate));
+      name = candidate;
+    }
+    return name;
+  }
+
+}
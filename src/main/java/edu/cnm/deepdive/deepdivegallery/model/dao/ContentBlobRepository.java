@@ -0,0 +1,18 @@
+package edu.cnm.deepdive.deepdivegallery.model.dao;
+
+import edu.cnm.deepdive.deepdivegallery.model.entity.ContentBlob;
+import java.util.Optional;
+import javax.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+  /**
+   * Selects the blob with the specified digest, acquiring a write lock on its row for the duration
+   * of the current transaction.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<ContentBlob> findByDigest(String digest);
+
+}
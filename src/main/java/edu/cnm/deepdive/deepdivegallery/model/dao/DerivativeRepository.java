@@ -0,0 +1,38 @@
+package edu.cnm.deepdive.deepdivegallery.model.dao;
+
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative.Size;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface DerivativeRepository extends JpaRepository<Derivative, UUID> {
+
+  Optional<Derivative> findFirstByImageAndSize(Image image, Size size);
+
+  List<Derivative> findAllByImage(Image image);
+
+  List<Derivative> findAllByImageIn(Collection<Image> images);
+
+  /**
+   * Deletes the derivatives of all of the specified images, in a single statement.
+   */
+  @Modifying
+  @Query("DELETE FROM Derivative AS d WHERE d.image IN :images")
+  void deleteAllByImageIn(@Param("images") Collection<Image> images);
+
+  /**
+   * Returns those of the specified storage references that are referenced by a derivative.
+   */
+  @Query("SELECT d.path FROM Derivative AS d WHERE d.path IN :paths")
+  List<String> findPaths(@Param("paths") Collection<String> paths);
+
+  boolean existsByPath(String path);
+
+}
@@ -0,0 +1,84 @@
+package edu.cnm.deepdive.deepdivegallery.model.dao;
+
+import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
+import edu.cnm.deepdive.deepdivegallery.model.entity.GalleryImage;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.view.GalleryItem;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface GalleryImageRepository extends JpaRepository<GalleryImage, UUID> {
+
+  /**
+   * Leading clause of queries returning {@link GalleryItem} projections, selecting only the
+   * required columns of each member image and its contributor in a single join.
+   */
+  String ITEM_SELECT = "SELECT " + GalleryItem.CONSTRUCTOR_EXPRESSION
+      + " FROM GalleryImage AS gi JOIN gi.image AS i JOIN i.contributor AS c ";
+
+  Optional<GalleryImage> findFirstByGalleryAndImage(Gallery gallery, Image image);
+
+  /**
+   * Returns the member of {@code gallery} with the greatest position, if any.
+   */
+  Optional<GalleryImage> findFirstByGalleryOrderByPositionDesc(Gallery gallery);
+
+  /**
+   * Returns the member of {@code gallery} immediately preceding {@code position}, if any.
+   */
+  Optional<GalleryImage> findFirstByGalleryAndPositionLessThanOrderByPositionDesc(
+      Gallery gallery, long position);
+
+  /**
+   * Returns all members of {@code gallery}, in position order.
+   */
+  List<GalleryImage> findAllByGalleryOrderByPositionAsc(Gallery gallery);
+
+  /**
+   * Returns the first page of images in {@code gallery}, in position (ascending) order, with ties
+   * broken by image id (ascending). The {@code (gallery_id, sort_key)} index supplies both the
+   * filter and the order, so only the rows of the page are read, regardless of the size of the
+   * gallery.
+   */
+  @Query(ITEM_SELECT + "WHERE gi.gallery = :gallery ORDER BY gi.position ASC, i.id ASC")
+  List<GalleryItem> getFirstPage(@Param("gallery") Gallery gallery, Pageable pageable);
+
+  /**
+   * Returns the page of images in {@code gallery} immediately following the image with the
+   * specified {@code position} and {@code id}, in the same order as {@link #getFirstPage(Gallery,
+   * Pageable)}.
+   */
+  @Query(ITEM_SELECT + "WHERE gi.gallery = :gallery "
+      + "AND gi.position >= :position AND (gi.position > :position OR i.id > :id) "
+      + "ORDER BY gi.position ASC, i.id ASC")
+  List<GalleryItem> getPageAfter(@Param("gallery") Gallery gallery,
+      @Param("position") long position, @Param("id") UUID id, Pageable pageable);
+
+  /**
+   * Returns {@code image} as a member of {@code gallery}, if it is one.
+   */
+  @Query(ITEM_SELECT + "WHERE gi.gallery = :gallery AND gi.image = :image")
+  Optional<GalleryItem> findItem(@Param("gallery") Gallery gallery, @Param("image") Image image);
+
+  /**
+   * Removes {@code image} from all galleries.
+   */
+  @Modifying
+  @Query("DELETE FROM GalleryImage AS gi WHERE gi.image = :image")
+  void deleteAllByImage(@Param("image") Image image);
+
+  /**
+   * Removes all of the specified images from all galleries, in a single statement.
+   */
+  @Modifying
+  @Query("DELETE FROM GalleryImage AS gi WHERE gi.image IN :images")
+  void deleteAllByImageIn(@Param("images") Collection<Image> images);
+
+}
@@ -1,10 +1,18 @@
 package edu.cnm.deepdive.deepdivegallery.model.dao;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
 import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -18,5 +26,15 @@ public interface GalleryRepository extends JpaRepository<Gallery, UUID> {
    * @param user is a User object.
    * @return An event associated with the user that created the event.
    */
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<Gallery> findByIdAndCreator(UUID id, User creator);
+
+  /**
+   * Returns the gallery with the specified id, holding a write lock on its row until the end of the
+   * current transaction; used to serialize changes to the membership of a gallery.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT g FROM Gallery AS g WHERE g.id = :id")
+  Optional<Gallery> lockById(@Param("id") UUID id);
+
 }
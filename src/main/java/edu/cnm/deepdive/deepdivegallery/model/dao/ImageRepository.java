@@ -1,19 +1,190 @@
 package edu.cnm.deepdive.deepdivegallery.model.dao;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.view.ImageSummary;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.util.Streamable;
 
 public interface ImageRepository extends JpaRepository<Image, UUID> {
 
+  /**
+   * Leading clause of queries returning {@link ImageSummary} projections, selecting only the
+   * required columns of each image and its contributor in a single join.
+   */
+  String SUMMARY_SELECT =
+      "SELECT " + ImageSummary.CONSTRUCTOR_EXPRESSION + " FROM Image AS i JOIN i.contributor AS c ";
+
   /**
    * Returns all images in created datetime (descending) order.
    */
   Iterable<Image> getAllByOrderByCreatedDesc();
 
+  /**
+   * Returns the first page of images in created datetime (descending) order, with ties broken by
+   * id (descending). The page size is taken from {@code pageable}; no count query is executed.
+   */
+  @Query(SUMMARY_SELECT + "ORDER BY i.created DESC, i.id DESC")
+  List<ImageSummary> getFirstPage(Pageable pageable);
+
+  /**
+   * Returns the page of images immediately following the image with the specified {@code created}
+   * and {@code id} values, in the same order as {@link #getFirstPage(Pageable)}. The leading range
+   * predicate on {@code created} lets the {@code (created, updated)} index bound the scan, so the
+   * cost of a page does not depend on its position in the listing.
+   */
+  @Query(SUMMARY_SELECT
+      + "WHERE i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  List<ImageSummary> getPageAfter(
+      @Param("created") Date created, @Param("id") UUID id, Pageable pageable);
+
+  /**
+   * Returns the first page of images contributed by {@code contributor}, in the same order as {@link
+   * #getFirstPage(Pageable)}. The {@code (contributor_id, created)} index supplies both the filter
+   * and the order, so only the rows of the page are read.
+   */
+  @Query(SUMMARY_SELECT + "WHERE i.contributor = :contributor "
+      + "ORDER BY i.created DESC, i.id DESC")
+  List<ImageSummary> getFirstPage(@Param("contributor") User contributor, Pageable pageable);
+
+  /**
+   * Returns the page of images contributed by {@code contributor} immediately following the image
+   * with the specified {@code created} and {@code id} values, in the same order as {@link
+   * #getFirstPage(Pageable)}.
+   */
+  @Query(SUMMARY_SELECT + "WHERE i.contributor = :contributor "
+      + "AND i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  List<ImageSummary> getPageAfter(@Param("contributor") User contributor,
+      @Param("created") Date created, @Param("id") UUID id, Pageable pageable);
+
+  /**
+   * Returns the first page of images with a name or description matching the specified {@code
+   * LIKE} pattern (with {@code !} as the escape character), in name (ascending) order, with ties
+   * broken by id (ascending).
+   */
+  @Query(SUMMARY_SELECT
+      + "WHERE (i.name LIKE :pattern ESCAPE '!' OR i.description LIKE :pattern ESCAPE '!') "
+      + "ORDER BY i.name ASC, i.id ASC")
+  List<ImageSummary> searchFirstPage(@Param("pattern") String pattern, Pageable pageable);
+
+  /**
+   * Returns the page of matching images immediately following the image with the specified {@code
+   * name} and {@code id}, in the same order as {@link #searchFirstPage(String, Pageable)}.
+   */
+  @Query(SUMMARY_SELECT
+      + "WHERE (i.name LIKE :pattern ESCAPE '!' OR i.description LIKE :pattern ESCAPE '!') "
+      + "AND i.name >= :name AND (i.name > :name OR i.id > :id) "
+      + "ORDER BY i.name ASC, i.id ASC")
+  List<ImageSummary> searchPageAfter(@Param("pattern") String pattern, @Param("name") String name,
+      @Param("id") UUID id, Pageable pageable);
+
+  /**
+   * Returns the first page of images contributed by {@code contributor}, with a name or description
+   * matching the specified {@code LIKE} pattern, in the same order as {@link
+   * #searchFirstPage(String, Pageable)}.
+   */
+  @Query(SUMMARY_SELECT + "WHERE i.contributor = :contributor "
+      + "AND (i.name LIKE :pattern ESCAPE '!' OR i.description LIKE :pattern ESCAPE '!') "
+      + "ORDER BY i.name ASC, i.id ASC")
+  List<ImageSummary> searchFirstPage(@Param("contributor") User contributor,
+      @Param("pattern") String pattern, Pageable pageable);
+
+  /**
+   * Returns the page of matching images contributed by {@code contributor} immediately following
+   * the image with the specified {@code name} and {@code id}.
+   */
+  @Query(SUMMARY_SELECT + "WHERE i.contributor = :contributor "
+      + "AND (i.name LIKE :pattern ESCAPE '!' OR i.description LIKE :pattern ESCAPE '!') "
+      + "AND i.name >= :name AND (i.name > :name OR i.id > :id) "
+      + "ORDER BY i.name ASC, i.id ASC")
+  List<ImageSummary> searchPageAfter(@Param("contributor") User contributor,
+      @Param("pattern") String pattern, @Param("name") String name, @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Returns a forward-only stream of all images, in the same order as {@link
+   * #getFirstPage(Pageable)}. Must be invoked (and the stream consumed and closed) within a
+   * transaction.
+   */
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+  @Query(SUMMARY_SELECT + "ORDER BY i.created DESC, i.id DESC")
+  Stream<ImageSummary> streamAll();
+
+  /**
+   * Returns a forward-only stream of images with a name or description matching the specified
+   * {@code LIKE} pattern, in the same order as {@link #searchFirstPage(String, Pageable)}. Must be
+   * invoked (and the stream consumed and closed) within a transaction.
+   */
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+  @Query(SUMMARY_SELECT
+      + "WHERE (i.name LIKE :pattern ESCAPE '!' OR i.description LIKE :pattern ESCAPE '!') "
+      + "ORDER BY i.name ASC, i.id ASC")
+  Stream<ImageSummary> streamSearch(@Param("pattern") String pattern);
+
+  /**
+   * Returns a forward-only stream of images contributed by {@code contributor}, with a name or
+   * description matching the specified {@code LIKE} pattern, in the same order as {@link
+   * #searchFirstPage(String, Pageable)}. Must be invoked (and the stream consumed and closed)
+   * within a transaction.
+   */
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+  @Query(SUMMARY_SELECT + "WHERE i.contributor = :contributor "
+      + "AND (i.name LIKE :pattern ESCAPE '!' OR i.description LIKE :pattern ESCAPE '!') "
+      + "ORDER BY i.name ASC, i.id ASC")
+  Stream<ImageSummary> streamSearch(
+      @Param("contributor") User contributor, @Param("pattern") String pattern);
+
+  /**
+   * Returns the images with the specified identifiers, in no particular order. The contributor of
+   * each image is fetched in the same query.
+   */
+  @Override
+  @EntityGraph(attributePaths = "contributor")
+  List<Image> findAllById(Iterable<UUID> ids);
+
+  /**
+   * Returns summaries of the images with the specified identifiers, in no particular order.
+   */
+  @Query(SUMMARY_SELECT + "WHERE i.id IN :ids")
+  List<ImageSummary> findSummariesById(@Param("ids") Collection<UUID> ids);
+
+  /**
+   * Returns the images with the specified identifiers that were contributed by {@code
+   * contributor}, in no particular order.
+   */
+  @EntityGraph(attributePaths = "contributor")
+  List<Image> findAllByContributorAndIdIn(User contributor, Collection<UUID> ids);
+
+  /**
+   * Returns those of the specified storage references that are referenced by an image.
+   */
+  @Query("SELECT i.path FROM Image AS i WHERE i.path IN :paths")
+  List<String> findPaths(@Param("paths") Collection<String> paths);
+
+  boolean existsByPath(String path);
+
+  /**
+   * Returns the image with the specified identifier, if it was contributed by {@code contributor}.
+   * Results are held in the query cache until the {@code image} table is next modified.
+   */
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<Image> findFirstByIdAndContributor(UUID id, User contributer);
 
   Streamable<Image> getAllByOrderByNameAsc();
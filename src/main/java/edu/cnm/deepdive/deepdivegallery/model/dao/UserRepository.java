@@ -1,16 +1,37 @@
 package edu.cnm.deepdive.deepdivegallery.model.dao;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.util.Streamable;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
 
+  /**
+   * Returns the user with the specified OAuth subject, if any. Results are not held in the query
+   * cache: the periodic write of {@code connected} timestamps modifies the {@code user} table,
+   * which would discard them almost immediately; repeated lookups are avoided instead by the
+   * principal cache in {@link edu.cnm.deepdive.deepdivegallery.service.UserService}.
+   */
   Optional<User> findFirstByOauthKey(String oauthKey);
 
   Streamable<User> getAllByOrderByCreated();
 
   Streamable<User> getAllByOrderByDisplayName();
+
+  /**
+   * Returns a forward-only stream of all users, in display name order. Must be invoked (and the
+   * stream consumed and closed) within a transaction.
+   */
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+  @Query("SELECT u FROM User AS u ORDER BY u.displayName")
+  Stream<User> streamAll();
+
 }
\ No newline at end of file
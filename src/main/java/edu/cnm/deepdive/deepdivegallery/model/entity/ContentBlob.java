@@ -0,0 +1,79 @@
+package edu.cnm.deepdive.deepdivegallery.model.entity;
+
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.lang.NonNull;
+
+/**
+ * Records a single content-addressed file in the file store, identified by the SHA-256 digest of
+ * its content, along with the number of references to it. When the reference count drops to zero,
+ * the file (and this record) may be removed.
+ */
+@SuppressWarnings("JpaDataSourceORMInspection")
+@Entity
+@Table(name = "content_blob")
+public class ContentBlob {
+
+  @NonNull
+  @Id
+  @Column(length = 64, nullable = false, updatable = false)
+  private String digest;
+
+  @NonNull
+  @CreationTimestamp
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false, updatable = false)
+  private Date created;
+
+  @Column(nullable = false, updatable = false)
+  private long size;
+
+  @Column(name = "reference_count", nullable = false)
+  private long referenceCount;
+
+  /**
+   * Returns the hex-encoded SHA-256 digest of the content, which is also the primary key.
+   */
+  @NonNull
+  public String getDigest() {
+    return digest;
+  }
+
+  public void setDigest(@NonNull String digest) {
+    this.digest = digest;
+  }
+
+  @NonNull
+  public Date getCreated() {
+    return created;
+  }
+
+  /**
+   * Returns the size (in bytes) of the content.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  public void setSize(long size) {
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of references (e.g. {@link Image} instances) to the content.
+   */
+  public long getReferenceCount() {
+    return referenceCount;
+  }
+
+  public void setReferenceCount(long referenceCount) {
+    this.referenceCount = referenceCount;
+  }
+
+}
@@ -0,0 +1,220 @@
+package edu.cnm.deepdive.deepdivegallery.model.entity;
+
+import edu.cnm.deepdive.deepdivegallery.model.TimeOrderedUuidGenerator;
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.lang.NonNull;
+
+/**
+ * Reduced-size rendition of an {@link Image}, generated from the original content and kept in the
+ * file store alongside it. A derivative with a {@link Status} other than {@link Status#GENERATED}
+ * has no content; it records that the rendition will not be generated, so that requests for it do
+ * not schedule generation again.
+ */
+@SuppressWarnings("JpaDataSourceORMInspection")
+@Entity
+@Table(
+    uniqueConstraints = @UniqueConstraint(columnNames = {"image_id", "derivative_size"})
+)
+public class Derivative {
+
+  @NonNull
+  @Id
+  @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
+  @Column(name = "derivative_id", nullable = false, updatable = false, columnDefinition = "CHAR(16) FOR BIT DATA")
+  private UUID id;
+
+  @NonNull
+  @CreationTimestamp
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false, updatable = false)
+  private Date created;
+
+  @NonNull
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "image_id", nullable = false, updatable = false)
+  private Image image;
+
+  @NonNull
+  @Enumerated(EnumType.STRING)
+  @Column(name = "derivative_size", nullable = false, updatable = false, length = 20)
+  private Size size;
+
+  @NonNull
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, updatable = false,
+      columnDefinition = "VARCHAR(20) DEFAULT 'GENERATED'")
+  private Status status = Status.GENERATED;
+
+  @Column(updatable = false)
+  private String path;
+
+  @Column(updatable = false)
+  private String contentType;
+
+  @Column(length = 64, updatable = false)
+  private String contentHash;
+
+  @Column(nullable = false, updatable = false)
+  private int width;
+
+  @Column(nullable = false, updatable = false)
+  private int height;
+
+  @NonNull
+  public UUID getId() {
+    return id;
+  }
+
+  @NonNull
+  public Date getCreated() {
+    return created;
+  }
+
+  @NonNull
+  public Image getImage() {
+    return image;
+  }
+
+  public void setImage(@NonNull Image image) {
+    this.image = image;
+  }
+
+  @NonNull
+  public Size getSize() {
+    return size;
+  }
+
+  public void setSize(@NonNull Size size) {
+    this.size = size;
+  }
+
+  @NonNull
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(@NonNull Status status) {
+    this.status = status;
+  }
+
+  /**
+   * Returns {@code true} if this derivative has stored content.
+   */
+  public boolean isGenerated() {
+    return status == Status.GENERATED;
+  }
+
+  /**
+   * Returns the storage service reference to the content of this derivative, or {@code null} if
+   * it has no content.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public void setContentType(String contentType) {
+    this.contentType = contentType;
+  }
+
+  /**
+   * Returns the hex-encoded SHA-256 digest of the content of this derivative.
+   */
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public void setWidth(int width) {
+    this.width = width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public void setHeight(int height) {
+    this.height = height;
+  }
+
+  /**
+   * Outcome of generating a derivative.
+   */
+  public enum Status {
+
+    /**
+     * The rendition was generated, and its content stored.
+     */
+    GENERATED,
+    /**
+     * The original is no wider than this size, so the original content is served instead.
+     */
+    NOT_NEEDED,
+    /**
+     * The original content could not be decoded.
+     */
+    FAILED
+
+  }
+
+  /**
+   * Fixed derivative sizes, each specifying the maximum width (in pixels) of the rendition.
+   */
+  public enum Size {
+
+    THUMBNAIL(240),
+    MEDIUM(1024);
+
+    private final int width;
+
+    Size(int width) {
+      this.width = width;
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    /**
+     * Returns the {@code Size} with the specified name (ignoring case).
+     *
+     * @throws IllegalArgumentException If {@code name} does not match any {@code Size}.
+     */
+    public static Size forName(@NonNull String name) {
+      return valueOf(name.trim().toUpperCase());
+    }
+
+  }
+
+}
@@ -2,11 +2,13 @@ package edu.cnm.deepdive.deepdivegallery.model.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import edu.cnm.deepdive.deepdivegallery.model.TimeOrderedUuidGenerator;
 import edu.cnm.deepdive.deepdivegallery.view.FlatGallery;
 import edu.cnm.deepdive.deepdivegallery.view.FlatUser;
 import java.util.Date;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -18,6 +20,8 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -27,6 +31,8 @@ import org.springframework.lang.NonNull;
 
 @SuppressWarnings("JpaDataSourceORMInspection")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(
     indexes = {
         @Index(columnList = "created, updated"),
@@ -43,8 +49,8 @@ public class Gallery implements FlatGallery {
 
   @NonNull
   @Id
-  @GeneratedValue(generator = "uuid2")
-  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
   @Column(name = "gallery_id", nullable = false, updatable = false, columnDefinition = "CHAR(16) FOR BIT DATA")
   private UUID id;
 
@@ -72,13 +78,6 @@ public class Gallery implements FlatGallery {
   @JsonSerialize(as = FlatUser.class)
   private User creator;
 
-/*  @NonNull
-  @OneToMany(mappedBy = "gallery", fetch = FetchType.LAZY, cascade = {CascadeType.DETACH,
-      CascadeType.MERGE,
-      CascadeType.PERSIST, CascadeType.REFRESH})
-  @OrderBy("title ASC")
-  private final List<Image> images = new LinkedList<>();*/// TODO uncomment and solve null gallery_id problem
-
   @NonNull
   public UUID getId() {
     return id;
@@ -119,11 +118,6 @@ public class Gallery implements FlatGallery {
     this.creator = contributor;
   }
 
-/*  @NonNull
-  public List<Image> getImages() {
-    return images;
-  }*/
-
   /**
    * Returns the location of REST resource representation of this image.
    */
@@ -0,0 +1,105 @@
+package edu.cnm.deepdive.deepdivegallery.model.entity;
+
+import edu.cnm.deepdive.deepdivegallery.model.TimeOrderedUuidGenerator;
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.lang.NonNull;
+
+/**
+ * Membership of an {@link Image} in a {@link Gallery}. An image may be a member of any number of
+ * galleries, but at most once in each. Members of a gallery are ordered by a sparse position key:
+ * consecutive members are initially spaced widely apart, so that a member can be moved between any
+ * two others by updating its position alone.
+ */
+@SuppressWarnings("JpaDataSourceORMInspection")
+@Entity
+@Table(
+    uniqueConstraints = @UniqueConstraint(columnNames = {"gallery_id", "image_id"}),
+    indexes = {
+        @Index(columnList = "gallery_id, sort_key"),
+        @Index(columnList = "image_id")
+    }
+)
+public class GalleryImage {
+
+  @NonNull
+  @Id
+  @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
+  @Column(name = "gallery_image_id", nullable = false, updatable = false, columnDefinition = "CHAR(16) FOR BIT DATA")
+  private UUID id;
+
+  @NonNull
+  @CreationTimestamp
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false, updatable = false)
+  private Date created;
+
+  @NonNull
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "gallery_id", nullable = false, updatable = false)
+  private Gallery gallery;
+
+  @NonNull
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "image_id", nullable = false, updatable = false)
+  private Image image;
+
+  @Column(name = "sort_key", nullable = false)
+  private long position;
+
+  @NonNull
+  public UUID getId() {
+    return id;
+  }
+
+  @NonNull
+  public Date getCreated() {
+    return created;
+  }
+
+  @NonNull
+  public Gallery getGallery() {
+    return gallery;
+  }
+
+  public void setGallery(@NonNull Gallery gallery) {
+    this.gallery = gallery;
+  }
+
+  @NonNull
+  public Image getImage() {
+    return image;
+  }
+
+  public void setImage(@NonNull Image image) {
+    this.image = image;
+  }
+
+  /**
+   * Returns the position key of this member; members of a gallery are ordered by ascending
+   * position. Positions are not contiguous, and may be negative.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  public void setPosition(long position) {
+    this.position = position;
+  }
+
+}
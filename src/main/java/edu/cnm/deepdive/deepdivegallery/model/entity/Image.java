@@ -6,13 +6,16 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import edu.cnm.deepdive.deepdivegallery.model.TimeOrderedUuidGenerator;
 import edu.cnm.deepdive.deepdivegallery.view.FlatImage;
 import edu.cnm.deepdive.deepdivegallery.view.FlatUser;
+import edu.cnm.deepdive.deepdivegallery.view.ItemLinks;
 import java.net.URI;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -24,40 +27,53 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.hateoas.server.EntityLinks;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
 @SuppressWarnings("JpaDataSourceORMInspection")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(
     indexes = {
         @Index(columnList = "created, updated"),
+        @Index(columnList = "contributor_id, created"),
         @Index(columnList = "title")
     }
 )
 @JsonInclude(Include.NON_NULL)
 @JsonIgnoreProperties(
-    value = {"id", "created", "contributor"},
+    value = {"id", "created", "contributor", "width", "height", "orientation"},
     allowGetters = true, ignoreUnknown = true
 )
 @JsonPropertyOrder({"id", "title", "description", "href", "created", "contributor", "name",
-    "description"})
+    "description", "width", "height", "orientation"})
 @Component
 public class Image implements Comparable<Image>, FlatImage {
 
+  /**
+   * Maximum length (in characters) of {@link #getTitle() title}.
+   */
+  public static final int MAX_TITLE_LENGTH = 100;
+  /**
+   * Maximum length (in characters) of {@link #getDescription() description}.
+   */
+  public static final int MAX_DESCRIPTION_LENGTH = 1024;
+
   private static final Comparator<Image> NATURAL_COMPARATOR =
       Comparator.comparing((img) -> (img.title != null) ? img.title : img.name);
 
-  private static EntityLinks entityLinks;
+  private static ItemLinks itemLinks;
 
   @Id
-  @GeneratedValue(generator = "uuid2")
-  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
   @Column(name = "image_id", nullable = false, updatable = false, columnDefinition = "CHAR(16) FOR BIT DATA")
   private UUID id;
 
@@ -73,7 +89,7 @@ public class Image implements Comparable<Image>, FlatImage {
   @Column(nullable = false)
   private Date updated;
 
-  @Column(length = 100)
+  @Column(length = MAX_TITLE_LENGTH)
   private String title;
 
   @NonNull
@@ -89,20 +105,28 @@ public class Image implements Comparable<Image>, FlatImage {
   @Column(nullable = false, updatable = false)
   private String contentType;
 
-  @Column(length = 1024)
+  @Column(updatable = false)
+  private Integer width;
+
+  @Column(updatable = false)
+  private Integer height;
+
+  @Column(updatable = false)
+  private Integer orientation;
+
+  @Column(length = MAX_DESCRIPTION_LENGTH)
   private String description;
 
+  @Column(length = 64, updatable = false)
+  @JsonIgnore
+  private String contentHash;
+
   @NonNull
   @ManyToOne(fetch = FetchType.EAGER, optional = false)
   @JoinColumn(name = "contributor_id", nullable = false, updatable = false)
   @JsonSerialize(as = FlatUser.class)
   private User contributor;
 
-/*  @ManyToOne(fetch = FetchType.EAGER, optional = false)
-  @JoinColumn(name = "gallery_id", nullable = false, updatable = false)
-  @JsonSerialize(as = FlatGallery.class)
-  private Gallery gallery;*/// TODO uncomment and solve null gallery_id problem
-
   @NonNull
   public UUID getId() {
     return id;
@@ -166,6 +190,40 @@ public class Image implements Comparable<Image>, FlatImage {
     this.contentType = contentType;
   }
 
+  /**
+   * Returns the width (in pixels) of this image as stored, or {@code null} if unknown.
+   */
+  public Integer getWidth() {
+    return width;
+  }
+
+  public void setWidth(Integer width) {
+    this.width = width;
+  }
+
+  /**
+   * Returns the height (in pixels) of this image as stored, or {@code null} if unknown.
+   */
+  public Integer getHeight() {
+    return height;
+  }
+
+  public void setHeight(Integer height) {
+    this.height = height;
+  }
+
+  /**
+   * Returns the EXIF orientation (1&ndash;8) of this image, or {@code null} if none was specified.
+   * For orientations 5&ndash;8, the displayed width and height are the stored height and width.
+   */
+  public Integer getOrientation() {
+    return orientation;
+  }
+
+  public void setOrientation(Integer orientation) {
+    this.orientation = orientation;
+  }
+
   public String getDescription() {
     return description;
   }
@@ -174,6 +232,18 @@ public class Image implements Comparable<Image>, FlatImage {
     this.description = description;
   }
 
+  /**
+   * Returns the hex-encoded SHA-256 digest of this image's content, as computed when the content
+   * was stored. Images stored before digests were recorded will return {@code null}.
+   */
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
   /**
    * Returns the {@link User} that contributed this image.
    */
@@ -189,14 +259,6 @@ public class Image implements Comparable<Image>, FlatImage {
     this.contributor = contributor;
   }
 
-/*  public Gallery getGallery() {
-    return gallery;
-  }
-
-  public void setGallery(Gallery gallery) {
-    this.gallery = gallery;
-  }*/// TODO uncomment and solve null gallery_id problem
-
   /**
    * Returns the {@link String#hashCode()} of the original filename. Since this filename will not
    * change on or after persistence, this guarantees that the hash for an {@code Image} instance
@@ -238,19 +300,26 @@ public class Image implements Comparable<Image>, FlatImage {
    * Returns the location of REST resource representation of this image.
    */
   public URI getHref() {
-    return (id != null) ? entityLinks.linkForItemResource(Image.class, id).toUri() : null;
+    return getHref(id);
+  }
+
+  /**
+   * Returns the location of REST resource representation of the image with the specified {@code
+   * id}, or {@code null} if {@code id} is {@code null}.
+   */
+  public static URI getHref(UUID id) {
+    return itemLinks.linkForItem(Image.class, id);
   }
 
   @PostConstruct
   private void initHateoas() {
     //noinspection ResultOfMethodCallIgnored
-    entityLinks.toString();
+    itemLinks.toString();
   }
 
   @Autowired
-  public void setEntityLinks(
-      @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EntityLinks entityLinks) {
-    Image.entityLinks = entityLinks;
+  public void setItemLinks(ItemLinks itemLinks) {
+    Image.itemLinks = itemLinks;
   }
 }
 
@@ -5,13 +5,16 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.cnm.deepdive.deepdivegallery.model.TimeOrderedUuidGenerator;
 import edu.cnm.deepdive.deepdivegallery.view.FlatUser;
+import edu.cnm.deepdive.deepdivegallery.view.ItemLinks;
 import java.net.URI;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -24,16 +27,19 @@ import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.hateoas.server.EntityLinks;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
 @SuppressWarnings("JpaDataSourceORMInspection")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(
     name = "user_profile",
     indexes = {
@@ -48,12 +54,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class User implements FlatUser {
 
-  private static EntityLinks entityLinks;
+  private static ItemLinks itemLinks;
 
   @NonNull
   @Id
-  @GeneratedValue(generator = "uuid2")
-  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
   @Column(name = "user_id", nullable = false, updatable = false, columnDefinition = "CHAR(16) FOR BIT DATA")
   private UUID id;
 
@@ -149,20 +155,18 @@ public class User implements FlatUser {
   }
 
   public URI getHref() {
-    //noinspection ConstantConditions
-    return (id != null) ? entityLinks.linkForItemResource(User.class, id).toUri() : null;
+    return itemLinks.linkForItem(User.class, id);
   }
 
   @PostConstruct
   private void initHateoas() {
     //noinspection ResultOfMethodCallIgnored
-    entityLinks.toString();
+    itemLinks.toString();
   }
 
   @Autowired
-  public void setEntityLinks(
-      @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EntityLinks entityLinks) {
-    User.entityLinks = entityLinks;
+  public void setItemLinks(ItemLinks itemLinks) {
+    User.itemLinks = itemLinks;
   }
 
 }
@@ -0,0 +1,210 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.PostConstruct;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+/**
+ * Base class for implementations of {@link StorageService} that keep files in a directory
+ * specified in the application properties, organized into subdirectories by specified portions of
+ * the stored filenames. References returned by subclasses are paths relative to that directory.
+ */
+public abstract class AbstractFilesystemStorageService implements StorageService {
+
+  protected static final String REFERENCE_PATH_DELIMITER = "/";
+  protected static final String REFERENCE_PATH_FORMAT =
+      "%s" + REFERENCE_PATH_DELIMITER + "%s";
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String DIGEST_HEX_FORMAT = "%064x";
+
+  private final Path uploadDirectory;
+  private final Pattern subdirectoryPattern;
+  private final Set<String> whitelist;
+  private final List<MediaType> contentTypes;
+
+  protected AbstractFilesystemStorageService(
+      UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
+    uploadDirectory = uploadConfiguration.resolveDirectory(applicationHome);
+    //noinspection ResultOfMethodCallIgnored
+    uploadDirectory.toFile().mkdirs();
+    subdirectoryPattern = uploadConfiguration.getSubdirectoryPattern();
+    whitelist = uploadConfiguration.getWhitelist();
+    contentTypes = whitelist.stream()
+        .map(MediaType::valueOf)
+        .collect(Collectors.toList());
+  }
+
+  @PostConstruct
+  private void initUploads() {
+    //noinspection ResultOfMethodCallIgnored
+    uploadDirectory.toFile().mkdirs();
+  }
+
+  @Override
+  public Resource retrieve(String reference) throws InvalidPathException, MalformedURLException {
+    Path file = uploadDirectory.resolve(reference);
+    return new UrlResource(file.toUri());
+  }
+
+  /**
+   * Returns the root directory of the file store.
+   */
+  protected Path getUploadDirectory() {
+    return uploadDirectory;
+  }
+
+  /**
+   * Verifies that {@code contentType} is on the whitelist.
+   *
+   * @throws HttpMediaTypeNotAcceptableException If {@code contentType} is not allowed.
+   */
+  protected void checkContentType(String contentType) throws HttpMediaTypeNotAcceptableException {
+    if (!whitelist.contains(contentType)) {
+      throw new HttpMediaTypeNotAcceptableException(contentTypes);
+    }
+  }
+
+  /**
+   * Reads the leading bytes (at most {@link ImageHeader#PROBE_SIZE}) of {@code input}, determines
+   * the actual content type (and image properties) from them, and verifies that type against the
+   * whitelist. If the declared type is one recognized by {@link ImageHeader}, the content must have
+   * the signature of that type (e.g. PNG content declared as {@code image/jpeg} is rejected);
+   * otherwise (e.g. if no type, or a generic type, was declared), recognized content is stored with
+   * the type indicated by its signature, and unrecognized content with the declared type. The
+   * returned {@link Probe} supplies the complete content&mdash;the bytes already read, followed by
+   * the remainder of {@code input}&mdash;so that the content is still read only once.
+   *
+   * @param input        Source of content.
+   * @param declaredType MIME type declared by the client.
+   * @return Content type, image properties, and content.
+   * @throws IOException                         If the content cannot be read.
+   * @throws HttpMediaTypeNotAcceptableException If the actual content type is not allowed, or does
+   *                                             not match the declared type.
+   */
+  protected Probe probe(InputStream input, String declaredType)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    byte[] head = input.readNBytes(ImageHeader.PROBE_SIZE);
+    ImageHeader header = ImageHeader.parse(head, head.length);
+    if (ImageHeader.isRecognized(declaredType)
+        && (header == null || !declaredType.equals(header.getContentType()))) {
+      throw new HttpMediaTypeNotAcceptableException(contentTypes);
+    }
+    String contentType = (header != null) ? header.getContentType() : declaredType;
+    checkContentType(contentType);
+    return new Probe(contentType, header,
+        new SequenceInputStream(new ByteArrayInputStream(head), input));
+  }
+
+  /**
+   * Returns the subdirectory path (relative to the upload directory) in which the file with the
+   * specified name should be stored, based on the configured subdirectory pattern.
+   */
+  protected String getSubdirectory(@NonNull String filename) {
+    String path;
+    Matcher matcher = subdirectoryPattern.matcher(filename);
+    if (matcher.matches()) {
+      path = IntStream.rangeClosed(1, matcher.groupCount())
+          .mapToObj(matcher::group)
+          .collect(Collectors.joining(REFERENCE_PATH_DELIMITER));
+    } else {
+      path = "";
+    }
+    return path;
+  }
+
+  /**
+   * Returns the reference (i.e. the path relative to the upload directory, using {@link
+   * #REFERENCE_PATH_DELIMITER} as the separator) for the file with the specified name.
+   */
+  protected String getReference(@NonNull String filename) {
+    String subdirectory = getSubdirectory(filename);
+    return subdirectory.isEmpty()
+        ? filename
+        : String.format(REFERENCE_PATH_FORMAT, subdirectory, filename);
+  }
+
+  /**
+   * Resolves {@code reference} against the upload directory, creating any missing parent
+   * directories.
+   */
+  protected Path resolveForWrite(@NonNull String reference) {
+    Path path = uploadDirectory.resolve(reference);
+    File parent = path.getParent().toFile();
+    //noinspection ResultOfMethodCallIgnored
+    parent.mkdirs();
+    return path;
+  }
+
+  /**
+   * Creates and returns a {@link MessageDigest} for computing content digests.
+   */
+  protected MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the hex-encoded form of {@code digest}.
+   */
+  protected String toHex(byte[] digest) {
+    return String.format(DIGEST_HEX_FORMAT, new BigInteger(1, digest));
+  }
+
+  /**
+   * Result of {@link #probe(InputStream, String)}: the actual content type, the image properties
+   * (if the format was recognized), and the complete content, to be read in place of the original
+   * input.
+   */
+  protected static class Probe {
+
+    private final String contentType;
+    private final ImageHeader header;
+    private final InputStream content;
+
+    private Probe(String contentType, ImageHeader header, InputStream content) {
+      this.contentType = contentType;
+      this.header = header;
+      this.content = content;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public ImageHeader getHeader() {
+      return header;
+    }
+
+    public InputStream getContent() {
+      return content;
+    }
+
+  }
+
+}
@@ -0,0 +1,618 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.ImportProperties;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Imports images in bulk from a ZIP or tar archive (optionally gzip-compressed), read as a stream.
+ * Each file in the archive whose content type (inferred from its filename) is on the upload
+ * whitelist is extracted by the request thread to a staged file, under the {@code .imports}
+ * subdirectory of the upload directory, and then written to the file store on a pool of worker
+ * threads, so that writing one file overlaps with extracting the next; other files are skipped
+ * without being read. No file content is held in memory, and the number of staged files waiting to
+ * be written is limited per import, so that one import cannot delay the others. As files are
+ * stored, the corresponding {@link Image}
+ * instances are persisted in batches, each in its own transaction, so that an import of many
+ * thousands of files neither holds a single long transaction nor accumulates an unbounded
+ * persistence context.
+ * <p>
+ * An import is started by creating an {@link ImportJob}, and then sending the archive for that
+ * job; the progress of the job may be retrieved (e.g. from another connection) while the archive
+ * is being imported, and for a configured time after it has finished.</p>
+ */
+@Service
+public class ArchiveImportService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ArchiveImportService.class);
+
+  private static final String THREAD_NAME_PREFIX = "archive-import-";
+  private static final String STAGING_DIRECTORY = ".imports";
+  private static final String STAGED_SUFFIX = ".part";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int SIGNATURE_LENGTH = 2;
+  private static final String IMPORT_FAILED_REASON = "Unable to import archive";
+
+  private final StorageService storageService;
+  private final ImageService imageService;
+  private final TransactionTemplate transactionTemplate;
+  private final ExecutorService executor;
+  private final Path stagingDirectory;
+  private final int maxPending;
+  private final Set<String> whitelist;
+  private final int batchSize;
+  private final long maxEntrySize;
+  private final Duration retention;
+  private final ConcurrentMap<UUID, ImportJob> jobs;
+
+  @Autowired
+  public ArchiveImportService(StorageService storageService, ImageService imageService,
+      PlatformTransactionManager transactionManager, UploadConfiguration uploadConfiguration,
+      ApplicationHome applicationHome) {
+    this.storageService = storageService;
+    this.imageService = imageService;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    ImportProperties properties = uploadConfiguration.getImports();
+    // The queue is unbounded, but the number of queued tasks is limited per import.
+    executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+        0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    stagingDirectory =
+        uploadConfiguration.resolveDirectory(applicationHome).resolve(STAGING_DIRECTORY);
+    //noinspection ResultOfMethodCallIgnored
+    stagingDirectory.toFile().mkdirs();
+    maxPending = properties.getMaxPending();
+    whitelist = uploadConfiguration.getWhitelist();
+    batchSize = properties.getBatchSize();
+    maxEntrySize = properties.getMaxEntrySize().toBytes();
+    retention = properties.getRetention();
+    jobs = new ConcurrentHashMap<>();
+  }
+
+  @PreDestroy
+  private void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Creates and returns a new import job, to which an archive has not yet been sent.
+   */
+  public ImportJob create(@NonNull User contributor) {
+    ImportJob job = new ImportJob(UUID.randomUUID(), contributor.getId());
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+  /**
+   * Returns the import job with the specified {@code id}, if it exists and was created by {@code
+   * contributor}.
+   */
+  public Optional<ImportJob> get(@NonNull UUID id, @NonNull User contributor) {
+    return Optional.ofNullable(jobs.get(id))
+        .filter((job) -> job.getContributorId().equals(contributor.getId()));
+  }
+
+  /**
+   * Imports the images in the archive read from {@code input}, updating the progress of {@code
+   * job} as entries are read, stored, and persisted. If the import fails part-way, images already
+   * persisted are retained, and content stored for images not yet persisted is removed.
+   *
+   * @param job         Import job, to which an archive has not yet been sent.
+   * @param contributor Contributor of the imported images.
+   * @param input       Source of archive content.
+   * @return {@code job}, in its final state.
+   * @throws IOException If the archive cannot be read.
+   */
+  public ImportJob run(@NonNull ImportJob job, @NonNull User contributor,
+      @NonNull InputStream input) throws IOException {
+    if (!job.start()) {
+      throw new ImportStartedException();
+    }
+    try (Importer importer = new Importer(job, contributor)) {
+      try (ArchiveInputStream archive = open(input)) {
+        for (ArchiveEntry entry = archive.getNextEntry(); entry != null;
+            entry = archive.getNextEntry()) {
+          if (!entry.isDirectory()) {
+            if (archive.canReadEntryData(entry)) {
+              importer.add(archive, entry);
+            } else {
+              job.entryRejected();
+            }
+          }
+        }
+      }
+      importer.complete();
+      job.finish(null);
+    } catch (ResponseStatusException e) {
+      job.finish(e.getReason());
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      job.finish(IMPORT_FAILED_REASON);
+      throw e;
+    }
+    return job;
+  }
+
+  /**
+   * Removes finished jobs, and jobs to which no archive was sent, once they are older than the
+   * configured retention time, along with any staged files of the same age (e.g. left by an import
+   * interrupted by an application restart).
+   */
+  @Scheduled(fixedDelayString = "${upload.imports.cleanup-interval:PT1H}")
+  public void collectExpired() {
+    long cutoff = System.currentTimeMillis() - retention.toMillis();
+    jobs.values().removeIf((job) -> job.isExpired(cutoff));
+    List<Path> files;
+    try (Stream<Path> stream = Files.list(stagingDirectory)) {
+      files = stream.collect(Collectors.toList());
+    } catch (IOException e) {
+      logger.warn("Unable to list staged imports", e);
+      return;
+    }
+    for (Path file : files) {
+      if (file.toFile().lastModified() < cutoff) {
+        unstage(file);
+      }
+    }
+  }
+
+  private ArchiveInputStream open(InputStream input) throws IOException {
+    InputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+    buffered.mark(SIGNATURE_LENGTH);
+    byte[] signature = buffered.readNBytes(SIGNATURE_LENGTH);
+    buffered.reset();
+    if (GzipCompressorInputStream.matches(signature, signature.length)) {
+      buffered = new BufferedInputStream(
+          new GzipCompressorInputStream(buffered, true), BUFFER_SIZE);
+    }
+    try {
+      String format = ArchiveStreamFactory.detect(buffered);
+      if (!ArchiveStreamFactory.ZIP.equals(format) && !ArchiveStreamFactory.TAR.equals(format)) {
+        throw new UnsupportedArchiveException();
+      }
+      return new ArchiveStreamFactory().createArchiveInputStream(format, buffered);
+    } catch (ArchiveException e) {
+      throw new UnsupportedArchiveException();
+    }
+  }
+
+  private void unstage(Path staged) {
+    try {
+      Files.deleteIfExists(staged);
+    } catch (IOException e) {
+      logger.warn("Unable to remove staged import file {}", staged, e);
+    }
+  }
+
+  /**
+   * Returns the filename portion of an archive entry name, or {@code null} if it is empty or
+   * denotes a hidden file (e.g. the {@code ._} resource-fork files added by macOS).
+   */
+  private static String getFilename(String entryName) {
+    String filename =
+        entryName.substring(Math.max(entryName.lastIndexOf('/'), entryName.lastIndexOf('\\')) + 1);
+    return (filename.isEmpty() || filename.startsWith(".")) ? null : filename;
+  }
+
+  /**
+   * Files extracted from a single archive, in the order extracted, from submission to the worker
+   * pool until persistence. Instances are not thread-safe, and should be used only by the thread
+   * that created them.
+   */
+  private class Importer implements AutoCloseable {
+
+    private final ImportJob job;
+    private final User contributor;
+    private final Deque<Entry> pending;
+    private final List<StorageReference> stored;
+    private final Semaphore slots;
+    private boolean completed;
+
+    private Importer(ImportJob job, User contributor) {
+      this.job = job;
+      this.contributor = contributor;
+      pending = new ArrayDeque<>();
+      stored = new ArrayList<>(batchSize);
+      slots = new Semaphore(maxPending);
+    }
+
+    /**
+     * Extracts the content of {@code entry} from {@code archive} to a staged file, and schedules it
+     * to be written to the file store, unless its content type is not allowed or it is too large.
+     * If the maximum number of staged files for this import has been reached, this blocks (before
+     * reading any content) until another file has been written.
+     */
+    private void add(InputStream archive, ArchiveEntry entry) throws IOException {
+      String filename = getFilename(entry.getName());
+      String contentType = (filename != null)
+          ? MediaTypeFactory.getMediaType(filename).map(MediaType::toString).orElse(null)
+          : null;
+      if (contentType == null || !whitelist.contains(contentType)
+          || entry.getSize() > maxEntrySize) {
+        job.entryRejected();
+      } else {
+        try {
+          slots.acquire();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+        Path staged = null;
+        boolean submitted = false;
+        try {
+          staged = Files.createTempFile(stagingDirectory, null, STAGED_SUFFIX);
+          if (!stage(archive, staged)) {
+            job.entryRejected();
+          } else {
+            Path source = staged;
+            CompletableFuture<StorageReference> future = new CompletableFuture<>();
+            executor.execute(() -> {
+              try (InputStream input = Files.newInputStream(source)) {
+                future.complete(storageService.store(input, filename, contentType));
+              } catch (IOException | HttpMediaTypeNotAcceptableException | RuntimeException e) {
+                future.completeExceptionally(e);
+              } finally {
+                unstage(source);
+                slots.release();
+              }
+            });
+            submitted = true;
+            pending.add(new Entry(filename, future));
+            job.entryRead();
+          }
+        } finally {
+          if (!submitted) {
+            if (staged != null) {
+              unstage(staged);
+            }
+            slots.release();
+          }
+        }
+      }
+      collect(false);
+    }
+
+    /**
+     * Copies the content of the current entry from {@code archive} to {@code staged}, returning
+     * {@code true} if the entire entry was copied, or {@code false} if it is larger than the
+     * maximum entry size (in which case the remainder of the entry is not read).
+     */
+    private boolean stage(InputStream archive, Path staged) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long total = 0;
+      try (OutputStream output = Files.newOutputStream(staged)) {
+        for (int count = archive.read(buffer); count >= 0; count = archive.read(buffer)) {
+          total += count;
+          if (total > maxEntrySize) {
+            return false;
+          }
+          output.write(buffer, 0, count);
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Waits for all files to be written, and persists any images not yet persisted.
+     */
+    private void complete() {
+      collect(true);
+      if (!stored.isEmpty()) {
+        persist();
+      }
+      completed = true;
+    }
+
+    /**
+     * If this import has not been completed, waits for any files still being written, and removes
+     * the content of all files not yet persisted.
+     */
+    @Override
+    public void close() {
+      if (!completed) {
+        for (Entry entry : pending) {
+          try {
+            stored.add(entry.future.join());
+          } catch (CompletionException e) {
+            // Nothing was stored for this entry.
+          }
+        }
+        pending.clear();
+        remove(stored);
+        stored.clear();
+        completed = true;
+      }
+    }
+
+    /**
+     * Takes the results of stored files from the head of the pending queue, as long as they are
+     * available (or, if {@code wait} is {@code true}, until the queue is empty), persisting images
+     * for them whenever a full batch has been collected.
+     */
+    private void collect(boolean wait) {
+      while (!pending.isEmpty() && (wait || pending.peek().future.isDone())) {
+        Entry entry = pending.remove();
+        try {
+          stored.add(entry.future.join());
+          job.entryStored();
+        } catch (CompletionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof HttpMediaTypeNotAcceptableException) {
+            job.entryRejected();
+          } else {
+            logger.warn("Unable to store {}", entry.filename, cause);
+            job.entryFailed();
+          }
+        }
+        if (stored.size() >= batchSize) {
+          persist();
+        }
+      }
+    }
+
+    private void persist() {
+      List<StorageReference> batch = new ArrayList<>(stored);
+      stored.clear();
+      try {
+        transactionTemplate.executeWithoutResult((status) -> {
+          for (StorageReference reference : batch) {
+            imageService.create(reference, null, null, contributor);
+          }
+        });
+      } catch (RuntimeException e) {
+        remove(batch);
+        throw e;
+      }
+      job.entriesImported(batch.size());
+    }
+
+    private void remove(List<StorageReference> references) {
+      for (StorageReference reference : references) {
+        try {
+          storageService.delete(reference.getReference());
+        } catch (RuntimeException e) {
+          logger.warn("Unable to remove stored content {}", reference.getReference(), e);
+        }
+      }
+    }
+
+  }
+
+  private static class Entry {
+
+    private final String filename;
+    private final CompletableFuture<StorageReference> future;
+
+    private Entry(String filename, CompletableFuture<StorageReference> future) {
+      this.filename = filename;
+      this.future = future;
+    }
+
+  }
+
+  /**
+   * Progress of a single archive import. Of the files in the archive, {@code read} have been
+   * extracted and scheduled for storage, {@code stored} have been written to the file store, and
+   * {@code imported} have been persisted as images; {@code rejected} were skipped (because their
+   * content type is not allowed, or they are too large), and {@code failed} could not be stored.
+   */
+  @JsonInclude(Include.NON_NULL)
+  @JsonPropertyOrder({"id", "status", "read", "stored", "imported", "rejected", "failed",
+      "created", "started", "finished", "error"})
+  public static class ImportJob {
+
+    private final UUID id;
+    @JsonIgnore
+    private final UUID contributorId;
+    private final Date created;
+    private Status status;
+    private int read;
+    private int stored;
+    private int imported;
+    private int rejected;
+    private int failed;
+    private Date started;
+    private Date finished;
+    private String error;
+
+    private ImportJob(UUID id, UUID contributorId) {
+      this.id = id;
+      this.contributorId = contributorId;
+      created = new Date();
+      status = Status.PENDING;
+    }
+
+    public UUID getId() {
+      return id;
+    }
+
+    public UUID getContributorId() {
+      return contributorId;
+    }
+
+    public Date getCreated() {
+      return created;
+    }
+
+    public synchronized Status getStatus() {
+      return status;
+    }
+
+    public synchronized int getRead() {
+      return read;
+    }
+
+    public synchronized int getStored() {
+      return stored;
+    }
+
+    public synchronized int getImported() {
+      return imported;
+    }
+
+    public synchronized int getRejected() {
+      return rejected;
+    }
+
+    public synchronized int getFailed() {
+      return failed;
+    }
+
+    public synchronized Date getStarted() {
+      return started;
+    }
+
+    public synchronized Date getFinished() {
+      return finished;
+    }
+
+    /**
+     * Returns the reason the import failed, or {@code null} if it has not failed.
+     */
+    public synchronized String getError() {
+      return error;
+    }
+
+    private synchronized boolean start() {
+      boolean pending = (status == Status.PENDING);
+      if (pending) {
+        status = Status.RUNNING;
+        started = new Date();
+      }
+      return pending;
+    }
+
+    private synchronized void finish(String error) {
+      status = (error == null) ? Status.COMPLETED : Status.FAILED;
+      this.error = error;
+      finished = new Date();
+    }
+
+    private synchronized boolean isExpired(long cutoff) {
+      return (finished != null && finished.getTime() < cutoff)
+          || (status == Status.PENDING && created.getTime() < cutoff);
+    }
+
+    private synchronized void entryRead() {
+      read++;
+    }
+
+    private synchronized void entryStored() {
+      stored++;
+    }
+
+    private synchronized void entriesImported(int count) {
+      imported += count;
+    }
+
+    private synchronized void entryRejected() {
+      rejected++;
+    }
+
+    private synchronized void entryFailed() {
+      failed++;
+    }
+
+    /**
+     * Lifecycle states of an import.
+     */
+    public enum Status {
+      PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+  }
+
+  /**
+   * Thrown when a referenced import does not exist, or has expired.
+   */
+  public static class ImportNotFoundException extends ResponseStatusException {
+
+    private static final String NOT_FOUND_REASON = "Import not found";
+
+    public ImportNotFoundException() {
+      super(HttpStatus.NOT_FOUND, NOT_FOUND_REASON);
+    }
+
+  }
+
+  /**
+   * Thrown when an archive is sent for an import that has already received one.
+   */
+  public static class ImportStartedException extends ResponseStatusException {
+
+    private static final String STARTED_REASON = "Import already started";
+
+    public ImportStartedException() {
+      super(HttpStatus.CONFLICT, STARTED_REASON);
+    }
+
+  }
+
+  /**
+   * Thrown when the content sent for an import is not a ZIP or tar archive.
+   */
+  public static class UnsupportedArchiveException extends ResponseStatusException {
+
+    private static final String UNSUPPORTED_REASON = "Archive must be in ZIP or tar format";
+
+    public UnsupportedArchiveException() {
+      super(HttpStatus.UNSUPPORTED_MEDIA_TYPE, UNSUPPORTED_REASON);
+    }
+
+  }
+
+}
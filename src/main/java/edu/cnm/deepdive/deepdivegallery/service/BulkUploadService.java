@@ -0,0 +1,315 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.BulkProperties;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Stores multiple uploaded files, and creates the corresponding {@link Image} instances, as a
+ * single batch. The content of each file is streamed from the request directly to the file store,
+ * so memory use does not depend on the size or number of files. Once all files have been stored,
+ * the {@link Image} instances are persisted in a single transaction. A file that cannot be stored
+ * (e.g. because its content type is not allowed) is reported as failed, without affecting the
+ * other files in the batch; a batch with more than the maximum number of files is rejected in its
+ * entirety.
+ */
+@Service
+public class BulkUploadService {
+
+  private static final Logger logger = LoggerFactory.getLogger(BulkUploadService.class);
+
+  private static final String FORBIDDEN_TYPE_REASON = "Content type not allowed";
+  private static final String NOT_STORED_REASON = "Unable to store uploaded content";
+
+  private final StorageService storageService;
+  private final ImageService imageService;
+  private final TransactionTemplate transactionTemplate;
+  private final int maxFiles;
+  private final long maxRequestSize;
+
+  @Autowired
+  public BulkUploadService(StorageService storageService, ImageService imageService,
+      PlatformTransactionManager transactionManager, UploadConfiguration uploadConfiguration) {
+    this.storageService = storageService;
+    this.imageService = imageService;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    BulkProperties properties = uploadConfiguration.getBulk();
+    maxFiles = properties.getMaxFiles();
+    maxRequestSize = properties.getMaxRequestSize().toBytes();
+  }
+
+  /**
+   * Returns the maximum total size (in bytes) of a bulk upload request body.
+   */
+  public long getMaxRequestSize() {
+    return maxRequestSize;
+  }
+
+  /**
+   * Starts and returns a new batch of files contributed by {@code contributor}. The batch should be
+   * closed when no longer needed (whether or not it has been completed), so that any content stored
+   * for an incomplete batch is removed.
+   */
+  public Batch begin(@NonNull User contributor) {
+    return new Batch(contributor);
+  }
+
+  /**
+   * Files added to (or rejected from) a single bulk upload. Instances are not thread-safe, and
+   * should be used only by the thread that created them.
+   */
+  public class Batch implements AutoCloseable {
+
+    private final User contributor;
+    private final List<Entry> entries;
+    private boolean completed;
+
+    private Batch(User contributor) {
+      this.contributor = contributor;
+      entries = new ArrayList<>();
+    }
+
+    /**
+     * Reads the content of a file from {@code input}, writing it to the file store as it is read.
+     * If the content cannot be stored (because its type is not allowed, or the file store cannot
+     * be written), the file is recorded as failed; if {@code input} cannot be read, the exception
+     * is rethrown, and nothing is recorded for the file.
+     *
+     * @param input       Source of file content.
+     * @param filename    Original filename (or {@code null} if unknown).
+     * @param contentType MIME type of file content.
+     * @throws IOException           If {@code input} cannot be read.
+     * @throws TooManyFilesException If this batch already holds the maximum number of files; in
+     *                                this case, {@code input} is not read.
+     */
+    public void add(@NonNull InputStream input, String filename, String contentType)
+        throws IOException {
+      checkCount();
+      SourceInputStream source = new SourceInputStream(input);
+      try {
+        entries.add(new Entry(filename, storageService.store(source, filename, contentType)));
+      } catch (HttpMediaTypeNotAcceptableException e) {
+        entries.add(new Entry(filename, FORBIDDEN_TYPE_REASON));
+      } catch (IOException e) {
+        if (source.failure != null) {
+          throw e;
+        }
+        logger.warn("Unable to store {}", filename, e);
+        entries.add(new Entry(filename, NOT_STORED_REASON));
+      }
+    }
+
+    /**
+     * Records a file that was not accepted for storage, along with the reason.
+     *
+     * @throws TooManyFilesException If this batch already holds the maximum number of files.
+     */
+    public void reject(String filename, @NonNull String reason) {
+      checkCount();
+      entries.add(new Entry(filename, reason));
+    }
+
+    /**
+     * Persists an {@link Image} for each file stored, in a single transaction, and returns the
+     * result for each file, in the order added. If the transaction fails, all stored content is
+     * removed, and the exception is rethrown.
+     *
+     * @return Results for all files in this batch.
+     */
+    public List<UploadResult> complete() {
+      List<StorageReference> references = new LinkedList<>();
+      for (Entry entry : entries) {
+        if (entry.reference != null) {
+          references.add(entry.reference);
+        }
+      }
+      List<Image> images;
+      try {
+        images = transactionTemplate.execute((status) -> {
+          List<Image> created = new ArrayList<>(references.size());
+          for (StorageReference reference : references) {
+            created.add(imageService.create(reference, null, null, contributor));
+          }
+          return created;
+        });
+      } catch (RuntimeException e) {
+        removeStored();
+        throw e;
+      }
+      completed = true;
+      List<UploadResult> results = new ArrayList<>(entries.size());
+      Iterator<Image> iter = images.iterator();
+      for (Entry entry : entries) {
+        results.add((entry.reference != null)
+            ? new UploadResult(entry.filename, iter.next(), null)
+            : new UploadResult(entry.filename, null, entry.error));
+      }
+      return results;
+    }
+
+    /**
+     * If this batch has not been completed, removes all stored content.
+     */
+    @Override
+    public void close() {
+      if (!completed) {
+        removeStored();
+        completed = true;
+      }
+    }
+
+    private void checkCount() {
+      if (entries.size() >= maxFiles) {
+        throw new TooManyFilesException();
+      }
+    }
+
+    private void removeStored() {
+      for (Entry entry : entries) {
+        if (entry.reference != null) {
+          try {
+            storageService.delete(entry.reference.getReference());
+          } catch (RuntimeException e) {
+            logger.warn("Unable to remove stored content {}", entry.reference.getReference(), e);
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Result of a single file in a bulk upload: the original filename, and either the {@link Image}
+   * created for it, or the reason it could not be stored.
+   */
+  @JsonInclude(Include.NON_NULL)
+  @JsonPropertyOrder({"filename", "image", "error"})
+  public static class UploadResult {
+
+    private final String filename;
+    private final Image image;
+    private final String error;
+
+    private UploadResult(String filename, Image image, String error) {
+      this.filename = filename;
+      this.image = image;
+      this.error = error;
+    }
+
+    public String getFilename() {
+      return filename;
+    }
+
+    /**
+     * Returns the {@link Image} created for the file, or {@code null} if it could not be stored.
+     */
+    public Image getImage() {
+      return image;
+    }
+
+    /**
+     * Returns the reason the file could not be stored, or {@code null} if it was stored.
+     */
+    public String getError() {
+      return error;
+    }
+
+  }
+
+  public static class TooManyFilesException extends ResponseStatusException {
+
+    private static final String TOO_MANY_FILES_REASON = "Too many files in batch";
+
+    public TooManyFilesException() {
+      super(HttpStatus.PAYLOAD_TOO_LARGE, TOO_MANY_FILES_REASON);
+    }
+
+  }
+
+  private static class Entry {
+
+    private final String filename;
+    private final StorageReference reference;
+    private final String error;
+
+    private Entry(String filename, StorageReference reference) {
+      this.filename = filename;
+      this.reference = reference;
+      error = null;
+    }
+
+    private Entry(String filename, String error) {
+      this.filename = filename;
+      this.error = error;
+      reference = null;
+    }
+
+  }
+
+  /**
+   * Records a failure to read the request content, so that it can be distinguished from a failure
+   * to write the file store.
+   */
+  private static class SourceInputStream extends FilterInputStream {
+
+    private IOException failure;
+
+    private SourceInputStream(InputStream input) {
+      super(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (IOException e) {
+        failure = e;
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        return super.read(b, off, len);
+      } catch (IOException e) {
+        failure = e;
+        throw e;
+      }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      try {
+        return super.skip(n);
+      } catch (IOException e) {
+        failure = e;
+        throw e;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,174 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.model.dao.ContentBlobRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.ContentBlob;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+/**
+ * Implementation of {@link StorageService} that stores each distinct file content exactly once,
+ * named by the SHA-256 digest of the content and organized into subdirectories by the configured
+ * subdirectory pattern (applied to the hex-encoded digest). A {@link ContentBlob} record tracks the
+ * number of references to each stored file; storing content that is already present only increments
+ * the count (and updates the modification time of the existing file, so that it is not treated as
+ * orphaned by {@link StorageReconciler}), and the file is removed when the last reference is
+ * deleted.
+ * <p>
+ * This implementation is used when {@code upload.storage} is set to {@code
+ * content-addressable}.</p>
+ */
+@Service
+@ConditionalOnProperty(prefix = "upload", name = "storage", havingValue = "content-addressable")
+public class ContentAddressableStorageService extends AbstractFilesystemStorageService {
+
+  private static final String STAGING_DIRECTORY = ".incoming";
+  private static final String STAGING_PREFIX = "upload-";
+  private static final String STAGING_SUFFIX = ".tmp";
+  private static final int MAX_ACQUIRE_ATTEMPTS = 3;
+
+  private final ContentBlobRepository blobRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final Path stagingDirectory;
+
+  @Autowired
+  public ContentAddressableStorageService(UploadConfiguration uploadConfiguration,
+      ApplicationHome applicationHome, ContentBlobRepository blobRepository,
+      PlatformTransactionManager transactionManager) {
+    super(uploadConfiguration, applicationHome);
+    this.blobRepository = blobRepository;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    // Reference counts are maintained independently of any caller's transaction; this also allows
+    // content to be released from a post-commit callback.
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    stagingDirectory = getUploadDirectory().resolve(STAGING_DIRECTORY);
+    //noinspection ResultOfMethodCallIgnored
+    stagingDirectory.toFile().mkdirs();
+  }
+
+  /**
+   * Stores the content read from {@code input}. Since the digest (and thus the name) of the content
+   * is not known until it has been read completely, the content is first written to a staging file
+   * in the upload directory, then moved into place (or discarded, if identical content is already
+   * stored).
+   */
+  @Override
+  public StorageReference store(InputStream input, String filename, String contentType)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    Probe probe = probe(input, contentType);
+    Path staged = Files.createTempFile(stagingDirectory, STAGING_PREFIX, STAGING_SUFFIX);
+    try {
+      MessageDigest digest = newDigest();
+      long size;
+      try (OutputStream output = Files.newOutputStream(staged)) {
+        size = new DigestInputStream(probe.getContent(), digest).transferTo(output);
+      }
+      String hex = toHex(digest.digest());
+      String reference = getReference(hex);
+      acquire(hex, size, staged, resolveForWrite(reference));
+      return new StorageReference(
+          filename, reference, probe.getContentType(), hex, size, probe.getHeader());
+    } finally {
+      Files.deleteIfExists(staged);
+    }
+  }
+
+  /**
+   * Releases a reference to the specified content, removing the file when no references remain.
+   *
+   * @return {@code true} if the underlying file was removed; {@code false} otherwise.
+   */
+  @Override
+  public boolean delete(String reference)
+      throws InvalidPathException, UnsupportedOperationException, SecurityException {
+    String digest = reference.substring(reference.lastIndexOf(REFERENCE_PATH_DELIMITER) + 1);
+    Path file = getUploadDirectory().resolve(reference);
+    Boolean deleted = transactionTemplate.execute((status) ->
+        blobRepository.findByDigest(digest)
+            .map((blob) -> {
+              long count = blob.getReferenceCount() - 1;
+              boolean removed;
+              if (count > 0) {
+                blob.setReferenceCount(count);
+                blobRepository.save(blob);
+                removed = false;
+              } else {
+                // File is removed while the row lock is held, so that a concurrent store of the
+                // same content cannot move its copy into place before this removal.
+                blobRepository.delete(blob);
+                removed = file.toFile().delete();
+              }
+              return removed;
+            })
+            .orElse(false)
+    );
+    return Boolean.TRUE.equals(deleted);
+  }
+
+  private void acquire(
+      @NonNull String digest, long size, @NonNull Path staged, @NonNull Path target)
+      throws IOException {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        transactionTemplate.executeWithoutResult((status) -> {
+          ContentBlob blob = blobRepository.findByDigest(digest)
+              .orElseGet(() -> {
+                ContentBlob created = new ContentBlob();
+                created.setDigest(digest);
+                created.setSize(size);
+                return created;
+              });
+          if (!Files.exists(target)) {
+            move(staged, target);
+          } else {
+            // Restarts the reconciler's grace period, while the row lock is held.
+            //noinspection ResultOfMethodCallIgnored
+            target.toFile().setLastModified(System.currentTimeMillis());
+          }
+          blob.setReferenceCount(blob.getReferenceCount() + 1);
+          blobRepository.saveAndFlush(blob);
+        });
+        break;
+      } catch (DataIntegrityViolationException e) {
+        // Another request inserted the same (new) content concurrently; retry as an increment.
+        if (attempt >= MAX_ACQUIRE_ATTEMPTS) {
+          throw e;
+        }
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  private void move(Path source, Path target) {
+    try {
+      try {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
@@ -0,0 +1,257 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.DerivativeProperties;
+import edu.cnm.deepdive.deepdivegallery.model.dao.DerivativeRepository;
+import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative.Size;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative.Status;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.service.ImageTransformer.Encoded;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+/**
+ * Generates and retrieves reduced-size renditions ({@link Derivative} instances) of stored images.
+ * Generation is performed asynchronously, on a bounded pool of worker threads with a bounded queue;
+ * if the queue is full, the request is dropped, and will be retried the next time a missing
+ * derivative is requested. Sizes that are not needed (because the original is no wider), and
+ * images whose content cannot be decoded, are recorded as derivatives with no content, so that
+ * they are not scheduled again. The EXIF orientation of the original is applied to each rendition.
+ */
+@Service
+public class DerivativeService {
+
+  private static final Logger logger = LoggerFactory.getLogger(DerivativeService.class);
+
+  private static final String THREAD_NAME_PREFIX = "derivative-";
+  private static final String DERIVATIVE_FILENAME_FORMAT = "%s-%s.%s";
+
+  private final DerivativeRepository derivativeRepository;
+  private final ImageRepository imageRepository;
+  private final StorageService storageService;
+  private final ImageTransformer transformer;
+  private final ExecutorService executor;
+  private final Set<UUID> inFlight;
+
+  @Autowired
+  public DerivativeService(DerivativeRepository derivativeRepository,
+      ImageRepository imageRepository, StorageService storageService,
+      ImageTransformer transformer, UploadConfiguration uploadConfiguration) {
+    this.derivativeRepository = derivativeRepository;
+    this.imageRepository = imageRepository;
+    this.storageService = storageService;
+    this.transformer = transformer;
+    DerivativeProperties properties = uploadConfiguration.getDerivatives();
+    executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+        0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+        new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    inFlight = ConcurrentHashMap.newKeySet();
+  }
+
+  @PreDestroy
+  private void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Returns the derivative record of the specified size for {@code image}, if generation has been
+   * attempted; the record has content only if {@link Derivative#isGenerated()} returns {@code
+   * true}.
+   */
+  public Optional<Derivative> get(@NonNull Image image, @NonNull Size size) {
+    return derivativeRepository.findFirstByImageAndSize(image, size);
+  }
+
+  /**
+   * Returns {@code true} unless the displayed width of {@code image} is known, and no greater than
+   * {@code size}, so that a derivative of that size would not be smaller than the original.
+   */
+  public boolean isNeeded(@NonNull Image image, @NonNull Size size) {
+    Integer width = ImageTransformer.isTransposed(image.getOrientation())
+        ? image.getHeight()
+        : image.getWidth();
+    return width == null || width > size.getWidth();
+  }
+
+  /**
+   * Schedules generation of any missing derivatives for {@code image}. If a transaction is active,
+   * generation is deferred until after it commits, so that the worker sees the persisted image.
+   */
+  public void schedule(@NonNull Image image) {
+    UUID id = image.getId();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          submit(id);
+        }
+      });
+    } else {
+      submit(id);
+    }
+  }
+
+  /**
+   * Deletes all derivative records for {@code image}, returning the deleted records; the caller is
+   * responsible for removing the stored content they reference.
+   */
+  public List<Derivative> deleteAll(@NonNull Image image) {
+    List<Derivative> derivatives = derivativeRepository.findAllByImage(image);
+    derivativeRepository.deleteAll(derivatives);
+    return derivatives;
+  }
+
+  /**
+   * Deletes all derivative records for the specified images, returning the deleted records; the
+   * records are read in one query, and deleted in one statement. As for {@link #deleteAll(Image)},
+   * the caller is responsible for removing the stored content they reference.
+   */
+  public List<Derivative> deleteAll(@NonNull Collection<Image> images) {
+    List<Derivative> derivatives = derivativeRepository.findAllByImageIn(images);
+    if (!derivatives.isEmpty()) {
+      derivativeRepository.deleteAllByImageIn(images);
+    }
+    return derivatives;
+  }
+
+  private void submit(UUID imageId) {
+    if (inFlight.add(imageId)) {
+      try {
+        executor.execute(() -> {
+          try {
+            imageRepository.findById(imageId).ifPresent(this::generate);
+          } finally {
+            inFlight.remove(imageId);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        inFlight.remove(imageId);
+        logger.debug("Derivative queue full; skipped image {}", imageId);
+      }
+    }
+  }
+
+  private void generate(Image image) {
+    List<Size> pending = new LinkedList<>();
+    for (Size size : Size.values()) {
+      if (derivativeRepository.findFirstByImageAndSize(image, size).isEmpty()) {
+        if (isNeeded(image, size)) {
+          pending.add(size);
+        } else {
+          record(image, size, Status.NOT_NEEDED);
+        }
+      }
+    }
+    if (!pending.isEmpty()) {
+      int largest = pending.stream()
+          .mapToInt(Size::getWidth)
+          .max()
+          .getAsInt();
+      boolean transposed = ImageTransformer.isTransposed(image.getOrientation());
+      try (InputStream input = storageService.retrieve(image.getPath()).getInputStream()) {
+        BufferedImage source = decode(image, input, transposed ? 0 : largest,
+            transposed ? largest : 0);
+        if (source == null) {
+          pending.forEach((size) -> record(image, size, Status.FAILED));
+        } else {
+          source = transformer.orient(source, image.getOrientation());
+          for (Size size : pending) {
+            // Derivatives are only generated if they would be smaller than the original.
+            if (size.getWidth() < source.getWidth()) {
+              write(image, size, transformer.scaleToWidth(source, size.getWidth()));
+            } else {
+              record(image, size, Status.NOT_NEEDED);
+            }
+          }
+        }
+      } catch (IOException | HttpMediaTypeNotAcceptableException | RuntimeException e) {
+        // Possibly transient (e.g. the file store is unavailable); retried on the next request.
+        logger.warn("Unable to generate derivatives for image {}", image.getId(), e);
+      }
+    }
+  }
+
+  /**
+   * Decodes the content read from {@code input}, returning {@code null} if it is not in a supported
+   * format, or is corrupt.
+   */
+  private BufferedImage decode(Image image, InputStream input, int width, int height)
+      throws IOException {
+    try {
+      return transformer.read(input, width, height);
+    } catch (IIOException | RuntimeException e) {
+      logger.warn("Unable to decode image {}; no derivatives will be generated", image.getId(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Records that the derivative of the specified size will not be generated.
+   */
+  private void record(Image image, Size size, Status status) {
+    Derivative derivative = new Derivative();
+    derivative.setImage(image);
+    derivative.setSize(size);
+    derivative.setStatus(status);
+    try {
+      derivativeRepository.save(derivative);
+    } catch (DataIntegrityViolationException e) {
+      // Recorded concurrently elsewhere.
+    }
+  }
+
+  private void write(Image image, Size size, BufferedImage scaled)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    Encoded encoded = transformer.encode(scaled);
+    if (encoded != null) {
+      String filename = String.format(DERIVATIVE_FILENAME_FORMAT,
+          image.getId(), size.name().toLowerCase(), encoded.getFormat());
+      StorageReference reference = storageService.store(
+          new ByteArrayInputStream(encoded.getContent()), filename, encoded.getContentType());
+      Derivative derivative = new Derivative();
+      derivative.setImage(image);
+      derivative.setSize(size);
+      derivative.setPath(reference.getReference());
+      derivative.setContentType(encoded.getContentType());
+      derivative.setContentHash(reference.getDigest());
+      derivative.setWidth(scaled.getWidth());
+      derivative.setHeight(scaled.getHeight());
+      try {
+        derivativeRepository.save(derivative);
+      } catch (DataIntegrityViolationException e) {
+        // Generated concurrently elsewhere; discard this copy.
+        storageService.delete(reference.getReference());
+      }
+    }
+  }
+
+}
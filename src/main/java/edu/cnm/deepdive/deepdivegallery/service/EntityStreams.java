@@ -0,0 +1,83 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.springframework.lang.NonNull;
+
+/**
+ * Utility for consuming forward-only query results (as returned by repository methods declaring a
+ * {@link Stream} return type) without accumulating them in the persistence context. Each entity is
+ * detached once it has been consumed, and the persistence context is cleared periodically, so that
+ * heap use stays constant regardless of the number of results.
+ */
+public final class EntityStreams {
+
+  /**
+   * Number of entities consumed between clearing the persistence context. Detaching individual
+   * entities does not release eagerly fetched associations; clearing does.
+   */
+  public static final int CLEAR_INTERVAL = 100;
+
+  private EntityStreams() {
+  }
+
+  /**
+   * Passes each element of {@code entities} to {@code consumer}, detaching each element after it
+   * has been consumed. This must be invoked within the transaction that opened {@code entities}.
+   *
+   * @param entities      Query results.
+   * @param entityManager {@link EntityManager} that loaded the entities.
+   * @param consumer      Recipient of each entity.
+   * @param <T>           Entity type.
+   * @throws IOException If thrown by {@code consumer}.
+   */
+  public static <T> void forEach(@NonNull Stream<T> entities, @NonNull EntityManager entityManager,
+      @NonNull EntityConsumer<? super T> consumer) throws IOException {
+    int count = 0;
+    for (Iterator<T> iter = entities.iterator(); iter.hasNext(); ) {
+      T entity = iter.next();
+      consumer.accept(entity);
+      entityManager.detach(entity);
+      if (++count % CLEAR_INTERVAL == 0) {
+        entityManager.clear();
+      }
+    }
+  }
+
+  /**
+   * Recipient of entities read from a forward-only query.
+   *
+   * @param <T> Entity type.
+   */
+  @FunctionalInterface
+  public interface EntityConsumer<T> {
+
+    /**
+     * Processes {@code entity}, which is managed only for the duration of this invocation.
+     *
+     * @throws IOException If the entity cannot be written (e.g. to a response).
+     */
+    void accept(T entity) throws IOException;
+
+  }
+
+  /**
+   * Source of entities that passes each, in turn, to an {@link EntityConsumer}.
+   *
+   * @param <T> Entity type.
+   */
+  @FunctionalInterface
+  public interface EntitySource<T> {
+
+    /**
+     * Passes each entity from this source to {@code consumer}.
+     *
+     * @throws IOException If thrown by {@code consumer}.
+     */
+    void forEach(EntityConsumer<? super T> consumer) throws IOException;
+
+  }
+
+}
@@ -0,0 +1,102 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.lang.NonNull;
+
+/**
+ * Thread-safe generator of unique, time-ordered filenames, formatted with a timestamp (placeholder
+ * 1), a number in the range [0, {@code limit}) (placeholder 2), and an extension (placeholder 3).
+ * <p>
+ * Each name is derived from a single logical clock, counting in units of {@code 1 / limit}
+ * milliseconds: the timestamp is the whole-millisecond part, and the number is the remainder. The
+ * clock is advanced with a lock-free compare-and-set, to the later of the current time and its
+ * previous value plus one; thus no two names generated by an instance share both timestamp and
+ * number, regardless of the number of threads or rate of generation. (If more than {@code limit}
+ * names are generated within a millisecond, the timestamp runs slightly ahead of the wall clock,
+ * until the rate drops.)</p>
+ */
+public class FilenameGenerator {
+
+  private static final long MAX_LIMIT = 2_000_000;
+
+  private final String format;
+  private final DateTimeFormatter formatter;
+  private final long limit;
+  private final Clock clock;
+  private final AtomicLong ticks;
+  private final ThreadLocal<CachedTimestamp> timestamps;
+
+  /**
+   * Initializes this instance with the specified format and properties, using the system clock.
+   *
+   * @param format          Filename format, with placeholders for timestamp, number, and
+   *                        extension.
+   * @param timestampFormat {@link DateTimeFormatter} pattern for the timestamp.
+   * @param timeZone        Time zone in which the timestamp is computed.
+   * @param limit           Upper bound (exclusive) of the number; must be between 1 and
+   *                        2,000,000.
+   */
+  public FilenameGenerator(@NonNull String format, @NonNull String timestampFormat,
+      @NonNull String timeZone, long limit) {
+    this(format, timestampFormat, timeZone, limit, Clock.systemUTC());
+  }
+
+  /**
+   * Initializes this instance with the specified format, properties, and clock.
+   *
+   * @param format          Filename format, with placeholders for timestamp, number, and
+   *                        extension.
+   * @param timestampFormat {@link DateTimeFormatter} pattern for the timestamp.
+   * @param timeZone        Time zone in which the timestamp is computed.
+   * @param limit           Upper bound (exclusive) of the number; must be between 1 and
+   *                        2,000,000.
+   * @param clock           Source of current time.
+   */
+  public FilenameGenerator(@NonNull String format, @NonNull String timestampFormat,
+      @NonNull String timeZone, long limit, @NonNull Clock clock) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      // Larger limits would overflow the logical clock.
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+    }
+    this.format = format;
+    this.limit = limit;
+    this.clock = clock;
+    formatter = DateTimeFormatter.ofPattern(timestampFormat).withZone(ZoneId.of(timeZone));
+    ticks = new AtomicLong();
+    timestamps = ThreadLocal.withInitial(CachedTimestamp::new);
+  }
+
+  /**
+   * Returns a new filename with the specified extension.
+   */
+  public String generate(@NonNull String extension) {
+    long floor = clock.millis() * limit;
+    long tick = ticks.accumulateAndGet(floor, (previous, now) -> Math.max(previous + 1, now));
+    return String.format(format, timestamp(tick / limit), tick % limit, extension);
+  }
+
+  /**
+   * Returns the formatted timestamp for {@code millis}; consecutive names generated on the same
+   * thread within a millisecond reuse the formatted value.
+   */
+  private String timestamp(long millis) {
+    CachedTimestamp cached = timestamps.get();
+    if (cached.text == null || cached.millis != millis) {
+      cached.millis = millis;
+      cached.text = formatter.format(Instant.ofEpochMilli(millis));
+    }
+    return cached.text;
+  }
+
+  private static class CachedTimestamp {
+
+    private long millis;
+    private String text;
+
+  }
+
+}
@@ -1,25 +1,46 @@
 package edu.cnm.deepdive.deepdivegallery.service;
 
+import edu.cnm.deepdive.deepdivegallery.model.dao.GalleryImageRepository;
 import edu.cnm.deepdive.deepdivegallery.model.dao.GalleryRepository;
 import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
+import edu.cnm.deepdive.deepdivegallery.model.entity.GalleryImage;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.EntityStreams.EntityConsumer;
+import edu.cnm.deepdive.deepdivegallery.view.GalleryItem;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 public class GalleryService {
 
+  /**
+   * Spacing of consecutive positions when images are appended to a gallery, or when a gallery is
+   * renumbered; about 20 successive insertions at the same point are possible before a gallery
+   * must be renumbered.
+   */
+  private static final long POSITION_GAP = 1L << 20;
+  private static final int LOAD_BATCH_SIZE = 100;
+
   private final GalleryRepository galleryRepository;
+  private final GalleryImageRepository galleryImageRepository;
 
   @Autowired
   public GalleryService(
-      GalleryRepository galleryRepository) {
+      GalleryRepository galleryRepository, GalleryImageRepository galleryImageRepository) {
     this.galleryRepository = galleryRepository;
+    this.galleryImageRepository = galleryImageRepository;
   }
 
   public Gallery save(@NonNull Gallery gallery) {
@@ -32,12 +53,6 @@ public class GalleryService {
     return galleryRepository.save(gallery);
   }
 
-/*  public Gallery addImg(Gallery gallery, User creator) {
-    gallery.setCreator(creator);
-    List<Image> images = gallery.getImages();
-    return galleryRepository.save(gallery);
-  }*/// TODO uncomment and solve null gallery_id problem
-
   /**
    * This method returns a gallery by passing in the User who created it and the associated gallery id.
    * @param id this is the gallery primary key.
@@ -52,12 +67,150 @@ public class GalleryService {
     return galleryRepository.findById(galleryId);
   }
 
-/*
-  public Optional<List<Image>> getImages(UUID galleryId) {
-    return get(galleryId)
-        .map(Gallery::getImages);
+  /**
+   * Selects and returns a page of the images in {@code gallery}, in position order. The page starts
+   * immediately after the image identified by {@code position} and {@code id}; if these are {@code
+   * null}, the first page is returned. Since pages are selected by key, the cost of reading a page
+   * does not depend on the size of the gallery, or on the position of the page.
+   *
+   * @param gallery  Gallery containing the images.
+   * @param position Position of the last image on the previous page, or {@code null}.
+   * @param id       Unique identifier of the last image on the previous page, or {@code null}.
+   * @param limit    Maximum number of images to return.
+   * @return Selected images.
+   */
+  public List<GalleryItem> getImages(
+      @NonNull Gallery gallery, Long position, UUID id, int limit) {
+    Pageable pageable = PageRequest.of(0, limit);
+    return (position != null && id != null)
+        ? galleryImageRepository.getPageAfter(gallery, position, id, pageable)
+        : galleryImageRepository.getFirstPage(gallery, pageable);
+  }
+
+  /**
+   * Passes all images in {@code gallery}, in position order, to {@code consumer}. Images are read a
+   * page at a time, each page in a separate short query, so no transaction or database cursor is
+   * held open while {@code consumer} runs.
+   *
+   * @param gallery  Gallery containing the images.
+   * @param consumer Recipient of each image.
+   * @throws IOException If thrown by {@code consumer}.
+   */
+  public void forEachImage(@NonNull Gallery gallery,
+      @NonNull EntityConsumer<? super GalleryItem> consumer) throws IOException {
+    List<GalleryItem> page = getImages(gallery, null, null, LOAD_BATCH_SIZE);
+    while (!page.isEmpty()) {
+      for (GalleryItem item : page) {
+        consumer.accept(item);
+      }
+      if (page.size() < LOAD_BATCH_SIZE) {
+        break;
+      }
+      GalleryItem last = page.get(page.size() - 1);
+      page = getImages(gallery, last.getPosition(), last.getId(), LOAD_BATCH_SIZE);
+    }
+  }
+
+  /**
+   * Returns {@code image} as a member of {@code gallery}, if it is one.
+   */
+  public Optional<GalleryItem> getImage(@NonNull Gallery gallery, @NonNull Image image) {
+    return galleryImageRepository.findItem(gallery, image);
+  }
+
+  /**
+   * Adds {@code image} to {@code gallery}, or moves it if it is already a member. The image is
+   * placed immediately before {@code before}, which must be a member of the gallery; if {@code
+   * before} is {@code null}, the image is placed at the end. In general, only the row of the added
+   * or moved image is written, with a position midway between those of its new neighbors; if no
+   * position remains between them, the gallery is first renumbered. Changes to the membership of a
+   * gallery are serialized by a lock on the gallery.
+   *
+   * @param gallery Gallery to which {@code image} is added.
+   * @param image   Image to add or move.
+   * @param before  Member of {@code gallery} before which {@code image} is placed, or {@code null}.
+   * @throws GalleryNotFoundException    If {@code gallery} no longer exists.
+   * @throws ImageNotInGalleryException If {@code before} is not a member of {@code gallery}.
+   */
+  @Transactional
+  public void place(@NonNull Gallery gallery, @NonNull Image image, Image before) {
+    Gallery locked = galleryRepository.lockById(gallery.getId())
+        .orElseThrow(GalleryNotFoundException::new);
+    GalleryImage member = galleryImageRepository.findFirstByGalleryAndImage(locked, image)
+        .orElseGet(() -> {
+          GalleryImage created = new GalleryImage();
+          created.setGallery(locked);
+          created.setImage(image);
+          return created;
+        });
+    long position;
+    if (before == null) {
+      Optional<GalleryImage> last =
+          galleryImageRepository.findFirstByGalleryOrderByPositionDesc(locked);
+      if (last.isPresent() && last.get() == member) {
+        return;
+      }
+      position = last.map((previous) -> previous.getPosition() + POSITION_GAP).orElse(0L);
+    } else {
+      GalleryImage next = galleryImageRepository.findFirstByGalleryAndImage(locked, before)
+          .orElseThrow(ImageNotInGalleryException::new);
+      if (next == member) {
+        return;
+      }
+      Optional<GalleryImage> previous = galleryImageRepository
+          .findFirstByGalleryAndPositionLessThanOrderByPositionDesc(locked, next.getPosition());
+      if (previous.isPresent() && previous.get() == member) {
+        return;
+      }
+      if (previous.isPresent() && next.getPosition() - previous.get().getPosition() < 2) {
+        renumber(locked);
+      }
+      long upper = next.getPosition();
+      long lower = previous
+          .map(GalleryImage::getPosition)
+          .orElse(upper - 2 * POSITION_GAP);
+      position = lower + (upper - lower) / 2;
+    }
+    member.setPosition(position);
+    galleryImageRepository.save(member);
+  }
+
+  /**
+   * Removes {@code image} from {@code gallery}, if it is a member.
+   */
+  @Transactional
+  public void remove(@NonNull Gallery gallery, @NonNull Image image) {
+    galleryImageRepository.findFirstByGalleryAndImage(gallery, image)
+        .ifPresent(galleryImageRepository::delete);
+  }
+
+  /**
+   * Removes {@code image} from all galleries.
+   */
+  @Transactional
+  public void removeAll(@NonNull Image image) {
+    galleryImageRepository.deleteAllByImage(image);
+  }
+
+  /**
+   * Removes all of the specified images from all galleries.
+   */
+  @Transactional
+  public void removeAll(@NonNull Collection<Image> images) {
+    galleryImageRepository.deleteAllByImageIn(images);
+  }
+
+  /**
+   * Respaces the positions of all members of {@code gallery} by {@link #POSITION_GAP}, preserving
+   * their order.
+   */
+  private void renumber(Gallery gallery) {
+    long position = 0;
+    for (GalleryImage member : galleryImageRepository.findAllByGalleryOrderByPositionAsc(gallery)) {
+      member.setPosition(position);
+      position += POSITION_GAP;
+    }
   }
-*/ // TODO uncomment and solve null gallery_id problem
 
   public static class GalleryNotFoundException extends ResponseStatusException {
 
@@ -68,4 +221,15 @@ public class GalleryService {
     }
 
   }
+
+  public static class ImageNotInGalleryException extends ResponseStatusException {
+
+    private static final String NOT_IN_GALLERY_REASON = "Image not in gallery";
+
+    public ImageNotInGalleryException() {
+      super(HttpStatus.BAD_REQUEST, NOT_IN_GALLERY_REASON);
+    }
+
+  }
+
 }
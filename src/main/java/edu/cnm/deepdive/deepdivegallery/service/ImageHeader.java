@@ -0,0 +1,321 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+
+/**
+ * Content type, pixel dimensions, and EXIF orientation of an image, as read from the leading bytes
+ * of its content. BMP, GIF, JPEG, PNG, and TIFF content is recognized by its signature (&ldquo;magic
+ * bytes&rdquo;), regardless of any declared content type; the properties are then read from the
+ * format's header structures, without decoding any pixel data. Only the first {@link #PROBE_SIZE}
+ * bytes are examined; if a property is not found within them (e.g. a JPEG with very large metadata
+ * segments preceding the frame header), it is left unknown.
+ */
+public final class ImageHeader {
+
+  /**
+   * Maximum number of leading bytes examined.
+   */
+  public static final int PROBE_SIZE = 64 * 1024;
+
+  private static final String BMP_CONTENT_TYPE = "image/bmp";
+  private static final String TIFF_CONTENT_TYPE = "image/tiff";
+  private static final Set<String> RECOGNIZED_TYPES = Set.of(BMP_CONTENT_TYPE,
+      MediaType.IMAGE_GIF_VALUE, MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE,
+      TIFF_CONTENT_TYPE);
+
+  private static final byte[] PNG_SIGNATURE =
+      {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+  private static final byte[] PNG_HEADER_CHUNK = "IHDR".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] GIF87_SIGNATURE = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] GIF89_SIGNATURE = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] BMP_SIGNATURE = "BM".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] JPEG_SIGNATURE = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+  private static final byte[] TIFF_LITTLE_ENDIAN_SIGNATURE = {'I', 'I', 42, 0};
+  private static final byte[] TIFF_BIG_ENDIAN_SIGNATURE = {'M', 'M', 0, 42};
+  private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+  private static final int BMP_CORE_HEADER_SIZE = 12;
+  private static final int BMP_INFO_HEADER_SIZE = 40;
+
+  private static final int JPEG_MARKER_PREFIX = 0xff;
+  private static final int JPEG_TEM = 0x01;
+  private static final int JPEG_RST_FIRST = 0xd0;
+  private static final int JPEG_RST_LAST = 0xd7;
+  private static final int JPEG_SOI = 0xd8;
+  private static final int JPEG_EOI = 0xd9;
+  private static final int JPEG_SOS = 0xda;
+  private static final int JPEG_SOF_FIRST = 0xc0;
+  private static final int JPEG_SOF_LAST = 0xcf;
+  private static final int JPEG_DHT = 0xc4;
+  private static final int JPEG_JPG = 0xc8;
+  private static final int JPEG_DAC = 0xcc;
+  private static final int JPEG_APP1 = 0xe1;
+
+  private static final int TIFF_ENTRY_SIZE = 12;
+  private static final int TIFF_SHORT = 3;
+  private static final int TIFF_LONG = 4;
+  private static final int TIFF_IMAGE_WIDTH = 256;
+  private static final int TIFF_IMAGE_LENGTH = 257;
+  private static final int TIFF_ORIENTATION = 274;
+  private static final int MIN_ORIENTATION = 1;
+  private static final int MAX_ORIENTATION = 8;
+
+  private final String contentType;
+  private Integer width;
+  private Integer height;
+  private Integer orientation;
+
+  private ImageHeader(String contentType) {
+    this.contentType = contentType;
+  }
+
+  /**
+   * Returns the properties of the image whose leading bytes are the first {@code length} bytes of
+   * {@code data}, or {@code null} if the content is not in a recognized format.
+   *
+   * @param data   Leading bytes of image content.
+   * @param length Number of bytes of {@code data} available.
+   * @return Image properties, or {@code null} if not recognized.
+   */
+  public static ImageHeader parse(@NonNull byte[] data, int length) {
+    Bytes bytes = new Bytes(data, length);
+    ImageHeader header;
+    if (bytes.matches(0, PNG_SIGNATURE)) {
+      header = parsePng(bytes);
+    } else if (bytes.matches(0, JPEG_SIGNATURE)) {
+      header = parseJpeg(bytes);
+    } else if (bytes.matches(0, GIF89_SIGNATURE) || bytes.matches(0, GIF87_SIGNATURE)) {
+      header = parseGif(bytes);
+    } else if (bytes.matches(0, TIFF_LITTLE_ENDIAN_SIGNATURE)
+        || bytes.matches(0, TIFF_BIG_ENDIAN_SIGNATURE)) {
+      header = new ImageHeader(TIFF_CONTENT_TYPE);
+      header.readTiff(bytes, 0, true);
+    } else if (bytes.matches(0, BMP_SIGNATURE)) {
+      header = parseBmp(bytes);
+    } else {
+      header = null;
+    }
+    return header;
+  }
+
+  /**
+   * Returns {@code true} if content of type {@code contentType} is recognized by {@link
+   * #parse(byte[], int)}; content declared to be of such a type that is not recognized does not
+   * match its declared type.
+   */
+  public static boolean isRecognized(String contentType) {
+    return contentType != null && RECOGNIZED_TYPES.contains(contentType);
+  }
+
+  /**
+   * Returns the MIME type of the content, as determined by its signature.
+   */
+  @NonNull
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the width (in pixels) of the image as stored, or {@code null} if unknown.
+   */
+  public Integer getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height (in pixels) of the image as stored, or {@code null} if unknown.
+   */
+  public Integer getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns the EXIF orientation (1&ndash;8) of the image, or {@code null} if none is specified.
+   * For orientations 5&ndash;8, the image is displayed rotated by a quarter turn, so its displayed
+   * width and height are the stored height and width, respectively.
+   */
+  public Integer getOrientation() {
+    return orientation;
+  }
+
+  private static ImageHeader parsePng(Bytes bytes) {
+    ImageHeader header = new ImageHeader(MediaType.IMAGE_PNG_VALUE);
+    // IHDR is always the first chunk: 4-byte length, 4-byte type, then width and height.
+    if (bytes.matches(12, PNG_HEADER_CHUNK) && bytes.has(16, 8)) {
+      header.setDimensions(bytes.u32(16, ByteOrder.BIG_ENDIAN),
+          bytes.u32(20, ByteOrder.BIG_ENDIAN));
+    }
+    return header;
+  }
+
+  private static ImageHeader parseGif(Bytes bytes) {
+    ImageHeader header = new ImageHeader(MediaType.IMAGE_GIF_VALUE);
+    // Logical screen descriptor follows the signature.
+    if (bytes.has(6, 4)) {
+      header.setDimensions(bytes.u16(6, ByteOrder.LITTLE_ENDIAN),
+          bytes.u16(8, ByteOrder.LITTLE_ENDIAN));
+    }
+    return header;
+  }
+
+  private static ImageHeader parseBmp(Bytes bytes) {
+    ImageHeader header = new ImageHeader(BMP_CONTENT_TYPE);
+    // The DIB header follows the 14-byte file header, and begins with its own size.
+    if (bytes.has(14, 4)) {
+      long dibSize = bytes.u32(14, ByteOrder.LITTLE_ENDIAN);
+      if (dibSize == BMP_CORE_HEADER_SIZE && bytes.has(18, 4)) {
+        header.setDimensions(bytes.u16(18, ByteOrder.LITTLE_ENDIAN),
+            bytes.u16(20, ByteOrder.LITTLE_ENDIAN));
+      } else if (dibSize >= BMP_INFO_HEADER_SIZE && bytes.has(18, 8)) {
+        // Height is negative for top-down bitmaps.
+        header.setDimensions(bytes.s32(18, ByteOrder.LITTLE_ENDIAN),
+            Math.abs((long) bytes.s32(22, ByteOrder.LITTLE_ENDIAN)));
+      }
+    }
+    return header;
+  }
+
+  /**
+   * Walks the JPEG marker segments, reading the orientation from an EXIF ({@code APP1}) segment,
+   * and the dimensions from the first start-of-frame segment.
+   */
+  private static ImageHeader parseJpeg(Bytes bytes) {
+    ImageHeader header = new ImageHeader(MediaType.IMAGE_JPEG_VALUE);
+    int position = 0;
+    while (bytes.has(position, 2) && bytes.u8(position) == JPEG_MARKER_PREFIX) {
+      int marker = bytes.u8(position + 1);
+      if (marker == JPEG_MARKER_PREFIX) {
+        position++; // Fill byte.
+      } else if (marker == JPEG_SOI || marker == JPEG_TEM
+          || (marker >= JPEG_RST_FIRST && marker <= JPEG_RST_LAST)) {
+        position += 2; // Standalone marker, without a length.
+      } else if (marker == JPEG_SOS || marker == JPEG_EOI || !bytes.has(position + 2, 2)) {
+        break;
+      } else {
+        int segmentLength = bytes.u16(position + 2, ByteOrder.BIG_ENDIAN);
+        int payload = position + 4;
+        if (marker >= JPEG_SOF_FIRST && marker <= JPEG_SOF_LAST
+            && marker != JPEG_DHT && marker != JPEG_JPG && marker != JPEG_DAC) {
+          // Sample precision, then height, then width.
+          if (bytes.has(payload, 5)) {
+            header.setDimensions(bytes.u16(payload + 3, ByteOrder.BIG_ENDIAN),
+                bytes.u16(payload + 1, ByteOrder.BIG_ENDIAN));
+          }
+          break;
+        }
+        if (marker == JPEG_APP1 && header.orientation == null
+            && bytes.matches(payload, EXIF_HEADER)) {
+          header.readTiff(bytes, payload + EXIF_HEADER.length, false);
+        }
+        position += 2 + segmentLength;
+      }
+    }
+    return header;
+  }
+
+  /**
+   * Reads the orientation (and, if {@code dimensions} is {@code true}, the width and height) from
+   * the first image file directory of the TIFF structure starting at {@code base}. All offsets in a
+   * TIFF structure are relative to its start.
+   */
+  private void readTiff(Bytes bytes, int base, boolean dimensions) {
+    ByteOrder order;
+    if (bytes.matches(base, TIFF_LITTLE_ENDIAN_SIGNATURE)) {
+      order = ByteOrder.LITTLE_ENDIAN;
+    } else if (bytes.matches(base, TIFF_BIG_ENDIAN_SIGNATURE)) {
+      order = ByteOrder.BIG_ENDIAN;
+    } else {
+      return;
+    }
+    if (!bytes.has(base + 4, 4)) {
+      return;
+    }
+    long directory = base + bytes.u32(base + 4, order);
+    if (directory > Integer.MAX_VALUE || !bytes.has((int) directory, 2)) {
+      return;
+    }
+    int entries = bytes.u16((int) directory, order);
+    Long tiffWidth = null;
+    Long tiffHeight = null;
+    for (int i = 0; i < entries; i++) {
+      int entry = (int) directory + 2 + i * TIFF_ENTRY_SIZE;
+      if (!bytes.has(entry, TIFF_ENTRY_SIZE)) {
+        break;
+      }
+      int tag = bytes.u16(entry, order);
+      int type = bytes.u16(entry + 2, order);
+      long value;
+      if (type == TIFF_SHORT) {
+        value = bytes.u16(entry + 8, order);
+      } else if (type == TIFF_LONG) {
+        value = bytes.u32(entry + 8, order);
+      } else {
+        continue;
+      }
+      if (tag == TIFF_IMAGE_WIDTH) {
+        tiffWidth = value;
+      } else if (tag == TIFF_IMAGE_LENGTH) {
+        tiffHeight = value;
+      } else if (tag == TIFF_ORIENTATION && value >= MIN_ORIENTATION && value <= MAX_ORIENTATION) {
+        orientation = (int) value;
+      }
+    }
+    if (dimensions && tiffWidth != null && tiffHeight != null) {
+      setDimensions(tiffWidth, tiffHeight);
+    }
+  }
+
+  private void setDimensions(long width, long height) {
+    if (width > 0 && width <= Integer.MAX_VALUE && height > 0 && height <= Integer.MAX_VALUE) {
+      this.width = (int) width;
+      this.height = (int) height;
+    }
+  }
+
+  /**
+   * Bounds-checked, unsigned access to the leading bytes of content.
+   */
+  private static class Bytes {
+
+    private final ByteBuffer buffer;
+
+    private Bytes(byte[] data, int length) {
+      buffer = ByteBuffer.wrap(data, 0, Math.min(length, data.length));
+    }
+
+    private boolean has(int offset, int count) {
+      return offset >= 0 && count >= 0 && offset <= buffer.limit() - count;
+    }
+
+    private boolean matches(int offset, byte[] pattern) {
+      boolean matches = has(offset, pattern.length);
+      for (int i = 0; matches && i < pattern.length; i++) {
+        matches = buffer.get(offset + i) == pattern[i];
+      }
+      return matches;
+    }
+
+    private int u8(int offset) {
+      return buffer.get(offset) & 0xff;
+    }
+
+    private int u16(int offset, ByteOrder order) {
+      return buffer.order(order).getShort(offset) & 0xffff;
+    }
+
+    private long u32(int offset, ByteOrder order) {
+      return buffer.order(order).getInt(offset) & 0xffffffffL;
+    }
+
+    private int s32(int offset, ByteOrder order) {
+      return buffer.order(order).getInt(offset);
+    }
+
+  }
+
+}
@@ -0,0 +1,533 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.util.ExpiringCache;
+import edu.cnm.deepdive.deepdivegallery.view.FlatImage;
+import edu.cnm.deepdive.deepdivegallery.view.ImageSummary;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory inverted index over the name, title, and description of every {@link Image},
+ * supporting ranked full-text search. Text is normalized (case- and accent-folded) and split into
+ * terms; a query term matches an indexed term exactly, as a prefix, or by trigram similarity (which
+ * tolerates minor misspellings). An image matches a query if every query term matches some term of
+ * the image; matches are ranked by the sum, over query terms, of the best match quality &times;
+ * field weight &times; inverse document frequency.
+ * <p>
+ * The index is rebuilt from the database when the application starts, and is maintained
+ * incrementally as images are saved and deleted. Until the initial build completes, {@link
+ * #isReady()} returns {@code false}, and callers should fall back to database queries.</p>
+ */
+@Service
+public class ImageSearchIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(ImageSearchIndex.class);
+
+  private static final Pattern TOKEN_DELIMITER = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+  private static final float TITLE_WEIGHT = 3;
+  private static final float NAME_WEIGHT = 2;
+  private static final float DESCRIPTION_WEIGHT = 1;
+  private static final double EXACT_MATCH = 1;
+  private static final double PREFIX_MATCH = 0.6;
+  private static final double TRIGRAM_MATCH = 0.4;
+  private static final double MIN_TRIGRAM_SIMILARITY = 0.5;
+  private static final int MIN_PREFIX_LENGTH = 2;
+  private static final int TRIGRAM_LENGTH = 3;
+  private static final String TRIGRAM_PADDING = " ";
+
+  private static final Comparator<Hit> RANK_ORDER = Comparator
+      .comparingDouble((Hit hit) -> -hit.score)
+      .thenComparing((hit) -> hit.id);
+
+  private final ImageRepository imageRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ReadWriteLock lock;
+  private final int maxResults;
+  private final ExpiringCache<UUID, Snapshot> snapshots;
+
+  private Index index;
+  private List<Consumer<Index>> pending;
+  private volatile boolean ready;
+
+  @Autowired
+  public ImageSearchIndex(ImageRepository imageRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${search.max-results:1000}") int maxResults,
+      @Value("${search.snapshot-cache-size:200}") int snapshotCacheSize,
+      @Value("${search.snapshot-time-to-live:PT15M}") Duration snapshotTimeToLive) {
+    this.imageRepository = imageRepository;
+    this.maxResults = maxResults;
+    snapshots = new ExpiringCache<>(snapshotCacheSize, snapshotTimeToLive);
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    lock = new ReentrantReadWriteLock();
+    index = new Index();
+  }
+
+  /**
+   * Rebuilds the index from the database. Changes made while the rebuild is in progress are
+   * recorded, and replayed against the new index before it replaces the current one.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Index rebuilt = new Index();
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      pending = new LinkedList<>();
+    } finally {
+      writeLock.unlock();
+    }
+    try {
+      transactionTemplate.executeWithoutResult((status) -> {
+        try (Stream<ImageSummary> images = imageRepository.streamAll()) {
+          images.forEach((image) ->
+              rebuilt.put(new Document(image, image.getContributor().getId())));
+        }
+      });
+      writeLock.lock();
+      try {
+        pending.forEach((operation) -> operation.accept(rebuilt));
+        index = rebuilt;
+        ready = true;
+      } finally {
+        writeLock.unlock();
+      }
+      logger.info("Search index built: {} images, {} terms",
+          rebuilt.documents.size(), rebuilt.postings.size());
+    } catch (RuntimeException e) {
+      // Searches continue to use database queries.
+      logger.error("Unable to build search index", e);
+    } finally {
+      writeLock.lock();
+      try {
+        pending = null;
+      } finally {
+        writeLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if the index has been built, and can be used for searching.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Returns {@code true} if the index is ready, and {@code query} contains at least one searchable
+   * term.
+   */
+  public boolean accepts(String query) {
+    return ready && query != null && !tokenize(query).isEmpty();
+  }
+
+  /**
+   * Adds or replaces the index entry for {@code image}. If a transaction is active, the change is
+   * applied after it commits.
+   */
+  public void update(@NonNull Image image) {
+    Document document = new Document(image, image.getContributor().getId());
+    apply((index) -> index.put(document));
+  }
+
+  /**
+   * Removes the index entry for {@code image}. If a transaction is active, the change is applied
+   * after it commits.
+   */
+  public void remove(@NonNull Image image) {
+    UUID id = image.getId();
+    apply((index) -> index.remove(id));
+  }
+
+  /**
+   * Returns a page of the unique identifiers of images matching {@code query}, in descending order
+   * of relevance (ties broken by identifier). At most {@code search.max-results} matches are
+   * ranked. The ranking computed for the first page is retained as a snapshot, identified by the
+   * {@link Results#getKey() key} of the returned results; a later page that passes that key as
+   * {@code afterKey}, with the same query and contributor, continues in the same ranking, so
+   * results are neither skipped nor repeated as changes to the index alter relevance scores. If the
+   * snapshot has expired, {@code afterKey} is not recognized, or the snapshot was taken for a
+   * different query or contributor, the matches are ranked again, and the page starts after {@code
+   * afterId} in the new ranking. If {@code afterId} is not in the ranking used, there are no
+   * further results, and the returned page is empty.
+   *
+   * @param query         Search text.
+   * @param contributorId Unique identifier of contributor, or {@code null} for all contributors.
+   * @param afterKey      Key of the results containing the last result on the previous page, or
+   *                      {@code null}.
+   * @param afterId       Unique identifier of the last result on the previous page, or {@code
+   *                      null}.
+   * @param limit         Maximum number of results to return.
+   * @return Unique identifiers of matching images, and the key of the snapshot they were taken
+   * from.
+   */
+  public Results search(@NonNull String query, UUID contributorId, String afterKey,
+      UUID afterId, int limit) {
+    List<String> tokens = tokenize(query);
+    UUID key = (afterKey != null && afterId != null) ? parseKey(afterKey) : null;
+    Snapshot snapshot = (key != null) ? snapshots.get(key) : null;
+    if (snapshot == null || !snapshot.matches(tokens, contributorId)) {
+      snapshot = new Snapshot(tokens, contributorId, rank(tokens, contributorId));
+      key = UUID.randomUUID();
+      snapshots.put(key, snapshot);
+    }
+    List<UUID> ranked = snapshot.ranked;
+    int start;
+    if (afterId == null) {
+      start = 0;
+    } else {
+      int position = ranked.indexOf(afterId);
+      start = (position >= 0) ? position + 1 : ranked.size();
+    }
+    int end = (int) Math.min(ranked.size(), (long) start + limit);
+    return new Results(key.toString(), new ArrayList<>(ranked.subList(start, end)));
+  }
+
+  /**
+   * Returns the unique identifiers of all images matching {@code query}, up to {@code
+   * search.max-results}, in the same order as {@link #search(String, UUID, String, UUID, int)}.
+   *
+   * @param query         Search text.
+   * @param contributorId Unique identifier of contributor, or {@code null} for all contributors.
+   * @return Unique identifiers of matching images.
+   */
+  public List<UUID> searchAll(@NonNull String query, UUID contributorId) {
+    return rank(tokenize(query), contributorId);
+  }
+
+  private List<UUID> rank(List<String> tokens, UUID contributorId) {
+    PriorityQueue<Hit> top = new PriorityQueue<>(RANK_ORDER.reversed());
+    Lock readLock = lock.readLock();
+    readLock.lock();
+    try {
+      for (Map.Entry<UUID, Double> entry : index.match(tokens, contributorId).entrySet()) {
+        top.add(new Hit(entry.getKey(), entry.getValue()));
+        if (top.size() > maxResults) {
+          top.poll();
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    List<Hit> hits = new ArrayList<>(top);
+    hits.sort(RANK_ORDER);
+    return hits.stream()
+        .map((hit) -> hit.id)
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  private void apply(Consumer<Index> operation) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          execute(operation);
+        }
+      });
+    } else {
+      execute(operation);
+    }
+  }
+
+  private void execute(Consumer<Index> operation) {
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      operation.accept(index);
+      if (pending != null) {
+        pending.add(operation);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private UUID parseKey(String key) {
+    try {
+      return UUID.fromString(key);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static List<String> tokenize(String text) {
+    List<String> tokens;
+    if (text != null) {
+      String folded = COMBINING_MARKS
+          .matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+          .replaceAll("")
+          .toLowerCase(Locale.ROOT);
+      tokens = Arrays.stream(TOKEN_DELIMITER.split(folded))
+          .filter((token) -> !token.isEmpty())
+          .collect(Collectors.toList());
+    } else {
+      tokens = Collections.emptyList();
+    }
+    return tokens;
+  }
+
+  private static Set<String> trigrams(String term) {
+    String padded = TRIGRAM_PADDING + term + TRIGRAM_PADDING;
+    Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + TRIGRAM_LENGTH <= padded.length(); i++) {
+      trigrams.add(padded.substring(i, i + TRIGRAM_LENGTH));
+    }
+    return trigrams;
+  }
+
+  private static double match(String token, String term) {
+    double match = 0;
+    if (term.equals(token)) {
+      match = EXACT_MATCH;
+    } else if (token.length() >= MIN_PREFIX_LENGTH && term.startsWith(token)) {
+      match = PREFIX_MATCH;
+    } else if (token.length() >= TRIGRAM_LENGTH) {
+      Set<String> tokenTrigrams = trigrams(token);
+      Set<String> termTrigrams = trigrams(term);
+      int shared = 0;
+      for (String trigram : tokenTrigrams) {
+        if (termTrigrams.contains(trigram)) {
+          shared++;
+        }
+      }
+      double similarity =
+          (double) shared / (tokenTrigrams.size() + termTrigrams.size() - shared);
+      if (similarity >= MIN_TRIGRAM_SIMILARITY) {
+        match = TRIGRAM_MATCH * similarity;
+      }
+    }
+    return match;
+  }
+
+  private static class Index {
+
+    private final Map<UUID, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Map<UUID, Float>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> trigramTerms = new HashMap<>();
+
+    private void put(Document document) {
+      remove(document.id);
+      documents.put(document.id, document);
+      document.terms.forEach((term, weight) -> {
+        Map<UUID, Float> list = postings.get(term);
+        if (list == null) {
+          list = new HashMap<>();
+          postings.put(term, list);
+          for (String trigram : trigrams(term)) {
+            trigramTerms.computeIfAbsent(trigram, (key) -> new HashSet<>()).add(term);
+          }
+        }
+        list.put(document.id, weight);
+      });
+    }
+
+    private void remove(UUID id) {
+      Document document = documents.remove(id);
+      if (document != null) {
+        for (String term : document.terms.keySet()) {
+          Map<UUID, Float> list = postings.get(term);
+          if (list != null) {
+            list.remove(id);
+            if (list.isEmpty()) {
+              postings.remove(term);
+              for (String trigram : trigrams(term)) {
+                Set<String> terms = trigramTerms.get(trigram);
+                if (terms != null) {
+                  terms.remove(term);
+                  if (terms.isEmpty()) {
+                    trigramTerms.remove(trigram);
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the total score of every document matching all of {@code tokens}.
+     */
+    private Map<UUID, Double> match(List<String> tokens, UUID contributorId) {
+      Map<UUID, Double> totals = null;
+      for (String token : tokens) {
+        Map<UUID, Double> best = new HashMap<>();
+        for (String term : candidates(token)) {
+          double match = match(token, term);
+          if (match > 0) {
+            Map<UUID, Float> list = postings.get(term);
+            double idf = idf(list.size());
+            for (Map.Entry<UUID, Float> posting : list.entrySet()) {
+              UUID id = posting.getKey();
+              boolean eligible = (totals != null)
+                  ? totals.containsKey(id)
+                  : contributorId == null || contributorId.equals(documents.get(id).contributorId);
+              if (eligible) {
+                best.merge(id, match * posting.getValue() * idf, Math::max);
+              }
+            }
+          }
+        }
+        if (totals != null) {
+          Map<UUID, Double> previous = totals;
+          best.replaceAll((id, score) -> previous.get(id) + score);
+        }
+        totals = best;
+        if (totals.isEmpty()) {
+          break;
+        }
+      }
+      return (totals != null) ? totals : Collections.emptyMap();
+    }
+
+    private Set<String> candidates(String token) {
+      Set<String> candidates = new HashSet<>();
+      if (postings.containsKey(token)) {
+        candidates.add(token);
+      }
+      if (token.length() >= MIN_PREFIX_LENGTH) {
+        candidates.addAll(
+            postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet());
+      }
+      if (token.length() >= TRIGRAM_LENGTH) {
+        for (String trigram : trigrams(token)) {
+          candidates.addAll(trigramTerms.getOrDefault(trigram, Collections.emptySet()));
+        }
+      }
+      return candidates;
+    }
+
+    private double idf(int frequency) {
+      return Math.log(1 + (double) documents.size() / frequency);
+    }
+
+  }
+
+  private static class Document {
+
+    private final UUID id;
+    private final UUID contributorId;
+    private final Map<String, Float> terms;
+
+    private Document(FlatImage image, UUID contributorId) {
+      id = image.getId();
+      this.contributorId = contributorId;
+      terms = new HashMap<>();
+      addTerms(image.getTitle(), TITLE_WEIGHT);
+      addTerms(image.getName(), NAME_WEIGHT);
+      addTerms(image.getDescription(), DESCRIPTION_WEIGHT);
+    }
+
+    private void addTerms(String text, float weight) {
+      for (String token : tokenize(text)) {
+        terms.merge(token, weight, Float::sum);
+      }
+    }
+
+  }
+
+  private static class Hit {
+
+    private final UUID id;
+    private final double score;
+
+    private Hit(UUID id, double score) {
+      this.id = id;
+      this.score = score;
+    }
+
+  }
+
+  /**
+   * Ranking of the matches for a query, retained for paging, along with the query terms and
+   * contributor for which it was computed.
+   */
+  private static class Snapshot {
+
+    private final List<String> tokens;
+    private final UUID contributorId;
+    private final List<UUID> ranked;
+
+    private Snapshot(List<String> tokens, UUID contributorId, List<UUID> ranked) {
+      this.tokens = tokens;
+      this.contributorId = contributorId;
+      this.ranked = ranked;
+    }
+
+    private boolean matches(List<String> tokens, UUID contributorId) {
+      return this.tokens.equals(tokens) && Objects.equals(this.contributorId, contributorId);
+    }
+
+  }
+
+  /**
+   * Page of search results, taken from a retained ranking of matches.
+   */
+  public static class Results {
+
+    private final String key;
+    private final List<UUID> ids;
+
+    private Results(String key, List<UUID> ids) {
+      this.key = key;
+      this.ids = ids;
+    }
+
+    /**
+     * Returns the key identifying the ranking from which these results were taken, for use in a
+     * continuation token.
+     */
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * Returns the unique identifiers of the images in this page of results.
+     */
+    public List<UUID> getIds() {
+      return ids;
+    }
+
+  }
+
+}
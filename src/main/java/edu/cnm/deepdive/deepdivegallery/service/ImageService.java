@@ -1,20 +1,50 @@
 package edu.cnm.deepdive.deepdivegallery.service;
 
 import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative.Size;
 import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
 import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.EntityStreams.EntityConsumer;
+import edu.cnm.deepdive.deepdivegallery.service.ResizeService.Fit;
+import edu.cnm.deepdive.deepdivegallery.service.ResizeService.Rendition;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import edu.cnm.deepdive.deepdivegallery.view.FlatImage;
+import edu.cnm.deepdive.deepdivegallery.view.ImageSummary;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
-import org.springframework.data.util.Streamable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
@@ -26,22 +56,94 @@ import org.springframework.web.server.ResponseStatusException;
 @Service
 public class ImageService {
 
+  private static final Logger logger = LoggerFactory.getLogger(ImageService.class);
+
   private static final String UNTITLED_FILENAME = "untitled";
+  private static final String LIKE_WILDCARD = "%";
+  private static final Pattern LIKE_SPECIAL = Pattern.compile("([%_!])");
+  private static final String LIKE_ESCAPE = "!$1";
+  private static final int LOAD_BATCH_SIZE = 100;
+  private static final String MISSING_ID_MESSAGE = "Image id is required";
+  private static final String TOO_LONG_FORMAT = "Longer than %d characters";
 
   private final ImageRepository imageRepository;
   private final StorageService storageService;
+  private final DerivativeService derivativeService;
+  private final ResizeService resizeService;
+  private final ImageSearchIndex searchIndex;
+  private final GalleryService galleryService;
+  private final TransactionTemplate transactionTemplate;
 
   @Autowired
-  public ImageService(ImageRepository imageRepository, StorageService storageService) {
+  public ImageService(ImageRepository imageRepository, StorageService storageService,
+      DerivativeService derivativeService, ResizeService resizeService,
+      ImageSearchIndex searchIndex, GalleryService galleryService,
+      PlatformTransactionManager transactionManager) {
     this.imageRepository = imageRepository;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    this.galleryService = galleryService;
+    this.searchIndex = searchIndex;
     this.storageService = storageService;
+    this.derivativeService = derivativeService;
+    this.resizeService = resizeService;
   }
 
   /**
-   * Selects and returns all images.
+   * Selects and returns summaries of a page of images, in created datetime (descending) order. The
+   * page starts immediately after the image identified by {@code created} and {@code id}; if these
+   * are {@code null}, the first page is returned.
+   *
+   * @param created Created datetime of the last image on the previous page, or {@code null}.
+   * @param id      Unique identifier of the last image on the previous page, or {@code null}.
+   * @param limit   Maximum number of images to return.
+   * @return Selected images.
+   */
+  public List<ImageSummary> list(Date created, UUID id, int limit) {
+    Pageable pageable = PageRequest.of(0, limit);
+    return (created != null && id != null)
+        ? imageRepository.getPageAfter(created, id, pageable)
+        : imageRepository.getFirstPage(pageable);
+  }
+
+  /**
+   * Selects and returns summaries of a page of images contributed by {@code contributor}, in
+   * created datetime (descending) order. Pagination is as for {@link #list(Date, UUID, int)}.
+   *
+   * @param contributor Contributor of the selected images.
+   * @param created     Created datetime of the last image on the previous page, or {@code null}.
+   * @param id          Unique identifier of the last image on the previous page, or {@code null}.
+   * @param limit       Maximum number of images to return.
+   * @return Selected images.
    */
-  public Iterable<Image> list() {
-    return imageRepository.getAllByOrderByCreatedDesc();
+  public List<ImageSummary> list(@NonNull User contributor, Date created, UUID id, int limit) {
+    Pageable pageable = PageRequest.of(0, limit);
+    return (created != null && id != null)
+        ? imageRepository.getPageAfter(contributor, created, id, pageable)
+        : imageRepository.getFirstPage(contributor, pageable);
+  }
+
+  /**
+   * Passes summaries of all images contributed by {@code contributor}, in the same order as {@link
+   * #list(User, Date, UUID, int)}, to {@code consumer}. Images are read a page at a time, each page
+   * in a separate short query, so no transaction or database cursor is held open while {@code
+   * consumer} runs; this makes it suitable for consumers that write large amounts of data to slow
+   * clients.
+   *
+   * @param contributor Contributor of the selected images.
+   * @param consumer    Recipient of each image.
+   * @throws IOException If thrown by {@code consumer}.
+   */
+  public void forEach(@NonNull User contributor,
+      @NonNull EntityConsumer<? super ImageSummary> consumer) throws IOException {
+    List<ImageSummary> page = list(contributor, null, null, LOAD_BATCH_SIZE);
+    while (!page.isEmpty()) {
+      forEach(page.stream(), consumer);
+      if (page.size() < LOAD_BATCH_SIZE) {
+        break;
+      }
+      ImageSummary last = page.get(page.size() - 1);
+      page = list(contributor, last.getCreated(), last.getId(), LOAD_BATCH_SIZE);
+    }
   }
 
   public Optional<Image> get(UUID id) {
@@ -52,38 +154,211 @@ public class ImageService {
     return imageRepository.findFirstByIdAndContributor(id, contributor);
   }
 
+  /**
+   * Deletes {@code image} and its derivatives, and removes it from all galleries, in a single
+   * transaction. The stored content of the image and its derivatives is removed, and the image is
+   * removed from the search index, only after the transaction commits.
+   */
+  @Transactional
   public void delete(Image image) {
+    List<String> references = new LinkedList<>();
+    references.add(image.getPath());
+    for (Derivative derivative : derivativeService.deleteAll(image)) {
+      if (derivative.isGenerated()) {
+        references.add(derivative.getPath());
+      }
+    }
+    galleryService.removeAll(image);
     imageRepository.delete(image);
+    searchIndex.remove(image);
+    deleteContentAfterCommit(references);
   }
 
-  public Streamable<Image> search(User contributor, String fragment) {
-    Streamable<Image> images;
-    if (contributor != null) {
-      if (fragment != null) {
-        images = Streamable.of(
-            imageRepository
-                .findAllByContributorAndDescriptionContainsOrderByNameAsc(contributor, fragment)
-                .and(imageRepository
-                    .findAllByContributorAndNameContainsOrderByNameAsc(contributor, fragment))
-                .toSet());
+  /**
+   * Returns the images with the specified identifiers, in the requested order, omitting duplicates
+   * and any images that do not exist. All of the images are read in a single query.
+   *
+   * @param ids Unique identifiers of images.
+   * @return Selected images.
+   */
+  public List<Image> get(@NonNull Collection<UUID> ids) {
+    return load(ids.stream()
+        .filter(Objects::nonNull)
+        .distinct()
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Applies the specified title and description changes to images contributed by {@code
+   * contributor}. All of the images are read in a single query, and all changes are written in a
+   * single transaction (with the {@code UPDATE} statements batched); if any of the changes is
+   * invalid, or any of the images does not exist or was not contributed by {@code contributor}, no
+   * changes are applied.
+   *
+   * @param updates     Changes to apply.
+   * @param contributor Contributor of the images.
+   * @return Updated images, in the order first referenced in {@code updates}.
+   * @throws InvalidMetadataException If any change omits the image identifier, or specifies a
+   *                                  title or description longer than the maximum length.
+   * @throws ImageNotFoundException   If any of the images does not exist, or was not contributed
+   *                                  by {@code contributor}.
+   */
+  @Transactional
+  public List<Image> update(@NonNull List<MetadataUpdate> updates, @NonNull User contributor) {
+    validate(updates);
+    Map<UUID, Image> images = imageRepository
+        .findAllByContributorAndIdIn(contributor, updates.stream()
+            .map(MetadataUpdate::getId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet()))
+        .stream()
+        .collect(Collectors.toMap(Image::getId, Function.identity()));
+    Map<UUID, Image> updated = new LinkedHashMap<>();
+    for (MetadataUpdate update : updates) {
+      Image image = images.get(update.getId());
+      if (image == null) {
+        throw new ImageNotFoundException();
+      }
+      if (update.getTitle() != null) {
+        image.setTitle(update.getTitle());
+      }
+      if (update.getDescription() != null) {
+        image.setDescription(update.getDescription());
+      }
+      updated.put(image.getId(), image);
+    }
+    updated.values().forEach(searchIndex::update);
+    return List.copyOf(updated.values());
+  }
+
+  /**
+   * Deletes the images with the specified identifiers that were contributed by {@code
+   * contributor}, along with their derivatives, in a single transaction. Identifiers of images
+   * that do not exist, or were contributed by other users, are ignored. Rather than deleting each
+   * image in turn, the images and their derivatives are each read in one query, and the
+   * derivatives, gallery memberships, and images are each deleted in one statement; stored
+   * content is removed after the transaction commits.
+   *
+   * @param ids         Unique identifiers of images.
+   * @param contributor Contributor of the images.
+   */
+  @Transactional
+  public void delete(@NonNull Collection<UUID> ids, @NonNull User contributor) {
+    Set<UUID> selected = ids.stream()
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    List<Image> images = selected.isEmpty()
+        ? List.of()
+        : imageRepository.findAllByContributorAndIdIn(contributor, selected);
+    if (!images.isEmpty()) {
+      List<String> references = new LinkedList<>();
+      for (Derivative derivative : derivativeService.deleteAll(images)) {
+        if (derivative.isGenerated()) {
+          references.add(derivative.getPath());
+        }
+      }
+      galleryService.removeAll(images);
+      imageRepository.deleteInBatch(images);
+      for (Image image : images) {
+        references.add(image.getPath());
+        searchIndex.remove(image);
+      }
+      deleteContentAfterCommit(references);
+    }
+  }
+
+  /**
+   * Selects and returns summaries of a page of images matching {@code fragment}. If the search
+   * index is ready, matches are found in the index (on name, title, and description; see {@link
+   * ImageSearchIndex}) and returned in descending order of relevance, from a ranking that is
+   * retained across pages; otherwise (or if {@code fragment} is {@code null}), images whose name or
+   * description contains {@code fragment} are selected from the database, in name order. The page
+   * starts immediately after the image identified by {@code key} (as returned by {@link
+   * SearchResults#getKey(FlatImage)} for a previous page) and {@code id}; if these are {@code
+   * null}, the first page is returned.
+   *
+   * @param contributor Contributor of the selected images, or {@code null} for all contributors.
+   * @param fragment    Text to be matched, or {@code null} to match all images.
+   * @param key         Search key of the last image on the previous page, or {@code null}.
+   * @param id          Unique identifier of the last image on the previous page, or {@code null}.
+   * @param limit       Maximum number of images to return.
+   * @return Selected images.
+   */
+  public SearchResults search(
+      User contributor, String fragment, String key, UUID id, int limit) {
+    SearchResults results;
+    if (searchIndex.accepts(fragment)) {
+      ImageSearchIndex.Results page = searchIndex.search(
+          fragment, (contributor != null) ? contributor.getId() : null, key, id, limit);
+      results = new SearchResults(loadSummaries(page.getIds()), page.getKey());
+    } else {
+      String pattern = likePattern(fragment);
+      Pageable pageable = PageRequest.of(0, limit);
+      List<ImageSummary> images;
+      if (contributor != null) {
+        images = (key != null && id != null)
+            ? imageRepository.searchPageAfter(contributor, pattern, key, id, pageable)
+            : imageRepository.searchFirstPage(contributor, pattern, pageable);
       } else {
-        images = imageRepository.findAllByContributorOrderByNameAsc(contributor);
+        images = (key != null && id != null)
+            ? imageRepository.searchPageAfter(pattern, key, id, pageable)
+            : imageRepository.searchFirstPage(pattern, pageable);
+      }
+      results = new SearchResults(images, null);
+    }
+    return results;
+  }
+
+  /**
+   * Passes summaries of all images, in created datetime (descending) order, to {@code consumer}, as
+   * they are read from the database. Summaries are not managed by the persistence context, so
+   * memory use does not grow with the number of images.
+   *
+   * @param consumer Recipient of each image.
+   * @throws IOException If thrown by {@code consumer}.
+   */
+  @Transactional(readOnly = true)
+  public void forEach(@NonNull EntityConsumer<? super ImageSummary> consumer) throws IOException {
+    try (Stream<ImageSummary> images = imageRepository.streamAll()) {
+      forEach(images, consumer);
+    }
+  }
+
+  /**
+   * Passes summaries of all images matching the specified criteria (as for {@link #search(User,
+   * String, String, UUID, int)}, and in the same order) to {@code consumer}, as they are read from
+   * the database. If the search index is used, at most {@code search.max-results} images are
+   * passed.
+   *
+   * @param contributor Contributor of the selected images, or {@code null} for all contributors.
+   * @param fragment    Text to be matched, or {@code null} to match all images.
+   * @param consumer    Recipient of each image.
+   * @throws IOException If thrown by {@code consumer}.
+   */
+  @Transactional(readOnly = true)
+  public void forEachMatching(User contributor, String fragment,
+      @NonNull EntityConsumer<? super ImageSummary> consumer) throws IOException {
+    if (searchIndex.accepts(fragment)) {
+      List<UUID> ids = searchIndex.searchAll(fragment,
+          (contributor != null) ? contributor.getId() : null);
+      for (int start = 0; start < ids.size(); start += LOAD_BATCH_SIZE) {
+        List<UUID> batch = ids.subList(start, Math.min(ids.size(), start + LOAD_BATCH_SIZE));
+        forEach(loadSummaries(batch).stream(), consumer);
       }
-    } else if (fragment != null) {
-      images = Streamable.of(
-          imageRepository
-              .findAllByNameContainsOrderByNameAsc(fragment)
-              .and(imageRepository.findAllByDescriptionContainsOrderByNameAsc(fragment))
-              .toSet()
-      );
     } else {
-      images = imageRepository.getAllByOrderByNameAsc();
+      String pattern = likePattern(fragment);
+      try (Stream<ImageSummary> images = (contributor != null)
+          ? imageRepository.streamSearch(contributor, pattern)
+          : imageRepository.streamSearch(pattern)) {
+        forEach(images, consumer);
+      }
     }
-    return images;
   }
 
   public Image save(@NonNull Image image) {
-    return imageRepository.save(image);
+    Image saved = imageRepository.save(image);
+    searchIndex.update(saved);
+    return saved;
   }
 
   /**
@@ -104,9 +379,89 @@ public class ImageService {
   public Image store(
       @NonNull MultipartFile file, String title, String description, @NonNull User contributor)
       throws IOException, HttpMediaTypeNotAcceptableException {
-    String originalFilename = file.getOriginalFilename();
-    String contentType = file.getContentType();
-    String reference = storageService.store(file);
+    return create(storageService.store(file), title, description, contributor);
+  }
+
+  /**
+   * Stores the image data to the file store, then constructs and persists the corresponding
+   * instance of {@link Image}, and (if {@code gallery} is not {@code null}) places it at the end of
+   * {@code gallery}. The {@link Image} is persisted and placed in a single transaction, so that it
+   * is not left outside the gallery if the placement fails; in that case, the stored content is
+   * also removed.
+   *
+   * @param file        Uploaded file content.
+   * @param contributor Uploading {@link User}.
+   * @param gallery     Gallery in which the image is placed, or {@code null}.
+   * @param title       Optional (null is allowed) title of the image.
+   * @param description Optional (null is allowed) description of the image.
+   * @return {@link Image} instance referencing and describing the uploaded content.
+   * @throws IOException                         If the file content cannot&mdash;for any
+   *                                             reason&mdash;be written to the file store.
+   * @throws HttpMediaTypeNotAcceptableException If the MIME type of the uploaded file is not on the
+   *                                             whitelist.
+   */
+  public Image store(@NonNull MultipartFile file, @NonNull User contributor, Gallery gallery,
+      String title, String description)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    StorageReference reference = storageService.store(file);
+    try {
+      return transactionTemplate.execute((status) -> {
+        Image image = create(reference, title, description, contributor);
+        if (gallery != null) {
+          galleryService.place(gallery, image, null);
+        }
+        return image;
+      });
+    } catch (RuntimeException e) {
+      discardContent(reference);
+      throw e;
+    }
+  }
+
+  /**
+   * Stores image data read from {@code input} to the file store, without first buffering it in a
+   * temporary file. The returned {@link StorageReference} can then be passed to {@link
+   * #create(StorageReference, String, String, User)}.
+   *
+   * @param input       Source of image data.
+   * @param filename    Original filename (or {@code null} if unknown).
+   * @param contentType MIME type of image data.
+   * @return {@link StorageReference} describing the stored content.
+   * @throws IOException                         If the content cannot be written to the file
+   *                                             store.
+   * @throws HttpMediaTypeNotAcceptableException If {@code contentType} is not on the whitelist.
+   */
+  public StorageReference storeContent(
+      @NonNull InputStream input, String filename, String contentType)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    return storageService.store(input, filename, contentType);
+  }
+
+  /**
+   * Removes content stored by {@link #storeContent(InputStream, String, String)} that will not be
+   * referenced by an {@link Image} (e.g. because the rest of the upload request failed). Failures
+   * are logged, and the content is left for {@link StorageReconciler} to remove.
+   *
+   * @param reference Result of storing the content.
+   */
+  public void discardContent(@NonNull StorageReference reference) {
+    deleteContent(List.of(reference.getReference()));
+  }
+
+  /**
+   * Constructs, persists, and returns an instance of {@link Image} referencing previously stored
+   * content, and schedules asynchronous generation of its reduced-size derivatives.
+   *
+   * @param reference   Result of storing the image content.
+   * @param title       Optional (null is allowed) title of the image.
+   * @param description Optional (null is allowed) description of the image.
+   * @param contributor Uploading {@link User}.
+   * @return Persisted {@link Image}.
+   */
+  public Image create(@NonNull StorageReference reference, String title, String description,
+      @NonNull User contributor) {
+    String originalFilename = reference.getFilename();
+    String contentType = reference.getContentType();
     Image image = new Image();
     image.setTitle(title);
     image.setDescription(description);
@@ -114,29 +469,153 @@ public class ImageService {
     image.setName((originalFilename != null) ? originalFilename : UNTITLED_FILENAME);
     image.setContentType(
         (contentType != null) ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
-    image.setPath(reference);
-    return save(image);
+    image.setPath(reference.getReference());
+    image.setContentHash(reference.getDigest());
+    ImageHeader header = reference.getHeader();
+    if (header != null) {
+      image.setWidth(header.getWidth());
+      image.setHeight(header.getHeight());
+      image.setOrientation(header.getOrientation());
+    }
+    image = save(image);
+    derivativeService.schedule(image);
+    return image;
   }
 
+  /**
+   * Page of images selected by {@link #search(User, String, String, UUID, int)}, with the keys
+   * needed to continue the search on a following page.
+   */
+  public static class SearchResults {
+
+    private final List<ImageSummary> images;
+    private final String snapshotKey;
+
+    private SearchResults(List<ImageSummary> images, String snapshotKey) {
+      this.images = images;
+      this.snapshotKey = snapshotKey;
+    }
+
+    /**
+     * Returns the selected images.
+     */
+    public List<ImageSummary> getImages() {
+      return images;
+    }
+
+    /**
+     * Returns the search key of {@code image} (one of the selected images), for use in a
+     * continuation token: the key of the retained ranking, if the search index was used, or the
+     * name of the image otherwise.
+     */
+    public String getKey(@NonNull FlatImage image) {
+      return (snapshotKey != null) ? snapshotKey : image.getName();
+    }
+
+  }
+
+  /**
+   * Change to the title and/or description of a single image, as applied by {@link #update(List,
+   * User)}. A {@code null} title or description leaves the corresponding property unchanged.
+   */
+  public static class MetadataUpdate {
+
+    private UUID id;
+    private String title;
+    private String description;
+
+    public UUID getId() {
+      return id;
+    }
+
+    public void setId(UUID id) {
+      this.id = id;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public void setTitle(String title) {
+      this.title = title;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public void setDescription(String description) {
+      this.description = description;
+    }
+
+  }
+
+  /**
+   * Problem with a single change in a list of {@link MetadataUpdate} instances.
+   */
+  public static class MetadataError {
+
+    static final String ID_FIELD = "id";
+    static final String TITLE_FIELD = "title";
+    static final String DESCRIPTION_FIELD = "description";
+
+    private final int index;
+    private final UUID id;
+    private final String field;
+    private final String message;
+
+    MetadataError(int index, UUID id, String field, String message) {
+      this.index = index;
+      this.id = id;
+      this.field = field;
+      this.message = message;
+    }
+
+    /**
+     * Returns the (zero-based) position of the invalid change in the list of changes.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * Returns the unique identifier of the image targeted by the invalid change, if specified.
+     */
+    public UUID getId() {
+      return id;
+    }
+
+    /**
+     * Returns the name of the invalid property.
+     */
+    public String getField() {
+      return field;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+  }
+
+  public static class InvalidMetadataException extends ResponseStatusException {
+
+    private static final String INVALID_REASON = "Invalid image metadata";
+
+    private final List<MetadataError> errors;
+
+    public InvalidMetadataException(@NonNull List<MetadataError> errors) {
+      super(HttpStatus.BAD_REQUEST, INVALID_REASON);
+      this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * Returns the problems found, in the order of the changes in which they were found.
+     */
+    public List<MetadataError> getErrors() {
+      return errors;
+    }
 
-  public Image store(@NonNull MultipartFile file, @NonNull User contributor, Gallery gallery,
-      String title,
-      String description)
-      throws IOException, HttpMediaTypeNotAcceptableException {
-    String originalFilename = file.getOriginalFilename();
-    String contentType = file.getContentType();
-    String reference = storageService.store(file);
-    Image image = new Image();
-    image.setContributor(contributor);
-//    image.setGallery(gallery);// TODO uncomment and solve null gallery_id problem
-    image.setName((originalFilename != null) ? originalFilename : UNTITLED_FILENAME);
-    image.setPath(reference);
-    image.setContributor(contributor);
-    image.setContentType(
-        (contentType != null) ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
-    image.setTitle(title);
-    image.setDescription(description);
-    return imageRepository.save(image);
   }
 
   public static class ImageNotFoundException extends ResponseStatusException {
@@ -149,7 +628,140 @@ public class ImageService {
 
   }
 
-  public Resource retrieve(Image image) throws MalformedURLException {
+  public Resource retrieve(FlatImage image) throws MalformedURLException {
     return storageService.retrieve(image.getPath());
   }
+
+  /**
+   * Returns the derivative of the specified size for {@code image}. If it has not (yet) been
+   * generated, an empty {@link Optional} is returned, and generation is scheduled, unless it has
+   * already been attempted, or the original is too small to need a derivative of that size.
+   */
+  public Optional<Derivative> getDerivative(@NonNull Image image, @NonNull Size size) {
+    Optional<Derivative> derivative = derivativeService.get(image, size);
+    if (derivative.isEmpty() && derivativeService.isNeeded(image, size)) {
+      derivativeService.schedule(image);
+    }
+    return derivative.filter(Derivative::isGenerated);
+  }
+
+  /**
+   * Loads the images with the specified identifiers, preserving their order, and omitting any that
+   * no longer exist.
+   */
+  private List<Image> load(List<UUID> ids) {
+    Map<UUID, Image> images = imageRepository.findAllById(ids)
+        .stream()
+        .collect(Collectors.toMap(Image::getId, Function.identity()));
+    return ids.stream()
+        .map(images::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Loads summaries of the images with the specified identifiers, preserving their order, and
+   * omitting any that no longer exist.
+   */
+  private List<ImageSummary> loadSummaries(List<UUID> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<UUID, ImageSummary> images = imageRepository.findSummariesById(ids)
+        .stream()
+        .collect(Collectors.toMap(ImageSummary::getId, Function.identity()));
+    return ids.stream()
+        .map(images::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  private void forEach(Stream<ImageSummary> images,
+      EntityConsumer<? super ImageSummary> consumer) throws IOException {
+    for (Iterator<ImageSummary> iter = images.iterator(); iter.hasNext(); ) {
+      consumer.accept(iter.next());
+    }
+  }
+
+  private void validate(List<MetadataUpdate> updates) {
+    List<MetadataError> errors = new LinkedList<>();
+    for (int i = 0; i < updates.size(); i++) {
+      MetadataUpdate update = updates.get(i);
+      if (update.getId() == null) {
+        errors.add(new MetadataError(i, null, MetadataError.ID_FIELD, MISSING_ID_MESSAGE));
+      }
+      if (update.getTitle() != null && update.getTitle().length() > Image.MAX_TITLE_LENGTH) {
+        errors.add(new MetadataError(i, update.getId(), MetadataError.TITLE_FIELD,
+            String.format(TOO_LONG_FORMAT, Image.MAX_TITLE_LENGTH)));
+      }
+      if (update.getDescription() != null
+          && update.getDescription().length() > Image.MAX_DESCRIPTION_LENGTH) {
+        errors.add(new MetadataError(i, update.getId(), MetadataError.DESCRIPTION_FIELD,
+            String.format(TOO_LONG_FORMAT, Image.MAX_DESCRIPTION_LENGTH)));
+      }
+    }
+    if (!errors.isEmpty()) {
+      throw new InvalidMetadataException(errors);
+    }
+  }
+
+  private void deleteContentAfterCommit(List<String> references) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          deleteContent(references);
+        }
+      });
+    } else {
+      deleteContent(references);
+    }
+  }
+
+  private void deleteContent(List<String> references) {
+    for (String reference : references) {
+      try {
+        storageService.delete(reference);
+      } catch (RuntimeException e) {
+        // Left for StorageReconciler to remove.
+        logger.warn("Unable to delete stored content {}", reference, e);
+      }
+    }
+  }
+
+  private String likePattern(String fragment) {
+    return (fragment != null)
+        ? LIKE_WILDCARD + LIKE_SPECIAL.matcher(fragment).replaceAll(LIKE_ESCAPE) + LIKE_WILDCARD
+        : LIKE_WILDCARD;
+  }
+
+  public Resource retrieve(Derivative derivative) throws MalformedURLException {
+    return storageService.retrieve(derivative.getPath());
+  }
+
+  /**
+   * Returns a rendition of {@code image} resized to the specified dimensions, generating it if it
+   * is not already cached. If resizing would not reduce the image, an empty {@link Optional} is
+   * returned, and the original content (see {@link #retrieve(Image)}) should be used instead.
+   *
+   * @param image  Source image.
+   * @param width  Requested width in pixels, or 0 to scale proportionally to {@code height}.
+   * @param height Requested height in pixels, or 0 to scale proportionally to {@code width}.
+   * @param fit    Method used to fit the image to the requested dimensions.
+   * @return Resized rendition, or an empty {@link Optional}.
+   * @throws IOException If the stored content cannot be read.
+   */
+  public Optional<Rendition> resize(@NonNull Image image, int width, int height, @NonNull Fit fit)
+      throws IOException {
+    return resizeService.get(image, width, height, fit);
+  }
+
+  /**
+   * Returns the largest width or height (in pixels) that may be passed to {@link #resize(Image,
+   * int, int, Fit)}.
+   */
+  public int getMaxResizeDimension() {
+    return resizeService.getMaxDimension();
+  }
+
 }
@@ -0,0 +1,229 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decodes, scales, crops, and encodes raster images, using {@code javax.imageio} and Java 2D.
+ */
+@Component
+public class ImageTransformer {
+
+  private static final String JPEG_FORMAT = "jpeg";
+  private static final String PNG_FORMAT = "png";
+  private static final int MIN_TRANSPOSED_ORIENTATION = 5;
+  private static final int MAX_TRANSPOSED_ORIENTATION = 8;
+
+  /**
+   * Returns {@code true} if an image with the specified EXIF orientation is displayed rotated by a
+   * quarter turn, so that its displayed width and height are its stored height and width.
+   */
+  public static boolean isTransposed(Integer orientation) {
+    return orientation != null
+        && orientation >= MIN_TRANSPOSED_ORIENTATION
+        && orientation <= MAX_TRANSPOSED_ORIENTATION;
+  }
+
+  /**
+   * Decodes and returns the first image read from {@code input}, or {@code null} if the content is
+   * not in a supported format. To limit the memory required to decode large images, source pixels
+   * are subsampled, so that the decoded image is no less than twice the specified width and height
+   * (a zero value for either indicates that the dimension is unconstrained).
+   *
+   * @param input  Source of encoded image content.
+   * @param width  Largest width that will be produced from the decoded image, or 0.
+   * @param height Largest height that will be produced from the decoded image, or 0.
+   * @return Decoded (and possibly subsampled) image.
+   * @throws IOException If the content cannot be read or decoded.
+   */
+  public BufferedImage read(@NonNull InputStream input, int width, int height)
+      throws IOException {
+    BufferedImage image = null;
+    try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+      Iterator<ImageReader> readers =
+          (stream != null) ? ImageIO.getImageReaders(stream) : null;
+      if (readers != null && readers.hasNext()) {
+        ImageReader reader = readers.next();
+        try {
+          reader.setInput(stream, true, true);
+          int sourceWidth = reader.getWidth(0);
+          int sourceHeight = reader.getHeight(0);
+          int factor = Math.min(
+              (width > 0) ? sourceWidth / (2 * width) : Integer.MAX_VALUE,
+              (height > 0) ? sourceHeight / (2 * height) : Integer.MAX_VALUE);
+          ImageReadParam param = reader.getDefaultReadParam();
+          if (factor > 1 && factor < Integer.MAX_VALUE) {
+            param.setSourceSubsampling(factor, factor, 0, 0);
+          }
+          image = reader.read(0, param);
+        } finally {
+          reader.dispose();
+        }
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Returns {@code source} flipped and/or rotated as specified by its EXIF {@code orientation}, so
+   * that it appears as it would in a viewer that honors the orientation. Since encoded renditions
+   * do not carry the orientation, it must be applied before scaling. If {@code orientation} is
+   * {@code null}, 1 (the default orientation), or not a valid orientation, {@code source} is
+   * returned unchanged.
+   */
+  public BufferedImage orient(@NonNull BufferedImage source, Integer orientation) {
+    int w = source.getWidth();
+    int h = source.getHeight();
+    AffineTransform transform;
+    switch ((orientation != null) ? orientation : 1) {
+      case 2: // Mirrored horizontally.
+        transform = new AffineTransform(-1, 0, 0, 1, w, 0);
+        break;
+      case 3: // Rotated 180 degrees.
+        transform = new AffineTransform(-1, 0, 0, -1, w, h);
+        break;
+      case 4: // Mirrored vertically.
+        transform = new AffineTransform(1, 0, 0, -1, 0, h);
+        break;
+      case 5: // Transposed (mirrored about the top-left to bottom-right diagonal).
+        transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+        break;
+      case 6: // Displayed rotated 90 degrees clockwise.
+        transform = new AffineTransform(0, 1, -1, 0, h, 0);
+        break;
+      case 7: // Transversed (mirrored about the top-right to bottom-left diagonal).
+        transform = new AffineTransform(0, -1, -1, 0, h, w);
+        break;
+      case 8: // Displayed rotated 90 degrees counterclockwise.
+        transform = new AffineTransform(0, -1, 1, 0, 0, w);
+        break;
+      default:
+        transform = null;
+        break;
+    }
+    BufferedImage result = source;
+    if (transform != null) {
+      boolean transposed = isTransposed(orientation);
+      result = new BufferedImage(transposed ? h : w, transposed ? w : h,
+          source.getColorModel().hasAlpha()
+              ? BufferedImage.TYPE_INT_ARGB
+              : BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = result.createGraphics();
+      graphics.drawImage(source, transform, null);
+      graphics.dispose();
+    }
+    return result;
+  }
+
+  /**
+   * Scales {@code source} to {@code width} &times; {@code height} by repeated halving with bilinear
+   * interpolation, which gives results comparable to bicubic filtering at a fraction of the cost.
+   */
+  public BufferedImage scale(@NonNull BufferedImage source, int width, int height) {
+    int type = source.getColorModel().hasAlpha()
+        ? BufferedImage.TYPE_INT_ARGB
+        : BufferedImage.TYPE_INT_RGB;
+    BufferedImage current = source;
+    int currentWidth = source.getWidth();
+    int currentHeight = source.getHeight();
+    do {
+      currentWidth = Math.max(width, currentWidth / 2);
+      currentHeight = Math.max(height, currentHeight / 2);
+      BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+      Graphics2D graphics = next.createGraphics();
+      graphics.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+      graphics.dispose();
+      current = next;
+    } while (currentWidth != width || currentHeight != height);
+    return current;
+  }
+
+  /**
+   * Scales {@code source} to {@code width} pixels wide, preserving its aspect ratio.
+   */
+  public BufferedImage scaleToWidth(@NonNull BufferedImage source, int width) {
+    int height = Math.max(1,
+        (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+    return scale(source, width, height);
+  }
+
+  /**
+   * Returns the {@code width} &times; {@code height} region at the center of {@code source}.
+   */
+  public BufferedImage cropCenter(@NonNull BufferedImage source, int width, int height) {
+    int x = Math.max(0, (source.getWidth() - width) / 2);
+    int y = Math.max(0, (source.getHeight() - height) / 2);
+    return source.getSubimage(x, y,
+        Math.min(width, source.getWidth()), Math.min(height, source.getHeight()));
+  }
+
+  /**
+   * Encodes {@code image} as JPEG (if opaque) or PNG (if it has an alpha channel).
+   *
+   * @return Encoded content, or {@code null} if no suitable encoder is available.
+   * @throws IOException If the image cannot be encoded.
+   */
+  public Encoded encode(@NonNull BufferedImage image) throws IOException {
+    boolean alpha = image.getColorModel().hasAlpha();
+    String format = alpha ? PNG_FORMAT : JPEG_FORMAT;
+    BufferedImage target = image;
+    if (!alpha && image.getType() != BufferedImage.TYPE_INT_RGB) {
+      // JPEG writer rejects some source layouts (e.g. sub-images of non-RGB rasters).
+      target = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = target.createGraphics();
+      graphics.drawImage(image, 0, 0, null);
+      graphics.dispose();
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    return ImageIO.write(target, format, output)
+        ? new Encoded(output.toByteArray(),
+        alpha ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE, format)
+        : null;
+  }
+
+  /**
+   * Encoded image content, along with its MIME type and format name (usable as a filename
+   * extension).
+   */
+  public static class Encoded {
+
+    private final byte[] content;
+    private final String contentType;
+    private final String format;
+
+    private Encoded(byte[] content, String contentType, String format) {
+      this.content = content;
+      this.contentType = contentType;
+      this.format = format;
+    }
+
+    public byte[] getContent() {
+      return content;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public String getFormat() {
+      return format;
+    }
+
+  }
+
+}
@@ -5,81 +5,46 @@ import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.Filena
 import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import javax.annotation.PostConstruct;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.system.ApplicationHome;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
-import org.springframework.web.multipart.MultipartFile;
 
 /**
  * Simple implementation of {@link StorageService}, storing files in a directory specified in the
  * application properties, further organized into subdirectories by specified portions of the
- * generated filenames.
+ * generated filenames. This is the default implementation, used unless {@code upload.storage} is
+ * set to some value other than {@code local}.
  */
 @Service
-public class LocalFilesystemStorageService implements StorageService {
+@ConditionalOnProperty(
+    prefix = "upload", name = "storage", havingValue = "local", matchIfMissing = true)
+public class LocalFilesystemStorageService extends AbstractFilesystemStorageService {
 
-  private static final String REFERENCE_PATH_DELIMITER = "/";
-  private static final String REFERENCE_PATH_FORMAT = "%s" + REFERENCE_PATH_DELIMITER + "%s";
+  private static final int MAX_NAME_ATTEMPTS = 3;
 
-  private final Random rng;
-  private final Path uploadDirectory;
-  private final DateFormat formatter;
+  private final FilenameGenerator filenameGenerator;
   private final String unknownFilename;
-  private final Pattern subdirectoryPattern;
-  private final String filenameFormat;
-  private final int randomizerLimit;
-  private final Set<String> whitelist;
-  private final List<MediaType> contentTypes;
 
   @Autowired
   public LocalFilesystemStorageService(
-      Random rng, UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
-    this.rng = rng;
+      UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
+    super(uploadConfiguration, applicationHome);
     FilenameProperties filenameProperties = uploadConfiguration.getFilename();
     TimestampProperties timestampProperties = filenameProperties.getTimestamp();
-    String uploadPath = uploadConfiguration.getDirectory();
-    uploadDirectory = uploadConfiguration.isApplicationHome()
-        ? applicationHome.getDir().toPath().resolve(uploadPath)
-        : Path.of(uploadPath);
-    //noinspection ResultOfMethodCallIgnored
-    uploadDirectory.toFile().mkdirs();
-    subdirectoryPattern = uploadConfiguration.getSubdirectoryPattern();
-    whitelist = uploadConfiguration.getWhitelist();
-    contentTypes = whitelist.stream()
-        .map(MediaType::valueOf)
-        .collect(Collectors.toList());
     unknownFilename = filenameProperties.getUnknown();
-    filenameFormat = filenameProperties.getFormat();
-    randomizerLimit = filenameProperties.getRandomizerLimit();
-    formatter = new SimpleDateFormat(timestampProperties.getFormat());
-    formatter.setTimeZone(TimeZone.getTimeZone(timestampProperties.getTimeZone()));
-  }
-
-  @PostConstruct
-  private void initUploads() {
-    //noinspection ResultOfMethodCallIgnored
-    uploadDirectory.toFile().mkdirs();
+    filenameGenerator = new FilenameGenerator(filenameProperties.getFormat(),
+        timestampProperties.getFormat(), timestampProperties.getTimeZone(),
+        filenameProperties.getRandomizerLimit());
   }
 
   /*@Override
@@ -99,33 +64,37 @@ public class LocalFilesystemStorageService implements StorageService {
   }*/
 
   @Override
-  public String store(MultipartFile file) throws IOException, HttpMediaTypeNotAcceptableException {
-    if (!whitelist.contains(file.getContentType())) {
-      throw new HttpMediaTypeNotAcceptableException(contentTypes);
+  public StorageReference store(InputStream input, String filename, String contentType)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    Probe probe = probe(input, contentType);
+    String extension = getExtension((filename != null) ? filename : "");
+    MessageDigest digest = newDigest();
+    for (int attempt = 1; ; attempt++) {
+      String reference = getReference(filenameGenerator.generate(extension));
+      Path target = resolveForWrite(reference);
+      long size;
+      try {
+        // The target is created exclusively, before any content is read; if it already exists
+        // (e.g. created by another process sharing the upload directory), a new name is tried.
+        size = Files.copy(new DigestInputStream(probe.getContent(), digest), target);
+      } catch (FileAlreadyExistsException e) {
+        if (attempt >= MAX_NAME_ATTEMPTS) {
+          throw e;
+        }
+        continue;
+      } catch (IOException e) {
+        Files.deleteIfExists(target);
+        throw e;
+      }
+      return new StorageReference(filename, reference, probe.getContentType(),
+          toHex(digest.digest()), size, probe.getHeader());
     }
-    String originalFilename = file.getOriginalFilename();
-    String newFilename = String.format(filenameFormat,
-        formatter.format(new Date()), rng.nextInt(randomizerLimit),
-        getExtension((originalFilename != null) ? originalFilename : ""));
-    String subdirectory = getSubdirectory(newFilename);
-    Path resolvedPath = uploadDirectory.resolve(subdirectory);
-    //noinspection ResultOfMethodCallIgnored
-    resolvedPath.toFile().mkdirs();
-    Files.copy(file.getInputStream(), resolvedPath.resolve(newFilename));
-    return String.format(REFERENCE_PATH_FORMAT, subdirectory, newFilename);
-  }
-
-
-  @Override
-  public Resource retrieve(String reference) throws InvalidPathException, MalformedURLException {
-    Path file = uploadDirectory.resolve(reference);
-    return new UrlResource(file.toUri());
   }
 
   @Override
   public boolean delete(String reference)
       throws InvalidPathException, UnsupportedOperationException, SecurityException {
-    File file = uploadDirectory.resolve(reference).toFile();
+    File file = getUploadDirectory().resolve(reference).toFile();
     return file.delete();
   }
 
@@ -135,17 +104,4 @@ public class LocalFilesystemStorageService implements StorageService {
     return ((position = filename.lastIndexOf('.')) >= 0) ? filename.substring(position + 1) : "";
   }
 
-  private String getSubdirectory(@NonNull String filename) {
-    String path;
-    Matcher matcher = subdirectoryPattern.matcher(filename);
-    if (matcher.matches()) {
-      path = IntStream.rangeClosed(1, matcher.groupCount())
-          .mapToObj(matcher::group)
-          .collect(Collectors.joining(REFERENCE_PATH_DELIMITER));
-    } else {
-      path = "";
-    }
-    return path;
-  }
-
-}
\ No newline at end of file
+}
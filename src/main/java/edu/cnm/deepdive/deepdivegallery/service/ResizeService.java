@@ -0,0 +1,476 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.ResizeProperties;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.service.ImageTransformer.Encoded;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+/**
+ * Produces renditions of stored images, resized on demand to arbitrary requested dimensions.
+ * Results are kept in a two-level cache: an in-memory cache bounded by the total size of the cached
+ * content, backed by a disk cache (in a hidden subdirectory of the file store) bounded by the total
+ * size of the cached files. Both levels evict the least recently accessed entries first; recency in
+ * the disk cache is recorded in file modification times, so that it survives a restart. Concurrent
+ * requests for the same rendition are coalesced, so that each rendition is computed only once.
+ */
+@Service
+public class ResizeService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ResizeService.class);
+
+  private static final String CACHE_DIRECTORY = ".cache";
+  private static final String RESIZE_SUBDIRECTORY = "resize";
+  private static final String KEY_FORMAT = "%s-%dx%d-%s";
+  private static final String CACHE_FILENAME_FORMAT = "%s.%s";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final char EXTENSION_DELIMITER = '.';
+  private static final long ENTRY_OVERHEAD = 256;
+  private static final int MAX_ENTRY_FRACTION = 8;
+
+  private final StorageService storageService;
+  private final ImageTransformer transformer;
+  private final int maxDimension;
+  private final MemoryCache memoryCache;
+  private final DiskCache diskCache;
+  private final ConcurrentMap<String, CompletableFuture<Rendition>> inFlight;
+  private final Semaphore permits;
+
+  @Autowired
+  public ResizeService(StorageService storageService, ImageTransformer transformer,
+      UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
+    this.storageService = storageService;
+    this.transformer = transformer;
+    ResizeProperties properties = uploadConfiguration.getResize();
+    maxDimension = properties.getMaxDimension();
+    memoryCache = new MemoryCache(properties.getMemoryCacheSize().toBytes());
+    diskCache = new DiskCache(uploadConfiguration.resolveDirectory(applicationHome)
+        .resolve(CACHE_DIRECTORY)
+        .resolve(RESIZE_SUBDIRECTORY), properties.getDiskCacheSize().toBytes());
+    inFlight = new ConcurrentHashMap<>();
+    // Decoded source images dominate memory use; limit the number decoded at once.
+    permits = new Semaphore(Runtime.getRuntime().availableProcessors());
+  }
+
+  @PostConstruct
+  private void initCache() throws IOException {
+    diskCache.load();
+  }
+
+  /**
+   * Returns the largest width or height (in pixels) that may be requested.
+   */
+  public int getMaxDimension() {
+    return maxDimension;
+  }
+
+  /**
+   * Returns a rendition of {@code image} resized to the specified dimensions. Images are never
+   * enlarged; if the requested dimensions would not reduce the image (or if the stored content
+   * cannot be decoded), an empty {@link Optional} is returned, and the original content should be
+   * used instead.
+   *
+   * @param image  Source image.
+   * @param width  Requested width in pixels, or 0 to scale proportionally to {@code height}.
+   * @param height Requested height in pixels, or 0 to scale proportionally to {@code width}.
+   * @param fit    Method used to fit the image to the requested dimensions, if both are
+   *               specified.
+   * @return Resized rendition, or an empty {@link Optional}.
+   * @throws IOException If the stored content cannot be read.
+   */
+  public Optional<Rendition> get(@NonNull Image image, int width, int height, @NonNull Fit fit)
+      throws IOException {
+    String source = (image.getContentHash() != null)
+        ? image.getContentHash()
+        : image.getId().toString();
+    String key = String.format(KEY_FORMAT, source, width, height, fit.name().toLowerCase());
+    Rendition rendition = memoryCache.get(key);
+    if (rendition == null) {
+      rendition = load(key, image, width, height, fit);
+    }
+    return rendition.isPassthrough() ? Optional.empty() : Optional.of(rendition);
+  }
+
+  private Rendition load(String key, Image image, int width, int height, Fit fit)
+      throws IOException {
+    CompletableFuture<Rendition> future = new CompletableFuture<>();
+    CompletableFuture<Rendition> existing = inFlight.putIfAbsent(key, future);
+    Rendition rendition;
+    if (existing != null) {
+      rendition = await(existing);
+    } else {
+      try {
+        rendition = memoryCache.get(key);
+        if (rendition == null) {
+          rendition = diskCache.get(key);
+          if (rendition == null) {
+            rendition = render(key, image, width, height, fit);
+            if (!rendition.isPassthrough()) {
+              diskCache.put(rendition);
+            }
+          }
+          memoryCache.put(rendition);
+        }
+        future.complete(rendition);
+      } catch (IOException | RuntimeException e) {
+        future.completeExceptionally(e);
+        throw e;
+      } finally {
+        inFlight.remove(key, future);
+      }
+    }
+    return rendition;
+  }
+
+  private Rendition await(CompletableFuture<Rendition> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else {
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  private Rendition render(String key, Image image, int width, int height, Fit fit)
+      throws IOException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    try (InputStream input = storageService.retrieve(image.getPath()).getInputStream()) {
+      Rendition rendition = new Rendition(key);
+      BufferedImage source = transformer.read(input, width, height);
+      if (source != null) {
+        BufferedImage result = transform(source, width, height, fit);
+        Encoded encoded = (result != source) ? transformer.encode(result) : null;
+        if (encoded != null) {
+          rendition = new Rendition(
+              key, encoded.getContent(), encoded.getContentType(), encoded.getFormat());
+        }
+      }
+      return rendition;
+    } finally {
+      permits.release();
+    }
+  }
+
+  private BufferedImage transform(BufferedImage source, int width, int height, Fit fit) {
+    int sourceWidth = source.getWidth();
+    int sourceHeight = source.getHeight();
+    boolean bounded = width > 0 && height > 0;
+    BufferedImage result;
+    if (fit == Fit.FILL && bounded) {
+      int targetWidth = Math.min(width, sourceWidth);
+      int targetHeight = Math.min(height, sourceHeight);
+      result = (targetWidth != sourceWidth || targetHeight != sourceHeight)
+          ? transformer.scale(source, targetWidth, targetHeight)
+          : source;
+    } else {
+      double scaleX = (double) width / sourceWidth;
+      double scaleY = (double) height / sourceHeight;
+      double scale = Math.min(1,
+          (fit == Fit.CONTAIN && bounded) ? Math.min(scaleX, scaleY) : Math.max(scaleX, scaleY));
+      int targetWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+      int targetHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+      result = (targetWidth != sourceWidth || targetHeight != sourceHeight)
+          ? transformer.scale(source, targetWidth, targetHeight)
+          : source;
+      if (fit == Fit.COVER && bounded
+          && (result.getWidth() > width || result.getHeight() > height)) {
+        result = transformer.cropCenter(result, width, height);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Method used to fit an image to a requested width and height.
+   */
+  public enum Fit {
+
+    /**
+     * Scale proportionally, so that the image fits within the requested dimensions.
+     */
+    CONTAIN,
+    /**
+     * Scale proportionally, so that the image covers the requested dimensions, then crop the
+     * excess equally from both sides.
+     */
+    COVER,
+    /**
+     * Scale each dimension independently (without preserving the aspect ratio) to the requested
+     * dimensions. Since images are never enlarged, a requested width or height greater than that
+     * of the image is reduced to the image's own width or height, so the result has exactly the
+     * requested dimensions only when neither exceeds the image's.
+     */
+    FILL;
+
+    /**
+     * Returns the {@code Fit} with the specified name (ignoring case).
+     *
+     * @throws IllegalArgumentException If {@code name} does not match any {@code Fit}.
+     */
+    public static Fit forName(@NonNull String name) {
+      return valueOf(name.trim().toUpperCase());
+    }
+
+  }
+
+  /**
+   * Encoded content of a resized image, along with its MIME type and cache key. The key identifies
+   * the source content and the requested dimensions, and is suitable for use as an entity tag.
+   */
+  public static class Rendition {
+
+    private final String key;
+    private final byte[] content;
+    private final String contentType;
+    private final String format;
+
+    private Rendition(String key) {
+      this(key, null, null, null);
+    }
+
+    private Rendition(String key, byte[] content, String contentType, String format) {
+      this.key = key;
+      this.content = content;
+      this.contentType = contentType;
+      this.format = format;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public byte[] getContent() {
+      return content;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    private boolean isPassthrough() {
+      return content == null;
+    }
+
+    private long weight() {
+      return ENTRY_OVERHEAD + ((content != null) ? content.length : 0);
+    }
+
+  }
+
+  private static class MemoryCache {
+
+    private final long capacity;
+    private final Map<String, Rendition> entries;
+
+    private long size;
+
+    private MemoryCache(long capacity) {
+      this.capacity = capacity;
+      entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private synchronized Rendition get(String key) {
+      return entries.get(key);
+    }
+
+    private synchronized void put(Rendition rendition) {
+      long weight = rendition.weight();
+      // A single large entry should not flush the rest of the cache.
+      if (weight <= capacity / MAX_ENTRY_FRACTION) {
+        Rendition previous = entries.put(rendition.getKey(), rendition);
+        size += weight - ((previous != null) ? previous.weight() : 0);
+        for (Iterator<Rendition> iter = entries.values().iterator();
+            size > capacity && iter.hasNext(); ) {
+          size -= iter.next().weight();
+          iter.remove();
+        }
+      }
+    }
+
+  }
+
+  private static class DiskCache {
+
+    private final Path directory;
+    private final long capacity;
+    private final Map<String, DiskEntry> entries;
+
+    private long size;
+
+    private DiskCache(Path directory, long capacity) {
+      this.directory = directory;
+      this.capacity = capacity;
+      entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private void load() throws IOException {
+      Files.createDirectories(directory);
+      List<Path> files;
+      try (Stream<Path> stream = Files.list(directory)) {
+        files = stream
+            .filter(Files::isRegularFile)
+            .sorted(Comparator.comparingLong((file) -> file.toFile().lastModified()))
+            .collect(Collectors.toList());
+      }
+      List<Path> evicted;
+      synchronized (this) {
+        for (Path file : files) {
+          String filename = file.getFileName().toString();
+          int delimiter = filename.lastIndexOf(EXTENSION_DELIMITER);
+          if (filename.endsWith(TEMP_SUFFIX) || delimiter <= 0) {
+            // Left behind by an interrupted write.
+            Files.deleteIfExists(file);
+          } else {
+            DiskEntry entry = new DiskEntry(filename, file.toFile().length());
+            entries.put(filename.substring(0, delimiter), entry);
+            size += entry.size;
+          }
+        }
+        evicted = evict();
+      }
+      delete(evicted);
+      logger.info("Resize cache holds {} entries ({} bytes)", entries.size(), size);
+    }
+
+    private Rendition get(String key) throws IOException {
+      DiskEntry entry;
+      synchronized (this) {
+        entry = entries.get(key);
+      }
+      Rendition rendition = null;
+      if (entry != null) {
+        Path file = directory.resolve(entry.filename);
+        try {
+          byte[] content = Files.readAllBytes(file);
+          //noinspection ResultOfMethodCallIgnored
+          file.toFile().setLastModified(System.currentTimeMillis());
+          String format =
+              entry.filename.substring(entry.filename.lastIndexOf(EXTENSION_DELIMITER) + 1);
+          String contentType = MediaTypeFactory.getMediaType(entry.filename)
+              .map(MediaType::toString)
+              .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+          rendition = new Rendition(key, content, contentType, format);
+        } catch (NoSuchFileException e) {
+          // Evicted concurrently.
+          synchronized (this) {
+            if (entries.remove(key, entry)) {
+              size -= entry.size;
+            }
+          }
+        }
+      }
+      return rendition;
+    }
+
+    private void put(Rendition rendition) {
+      String filename =
+          String.format(CACHE_FILENAME_FORMAT, rendition.getKey(), rendition.format);
+      Path file = directory.resolve(filename);
+      try {
+        Path temp = Files.createTempFile(directory, rendition.getKey(), TEMP_SUFFIX);
+        try {
+          Files.write(temp, rendition.getContent());
+          try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+          } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+          }
+        } finally {
+          Files.deleteIfExists(temp);
+        }
+        List<Path> evicted;
+        synchronized (this) {
+          DiskEntry entry = new DiskEntry(filename, rendition.getContent().length);
+          DiskEntry previous = entries.put(rendition.getKey(), entry);
+          size += entry.size - ((previous != null) ? previous.size : 0);
+          evicted = evict();
+        }
+        delete(evicted);
+      } catch (IOException e) {
+        // The rendition can still be served (and cached in memory).
+        logger.warn("Unable to write resize cache entry {}", filename, e);
+      }
+    }
+
+    private List<Path> evict() {
+      List<Path> evicted = new LinkedList<>();
+      for (Iterator<DiskEntry> iter = entries.values().iterator();
+          size > capacity && iter.hasNext(); ) {
+        DiskEntry entry = iter.next();
+        iter.remove();
+        size -= entry.size;
+        evicted.add(directory.resolve(entry.filename));
+      }
+      return evicted;
+    }
+
+    private void delete(List<Path> files) {
+      for (Path file : files) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          logger.warn("Unable to remove resize cache file {}", file, e);
+        }
+      }
+    }
+
+  }
+
+  private static class DiskEntry {
+
+    private final String filename;
+    private final long size;
+
+    private DiskEntry(String filename, long size) {
+      this.filename = filename;
+      this.size = size;
+    }
+
+  }
+
+}
@@ -0,0 +1,350 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.ReconcileProperties;
+import edu.cnm.deepdive.deepdivegallery.model.dao.ContentBlobRepository;
+import edu.cnm.deepdive.deepdivegallery.model.dao.DerivativeRepository;
+import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.ContentBlob;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Finds and removes stored files that are not referenced by any {@link
+ * edu.cnm.deepdive.deepdivegallery.model.entity.Image} or {@link
+ * edu.cnm.deepdive.deepdivegallery.model.entity.Derivative} (e.g. content left behind when a
+ * request fails between storing a file and persisting its record). The upload directory is walked
+ * one subdirectory at a time, and the files in each are checked against the database in sorted
+ * batches of bounded size, so memory use does not depend on the number of stored files.
+ * Directories and files whose names begin with {@code .} (staging areas, caches, and the
+ * quarantine directory itself) are skipped, as are files modified within the configured grace
+ * period. Orphaned files are moved to the {@code .quarantine} directory (or deleted, if so
+ * configured) at a limited rate; quarantined files are deleted once the retention period has
+ * passed.
+ * <p>
+ * When content-addressable storage is used, an orphaned file may still have a {@link
+ * edu.cnm.deepdive.deepdivegallery.model.entity.ContentBlob} record (e.g. if a reference was
+ * acquired, but never released). Each file is removed along with its record, while the record's
+ * row lock is held; since storing identical content takes the same lock, and updates the
+ * modification time of the existing file, content re-acquired after the batch query is not
+ * removed.</p>
+ */
+@Service
+public class StorageReconciler {
+
+  private static final Logger logger = LoggerFactory.getLogger(StorageReconciler.class);
+
+  private static final String QUARANTINE_DIRECTORY = ".quarantine";
+  private static final String HIDDEN_PREFIX = ".";
+  private static final String REFERENCE_DELIMITER = "/";
+
+  private final ImageRepository imageRepository;
+  private final DerivativeRepository derivativeRepository;
+  private final ContentBlobRepository blobRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final Path uploadDirectory;
+  private final Path quarantineDirectory;
+  private final boolean quarantine;
+  private final long gracePeriod;
+  private final long quarantineRetention;
+  private final int batchSize;
+  private final long removalInterval;
+  private final AtomicBoolean running;
+
+  private long nextRemoval;
+  private volatile Report lastReport;
+
+  @Autowired
+  public StorageReconciler(ImageRepository imageRepository,
+      DerivativeRepository derivativeRepository, ContentBlobRepository blobRepository,
+      PlatformTransactionManager transactionManager, UploadConfiguration uploadConfiguration,
+      ApplicationHome applicationHome) {
+    this.imageRepository = imageRepository;
+    this.derivativeRepository = derivativeRepository;
+    this.blobRepository = blobRepository;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    uploadDirectory = uploadConfiguration.resolveDirectory(applicationHome);
+    quarantineDirectory = uploadDirectory.resolve(QUARANTINE_DIRECTORY);
+    ReconcileProperties properties = uploadConfiguration.getReconcile();
+    quarantine = properties.isQuarantine();
+    gracePeriod = properties.getGracePeriod().toMillis();
+    quarantineRetention = properties.getQuarantineRetention().toMillis();
+    batchSize = Math.max(1, properties.getBatchSize());
+    removalInterval =
+        TimeUnit.SECONDS.toNanos(1) / Math.max(1, properties.getMaxRemovalsPerSecond());
+    running = new AtomicBoolean();
+  }
+
+  /**
+   * Runs {@link #reconcile()} on the configured schedule.
+   */
+  @Scheduled(cron = "${upload.reconcile.schedule:0 30 3 * * *}")
+  public void run() {
+    reconcile();
+  }
+
+  /**
+   * Removes (or quarantines) orphaned files, and deletes expired quarantined files. If a run is
+   * already in progress, this returns immediately, with the report of the previous run.
+   *
+   * @return Summary of the files examined and removed.
+   */
+  public Report reconcile() {
+    if (!running.compareAndSet(false, true)) {
+      return lastReport;
+    }
+    try {
+      Report report = new Report();
+      long start = System.currentTimeMillis();
+      try {
+        walk(uploadDirectory, "", start - gracePeriod, report);
+        purgeQuarantine(start - quarantineRetention, report);
+      } catch (IOException e) {
+        logger.warn("Storage reconciliation stopped early", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      report.duration = System.currentTimeMillis() - start;
+      logger.info("Storage reconciliation: {} files scanned; {} orphans {} ({} bytes); "
+              + "{} bytes reclaimed; {} errors; {} ms", report.scanned, report.orphans,
+          quarantine ? "quarantined" : "deleted", report.orphanBytes, report.bytesReclaimed,
+          report.errors, report.duration);
+      lastReport = report;
+      return report;
+    } finally {
+      running.set(false);
+    }
+  }
+
+  /**
+   * Returns the summary of the most recent run, or {@code null} if there has been none.
+   */
+  public Report getLastReport() {
+    return lastReport;
+  }
+
+  private void walk(Path directory, String prefix, long cutoff, Report report)
+      throws IOException, InterruptedException {
+    List<Path> subdirectories = new ArrayList<>();
+    List<Path> batch = new ArrayList<>(batchSize);
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      for (Path entry : entries) {
+        if (!entry.getFileName().toString().startsWith(HIDDEN_PREFIX)) {
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            subdirectories.add(entry);
+          } else if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+            batch.add(entry);
+            if (batch.size() == batchSize) {
+              check(batch, prefix, cutoff, report);
+              batch.clear();
+            }
+          }
+        }
+      }
+    }
+    check(batch, prefix, cutoff, report);
+    subdirectories.sort(Comparator.naturalOrder());
+    for (Path subdirectory : subdirectories) {
+      walk(subdirectory, prefix + subdirectory.getFileName() + REFERENCE_DELIMITER, cutoff, report);
+    }
+  }
+
+  private void check(List<Path> batch, String prefix, long cutoff, Report report)
+      throws InterruptedException {
+    report.scanned += batch.size();
+    Map<String, Path> candidates = new TreeMap<>();
+    for (Path file : batch) {
+      if (file.toFile().lastModified() < cutoff) {
+        candidates.put(prefix + file.getFileName(), file);
+      }
+    }
+    if (!candidates.isEmpty()) {
+      Set<String> referenced = new HashSet<>(imageRepository.findPaths(candidates.keySet()));
+      referenced.addAll(derivativeRepository.findPaths(candidates.keySet()));
+      for (Map.Entry<String, Path> candidate : candidates.entrySet()) {
+        if (!referenced.contains(candidate.getKey())) {
+          remove(candidate.getKey(), candidate.getValue(), cutoff, report);
+        }
+      }
+    }
+  }
+
+  private void remove(String reference, Path file, long cutoff, Report report)
+      throws InterruptedException {
+    pace();
+    String name = file.getFileName().toString();
+    try {
+      Long size = transactionTemplate.execute((status) -> {
+        // Locks the content record (if any), so that identical content cannot be stored
+        // concurrently; then re-checks, in case a record was created, or the content re-acquired,
+        // since the batch query.
+        Optional<ContentBlob> blob = blobRepository.findByDigest(name);
+        if (imageRepository.existsByPath(reference) || derivativeRepository.existsByPath(reference)
+            || file.toFile().lastModified() >= cutoff) {
+          return null;
+        }
+        long removed = quarantineOrDelete(reference, file);
+        blob.ifPresent(blobRepository::delete);
+        return removed;
+      });
+      if (size != null) {
+        if (!quarantine) {
+          report.bytesReclaimed += size;
+        }
+        report.orphans++;
+        report.orphanBytes += size;
+        logger.debug("Removed orphaned file {} ({} bytes)", reference, size);
+      }
+    } catch (UncheckedIOException e) {
+      report.errors++;
+      logger.warn("Unable to remove orphaned file {}", reference, e.getCause());
+    } catch (RuntimeException e) {
+      report.errors++;
+      logger.warn("Unable to remove orphaned file {}", reference, e);
+    }
+  }
+
+  private long quarantineOrDelete(String reference, Path file) {
+    try {
+      long size = Files.size(file);
+      if (quarantine) {
+        Path target = quarantineDirectory.resolve(reference);
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        // Retention is measured from the time of quarantine.
+        //noinspection ResultOfMethodCallIgnored
+        target.toFile().setLastModified(System.currentTimeMillis());
+      } else {
+        Files.delete(file);
+      }
+      return size;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void purgeQuarantine(long cutoff, Report report) throws IOException {
+    if (Files.isDirectory(quarantineDirectory)) {
+      List<Path> paths;
+      try (Stream<Path> stream = Files.walk(quarantineDirectory)) {
+        // Deepest paths first, so that directories emptied by this purge can then be removed.
+        paths = stream
+            .sorted(Comparator.reverseOrder())
+            .collect(Collectors.toList());
+      }
+      for (Path path : paths) {
+        try {
+          if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (!path.equals(quarantineDirectory) && isEmpty(path)) {
+              Files.delete(path);
+            }
+          } else if (path.toFile().lastModified() < cutoff) {
+            long size = Files.size(path);
+            Files.delete(path);
+            report.bytesReclaimed += size;
+          }
+        } catch (IOException e) {
+          report.errors++;
+          logger.warn("Unable to purge quarantined file {}", path, e);
+        }
+      }
+    }
+  }
+
+  private boolean isEmpty(Path directory) throws IOException {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      return !entries.iterator().hasNext();
+    }
+  }
+
+  private void pace() throws InterruptedException {
+    long now = System.nanoTime();
+    if (nextRemoval > now) {
+      TimeUnit.NANOSECONDS.sleep(nextRemoval - now);
+      now = nextRemoval;
+    }
+    nextRemoval = now + removalInterval;
+  }
+
+  /**
+   * Summary of a single reconciliation run.
+   */
+  public static class Report {
+
+    private long scanned;
+    private long orphans;
+    private long orphanBytes;
+    private long bytesReclaimed;
+    private long errors;
+    private long duration;
+
+    /**
+     * Returns the number of stored files examined.
+     */
+    public long getScanned() {
+      return scanned;
+    }
+
+    /**
+     * Returns the number of orphaned files deleted or quarantined.
+     */
+    public long getOrphans() {
+      return orphans;
+    }
+
+    /**
+     * Returns the total size of the orphaned files deleted or quarantined.
+     */
+    public long getOrphanBytes() {
+      return orphanBytes;
+    }
+
+    /**
+     * Returns the number of bytes freed, by deleting orphaned files or expired quarantined files.
+     */
+    public long getBytesReclaimed() {
+      return bytesReclaimed;
+    }
+
+    /**
+     * Returns the number of files that could not be removed.
+     */
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * Returns the duration of the run, in milliseconds.
+     */
+    public long getDuration() {
+      return duration;
+    }
+
+  }
+
+}
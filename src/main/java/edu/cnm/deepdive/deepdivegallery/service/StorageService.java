@@ -1,6 +1,7 @@
 package edu.cnm.deepdive.deepdivegallery.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.nio.file.InvalidPathException;
 import org.springframework.core.io.Resource;
@@ -12,29 +13,75 @@ public interface StorageService {
 //  StorageReference store(MultipartFile file) throws IOException, ForbiddenMimeTypeException;
 
   /**
-   * Stores the specified file, returning an opaque reference to the file as a {@link String}.
+   * Stores the specified file, returning a {@link StorageReference} that includes an opaque
+   * reference to the stored file, along with the digest and size of the content written.
    *
    * @param file Uploaded file.
-   * @return Opaque reference, to be used when retrieving or deleting the file from the store.
+   * @return {@link StorageReference} containing the opaque reference (to be used when retrieving or
+   * deleting the file from the store), the SHA-256 digest, and the size of the stored content.
    * @throws IOException                         If the file cannot be written for any reason.
    * @throws HttpMediaTypeNotAcceptableException If the content-type of {@code file} is not
    *                                             allowed.
    */
-  String store(MultipartFile file) throws IOException, HttpMediaTypeNotAcceptableException;
+  default StorageReference store(MultipartFile file)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    try (InputStream input = file.getInputStream()) {
+      return store(input, file.getOriginalFilename(), file.getContentType());
+    }
+  }
+
+  /**
+   * Stores the content read from {@code input}, in a single pass that also computes the digest and
+   * size of the content. The actual content type is determined from the leading bytes of the
+   * content (see {@link ImageHeader}), and checked against the whitelist before any content is
+   * written; if the content cannot be written in its entirety, any partially written file is
+   * removed. {@code input} is read to its end, but not closed.
+   *
+   * @param input       Source of content to be stored.
+   * @param filename    Original filename (or {@code null} if unknown).
+   * @param contentType Declared MIME type of content.
+   * @return {@link StorageReference} containing the opaque reference, actual content type, digest,
+   * size, and image properties of the stored content.
+   * @throws IOException                         If the content cannot be read or written.
+   * @throws HttpMediaTypeNotAcceptableException If the actual content type is not allowed, or does
+   *                                             not match {@code contentType}.
+   */
+  StorageReference store(InputStream input, String filename, String contentType)
+      throws IOException, HttpMediaTypeNotAcceptableException;
 
   Resource retrieve(String reference) throws InvalidPathException, MalformedURLException;
 
   boolean delete(String reference)
       throws InvalidPathException, UnsupportedOperationException, SecurityException;
 
+  /**
+   * Encapsulates the result of a store operation: the original filename, the opaque reference
+   * returned by the storage service, the MIME type of the stored content, the hex-encoded SHA-256
+   * digest of the stored content, the number of bytes stored, and the image properties read from
+   * the content header.
+   */
   class StorageReference {
 
     private final String filename;
     private final String reference;
+    private final String contentType;
+    private final String digest;
+    private final long size;
+    private final ImageHeader header;
+
+    public StorageReference(
+        String filename, String reference, String contentType, String digest, long size) {
+      this(filename, reference, contentType, digest, size, null);
+    }
 
-    public StorageReference(String filename, String reference) {
+    public StorageReference(String filename, String reference, String contentType,
+        String digest, long size, ImageHeader header) {
       this.filename = filename;
       this.reference = reference;
+      this.contentType = contentType;
+      this.digest = digest;
+      this.size = size;
+      this.header = header;
     }
 
     public String getFilename() {
@@ -45,6 +92,35 @@ public interface StorageService {
       return reference;
     }
 
+    /**
+     * Returns the MIME type of the stored content, as accepted by the storage service.
+     */
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Returns the hex-encoded SHA-256 digest of the stored content.
+     */
+    public String getDigest() {
+      return digest;
+    }
+
+    /**
+     * Returns the size (in bytes) of the stored content.
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Returns the image properties read from the header of the stored content, or {@code null} if
+     * the content is not in a recognized format.
+     */
+    public ImageHeader getHeader() {
+      return header;
+    }
+
   }
 
   class ForbiddenMimeTypeException extends RuntimeException {
@@ -0,0 +1,748 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.ChunkedProperties;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Manages resumable upload sessions, in which the content of a single file is sent in a series of
+ * chunks, each written at a specified offset. Content is staged in a single file per session, under
+ * the {@code .staging} subdirectory of the upload directory, alongside a small properties file
+ * recording the session metadata; sessions therefore survive application restarts. When all of the
+ * content has been received, the session is completed: the staged content is written to the file
+ * store (via {@link StorageService}, so that it is laid out like any other upload), its SHA-256
+ * digest is compared with the digest declared when the session was created (if any), and an {@link
+ * Image} is created. Sessions that receive no content for the configured time-to-live expire, and
+ * are removed periodically. The number of open sessions, and the total declared size of their
+ * content, are limited per contributor.
+ */
+@Service
+public class UploadSessionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+  private static final String STAGING_DIRECTORY = ".staging";
+  private static final String CONTENT_SUFFIX = ".part";
+  private static final String METADATA_SUFFIX = ".properties";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String CONTRIBUTOR_KEY = "contributor";
+  private static final String FILENAME_KEY = "filename";
+  private static final String CONTENT_TYPE_KEY = "contentType";
+  private static final String SIZE_KEY = "size";
+  private static final String DIGEST_KEY = "digest";
+  private static final String TITLE_KEY = "title";
+  private static final String DESCRIPTION_KEY = "description";
+  private static final Pattern DIGEST_PATTERN = Pattern.compile("^[0-9a-fA-F]{64}$");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final StorageService storageService;
+  private final ImageService imageService;
+  private final Path stagingDirectory;
+  private final long maxSize;
+  private final int maxSessions;
+  private final long maxStagedSize;
+  private final Duration timeToLive;
+  private final Set<String> whitelist;
+  private final List<MediaType> contentTypes;
+  private final ConcurrentMap<UUID, Session> sessions;
+
+  @Autowired
+  public UploadSessionService(StorageService storageService, ImageService imageService,
+      UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
+    this.storageService = storageService;
+    this.imageService = imageService;
+    ChunkedProperties properties = uploadConfiguration.getChunked();
+    maxSize = properties.getMaxSize().toBytes();
+    maxSessions = properties.getMaxSessions();
+    maxStagedSize = properties.getMaxStagedSize().toBytes();
+    timeToLive = properties.getTimeToLive();
+    whitelist = uploadConfiguration.getWhitelist();
+    contentTypes = whitelist.stream()
+        .map(MediaType::valueOf)
+        .collect(Collectors.toList());
+    stagingDirectory =
+        uploadConfiguration.resolveDirectory(applicationHome).resolve(STAGING_DIRECTORY);
+    //noinspection ResultOfMethodCallIgnored
+    stagingDirectory.toFile().mkdirs();
+    sessions = new ConcurrentHashMap<>();
+    loadStaged();
+  }
+
+  /**
+   * Creates and returns a new upload session, with no content received.
+   *
+   * @param request     Properties of the file to be uploaded.
+   * @param contributor Uploading {@link User}.
+   * @return New session.
+   * @throws IOException                         If the session cannot be staged.
+   * @throws HttpMediaTypeNotAcceptableException If the declared content type is not on the
+   *                                             whitelist.
+   * @throws SessionLimitException               If {@code contributor} already has the maximum
+   *                                             number of open sessions, or the declared size
+   *                                             would exceed the total allowed for them.
+   */
+  public Session create(@NonNull SessionRequest request, @NonNull User contributor)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    if (!whitelist.contains(request.getContentType())) {
+      throw new HttpMediaTypeNotAcceptableException(contentTypes);
+    }
+    if (request.getSize() < 1) {
+      throw new InvalidSessionException("File size must be specified");
+    }
+    if (request.getSize() > maxSize) {
+      throw new UploadTooLargeException();
+    }
+    if (request.getDigest() != null && !DIGEST_PATTERN.matcher(request.getDigest()).matches()) {
+      throw new InvalidSessionException("Digest must be a hex-encoded SHA-256 value");
+    }
+    UUID id = UUID.randomUUID();
+    Session session = new Session(id, contributor.getId(), request.getFilename(),
+        request.getContentType(), request.getSize(),
+        (request.getDigest() != null) ? request.getDigest().toLowerCase() : null,
+        request.getTitle(), request.getDescription());
+    session.touch(0, timeToLive);
+    synchronized (sessions) {
+      checkLimits(contributor.getId(), session.getSize());
+      sessions.put(id, session);
+    }
+    try {
+      Files.createFile(contentPath(id));
+      writeMetadata(session);
+    } catch (IOException | RuntimeException e) {
+      synchronized (session) {
+        discard(session);
+      }
+      throw e;
+    }
+    return session;
+  }
+
+  /**
+   * Returns the unexpired session with the specified {@code id}, if it exists and was created by
+   * {@code contributor}.
+   */
+  public Optional<Session> get(@NonNull UUID id, @NonNull User contributor) {
+    Session session;
+    try {
+      session = sessions.computeIfAbsent(id, this::load);
+    } catch (UncheckedIOException e) {
+      logger.warn("Unable to read upload session {}", id, e);
+      session = null;
+    }
+    if (session != null) {
+      synchronized (session) {
+        if (session.isDiscarded() || !session.getContributorId().equals(contributor.getId())) {
+          session = null;
+        } else if (session.getExpires().getTime() <= System.currentTimeMillis()) {
+          discard(session);
+          session = null;
+        }
+      }
+    }
+    return Optional.ofNullable(session);
+  }
+
+  /**
+   * Writes content read from {@code input} to the staged content of {@code session}, starting at
+   * {@code offset}. The offset must not be greater than the number of bytes received so far;
+   * resending content already received (e.g. after a failed chunk) is allowed. If the chunk is
+   * interrupted, the content received up to that point is retained, and the upload may be resumed
+   * from {@link Session#getOffset()}. Only one chunk may be written to a session at a time; the
+   * session is locked only to check and advance the offset, not while content is read.
+   *
+   * @param session Upload session.
+   * @param offset  Position in the file of the first byte of the chunk.
+   * @param input   Source of chunk content.
+   * @return Updated session.
+   * @throws IOException              If the content cannot be read or staged.
+   * @throws ChunkInProgressException If another chunk is being written to {@code session}.
+   */
+  public Session write(@NonNull Session session, long offset, @NonNull InputStream input)
+      throws IOException {
+    synchronized (session) {
+      checkActive(session);
+      if (offset < 0 || offset > session.getOffset()) {
+        throw new OffsetMismatchException(session.getOffset());
+      }
+      if (!session.beginWrite()) {
+        throw new ChunkInProgressException();
+      }
+    }
+    long position = offset;
+    try (FileChannel channel =
+        FileChannel.open(contentPath(session.getId()), StandardOpenOption.WRITE)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int count;
+      while ((count = input.read(buffer)) >= 0) {
+        if (position + count > session.getSize()) {
+          throw new UploadTooLargeException();
+        }
+        ByteBuffer source = ByteBuffer.wrap(buffer, 0, count);
+        while (source.hasRemaining()) {
+          position += channel.write(source, position);
+        }
+      }
+    } finally {
+      synchronized (session) {
+        session.endWrite(Math.max(session.getOffset(), position), timeToLive);
+      }
+    }
+    return session;
+  }
+
+  /**
+   * Completes {@code session}: writes the staged content to the file store, verifies its digest,
+   * and creates and returns an {@link Image} referencing the stored content. The session is then
+   * removed, whether or not the digest matched; if the {@link Image} cannot be persisted, the
+   * session is retained, so that completion may be retried.
+   *
+   * @param session     Upload session.
+   * @param contributor Uploading {@link User}.
+   * @return Persisted {@link Image}.
+   * @throws IOException                         If the staged content cannot be stored.
+   * @throws HttpMediaTypeNotAcceptableException If the declared content type is not on the
+   *                                             whitelist.
+   */
+  public Image complete(@NonNull Session session, @NonNull User contributor)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    synchronized (session) {
+      checkActive(session);
+      if (session.isWriting()) {
+        throw new ChunkInProgressException();
+      }
+      if (session.getOffset() != session.getSize()) {
+        throw new IncompleteUploadException(session.getOffset());
+      }
+      StorageReference reference;
+      try (InputStream input = Files.newInputStream(contentPath(session.getId()))) {
+        reference = storageService.store(input, session.getFilename(), session.getContentType());
+      }
+      if (reference.getSize() != session.getSize()
+          || (session.getDigest() != null
+          && !session.getDigest().equals(reference.getDigest()))) {
+        storageService.delete(reference.getReference());
+        discard(session);
+        throw new DigestMismatchException();
+      }
+      Image image;
+      try {
+        image = imageService.create(
+            reference, session.getTitle(), session.getDescription(), contributor);
+      } catch (RuntimeException e) {
+        // Leave the session in place, so that completion can be retried.
+        storageService.delete(reference.getReference());
+        throw e;
+      }
+      discard(session);
+      return image;
+    }
+  }
+
+  /**
+   * Abandons {@code session}, removing its staged content.
+   */
+  public void delete(@NonNull Session session) {
+    synchronized (session) {
+      if (!session.isDiscarded()) {
+        discard(session);
+      }
+    }
+  }
+
+  /**
+   * Removes expired sessions, along with any staged files not belonging to a session.
+   */
+  @Scheduled(fixedDelayString = "${upload.chunked.cleanup-interval:PT1H}")
+  public void collectExpired() {
+    long cutoff = System.currentTimeMillis() - timeToLive.toMillis();
+    List<Path> files;
+    try (Stream<Path> stream = Files.list(stagingDirectory)) {
+      files = stream.collect(Collectors.toList());
+    } catch (IOException e) {
+      logger.warn("Unable to list staged uploads", e);
+      return;
+    }
+    int removed = 0;
+    for (Path file : files) {
+      String filename = file.getFileName().toString();
+      if (file.toFile().lastModified() < cutoff) {
+        UUID id = parseId(filename);
+        Session session = (id != null) ? sessions.get(id) : null;
+        if (session != null) {
+          synchronized (session) {
+            if (!session.isDiscarded()
+                && session.getExpires().getTime() <= System.currentTimeMillis()) {
+              discard(session);
+              removed++;
+            }
+          }
+        } else if (id == null || !Files.exists(contentPath(id))
+            || contentPath(id).toFile().lastModified() < cutoff) {
+          try {
+            if (Files.deleteIfExists(file) && filename.endsWith(METADATA_SUFFIX)) {
+              removed++;
+            }
+          } catch (IOException e) {
+            logger.warn("Unable to remove staged upload file {}", file, e);
+          }
+        }
+      }
+    }
+    if (removed > 0) {
+      logger.info("Removed {} expired upload sessions", removed);
+    }
+  }
+
+  private void checkLimits(UUID contributorId, long size) {
+    long now = System.currentTimeMillis();
+    int count = 0;
+    long staged = 0;
+    for (Session session : sessions.values()) {
+      if (session.getContributorId().equals(contributorId) && !session.isDiscarded()
+          && session.getExpires().getTime() > now) {
+        count++;
+        staged += session.getSize();
+      }
+    }
+    if (count >= maxSessions) {
+      throw new SessionLimitException(SessionLimitException.TOO_MANY_SESSIONS_REASON);
+    }
+    if (staged + size > maxStagedSize) {
+      throw new SessionLimitException(SessionLimitException.TOO_MUCH_STAGED_REASON);
+    }
+  }
+
+  private void checkActive(Session session) {
+    if (session.isDiscarded()) {
+      throw new SessionNotFoundException();
+    }
+  }
+
+  private void discard(Session session) {
+    session.discard();
+    sessions.remove(session.getId(), session);
+    try {
+      Files.deleteIfExists(metadataPath(session.getId()));
+      Files.deleteIfExists(contentPath(session.getId()));
+    } catch (IOException e) {
+      logger.warn("Unable to remove staged upload {}", session.getId(), e);
+    }
+  }
+
+  private void loadStaged() {
+    List<UUID> ids;
+    try (Stream<Path> stream = Files.list(stagingDirectory)) {
+      ids = stream
+          .map((file) -> file.getFileName().toString())
+          .filter((filename) -> filename.endsWith(METADATA_SUFFIX))
+          .map(this::parseId)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      logger.warn("Unable to list staged uploads", e);
+      return;
+    }
+    for (UUID id : ids) {
+      try {
+        sessions.computeIfAbsent(id, this::load);
+      } catch (UncheckedIOException e) {
+        logger.warn("Unable to read upload session {}", id, e);
+      }
+    }
+  }
+
+  private Session load(UUID id) {
+    Path metadata = metadataPath(id);
+    Path content = contentPath(id);
+    Session session;
+    try (Reader reader = Files.newBufferedReader(metadata, StandardCharsets.UTF_8)) {
+      Properties properties = new Properties();
+      properties.load(reader);
+      session = new Session(id,
+          UUID.fromString(properties.getProperty(CONTRIBUTOR_KEY)),
+          properties.getProperty(FILENAME_KEY),
+          properties.getProperty(CONTENT_TYPE_KEY),
+          Long.parseLong(properties.getProperty(SIZE_KEY)),
+          properties.getProperty(DIGEST_KEY),
+          properties.getProperty(TITLE_KEY),
+          properties.getProperty(DESCRIPTION_KEY));
+      long lastModified =
+          Math.max(metadata.toFile().lastModified(), content.toFile().lastModified());
+      session.restore(Files.size(content), new Date(lastModified + timeToLive.toMillis()));
+    } catch (NoSuchFileException e) {
+      session = null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return session;
+  }
+
+  private void writeMetadata(Session session) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(CONTRIBUTOR_KEY, session.getContributorId().toString());
+    properties.setProperty(SIZE_KEY, String.valueOf(session.getSize()));
+    setIfPresent(properties, FILENAME_KEY, session.getFilename());
+    setIfPresent(properties, CONTENT_TYPE_KEY, session.getContentType());
+    setIfPresent(properties, DIGEST_KEY, session.getDigest());
+    setIfPresent(properties, TITLE_KEY, session.getTitle());
+    setIfPresent(properties, DESCRIPTION_KEY, session.getDescription());
+    Path target = metadataPath(session.getId());
+    Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      properties.store(writer, null);
+    }
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void setIfPresent(Properties properties, String key, String value) {
+    if (value != null) {
+      properties.setProperty(key, value);
+    }
+  }
+
+  private UUID parseId(String filename) {
+    int delimiter = filename.indexOf('.');
+    try {
+      return (delimiter > 0) ? UUID.fromString(filename.substring(0, delimiter)) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private Path contentPath(UUID id) {
+    return stagingDirectory.resolve(id + CONTENT_SUFFIX);
+  }
+
+  private Path metadataPath(UUID id) {
+    return stagingDirectory.resolve(id + METADATA_SUFFIX);
+  }
+
+  /**
+   * Properties of a file to be uploaded in chunks, as specified by the client when creating a
+   * session. The {@code size} is required; the hex-encoded SHA-256 {@code digest} is optional, but
+   * if present, the completed upload is rejected unless its content matches.
+   */
+  public static class SessionRequest {
+
+    private String filename;
+    private String contentType;
+    private long size;
+    private String digest;
+    private String title;
+    private String description;
+
+    public String getFilename() {
+      return filename;
+    }
+
+    public void setFilename(String filename) {
+      this.filename = filename;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public void setContentType(String contentType) {
+      this.contentType = contentType;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public void setSize(long size) {
+      this.size = size;
+    }
+
+    public String getDigest() {
+      return digest;
+    }
+
+    public void setDigest(String digest) {
+      this.digest = digest;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public void setTitle(String title) {
+      this.title = title;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public void setDescription(String description) {
+      this.description = description;
+    }
+
+  }
+
+  /**
+   * State of a single upload session. The {@code offset} is the number of bytes received so far,
+   * and is the position at which the next chunk should start.
+   */
+  @JsonPropertyOrder({"id", "filename", "contentType", "size", "offset", "expires"})
+  public static class Session {
+
+    private final UUID id;
+    @JsonIgnore
+    private final UUID contributorId;
+    private final String filename;
+    private final String contentType;
+    private final long size;
+    @JsonIgnore
+    private final String digest;
+    @JsonIgnore
+    private final String title;
+    @JsonIgnore
+    private final String description;
+    private long offset;
+    private Date expires;
+    private boolean discarded;
+    private boolean writing;
+
+    private Session(UUID id, UUID contributorId, String filename, String contentType, long size,
+        String digest, String title, String description) {
+      this.id = id;
+      this.contributorId = contributorId;
+      this.filename = filename;
+      this.contentType = contentType;
+      this.size = size;
+      this.digest = digest;
+      this.title = title;
+      this.description = description;
+    }
+
+    public UUID getId() {
+      return id;
+    }
+
+    public UUID getContributorId() {
+      return contributorId;
+    }
+
+    public String getFilename() {
+      return filename;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public String getDigest() {
+      return digest;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public synchronized long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Returns the time at which this session expires, if no further content is received.
+     */
+    public synchronized Date getExpires() {
+      return expires;
+    }
+
+    @JsonIgnore
+    public synchronized boolean isDiscarded() {
+      return discarded;
+    }
+
+    private synchronized void touch(long offset, Duration timeToLive) {
+      this.offset = offset;
+      expires = new Date(System.currentTimeMillis() + timeToLive.toMillis());
+    }
+
+    private synchronized boolean isWriting() {
+      return writing;
+    }
+
+    private synchronized boolean beginWrite() {
+      if (writing) {
+        return false;
+      }
+      writing = true;
+      return true;
+    }
+
+    private synchronized void endWrite(long offset, Duration timeToLive) {
+      writing = false;
+      touch(offset, timeToLive);
+    }
+
+    private synchronized void restore(long offset, Date expires) {
+      this.offset = offset;
+      this.expires = expires;
+    }
+
+    private synchronized void discard() {
+      discarded = true;
+    }
+
+  }
+
+  /**
+   * Thrown when a referenced session does not exist, or has expired or been completed.
+   */
+  public static class SessionNotFoundException extends ResponseStatusException {
+
+    private static final String NOT_FOUND_REASON = "Upload session not found";
+
+    public SessionNotFoundException() {
+      super(HttpStatus.NOT_FOUND, NOT_FOUND_REASON);
+    }
+
+  }
+
+  /**
+   * Thrown when the properties specified for a new session are invalid.
+   */
+  public static class InvalidSessionException extends ResponseStatusException {
+
+    public InvalidSessionException(String reason) {
+      super(HttpStatus.BAD_REQUEST, reason);
+    }
+
+  }
+
+  /**
+   * Thrown when a chunk starts beyond the content received so far; the reason includes the offset
+   * at which the next chunk should start.
+   */
+  public static class OffsetMismatchException extends ResponseStatusException {
+
+    private static final String REASON_FORMAT = "Chunk must start at or before offset %d";
+
+    public OffsetMismatchException(long offset) {
+      super(HttpStatus.CONFLICT, String.format(REASON_FORMAT, offset));
+    }
+
+  }
+
+  /**
+   * Thrown when a chunk is sent, or completion is requested, while another chunk is still being
+   * written to the same session.
+   */
+  public static class ChunkInProgressException extends ResponseStatusException {
+
+    private static final String IN_PROGRESS_REASON = "Another chunk is being written";
+
+    public ChunkInProgressException() {
+      super(HttpStatus.CONFLICT, IN_PROGRESS_REASON);
+    }
+
+  }
+
+  /**
+   * Thrown when a contributor has too many open sessions, or too much content declared for them.
+   */
+  public static class SessionLimitException extends ResponseStatusException {
+
+    private static final String TOO_MANY_SESSIONS_REASON = "Too many open upload sessions";
+    private static final String TOO_MUCH_STAGED_REASON =
+        "Open upload sessions exceed the allowed total size";
+
+    private SessionLimitException(String reason) {
+      super(HttpStatus.TOO_MANY_REQUESTS, reason);
+    }
+
+  }
+
+  /**
+   * Thrown when an attempt is made to complete a session before all content has been received.
+   */
+  public static class IncompleteUploadException extends ResponseStatusException {
+
+    private static final String REASON_FORMAT = "Upload incomplete; %d bytes received";
+
+    public IncompleteUploadException(long offset) {
+      super(HttpStatus.CONFLICT, String.format(REASON_FORMAT, offset));
+    }
+
+  }
+
+  /**
+   * Thrown when the declared size of a file, or the content received, exceeds the allowed size.
+   */
+  public static class UploadTooLargeException extends ResponseStatusException {
+
+    private static final String TOO_LARGE_REASON = "Upload exceeds declared or maximum size";
+
+    public UploadTooLargeException() {
+      super(HttpStatus.PAYLOAD_TOO_LARGE, TOO_LARGE_REASON);
+    }
+
+  }
+
+  /**
+   * Thrown when the content received does not match the digest declared for the session.
+   */
+  public static class DigestMismatchException extends ResponseStatusException {
+
+    private static final String MISMATCH_REASON = "Uploaded content does not match digest";
+
+    public DigestMismatchException() {
+      super(HttpStatus.UNPROCESSABLE_ENTITY, MISMATCH_REASON);
+    }
+
+  }
+
+}
@@ -2,48 +2,143 @@ package edu.cnm.deepdive.deepdivegallery.service;
 
 import edu.cnm.deepdive.deepdivegallery.model.dao.UserRepository;
 import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.EntityStreams.EntityConsumer;
+import edu.cnm.deepdive.deepdivegallery.util.ExpiringCache;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.util.Streamable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class UserService implements Converter<Jwt, UsernamePasswordAuthenticationToken> {
 
+  private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
   private final UserRepository userRepository;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final ExpiringCache<String, UUID> principals;
+  private final ConcurrentMap<UUID, Date> connections;
+  private final Set<String> adminSubjects;
 
   @Autowired
-  public UserService(UserRepository userRepository) {
+  public UserService(UserRepository userRepository, EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      @Value("${principal-cache.max-size:10000}") int cacheSize,
+      @Value("${principal-cache.time-to-live:PT5M}") Duration cacheTimeToLive,
+      @Value("${security.admin-subjects:}") Set<String> adminSubjects) {
     this.userRepository = userRepository;
+    this.entityManager = entityManager;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    principals = new ExpiringCache<>(cacheSize, cacheTimeToLive);
+    connections = new ConcurrentHashMap<>();
+    this.adminSubjects = adminSubjects;
+  }
+
+  @PreDestroy
+  private void shutdown() {
+    flushConnections();
   }
 
+  /**
+   * Returns the {@link User} with the specified OAuth key, creating it if necessary. The unique
+   * identifier of the user is cached (by OAuth key) for a limited time after it is read or created,
+   * so that repeated requests by the same user do not require a query by OAuth key; the user is
+   * then read by identifier, which is served by the second-level entity cache. Each invocation
+   * returns a separate instance, so that no {@link User} is shared between requests. The user's
+   * {@code connected} timestamp is updated immediately in the returned instance, but is only
+   * written to the database by the next invocation of {@link #flushConnections()}.
+   *
+   * @param oauthKey    Subject identifier of the OAuth token.
+   * @param displayName Name used if a new user is created.
+   * @return Existing or newly created {@link User}.
+   */
   public User getOrCreate(String oauthKey, String displayName) {
-    return userRepository.findFirstByOauthKey(oauthKey)
-        .map((user) -> {
-          user.setConnected(new Date());
-          return userRepository.save(user);
-        })
-        .orElseGet(() -> {
-          User user = new User();
-          user.setOauthKey(oauthKey);
-          user.setDisplayName(displayName);
-          user.setConnected(new Date());
-          return userRepository.save(user);
-        });
+    UUID id = principals.get(oauthKey);
+    User user = (id != null) ? userRepository.findById(id).orElse(null) : null;
+    if (user == null) {
+      user = userRepository.findFirstByOauthKey(oauthKey)
+          .orElseGet(() -> {
+            User created = new User();
+            created.setOauthKey(oauthKey);
+            created.setDisplayName(displayName);
+            created.setConnected(new Date());
+            return userRepository.save(created);
+          });
+      principals.put(oauthKey, user.getId());
+    }
+    Date now = new Date();
+    user.setConnected(now);
+    connections.put(user.getId(), now);
+    return user;
   }
 
+  /**
+   * Writes pending {@code connected} timestamps to the database, in a single transaction. This is
+   * invoked periodically (as specified by the {@code principal-cache.flush-interval} property), and
+   * on shutdown.
+   */
+  @Scheduled(fixedDelayString = "${principal-cache.flush-interval:PT30S}")
+  public void flushConnections() {
+    Map<UUID, Date> batch = new HashMap<>();
+    for (UUID id : connections.keySet()) {
+      Date connected = connections.get(id);
+      // Only remove the timestamp read; a newer one recorded concurrently is left for next time.
+      if (connected != null && connections.remove(id, connected)) {
+        batch.put(id, connected);
+      }
+    }
+    if (!batch.isEmpty()) {
+      try {
+        transactionTemplate.executeWithoutResult((status) ->
+            userRepository.findAllById(batch.keySet())
+                .forEach((user) -> user.setConnected(batch.get(user.getId())))
+        );
+      } catch (RuntimeException e) {
+        logger.warn("Unable to record {} connection timestamps; will retry", batch.size(), e);
+        batch.forEach(connections::putIfAbsent);
+      }
+    }
+  }
+
+  /**
+   * Converts a validated bearer token to an authentication token, with the corresponding {@link
+   * User} as the principal. Every user is granted the {@code USER} role; users whose OAuth subject
+   * is listed in the {@code security.admin-subjects} property are also granted the {@code ADMIN}
+   * role.
+   */
   @Override
   public UsernamePasswordAuthenticationToken convert(Jwt jwt) {
-    Collection<SimpleGrantedAuthority> grants =
-        Collections.singleton(new SimpleGrantedAuthority("ROLE_USER"));
+    Collection<SimpleGrantedAuthority> grants = new ArrayList<>();
+    grants.add(new SimpleGrantedAuthority("ROLE_USER"));
+    if (adminSubjects.contains(jwt.getSubject())) {
+      grants.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+    }
     return new UsernamePasswordAuthenticationToken(
         getOrCreate(jwt.getSubject(), jwt.getClaim("name")), jwt.getTokenValue(), grants);
   }
@@ -56,6 +151,21 @@ public class UserService implements Converter<Jwt, UsernamePasswordAuthenticatio
     return userRepository.getAllByOrderByDisplayName();
   }
 
+  /**
+   * Passes all users, in display name order, to {@code consumer}, as they are read from the
+   * database. Each user is detached after it has been consumed, so that memory use does not grow
+   * with the number of users.
+   *
+   * @param consumer Recipient of each user.
+   * @throws IOException If thrown by {@code consumer}.
+   */
+  @Transactional(readOnly = true)
+  public void forEach(EntityConsumer<? super User> consumer) throws IOException {
+    try (Stream<User> users = userRepository.streamAll()) {
+      EntityStreams.forEach(users, entityManager, consumer);
+    }
+  }
+
   public User save(User user) {
     return userRepository.save(user);
   }
@@ -0,0 +1,120 @@
+package edu.cnm.deepdive.deepdivegallery.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.lang.NonNull;
+
+/**
+ * Thread-safe, size-bounded cache whose entries expire after a fixed time-to-live (or at an
+ * explicitly specified instant). When the cache is full, the least recently accessed entry is
+ * evicted; expired entries are removed when they are next accessed.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class ExpiringCache<K, V> {
+
+  private final int maxSize;
+  private final Duration timeToLive;
+  private final Clock clock;
+  private final Map<K, CachedValue<V>> entries;
+
+  /**
+   * Initializes this cache with the specified capacity and default time-to-live.
+   *
+   * @param maxSize    Maximum number of entries.
+   * @param timeToLive Time after which entries added by {@link #put(Object, Object)} expire.
+   */
+  public ExpiringCache(int maxSize, @NonNull Duration timeToLive) {
+    this(maxSize, timeToLive, Clock.systemUTC());
+  }
+
+  /**
+   * Initializes this cache with the specified capacity, default time-to-live, and clock.
+   *
+   * @param maxSize    Maximum number of entries.
+   * @param timeToLive Time after which entries added by {@link #put(Object, Object)} expire.
+   * @param clock      Source of current time, used to determine expiry.
+   */
+  public ExpiringCache(int maxSize, @NonNull Duration timeToLive, @NonNull Clock clock) {
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+    entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+        return size() > ExpiringCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the value cached for {@code key}, or {@code null} if there is none, or it has expired.
+   */
+  public synchronized V get(@NonNull K key) {
+    CachedValue<V> entry = entries.get(key);
+    V value = null;
+    if (entry != null) {
+      if (clock.instant().isBefore(entry.expiry)) {
+        value = entry.value;
+      } else {
+        entries.remove(key);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Caches {@code value} for {@code key}, expiring after the default time-to-live.
+   */
+  public void put(@NonNull K key, @NonNull V value) {
+    put(key, value, clock.instant().plus(timeToLive));
+  }
+
+  /**
+   * Caches {@code value} for {@code key}, expiring at the earlier of {@code expiry} and the end of
+   * the default time-to-live.
+   */
+  public synchronized void put(@NonNull K key, @NonNull V value, @NonNull Instant expiry) {
+    Instant limit = clock.instant().plus(timeToLive);
+    entries.put(key, new CachedValue<>(value, expiry.isBefore(limit) ? expiry : limit));
+  }
+
+  /**
+   * Removes any value cached for {@code key}.
+   */
+  public synchronized void remove(@NonNull K key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of entries currently held, including any that have expired but have not yet
+   * been removed.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private static class CachedValue<V> {
+
+    private final V value;
+    private final Instant expiry;
+
+    private CachedValue(V value, Instant expiry) {
+      this.value = value;
+      this.expiry = expiry;
+    }
+
+  }
+
+}
@@ -7,7 +7,7 @@ import java.util.UUID;
 import org.springframework.lang.NonNull;
 
 @JsonPropertyOrder({"id", "created", "updated", "path", "name", "title", "contentType","gallery",
-    "description", "href"})
+    "description", "width", "height", "orientation", "href"})
 public interface FlatImage {
 
   UUID getId();
@@ -27,5 +27,11 @@ public interface FlatImage {
 
   String getDescription();
 
+  Integer getWidth();
+
+  Integer getHeight();
+
+  Integer getOrientation();
+
   URI getHref();
 }
@@ -0,0 +1,48 @@
+package edu.cnm.deepdive.deepdivegallery.view;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Read-only projection of an {@link edu.cnm.deepdive.deepdivegallery.model.entity.Image} as a
+ * member of a gallery, including its position in the gallery. As with {@link ImageSummary},
+ * instances are constructed directly from the selected columns.
+ */
+public class GalleryItem extends ImageSummary {
+
+  /**
+   * JPQL constructor expression selecting a {@code GalleryItem} from a {@link
+   * edu.cnm.deepdive.deepdivegallery.model.entity.GalleryImage} aliased as {@code gi}, joined to
+   * its image, aliased as {@code i}, and the contributor of the image, aliased as {@code c}.
+   */
+  public static final String CONSTRUCTOR_EXPRESSION =
+      "new edu.cnm.deepdive.deepdivegallery.view.GalleryItem(gi.position, "
+          + "i.id, i.created, i.updated, i.title, i.name, i.path, i.contentType, i.description, "
+          + "i.width, i.height, i.orientation, "
+          + "c.id, c.created, c.updated, c.connected, c.displayName)";
+
+  private final long position;
+
+  /**
+   * Initializes this instance with the specified position and image and contributor properties, in
+   * the order selected by {@link #CONSTRUCTOR_EXPRESSION}.
+   */
+  public GalleryItem(long position, UUID id, Date created, Date updated, String title,
+      String name, String path, String contentType, String description, Integer width,
+      Integer height, Integer orientation, UUID contributorId, Date contributorCreated,
+      Date contributorUpdated, Date contributorConnected, String contributorDisplayName) {
+    super(id, created, updated, title, name, path, contentType, description, width, height,
+        orientation, contributorId, contributorCreated, contributorUpdated, contributorConnected,
+        contributorDisplayName);
+    this.position = position;
+  }
+
+  /**
+   * Returns the position key of this image in the gallery; images are listed in ascending order of
+   * position.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+}
@@ -0,0 +1,195 @@
+package edu.cnm.deepdive.deepdivegallery.view;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import java.net.URI;
+import java.util.Date;
+import java.util.UUID;
+import org.springframework.lang.NonNull;
+
+/**
+ * Read-only projection of an {@link Image} and its contributor, as returned by listing and search
+ * queries. Instances are constructed directly from the selected columns (using a JPQL constructor
+ * expression), so they are never managed by the persistence context: loading them involves no
+ * entity hydration, snapshot for dirty checking, or eager association fetch. The JSON
+ * representation is the same as that of {@link Image}.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonPropertyOrder({"id", "title", "description", "href", "created", "contributor", "name",
+    "width", "height", "orientation"})
+public class ImageSummary implements FlatImage {
+
+  /**
+   * JPQL constructor expression selecting an {@code ImageSummary} from an {@link Image} aliased as
+   * {@code i}, joined to its contributor, aliased as {@code c}.
+   */
+  public static final String CONSTRUCTOR_EXPRESSION =
+      "new edu.cnm.deepdive.deepdivegallery.view.ImageSummary("
+          + "i.id, i.created, i.updated, i.title, i.name, i.path, i.contentType, i.description, "
+          + "i.width, i.height, i.orientation, "
+          + "c.id, c.created, c.updated, c.connected, c.displayName)";
+
+  private final UUID id;
+  private final Date created;
+  private final Date updated;
+  private final String title;
+  private final String name;
+  private final String path;
+  private final String contentType;
+  private final String description;
+  private final Integer width;
+  private final Integer height;
+  private final Integer orientation;
+  private final Contributor contributor;
+
+  /**
+   * Initializes this instance with the specified image and contributor properties, in the order
+   * selected by {@link #CONSTRUCTOR_EXPRESSION}.
+   */
+  public ImageSummary(UUID id, Date created, Date updated, String title, String name,
+      String path, String contentType, String description, Integer width, Integer height,
+      Integer orientation, UUID contributorId, Date contributorCreated, Date contributorUpdated,
+      Date contributorConnected, String contributorDisplayName) {
+    this.id = id;
+    this.created = created;
+    this.updated = updated;
+    this.title = title;
+    this.name = name;
+    this.path = path;
+    this.contentType = contentType;
+    this.description = description;
+    this.width = width;
+    this.height = height;
+    this.orientation = orientation;
+    contributor = new Contributor(contributorId, contributorCreated, contributorUpdated,
+        contributorConnected, contributorDisplayName);
+  }
+
+  @Override
+  public UUID getId() {
+    return id;
+  }
+
+  @Override
+  public Date getCreated() {
+    return created;
+  }
+
+  @Override
+  public Date getUpdated() {
+    return updated;
+  }
+
+  /**
+   * Returns the storage reference of the image content. As with {@link Image}, this is not included
+   * in the JSON representation.
+   */
+  @Override
+  @JsonIgnore
+  public String getPath() {
+    return path;
+  }
+
+  @NonNull
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getTitle() {
+    return title;
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public String getDescription() {
+    return description;
+  }
+
+  @Override
+  public Integer getWidth() {
+    return width;
+  }
+
+  @Override
+  public Integer getHeight() {
+    return height;
+  }
+
+  @Override
+  public Integer getOrientation() {
+    return orientation;
+  }
+
+  /**
+   * Returns the {@link edu.cnm.deepdive.deepdivegallery.model.entity.User} that contributed this
+   * image.
+   */
+  @JsonSerialize(as = FlatUser.class)
+  public FlatUser getContributor() {
+    return contributor;
+  }
+
+  /**
+   * Returns the location of REST resource representation of this image.
+   */
+  @Override
+  public URI getHref() {
+    return Image.getHref(id);
+  }
+
+  private static class Contributor implements FlatUser {
+
+    private final UUID id;
+    private final Date created;
+    private final Date updated;
+    private final Date connected;
+    private final String displayName;
+
+    private Contributor(
+        UUID id, Date created, Date updated, Date connected, String displayName) {
+      this.id = id;
+      this.created = created;
+      this.updated = updated;
+      this.connected = connected;
+      this.displayName = displayName;
+    }
+
+    @Override
+    public UUID getId() {
+      return id;
+    }
+
+    @Override
+    public Date getCreated() {
+      return created;
+    }
+
+    @Override
+    public Date getUpdated() {
+      return updated;
+    }
+
+    @Override
+    public Date getConnected() {
+      return connected;
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return displayName;
+    }
+
+  }
+
+}
@@ -0,0 +1,64 @@
+package edu.cnm.deepdive.deepdivegallery.view;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.server.EntityLinks;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Renders the {@code href} links of item resources without building a link through {@link
+ * EntityLinks} for every item. The collection link for each resource type (which depends on the
+ * scheme, host, and context path of the current request) is resolved through {@link EntityLinks}
+ * at most once per request, and cached as a request attribute; the link for each item is then
+ * formed by appending its identifier to that prefix. Outside of a request (e.g. in a background
+ * task), links are resolved through {@link EntityLinks} directly.
+ */
+@Component
+public class ItemLinks {
+
+  private static final String PREFIXES_ATTRIBUTE = ItemLinks.class.getName() + ".PREFIXES";
+  private static final String PATH_DELIMITER = "/";
+
+  private final EntityLinks entityLinks;
+
+  @Autowired
+  public ItemLinks(
+      @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EntityLinks entityLinks) {
+    this.entityLinks = entityLinks;
+  }
+
+  /**
+   * Returns the location of the REST resource representation of the item of the specified type and
+   * identifier, or {@code null} if {@code id} is {@code null}.
+   *
+   * @param type Resource type, as exposed by a controller with {@link
+   *             org.springframework.hateoas.server.ExposesResourceFor}.
+   * @param id   Unique identifier of item.
+   * @return Item resource location.
+   */
+  public URI linkForItem(@NonNull Class<?> type, Object id) {
+    if (id == null) {
+      return null;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return entityLinks.linkForItemResource(type, id).toUri();
+    }
+    @SuppressWarnings("unchecked")
+    Map<Class<?>, String> prefixes = (Map<Class<?>, String>)
+        attributes.getAttribute(PREFIXES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (prefixes == null) {
+      prefixes = new HashMap<>();
+      attributes.setAttribute(PREFIXES_ATTRIBUTE, prefixes, RequestAttributes.SCOPE_REQUEST);
+    }
+    String prefix = prefixes.computeIfAbsent(type, (key) ->
+        entityLinks.linkToCollectionResource(key).getHref() + PATH_DELIMITER);
+    return URI.create(prefix + id);
+  }
+
+}
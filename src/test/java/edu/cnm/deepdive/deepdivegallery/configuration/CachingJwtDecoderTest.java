@@ -0,0 +1,99 @@
+package edu.cnm.deepdive.deepdivegallery.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+class CachingJwtDecoderTest {
+
+  private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+
+  private final JwtDecoder delegate = mock(JwtDecoder.class);
+
+  @Test
+  void decode_repeatedToken_decodedOnce() {
+    Jwt jwt = jwt("a", Instant.now().plusSeconds(600));
+    when(delegate.decode("a")).thenReturn(jwt);
+    CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, TIME_TO_LIVE);
+    assertSame(jwt, decoder.decode("a"));
+    assertSame(jwt, decoder.decode("a"));
+    verify(delegate, times(1)).decode("a");
+  }
+
+  @Test
+  void decode_expiredToken_decodedAgain() {
+    Jwt jwt = jwt("a", Instant.now().minusSeconds(1));
+    when(delegate.decode("a")).thenReturn(jwt);
+    CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, TIME_TO_LIVE);
+    decoder.decode("a");
+    decoder.decode("a");
+    verify(delegate, times(2)).decode("a");
+  }
+
+  @Test
+  void decode_tokenWithoutExpiry_notCached() {
+    Jwt jwt = jwt("a", null);
+    when(delegate.decode("a")).thenReturn(jwt);
+    CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, TIME_TO_LIVE);
+    decoder.decode("a");
+    decoder.decode("a");
+    verify(delegate, times(2)).decode("a");
+  }
+
+  @Test
+  void decode_invalidToken_notCached() {
+    when(delegate.decode("bad")).thenThrow(new BadJwtException("invalid"));
+    CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, TIME_TO_LIVE);
+    assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+    assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+    verify(delegate, times(2)).decode("bad");
+  }
+
+  @Test
+  void decode_beyondMaxSize_cacheBounded() {
+    int maxSize = 20;
+    int tokens = 10 * maxSize;
+    Instant expiry = Instant.now().plusSeconds(600);
+    Map<String, Integer> decodes = new HashMap<>();
+    JwtDecoder counting = (token) -> {
+      decodes.merge(token, 1, Integer::sum);
+      return jwt(token, expiry);
+    };
+    CachingJwtDecoder decoder = new CachingJwtDecoder(counting, maxSize, TIME_TO_LIVE);
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < tokens; i++) {
+        decoder.decode("t" + i);
+      }
+    }
+    // Only tokens still cached after the first pass are not decoded again in the second.
+    long hits = decodes.values().stream()
+        .filter((count) -> count == 1)
+        .count();
+    assertTrue(hits <= maxSize, () -> hits + " cache hits");
+  }
+
+  private static Jwt jwt(String token, Instant expiry) {
+    Jwt.Builder builder = Jwt.withTokenValue(token)
+        .header("alg", "RS256")
+        .subject("subject")
+        .issuedAt(Instant.now().minusSeconds(60));
+    if (expiry != null) {
+      builder.expiresAt(expiry);
+    }
+    return builder.build();
+  }
+
+}
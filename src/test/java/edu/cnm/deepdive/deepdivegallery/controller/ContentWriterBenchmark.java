@@ -0,0 +1,168 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Compares the cost of writing image content with {@link ContentWriter} against the previous
+ * {@code ResponseEntity<Resource>} path, in which Spring's {@link ResourceHttpMessageConverter}
+ * copies a {@link UrlResource} to the response. For each content size, the throughput (responses
+ * per second) and the bytes allocated per response on the writing thread are reported for:
+ * <ul>
+ *   <li>the previous path;</li>
+ *   <li>{@link ContentWriter}, copying with {@code transferTo} (no container {@code sendfile}
+ *   support); and</li>
+ *   <li>{@link ContentWriter}, handing the file to the container's {@code sendfile} support.</li>
+ * </ul>
+ * Responses are written to an output stream that counts and discards its content, so the figures
+ * reflect only the work done in the JVM; in particular, the {@code sendfile} figures exclude the
+ * container's own write to the socket, which needs a running container to measure. Content
+ * smaller than the {@code sendfile} threshold is copied by {@link ContentWriter} in both cases.
+ * <p>
+ * Not run with the unit tests (the class name does not match the Surefire test patterns); run
+ * with {@code mvn test -Dtest=ContentWriterBenchmark}. The {@code benchmark.sizes} (comma-separated
+ * byte counts) and {@code benchmark.iterations} system properties override the defaults.</p>
+ */
+class ContentWriterBenchmark {
+
+  private static final String DEFAULT_SIZES = "16384,262144,4194304";
+  private static final int DEFAULT_ITERATIONS = 2000;
+  private static final String CONTENT_TYPE = "image/jpeg";
+  private static final String DISPOSITION = "inline; filename=\"image.jpg\"";
+  private static final String ETAG = "\"benchmark\"";
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String RESULT_FORMAT = "%-10d %-22s %,14.0f responses/s %,14d B/response%n";
+
+  private final ContentWriter writer = new ContentWriter();
+  private final ResourceHttpMessageConverter converter = new ResourceHttpMessageConverter();
+  private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void compare() throws IOException {
+    int iterations = Integer.getInteger("benchmark.iterations", DEFAULT_ITERATIONS);
+    List<Integer> sizes = Arrays.stream(
+            System.getProperty("benchmark.sizes", DEFAULT_SIZES).split(","))
+        .map(String::trim)
+        .map(Integer::valueOf)
+        .collect(Collectors.toList());
+    for (int size : sizes) {
+      byte[] content = new byte[size];
+      new Random(size).nextBytes(content);
+      Path file = Files.write(directory.resolve(size + ".jpg"), content);
+      measure(size, "ResponseEntity<Resource>", iterations, () -> {
+        CountingResponse response = new CountingResponse();
+        converter.write(new UrlResource(file.toUri()), MediaType.IMAGE_JPEG,
+            new ServletServerHttpResponse(response));
+        return response.count;
+      });
+      measure(size, "ContentWriter", iterations,
+          () -> write(new FileSystemResource(file), new MockHttpServletRequest()));
+      measure(size, "ContentWriter sendfile", iterations, () -> {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(SENDFILE_SUPPORT, Boolean.TRUE);
+        write(new FileSystemResource(file), request);
+        return size;
+      });
+    }
+  }
+
+  private long write(Resource resource, MockHttpServletRequest request) throws IOException {
+    CountingResponse response = new CountingResponse();
+    writer.write(resource, CONTENT_TYPE, DISPOSITION, ETAG, 0, request, response);
+    return response.count;
+  }
+
+  /**
+   * Runs {@code path} for a warm-up round and then a measured round of {@code iterations}
+   * responses, verifying the number of bytes written by each, and reports the throughput and
+   * allocation per response of the measured round.
+   */
+  private void measure(int size, String name, int iterations, ResponsePath path)
+      throws IOException {
+    for (int i = 0; i < iterations; i++) {
+      assertEquals(size, path.write());
+    }
+    long threadId = Thread.currentThread().getId();
+    long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      path.write();
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+    System.out.printf(RESULT_FORMAT, size, name, iterations * 1e9 / elapsed,
+        allocated / iterations);
+  }
+
+  /**
+   * Writes a single response, returning the number of content bytes written to it.
+   */
+  @FunctionalInterface
+  private interface ResponsePath {
+
+    long write() throws IOException;
+
+  }
+
+  /**
+   * Response whose output stream counts and discards the bytes written to it.
+   */
+  private static class CountingResponse extends MockHttpServletResponse {
+
+    private long count;
+
+    private final ServletOutputStream output = new ServletOutputStream() {
+
+      @Override
+      public void write(int b) {
+        count++;
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        count += len;
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+      }
+
+    };
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      return output;
+    }
+
+  }
+
+}
@@ -0,0 +1,215 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ContentWriterTest {
+
+  private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+  private static final String CONTENT_TYPE = "image/png";
+  private static final String DISPOSITION = "attachment; filename=\"digits.png\"";
+  private static final String ETAG = "\"abc123\"";
+  private static final long LAST_MODIFIED = 1_600_000_000_000L;
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final ContentWriter writer = new ContentWriter();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void write_noRange_fullContent() throws IOException {
+    MockHttpServletResponse response = write(request());
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(CONTENT.length, response.getContentLengthLong());
+    assertEquals(CONTENT_TYPE, response.getContentType());
+    assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+    assertEquals(DISPOSITION, response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertArrayEquals(CONTENT, response.getContentAsByteArray());
+  }
+
+  @Test
+  void write_singleRange_partialContent() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals(4, response.getContentLengthLong());
+    assertEquals("2345", response.getContentAsString());
+  }
+
+  @Test
+  void write_suffixRange_lastBytes() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 7-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals("789", response.getContentAsString());
+  }
+
+  @Test
+  void write_openRangeBeyondEnd_clampedToLength() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=8-100");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 8-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals("89", response.getContentAsString());
+  }
+
+  @Test
+  void write_unsatisfiableRange_416() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+    assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void write_malformedRange_fullContent() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=abc");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertArrayEquals(CONTENT, response.getContentAsByteArray());
+  }
+
+  @Test
+  void write_multipleRanges_byteranges() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-1,6-7");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    String contentType = response.getContentType();
+    assertTrue(contentType.startsWith("multipart/byteranges; boundary="), contentType);
+    String boundary = contentType.substring(contentType.indexOf('=') + 1);
+    String expected = "\r\n--" + boundary + "\r\n"
+        + "Content-Type: image/png\r\n"
+        + "Content-Range: bytes 0-1/10\r\n\r\n"
+        + "01"
+        + "\r\n--" + boundary + "\r\n"
+        + "Content-Type: image/png\r\n"
+        + "Content-Range: bytes 6-7/10\r\n\r\n"
+        + "67"
+        + "\r\n--" + boundary + "--\r\n";
+    assertEquals(expected, response.getContentAsString());
+  }
+
+  @Test
+  void write_overlappingRangesExceedingLength_fullContent() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-8,1-9");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertArrayEquals(CONTENT, response.getContentAsByteArray());
+  }
+
+  @Test
+  void write_ifRangeMatchingEtag_partialContent() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-0");
+    request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("0", response.getContentAsString());
+  }
+
+  @Test
+  void write_ifRangeStaleEtag_fullContent() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-0");
+    request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertArrayEquals(CONTENT, response.getContentAsByteArray());
+  }
+
+  @Test
+  void write_ifRangeStaleDate_fullContent() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-0");
+    request.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED - 60_000);
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+  }
+
+  @Test
+  void write_ifNoneMatch_notModified() throws IOException {
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void write_head_headersWithoutBody() throws IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/content");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(CONTENT.length, response.getContentLengthLong());
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void write_fileRange_transferred() throws IOException {
+    Path file = Files.write(directory.resolve("digits.png"), CONTENT);
+    MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=3-4");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    writer.write(new FileSystemResource(file), CONTENT_TYPE, DISPOSITION, ETAG, LAST_MODIFIED,
+        request, response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("34", response.getContentAsString());
+    assertNull(request.getAttribute(SENDFILE_FILENAME));
+  }
+
+  @Test
+  void write_largeFileWithSendfile_delegatedToContainer() throws IOException {
+    byte[] content = new byte[64 * 1024];
+    Path file = Files.write(directory.resolve("large.png"), content);
+    MockHttpServletRequest request = request();
+    request.setAttribute(SENDFILE_SUPPORT, Boolean.TRUE);
+    request.addHeader(HttpHeaders.RANGE, "bytes=1024-");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    writer.write(new FileSystemResource(file), CONTENT_TYPE, DISPOSITION, ETAG, LAST_MODIFIED,
+        request, response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals(file.toAbsolutePath().toString(), request.getAttribute(SENDFILE_FILENAME));
+    assertEquals(1024L, request.getAttribute(SENDFILE_START));
+    assertEquals((long) content.length, request.getAttribute(SENDFILE_END));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  private MockHttpServletRequest request() {
+    return new MockHttpServletRequest("GET", "/content");
+  }
+
+  private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    writer.write(CONTENT, CONTENT_TYPE, DISPOSITION, ETAG, LAST_MODIFIED, request, response);
+    return response;
+  }
+
+}
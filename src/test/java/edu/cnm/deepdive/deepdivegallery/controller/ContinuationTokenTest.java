@@ -0,0 +1,51 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class ContinuationTokenTest {
+
+  @Test
+  void encode_decode_roundTrip() {
+    UUID id = UUID.randomUUID();
+    String encoded = new ContinuationToken("1609459200000", id).encode();
+    ContinuationToken token = ContinuationToken.decode(encoded);
+    assertEquals("1609459200000", token.getKey());
+    assertEquals(id, token.getId());
+  }
+
+  @Test
+  void encode_keyWithDelimiter_roundTrip() {
+    UUID id = UUID.randomUUID();
+    String key = "first line\nsecond line ✓";
+    ContinuationToken token = ContinuationToken.decode(new ContinuationToken(key, id).encode());
+    assertEquals(key, token.getKey());
+    assertEquals(id, token.getId());
+  }
+
+  @Test
+  void encode_urlSafeWithoutPadding() {
+    String encoded = new ContinuationToken("??>>", UUID.randomUUID()).encode();
+    assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="),
+        encoded);
+  }
+
+  @Test
+  void decode_malformed_illegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode("not base64!"));
+    assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode("key")));
+    assertThrows(IllegalArgumentException.class,
+        () -> ContinuationToken.decode(encode("key\nnot-a-uuid")));
+  }
+
+  private static String encode(String raw) {
+    return Base64.getUrlEncoder().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
@@ -0,0 +1,116 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+class KeysetPagingTest {
+
+  private static final UUID ID = UUID.randomUUID();
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void checkLimit_missingOrExcessive_defaultedOrClamped() {
+    assertEquals(100, KeysetPaging.checkLimit(null));
+    assertEquals(1, KeysetPaging.checkLimit(1));
+    assertEquals(1000, KeysetPaging.checkLimit(1000));
+    assertEquals(1000, KeysetPaging.checkLimit(Integer.MAX_VALUE));
+  }
+
+  @Test
+  void checkLimit_nonPositive_badRequest() {
+    assertBadRequest(() -> KeysetPaging.checkLimit(0));
+    assertBadRequest(() -> KeysetPaging.checkLimit(-1));
+  }
+
+  @Test
+  void parseToken_validOrMissing_decoded() {
+    assertNull(KeysetPaging.parseToken(null));
+    ContinuationToken token =
+        KeysetPaging.parseToken(new ContinuationToken("42", ID).encode());
+    assertEquals("42", token.getKey());
+    assertEquals(ID, token.getId());
+  }
+
+  @Test
+  void parseToken_malformed_badRequest() {
+    assertBadRequest(() -> KeysetPaging.parseToken("%%%"));
+  }
+
+  @Test
+  void parseKeys_valid_parsed() {
+    assertEquals(new Date(1609459200000L), KeysetPaging.parseTimestamp("1609459200000"));
+    assertEquals(-3, KeysetPaging.parsePosition("-3"));
+  }
+
+  @Test
+  void parseKeys_malformed_badRequest() {
+    assertBadRequest(() -> KeysetPaging.parseTimestamp("yesterday"));
+    assertBadRequest(() -> KeysetPaging.parsePosition("1.5"));
+  }
+
+  @Test
+  void page_noMoreItems_noNextLink() {
+    bindRequest();
+    ResponseEntity<List<Integer>> response =
+        KeysetPaging.page(List.of(1, 2, 3), 3, KeysetPagingTest::token);
+    assertEquals(List.of(1, 2, 3), response.getBody());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Test
+  void page_extraItem_truncatedWithNextLink() {
+    bindRequest();
+    ResponseEntity<List<Integer>> response =
+        KeysetPaging.page(List.of(1, 2, 3, 4), 3, KeysetPagingTest::token);
+    assertEquals(List.of(1, 2, 3), response.getBody());
+    Link link = Link.valueOf(response.getHeaders().getFirst(HttpHeaders.LINK));
+    assertTrue(link.hasRel(IanaLinkRelations.NEXT));
+    MultiValueMap<String, String> params =
+        UriComponentsBuilder.fromUriString(link.getHref()).build().getQueryParams();
+    assertEquals("3", params.getFirst(KeysetPaging.LIMIT_PARAM_NAME));
+    assertEquals("x", params.getFirst("q"));
+    assertEquals(1, params.get(KeysetPaging.AFTER_PARAM_NAME).size());
+    ContinuationToken next =
+        ContinuationToken.decode(params.getFirst(KeysetPaging.AFTER_PARAM_NAME));
+    assertEquals("3", next.getKey());
+  }
+
+  private static void bindRequest() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images");
+    request.setQueryString("q=x&after=old&limit=10");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  private static ContinuationToken token(int item) {
+    return new ContinuationToken(String.valueOf(item), ID);
+  }
+
+  private static void assertBadRequest(Runnable action) {
+    ResponseStatusException e = assertThrows(ResponseStatusException.class, action::run);
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+  }
+
+}
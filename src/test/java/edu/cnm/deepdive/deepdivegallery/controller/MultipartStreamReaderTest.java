@@ -0,0 +1,296 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.MalformedMultipartException;
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.Part;
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.RequestSizeLimitExceededException;
+import edu.cnm.deepdive.deepdivegallery.controller.MultipartStreamReader.SizeLimitExceededException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class MultipartStreamReaderTest {
+
+  private static final String BOUNDARY = "----test-boundary-1234";
+  private static final long UNLIMITED = Long.MAX_VALUE;
+
+  @Test
+  void next_fileAndTextParts_parsed() throws IOException {
+    byte[] file = {0x00, 0x01, '\r', '\n', '-', '-', 0x7f, (byte) 0xff};
+    byte[] body = new Body()
+        .preamble("ignored preamble")
+        .file("file", "photo.png", "image/png", file)
+        .text("title", "Sunset")
+        .text("description", "Über den Wolken")
+        .close()
+        .epilogue("ignored epilogue")
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, UNLIMITED, UNLIMITED);
+    Part part = reader.next();
+    assertEquals("file", part.getName());
+    assertEquals("photo.png", part.getFilename());
+    assertEquals("image/png", part.getContentType());
+    assertArrayEquals(file, part.getInputStream().readAllBytes());
+    part = reader.next();
+    assertEquals("title", part.getName());
+    assertNull(part.getFilename());
+    assertEquals("Sunset", part.getText());
+    part = reader.next();
+    assertEquals("Über den Wolken", part.getText());
+    assertNull(reader.next());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void next_unreadPart_skipped() throws IOException {
+    byte[] body = new Body()
+        .file("file", "a.png", "image/png", bytes(10_000, 1))
+        .text("title", "After")
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, UNLIMITED, UNLIMITED);
+    Part skipped = reader.next();
+    InputStream stale = skipped.getInputStream();
+    Part part = reader.next();
+    assertEquals("After", part.getText());
+    assertEquals(-1, stale.read());
+  }
+
+  @Test
+  void read_contentLargerThanBuffer_delimitedCorrectly() throws IOException {
+    // Longer than the reader's internal buffer, with near-matches of the delimiter throughout.
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    byte[] nearMatch = ("\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1))
+        .getBytes(StandardCharsets.US_ASCII);
+    while (content.size() < 300_000) {
+      content.write(nearMatch, 0, nearMatch.length);
+      content.write(bytes(997, content.size()), 0, 997);
+    }
+    byte[] file = content.toByteArray();
+    byte[] body = new Body()
+        .file("file", "big.bin", "application/octet-stream", file)
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader =
+        new MultipartStreamReader(new TrickleInputStream(body, 4093), BOUNDARY, UNLIMITED,
+            UNLIMITED);
+    assertArrayEquals(file, reader.next().getInputStream().readAllBytes());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void read_partLargerThanLimit_throws() throws IOException {
+    byte[] body = new Body()
+        .file("file", "a.png", "image/png", bytes(2_000, 3))
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, 1_000, UNLIMITED);
+    InputStream input = reader.next().getInputStream();
+    assertThrows(SizeLimitExceededException.class, input::readAllBytes);
+  }
+
+  @Test
+  void read_partAtLimit_accepted() throws IOException {
+    byte[] body = new Body()
+        .file("file", "a.png", "image/png", bytes(1_000, 3))
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, 1_000, UNLIMITED);
+    assertEquals(1_000, reader.next().getInputStream().readAllBytes().length);
+  }
+
+  @Test
+  void next_unopenedPartLargerThanLimit_throws() throws IOException {
+    byte[] body = new Body()
+        .file("unknown", "a.bin", "application/octet-stream", bytes(5_000, 4))
+        .text("title", "After")
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, 1_000, UNLIMITED);
+    assertNotNull(reader.next());
+    assertThrows(SizeLimitExceededException.class, reader::next);
+  }
+
+  @Test
+  void next_bodyLargerThanRequestLimit_throws() throws IOException {
+    byte[] body = new Body()
+        .file("file", "a.png", "image/png", bytes(200_000, 5))
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, UNLIMITED, 100_000);
+    assertThrows(RequestSizeLimitExceededException.class,
+        () -> reader.next().getInputStream().readAllBytes());
+  }
+
+  @Test
+  void getText_oversizedField_throws() throws IOException {
+    byte[] body = new Body()
+        .text("title", "x".repeat(70_000))
+        .close()
+        .toByteArray();
+    MultipartStreamReader reader = reader(body, UNLIMITED, UNLIMITED);
+    Part part = reader.next();
+    assertThrows(SizeLimitExceededException.class, part::getText);
+  }
+
+  @Test
+  void read_truncatedBody_throws() throws IOException {
+    byte[] complete = new Body()
+        .file("file", "a.png", "image/png", bytes(1_000, 6))
+        .close()
+        .toByteArray();
+    byte[] body = Arrays.copyOf(complete, 600);
+    MultipartStreamReader reader = reader(body, UNLIMITED, UNLIMITED);
+    InputStream input = reader.next().getInputStream();
+    assertThrows(MalformedMultipartException.class, input::readAllBytes);
+  }
+
+  @Test
+  void next_invalidDelimiterSuffix_throws() {
+    byte[] body = ("--" + BOUNDARY + "junk\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    MultipartStreamReader reader = reader(body, UNLIMITED, UNLIMITED);
+    assertThrows(MalformedMultipartException.class, reader::next);
+  }
+
+  @Test
+  void of_quotedBoundary_parsed() throws IOException {
+    MockHttpServletRequest request = request(new Body()
+        .text("title", "Quoted")
+        .close()
+        .toByteArray());
+    request.setContentType("multipart/form-data; boundary=\"" + BOUNDARY + "\"");
+    MultipartStreamReader reader = MultipartStreamReader.of(request, UNLIMITED, UNLIMITED);
+    assertEquals("Quoted", reader.next().getText());
+  }
+
+  @Test
+  void of_declaredLengthAboveRequestLimit_throws() {
+    MockHttpServletRequest request = request(new Body()
+        .file("file", "a.png", "image/png", bytes(2_000, 7))
+        .close()
+        .toByteArray());
+    assertThrows(RequestSizeLimitExceededException.class,
+        () -> MultipartStreamReader.of(request, UNLIMITED, 1_000));
+  }
+
+  @Test
+  void of_notMultipart_throws() {
+    MockHttpServletRequest request = request(new byte[0]);
+    request.setContentType("application/json");
+    assertThrows(InvalidMediaTypeException.class,
+        () -> MultipartStreamReader.of(request, UNLIMITED, UNLIMITED));
+    request.setContentType("multipart/form-data");
+    assertThrows(InvalidMediaTypeException.class,
+        () -> MultipartStreamReader.of(request, UNLIMITED, UNLIMITED));
+    request.setContentType(null);
+    assertThrows(InvalidMediaTypeException.class,
+        () -> MultipartStreamReader.of(request, UNLIMITED, UNLIMITED));
+  }
+
+  private MultipartStreamReader reader(byte[] body, long maxPartSize, long maxRequestSize) {
+    return new MultipartStreamReader(
+        new ByteArrayInputStream(body), BOUNDARY, maxPartSize, maxRequestSize);
+  }
+
+  private MockHttpServletRequest request(byte[] body) {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/images");
+    request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+    request.setContent(body);
+    return request;
+  }
+
+  private static byte[] bytes(int length, int seed) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i * 31 + seed);
+    }
+    return bytes;
+  }
+
+  /**
+   * Builder of multipart request bodies.
+   */
+  private static class Body {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private boolean first = true;
+
+    Body preamble(String text) {
+      write(text + "\r\n");
+      return this;
+    }
+
+    Body file(String name, String filename, String contentType, byte[] content) {
+      delimiter();
+      write(String.format(
+          "Content-Disposition: form-data; name=\"%s\"; filename=\"%s\"\r\n"
+              + "Content-Type: %s\r\n\r\n", name, filename, contentType));
+      output.write(content, 0, content.length);
+      return this;
+    }
+
+    Body text(String name, String value) {
+      delimiter();
+      write(String.format("Content-Disposition: form-data; name=\"%s\"\r\n\r\n", name));
+      write(value);
+      return this;
+    }
+
+    Body close() {
+      write("\r\n--" + BOUNDARY + "--");
+      return this;
+    }
+
+    Body epilogue(String text) {
+      write("\r\n" + text);
+      return this;
+    }
+
+    byte[] toByteArray() {
+      return output.toByteArray();
+    }
+
+    private void delimiter() {
+      write((first ? "" : "\r\n") + "--" + BOUNDARY + "\r\n");
+      first = false;
+    }
+
+    private void write(String text) {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      output.write(bytes, 0, bytes.length);
+    }
+
+  }
+
+  /**
+   * Input stream that returns at most a fixed number of bytes from each read, to exercise
+   * delimiters split across reads.
+   */
+  private static class TrickleInputStream extends ByteArrayInputStream {
+
+    private final int maxRead;
+
+    TrickleInputStream(byte[] content, int maxRead) {
+      super(content);
+      this.maxRead = maxRead;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) {
+      return super.read(b, off, Math.min(len, maxRead));
+    }
+
+  }
+
+}
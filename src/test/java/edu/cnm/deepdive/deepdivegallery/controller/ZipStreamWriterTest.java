@@ -0,0 +1,187 @@
+package edu.cnm.deepdive.deepdivegallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.service.EntityStreams.EntitySource;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService;
+import edu.cnm.deepdive.deepdivegallery.view.FlatImage;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ZipStreamWriterTest {
+
+  private final ImageService imageService = mock(ImageService.class);
+  private final ZipStreamWriter writer = new ZipStreamWriter(imageService);
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @Test
+  void write_compressedAndOtherContent_storedAndDeflated() throws IOException {
+    byte[] jpeg = content(1000, 7);
+    byte[] bitmap = new byte[5000];
+    FlatImage photo = image("photo.jpg", "image/jpeg", new ByteArrayResource(jpeg));
+    FlatImage drawing = image("drawing.bmp", "image/bmp", new ByteArrayResource(bitmap));
+    writer.write(source(photo, drawing), "images.zip", response);
+    assertEquals(ZipStreamWriter.ZIP_CONTENT_TYPE, response.getContentType());
+    Map<ZipEntry, byte[]> entries = read();
+    assertEquals(2, entries.size());
+    List<ZipEntry> keys = new ArrayList<>(entries.keySet());
+    ZipEntry first = keys.get(0);
+    assertEquals("photo.jpg", first.getName());
+    assertEquals(ZipEntry.STORED, first.getMethod());
+    assertEquals(crc(jpeg), first.getCrc());
+    assertArrayEquals(jpeg, entries.get(first));
+    ZipEntry second = keys.get(1);
+    assertEquals("drawing.bmp", second.getName());
+    assertEquals(ZipEntry.DEFLATED, second.getMethod());
+    assertArrayEquals(bitmap, entries.get(second));
+  }
+
+  @Test
+  void write_duplicateAndUnsafeNames_madeUnique() throws IOException {
+    FlatImage first = image("a.png", "image/png", new ByteArrayResource(new byte[1]));
+    FlatImage second = image("dir/a.png", "image/png", new ByteArrayResource(new byte[1]));
+    FlatImage third = image("..", "image/png", new ByteArrayResource(new byte[1]));
+    FlatImage fourth = image("b?.png", "image/png", new ByteArrayResource(new byte[1]));
+    writer.write(source(first, second, third, fourth), "images.zip", response);
+    List<String> expected = List.of("a.png", "a (2).png", third.getId().toString(), "b_.png");
+    List<String> names = read().keySet().stream()
+        .map(ZipEntry::getName)
+        .collect(Collectors.toList());
+    assertEquals(expected, names);
+  }
+
+  @Test
+  void write_unreadableContent_omitted() throws IOException {
+    FlatImage missing = image("missing.png", "image/png", new FailingResource(0, 0));
+    FlatImage failsChecksum = image("checksum.png", "image/png", new FailingResource(0, 100));
+    FlatImage present = image("present.png", "image/png", new ByteArrayResource(new byte[10]));
+    writer.write(source(missing, failsChecksum, present), "images.zip", response);
+    Map<ZipEntry, byte[]> entries = read();
+    assertEquals(1, entries.size());
+    assertEquals("present.png", entries.keySet().iterator().next().getName());
+  }
+
+  @Test
+  void write_copyFailsAfterEntryStarted_rethrown() {
+    // The first (checksum) read succeeds; the second (copy) read fails part way.
+    FlatImage failsCopy = image("copy.png", "image/png", new FailingResource(1, 100));
+    assertThrows(IOException.class,
+        () -> writer.write(source(failsCopy), "images.zip", response));
+  }
+
+  private FlatImage image(String name, String contentType, Resource resource) {
+    FlatImage image = mock(FlatImage.class);
+    when(image.getId()).thenReturn(UUID.randomUUID());
+    when(image.getName()).thenReturn(name);
+    when(image.getContentType()).thenReturn(contentType);
+    when(image.getCreated()).thenReturn(new Date());
+    try {
+      when(imageService.retrieve(image)).thenReturn(resource);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return image;
+  }
+
+  private Map<ZipEntry, byte[]> read() throws IOException {
+    Map<ZipEntry, byte[]> entries = new LinkedHashMap<>();
+    try (ZipInputStream zip =
+        new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entries.put(entry, zip.readAllBytes());
+      }
+    }
+    return entries;
+  }
+
+  private static EntitySource<FlatImage> source(FlatImage... images) {
+    return (consumer) -> {
+      for (FlatImage image : images) {
+        consumer.accept(image);
+      }
+    };
+  }
+
+  private static byte[] content(int size, int seed) {
+    byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) (i * seed);
+    }
+    return content;
+  }
+
+  private static long crc(byte[] content) {
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    return crc.getValue();
+  }
+
+  /**
+   * Resource whose content can be read successfully a limited number of times; later reads fail
+   * after the specified number of bytes, as if the file were removed or the disk failed.
+   */
+  private static class FailingResource extends AbstractResource {
+
+    private final int successfulReads;
+    private final int bytesBeforeFailure;
+    private int reads;
+
+    FailingResource(int successfulReads, int bytesBeforeFailure) {
+      this.successfulReads = successfulReads;
+      this.bytesBeforeFailure = bytesBeforeFailure;
+    }
+
+    @Override
+    public String getDescription() {
+      return "failing resource";
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      if (reads++ < successfulReads) {
+        return new ByteArrayInputStream(new byte[2 * bytesBeforeFailure]);
+      }
+      if (bytesBeforeFailure == 0) {
+        throw new FileNotFoundException("missing");
+      }
+      return new SequenceInputStream(
+          new ByteArrayInputStream(new byte[bytesBeforeFailure]), new BrokenInputStream());
+    }
+
+  }
+
+  /**
+   * Input stream that fails on every read.
+   */
+  private static class BrokenInputStream extends InputStream {
+
+    @Override
+    public int read() throws IOException {
+      throw new IOException("read failed");
+    }
+
+  }
+
+}
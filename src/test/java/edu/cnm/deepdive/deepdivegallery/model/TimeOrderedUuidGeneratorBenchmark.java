@@ -0,0 +1,82 @@
+package edu.cnm.deepdive.deepdivegallery.model;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the insert throughput of primary keys generated by {@link TimeOrderedUuidGenerator}
+ * against random (version 4) UUIDs, as generated by Hibernate's {@code uuid2} strategy, in an
+ * embedded Derby database. Each key is stored as Hibernate stores a {@link UUID} in Derby: as
+ * {@code CHAR(16) FOR BIT DATA}, most significant bits first. Rows are inserted in JDBC batches,
+ * committing after each batch, into a new table for each strategy; the rows per second of each
+ * strategy are reported.
+ * <p>
+ * Not run with the unit tests (the class name does not match the Surefire test patterns); run
+ * with {@code mvn test -Dtest=TimeOrderedUuidGeneratorBenchmark}. The {@code benchmark.rows} and
+ * {@code benchmark.batchSize} system properties override the defaults.</p>
+ */
+class TimeOrderedUuidGeneratorBenchmark {
+
+  private static final int DEFAULT_ROWS = 1_000_000;
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final String CREATE_TABLE =
+      "CREATE TABLE %s (id CHAR(16) FOR BIT DATA PRIMARY KEY, title VARCHAR(100) NOT NULL)";
+  private static final String INSERT = "INSERT INTO %s (id, title) VALUES (?, ?)";
+  private static final String RESULT_FORMAT = "%-6s %,12d rows %,14.0f rows/s%n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void compare() throws SQLException {
+    int rows = Integer.getInteger("benchmark.rows", DEFAULT_ROWS);
+    int batchSize = Integer.getInteger("benchmark.batchSize", DEFAULT_BATCH_SIZE);
+    String url = String.format("jdbc:derby:%s;create=true", directory.resolve("db"));
+    try (Connection connection = DriverManager.getConnection(url)) {
+      connection.setAutoCommit(false);
+      measure(connection, "uuid2", rows, batchSize, UUID::randomUUID);
+      measure(connection, TimeOrderedUuidGenerator.NAME, rows, batchSize,
+          TimeOrderedUuidGenerator::next);
+    }
+  }
+
+  private void measure(Connection connection, String name, int rows, int batchSize,
+      Supplier<UUID> generator) throws SQLException {
+    String table = "benchmark_" + name;
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(String.format(CREATE_TABLE, table));
+    }
+    connection.commit();
+    long start = System.nanoTime();
+    try (PreparedStatement insert = connection.prepareStatement(String.format(INSERT, table))) {
+      for (int i = 1; i <= rows; i++) {
+        insert.setBytes(1, bytes(generator.get()));
+        insert.setString(2, "image " + i);
+        insert.addBatch();
+        if (i % batchSize == 0 || i == rows) {
+          insert.executeBatch();
+          connection.commit();
+        }
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf(RESULT_FORMAT, name, rows, rows * 1e9 / elapsed);
+  }
+
+  private static byte[] bytes(UUID id) {
+    return ByteBuffer.allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+
+}
@@ -0,0 +1,88 @@
+package edu.cnm.deepdive.deepdivegallery.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedUuidGeneratorTest {
+
+  private static final int BURST_SIZE = 10_000;
+
+  @Test
+  void next_layout_versionAndVariantSet() {
+    long before = System.currentTimeMillis();
+    UUID id = TimeOrderedUuidGenerator.next();
+    long after = System.currentTimeMillis();
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    long timestamp = id.getMostSignificantBits() >>> 16;
+    assertTrue(timestamp >= before && timestamp <= after + 1, () -> "timestamp " + timestamp);
+  }
+
+  @Test
+  void next_sameMillisecond_strictlyIncreasing() {
+    List<UUID> ids = new ArrayList<>(BURST_SIZE);
+    for (int i = 0; i < BURST_SIZE; i++) {
+      ids.add(TimeOrderedUuidGenerator.next());
+    }
+    int sameTimestamp = 0;
+    for (int i = 1; i < ids.size(); i++) {
+      UUID previous = ids.get(i - 1);
+      UUID current = ids.get(i);
+      assertTrue(compareUnsigned(previous, current) < 0, () -> previous + " >= " + current);
+      if (timestamp(previous) == timestamp(current)) {
+        sameTimestamp++;
+      }
+      assertEquals(7, current.version());
+      assertEquals(2, current.variant());
+    }
+    // More than the 4096 values of the counter, generated in a burst, must share timestamps.
+    assertTrue(sameTimestamp > 0);
+  }
+
+  @Test
+  void next_concurrentThreads_unique() throws Exception {
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<List<UUID>>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          List<UUID> ids = new ArrayList<>(BURST_SIZE);
+          for (int j = 0; j < BURST_SIZE; j++) {
+            ids.add(TimeOrderedUuidGenerator.next());
+          }
+          return ids;
+        }));
+      }
+      Set<UUID> all = new HashSet<>();
+      for (Future<List<UUID>> future : futures) {
+        all.addAll(future.get());
+      }
+      assertEquals(threads * BURST_SIZE, all.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static long timestamp(UUID id) {
+    return id.getMostSignificantBits() >>> 16;
+  }
+
+  private static int compareUnsigned(UUID a, UUID b) {
+    int comparison = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+    return (comparison != 0)
+        ? comparison
+        : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+  }
+
+}
@@ -0,0 +1,240 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService.ImportJob;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService.ImportJob.Status;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService.ImportStartedException;
+import edu.cnm.deepdive.deepdivegallery.service.ArchiveImportService.UnsupportedArchiveException;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+class ArchiveImportServiceTest {
+
+  private static final long MAX_ENTRY_SIZE = 1000;
+
+  @TempDir
+  Path directory;
+
+  private final StorageService storageService = mock(StorageService.class);
+  private final ImageService imageService = mock(ImageService.class);
+  private final Map<String, byte[]> stored = new ConcurrentHashMap<>();
+  private ArchiveImportService service;
+
+  @Test
+  void run_zipArchive_whitelistedEntriesImported() throws Exception {
+    service = service(16, 2);
+    storeContent();
+    byte[] png = content(500);
+    byte[] jpeg = content(700);
+    byte[] archive = zip(Map.of(
+        "photos/a.png", png,
+        "photos/b.jpg", jpeg,
+        "notes.txt", content(10),
+        "photos/._a.png", content(10)));
+    User contributor = user();
+    ImportJob job = service.run(service.create(contributor), contributor,
+        new ByteArrayInputStream(archive));
+    assertEquals(Status.COMPLETED, job.getStatus());
+    assertEquals(2, job.getRead());
+    assertEquals(2, job.getStored());
+    assertEquals(2, job.getImported());
+    assertEquals(2, job.getRejected());
+    assertArrayEquals(png, stored.get("a.png"));
+    assertArrayEquals(jpeg, stored.get("b.jpg"));
+    verify(imageService, times(2))
+        .create(any(StorageReference.class), isNull(), isNull(), eq(contributor));
+    assertEquals(0, staged());
+  }
+
+  @Test
+  void run_gzipTarArchive_entriesImported() throws Exception {
+    service = service(16, 250);
+    storeContent();
+    byte[] png = content(300);
+    User contributor = user();
+    ImportJob job = service.run(service.create(contributor), contributor,
+        new ByteArrayInputStream(tarGz("a.png", png)));
+    assertEquals(Status.COMPLETED, job.getStatus());
+    assertEquals(1, job.getImported());
+    assertArrayEquals(png, stored.get("a.png"));
+  }
+
+  @Test
+  void run_entryLargerThanMaximum_rejectedWithoutStoring() throws Exception {
+    service = service(16, 250);
+    storeContent();
+    // Entries written by ZipOutputStream do not declare their size, so the limit is enforced while
+    // the entry is staged.
+    byte[] archive = zip(Map.of("large.png", content((int) MAX_ENTRY_SIZE + 1)));
+    User contributor = user();
+    ImportJob job = service.run(service.create(contributor), contributor,
+        new ByteArrayInputStream(archive));
+    assertEquals(Status.COMPLETED, job.getStatus());
+    assertEquals(1, job.getRejected());
+    assertEquals(0, job.getRead());
+    verify(storageService, never()).store(any(InputStream.class), anyString(), anyString());
+    assertEquals(0, staged());
+  }
+
+  @Test
+  void run_maxPendingReached_stagingWaitsForWorkers() throws Exception {
+    service = service(1, 250);
+    AtomicInteger maxStaged = new AtomicInteger();
+    when(storageService.store(any(InputStream.class), anyString(), anyString()))
+        .thenAnswer((invocation) -> {
+          maxStaged.accumulateAndGet((int) staged(), Math::max);
+          return reference(invocation.getArgument(1), invocation.<InputStream>getArgument(0));
+        });
+    byte[] archive = zip(Map.of("a.png", content(100), "b.png", content(100),
+        "c.png", content(100), "d.png", content(100)));
+    User contributor = user();
+    ImportJob job = service.run(service.create(contributor), contributor,
+        new ByteArrayInputStream(archive));
+    assertEquals(4, job.getImported());
+    assertEquals(1, maxStaged.get());
+  }
+
+  @Test
+  void run_storeFails_entryFailedAndUnstaged() throws Exception {
+    service = service(16, 250);
+    when(storageService.store(any(InputStream.class), anyString(), anyString()))
+        .thenThrow(new IOException("disk full"));
+    User contributor = user();
+    ImportJob job = service.run(service.create(contributor), contributor,
+        new ByteArrayInputStream(zip(Map.of("a.png", content(100)))));
+    assertEquals(Status.COMPLETED, job.getStatus());
+    assertEquals(1, job.getFailed());
+    assertEquals(0, job.getImported());
+    assertEquals(0, staged());
+  }
+
+  @Test
+  void run_notAnArchive_rejected() throws Exception {
+    service = service(16, 250);
+    User contributor = user();
+    ImportJob job = service.create(contributor);
+    assertThrows(UnsupportedArchiveException.class, () -> service.run(job, contributor,
+        new ByteArrayInputStream("not an archive".getBytes())));
+    assertEquals(Status.FAILED, job.getStatus());
+  }
+
+  @Test
+  void run_alreadyStarted_rejected() throws Exception {
+    service = service(16, 250);
+    storeContent();
+    User contributor = user();
+    ImportJob job = service.create(contributor);
+    service.run(job, contributor, new ByteArrayInputStream(zip(Map.of())));
+    assertThrows(ImportStartedException.class, () -> service.run(job, contributor,
+        new ByteArrayInputStream(zip(Map.of()))));
+  }
+
+  private ArchiveImportService service(int maxPending, int batchSize) {
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.setDirectory(directory.toString());
+    configuration.setWhitelist(Set.of("image/png", "image/jpeg"));
+    configuration.getImports().setMaxPending(maxPending);
+    configuration.getImports().setBatchSize(batchSize);
+    configuration.getImports().setMaxEntrySize(DataSize.ofBytes(MAX_ENTRY_SIZE));
+    return new ArchiveImportService(storageService, imageService,
+        mock(PlatformTransactionManager.class), configuration, mock(ApplicationHome.class));
+  }
+
+  private void storeContent() throws Exception {
+    when(storageService.store(any(InputStream.class), anyString(), anyString()))
+        .thenAnswer((invocation) ->
+            reference(invocation.getArgument(1), invocation.<InputStream>getArgument(0)));
+  }
+
+  private StorageReference reference(String filename, InputStream input) throws IOException {
+    byte[] content = input.readAllBytes();
+    stored.put(filename, content);
+    return new StorageReference(filename, UUID.randomUUID().toString(), "image/png", "",
+        content.length);
+  }
+
+  private long staged() throws IOException {
+    try (Stream<Path> files = Files.list(directory.resolve(".imports"))) {
+      return files.count();
+    }
+  }
+
+  private static User user() {
+    User user = mock(User.class);
+    when(user.getId()).thenReturn(UUID.randomUUID());
+    return user;
+  }
+
+  private static byte[] content(int size) {
+    byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) (i * 31);
+    }
+    return content;
+  }
+
+  private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+      if (entries.isEmpty()) {
+        zip.putNextEntry(new ZipEntry("empty/"));
+        zip.closeEntry();
+      }
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] tarGz(String name, byte[] content) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tar =
+        new TarArchiveOutputStream(new GzipCompressorOutputStream(output))) {
+      TarArchiveEntry entry = new TarArchiveEntry(name);
+      entry.setSize(content.length);
+      tar.putArchiveEntry(entry);
+      tar.write(content);
+      tar.closeArchiveEntry();
+    }
+    return output.toByteArray();
+  }
+
+}
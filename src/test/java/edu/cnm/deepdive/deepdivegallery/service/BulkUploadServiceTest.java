@@ -0,0 +1,132 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.BulkUploadService.Batch;
+import edu.cnm.deepdive.deepdivegallery.service.BulkUploadService.TooManyFilesException;
+import edu.cnm.deepdive.deepdivegallery.service.BulkUploadService.UploadResult;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+class BulkUploadServiceTest {
+
+  private static final int MAX_FILES = 3;
+
+  private final StorageService storageService = mock(StorageService.class);
+  private final ImageService imageService = mock(ImageService.class);
+  private final User contributor = new User();
+  private final BulkUploadService service;
+
+  BulkUploadServiceTest() {
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.getBulk().setMaxFiles(MAX_FILES);
+    service = new BulkUploadService(storageService, imageService,
+        mock(PlatformTransactionManager.class), configuration);
+  }
+
+  @Test
+  void add_content_streamedToStorage() throws Exception {
+    byte[] content = {1, 2, 3, 4};
+    when(storageService.store(any(), eq("a.png"), eq("image/png"))).thenAnswer((invocation) -> {
+      assertArrayEquals(content, invocation.<InputStream>getArgument(0).readAllBytes());
+      return reference("a.png", "ref-a");
+    });
+    Image image = new Image();
+    when(imageService.create(any(), any(), any(), eq(contributor))).thenReturn(image);
+    try (Batch batch = service.begin(contributor)) {
+      batch.add(new ByteArrayInputStream(content), "a.png", "image/png");
+      List<UploadResult> results = batch.complete();
+      assertEquals(1, results.size());
+      assertSame(image, results.get(0).getImage());
+      assertNull(results.get(0).getError());
+    }
+    verify(storageService, never()).delete(anyString());
+  }
+
+  @Test
+  void add_forbiddenOrUnwritable_recordedAsFailed() throws Exception {
+    when(storageService.store(any(), eq("a.exe"), any()))
+        .thenThrow(new HttpMediaTypeNotAcceptableException("forbidden"));
+    when(storageService.store(any(), eq("b.png"), any()))
+        .thenThrow(new IOException("disk full"));
+    try (Batch batch = service.begin(contributor)) {
+      batch.add(new ByteArrayInputStream(new byte[1]), "a.exe", "application/octet-stream");
+      batch.add(new ByteArrayInputStream(new byte[1]), "b.png", "image/png");
+      List<UploadResult> results = batch.complete();
+      assertEquals(2, results.size());
+      assertEquals("Content type not allowed", results.get(0).getError());
+      assertEquals("Unable to store uploaded content", results.get(1).getError());
+    }
+  }
+
+  @Test
+  void add_requestReadFailure_rethrown() throws Exception {
+    when(storageService.store(any(), any(), any())).thenAnswer((invocation) ->
+        invocation.<InputStream>getArgument(0).readAllBytes());
+    InputStream failing =
+        new SequenceInputStream(new ByteArrayInputStream(new byte[10]), new ResetInputStream());
+    try (Batch batch = service.begin(contributor)) {
+      assertThrows(IOException.class, () -> batch.add(failing, "a.png", "image/png"));
+    }
+  }
+
+  @Test
+  void add_beyondMaxFiles_rejectedWithoutReading() throws Exception {
+    when(storageService.store(any(), any(), any()))
+        .thenAnswer((invocation) -> reference(invocation.getArgument(1), "ref"));
+    InputStream unread = mock(InputStream.class);
+    try (Batch batch = service.begin(contributor)) {
+      for (int i = 0; i < MAX_FILES - 1; i++) {
+        batch.add(new ByteArrayInputStream(new byte[1]), i + ".png", "image/png");
+      }
+      batch.reject("big.png", "File too large");
+      TooManyFilesException e = assertThrows(TooManyFilesException.class,
+          () -> batch.add(unread, "extra.png", "image/png"));
+      assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+      assertThrows(TooManyFilesException.class, () -> batch.reject("extra.png", "File too large"));
+    }
+    verifyNoInteractions(unread);
+    verify(storageService, times(MAX_FILES - 1)).delete("ref");
+  }
+
+  private static StorageReference reference(String filename, String reference) {
+    return new StorageReference(filename, reference, "image/png", "digest", 1);
+  }
+
+  /**
+   * Input stream that fails on every read, as when the client connection is reset.
+   */
+  private static class ResetInputStream extends InputStream {
+
+    @Override
+    public int read() throws IOException {
+      throw new IOException("connection reset");
+    }
+
+  }
+
+}
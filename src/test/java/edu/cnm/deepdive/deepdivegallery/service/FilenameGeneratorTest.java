@@ -0,0 +1,107 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class FilenameGeneratorTest {
+
+  private static final String FORMAT = "%1$s-%2$d.%3$s";
+  private static final String TIMESTAMP_FORMAT = "yyyyMMddHHmmssSSS";
+  private static final String TIME_ZONE = "UTC";
+  private static final String EXTENSION = "jpg";
+  private static final Pattern NAME_PATTERN = Pattern.compile("^\\d{17}-(\\d+)\\.jpg$");
+  private static final Pattern SUBDIRECTORY_PATTERN = Pattern.compile("^(.{4})(.{2})(.{2}).*$");
+  private static final int THREADS = 16;
+  private static final int NAMES_PER_THREAD = 20_000;
+
+  @Test
+  void generate_formatAndSubdirectory() {
+    Clock clock = Clock.fixed(Instant.parse("2021-01-15T10:20:30.456Z"), ZoneOffset.UTC);
+    FilenameGenerator generator =
+        new FilenameGenerator(FORMAT, TIMESTAMP_FORMAT, TIME_ZONE, 1_000_000, clock);
+    String name = generator.generate(EXTENSION);
+    assertEquals("20210115102030456-0.jpg", name);
+    assertEquals("20210115102030456-1.jpg", generator.generate(EXTENSION));
+    Matcher matcher = SUBDIRECTORY_PATTERN.matcher(name);
+    assertTrue(matcher.matches());
+    assertEquals("2021", matcher.group(1));
+    assertEquals("01", matcher.group(2));
+    assertEquals("15", matcher.group(3));
+  }
+
+  @Test
+  void generate_concurrent_unique() throws Exception {
+    FilenameGenerator generator =
+        new FilenameGenerator(FORMAT, TIMESTAMP_FORMAT, TIME_ZONE, 1_000_000);
+    Set<String> names = generateConcurrently(generator);
+    assertEquals(THREADS * NAMES_PER_THREAD, names.size());
+    names.forEach((name) -> assertTrue(NAME_PATTERN.matcher(name).matches(), name));
+  }
+
+  @Test
+  void generate_concurrentBeyondLimitPerMillisecond_unique() throws Exception {
+    // With the clock stopped and a small limit, every thread competes for the same millisecond.
+    int limit = 10;
+    Clock clock = Clock.fixed(Instant.parse("2021-01-15T10:20:30.456Z"), ZoneOffset.UTC);
+    FilenameGenerator generator =
+        new FilenameGenerator(FORMAT, TIMESTAMP_FORMAT, TIME_ZONE, limit, clock);
+    Set<String> names = generateConcurrently(generator);
+    assertEquals(THREADS * NAMES_PER_THREAD, names.size());
+    for (String name : names) {
+      Matcher matcher = NAME_PATTERN.matcher(name);
+      assertTrue(matcher.matches(), name);
+      assertTrue(Integer.parseInt(matcher.group(1)) < limit, name);
+    }
+  }
+
+  @Test
+  void new_invalidLimit_throws() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new FilenameGenerator(FORMAT, TIMESTAMP_FORMAT, TIME_ZONE, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new FilenameGenerator(FORMAT, TIMESTAMP_FORMAT, TIME_ZONE, Integer.MAX_VALUE));
+  }
+
+  private Set<String> generateConcurrently(FilenameGenerator generator) throws Exception {
+    Set<String> names = ConcurrentHashMap.newKeySet(THREADS * NAMES_PER_THREAD);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < NAMES_PER_THREAD; j++) {
+            names.add(generator.generate(EXTENSION));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return names;
+  }
+
+}
@@ -0,0 +1,170 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.model.dao.GalleryImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.dao.GalleryRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
+import edu.cnm.deepdive.deepdivegallery.model.entity.GalleryImage;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.service.GalleryService.GalleryNotFoundException;
+import edu.cnm.deepdive.deepdivegallery.service.GalleryService.ImageNotInGalleryException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GalleryServiceTest {
+
+  private static final long GAP = 1L << 20;
+
+  private final GalleryRepository galleryRepository = mock(GalleryRepository.class);
+  private final GalleryImageRepository galleryImageRepository =
+      mock(GalleryImageRepository.class);
+  private final GalleryService service =
+      new GalleryService(galleryRepository, galleryImageRepository);
+  private final Gallery gallery = new Gallery();
+  private final List<GalleryImage> members = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    // Backs the repository with an in-memory list of members, sharing instances as a persistence
+    // context would.
+    when(galleryRepository.lockById(any())).thenReturn(Optional.of(gallery));
+    when(galleryImageRepository.findFirstByGalleryAndImage(any(), any()))
+        .thenAnswer((invocation) -> members.stream()
+            .filter((member) -> member.getImage() == invocation.getArgument(1))
+            .findFirst());
+    when(galleryImageRepository.findFirstByGalleryOrderByPositionDesc(any()))
+        .thenAnswer((invocation) -> members.stream()
+            .max(Comparator.comparingLong(GalleryImage::getPosition)));
+    when(galleryImageRepository.findFirstByGalleryAndPositionLessThanOrderByPositionDesc(
+        any(), anyLong()))
+        .thenAnswer((invocation) -> members.stream()
+            .filter((member) -> member.getPosition() < invocation.<Long>getArgument(1))
+            .max(Comparator.comparingLong(GalleryImage::getPosition)));
+    when(galleryImageRepository.findAllByGalleryOrderByPositionAsc(any()))
+        .thenAnswer((invocation) -> ordered());
+    when(galleryImageRepository.save(any())).thenAnswer((invocation) -> {
+      GalleryImage member = invocation.getArgument(0);
+      if (!members.contains(member)) {
+        members.add(member);
+      }
+      return member;
+    });
+  }
+
+  @Test
+  void place_atEnd_positionsSpacedByGap() {
+    Image a = image();
+    Image b = image();
+    Image c = image();
+    service.place(gallery, a, null);
+    service.place(gallery, b, null);
+    service.place(gallery, c, null);
+    assertEquals(List.of(a, b, c), images());
+    assertEquals(List.of(0L, GAP, 2 * GAP), positions());
+  }
+
+  @Test
+  void place_beforeMember_midpointPosition() {
+    Image a = image();
+    Image b = image();
+    Image c = image();
+    service.place(gallery, a, null);
+    service.place(gallery, b, null);
+    service.place(gallery, c, b);
+    assertEquals(List.of(a, c, b), images());
+    assertEquals(List.of(0L, GAP / 2, GAP), positions());
+  }
+
+  @Test
+  void place_beforeFirst_positionBelowFirst() {
+    Image a = image();
+    Image b = image();
+    service.place(gallery, a, null);
+    service.place(gallery, b, a);
+    assertEquals(List.of(b, a), images());
+    assertEquals(List.of(-GAP, 0L), positions());
+  }
+
+  @Test
+  void place_repeatedlyAtSamePoint_renumberedInOrder() {
+    Image first = image();
+    Image last = image();
+    service.place(gallery, first, null);
+    service.place(gallery, last, null);
+    List<Image> expected = new ArrayList<>(List.of(first));
+    for (int i = 0; i < 50; i++) {
+      Image inserted = image();
+      service.place(gallery, inserted, last);
+      expected.add(inserted);
+    }
+    expected.add(last);
+    assertEquals(expected, images());
+    List<Long> positions = positions();
+    for (int i = 1; i < positions.size(); i++) {
+      assertTrue(positions.get(i) > positions.get(i - 1));
+    }
+  }
+
+  @Test
+  void place_existingMember_moved() {
+    Image a = image();
+    Image b = image();
+    Image c = image();
+    service.place(gallery, a, null);
+    service.place(gallery, b, null);
+    service.place(gallery, c, null);
+    service.place(gallery, c, a);
+    assertEquals(List.of(c, a, b), images());
+    assertEquals(3, members.size());
+    service.place(gallery, c, null);
+    assertEquals(List.of(a, b, c), images());
+  }
+
+  @Test
+  void place_beforeNonMember_rejected() {
+    Image a = image();
+    service.place(gallery, a, null);
+    assertThrows(ImageNotInGalleryException.class, () -> service.place(gallery, image(), image()));
+  }
+
+  @Test
+  void place_missingGallery_rejected() {
+    when(galleryRepository.lockById(any())).thenReturn(Optional.empty());
+    assertThrows(GalleryNotFoundException.class, () -> service.place(gallery, image(), null));
+  }
+
+  private List<GalleryImage> ordered() {
+    return members.stream()
+        .sorted(Comparator.comparingLong(GalleryImage::getPosition))
+        .collect(Collectors.toList());
+  }
+
+  private List<Image> images() {
+    return ordered().stream()
+        .map(GalleryImage::getImage)
+        .collect(Collectors.toList());
+  }
+
+  private List<Long> positions() {
+    return ordered().stream()
+        .map(GalleryImage::getPosition)
+        .collect(Collectors.toList());
+  }
+
+  private static Image image() {
+    return mock(Image.class);
+  }
+
+}
@@ -0,0 +1,270 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ImageHeaderTest {
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final int SOI = 0xd8;
+  private static final int SOS = 0xda;
+  private static final int SOF0 = 0xc0;
+  private static final int APP0 = 0xe0;
+  private static final int APP1 = 0xe1;
+  private static final int APP2 = 0xe2;
+  private static final int TIFF_SHORT = 3;
+  private static final int TIFF_LONG = 4;
+  private static final int IMAGE_WIDTH = 256;
+  private static final int IMAGE_LENGTH = 257;
+  private static final int ORIENTATION = 274;
+
+  @Test
+  void parse_png_dimensions() {
+    assertHeader("image/png", WIDTH, HEIGHT, null, png(WIDTH, HEIGHT));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"GIF87a", "GIF89a"})
+  void parse_gif_dimensions(String signature) {
+    assertHeader("image/gif", WIDTH, HEIGHT, null, gif(signature, WIDTH, HEIGHT));
+  }
+
+  @Test
+  void parse_bmpBottomUp_dimensions() {
+    assertHeader("image/bmp", WIDTH, HEIGHT, null, bmp(WIDTH, HEIGHT));
+  }
+
+  @Test
+  void parse_bmpTopDown_heightPositive() {
+    assertHeader("image/bmp", WIDTH, HEIGHT, null, bmp(WIDTH, -HEIGHT));
+  }
+
+  @Test
+  void parse_bmpCoreHeader_dimensions() {
+    byte[] data = littleEndian(26)
+        .put("BM".getBytes(StandardCharsets.US_ASCII))
+        .putInt(26).putInt(0).putInt(26)
+        .putInt(12).putShort((short) WIDTH).putShort((short) HEIGHT)
+        .array();
+    assertHeader("image/bmp", WIDTH, HEIGHT, null, data);
+  }
+
+  @Test
+  void parse_jpeg_dimensionsFromFrameHeader() {
+    byte[] data = jpeg(
+        segment(APP0, "JFIF\0".getBytes(StandardCharsets.US_ASCII)),
+        new byte[]{(byte) 0xff}, // Fill byte before the next marker.
+        sof(WIDTH, HEIGHT));
+    assertHeader("image/jpeg", WIDTH, HEIGHT, null, data);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+  void parse_jpegExif_orientationInBothByteOrders(int orientation) {
+    for (ByteOrder order : List.of(ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN)) {
+      byte[] data = jpeg(exif(order, orientation), sof(WIDTH, HEIGHT));
+      assertHeader("image/jpeg", WIDTH, HEIGHT, orientation, data);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 9, 0xffff})
+  void parse_jpegExifOrientationOutOfRange_unknown(int orientation) {
+    byte[] data = jpeg(exif(ByteOrder.BIG_ENDIAN, orientation), sof(WIDTH, HEIGHT));
+    assertHeader("image/jpeg", WIDTH, HEIGHT, null, data);
+  }
+
+  @Test
+  void parse_tiffBothByteOrders_dimensionsAndOrientation() {
+    for (ByteOrder order : List.of(ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN)) {
+      byte[] data = tiff(order,
+          new int[]{IMAGE_WIDTH, TIFF_SHORT, WIDTH},
+          new int[]{IMAGE_LENGTH, TIFF_LONG, HEIGHT},
+          new int[]{ORIENTATION, TIFF_SHORT, 6});
+      assertHeader("image/tiff", WIDTH, HEIGHT, 6, data);
+    }
+  }
+
+  @Test
+  void parse_jpegFrameBeyondProbeSize_dimensionsUnknown() {
+    byte[] padding = new byte[40_000];
+    byte[] data = jpeg(segment(APP2, padding), segment(APP2, padding), sof(WIDTH, HEIGHT));
+    assertTrue(data.length > ImageHeader.PROBE_SIZE);
+    ImageHeader probed = ImageHeader.parse(data, ImageHeader.PROBE_SIZE);
+    assertNotNull(probed);
+    assertEquals("image/jpeg", probed.getContentType());
+    assertNull(probed.getWidth());
+    assertNull(probed.getHeight());
+    assertHeader("image/jpeg", WIDTH, HEIGHT, null, data);
+  }
+
+  @Test
+  void parse_truncated_recognizedWithoutDimensions() {
+    List<byte[]> fixtures = List.of(
+        png(WIDTH, HEIGHT),
+        gif("GIF89a", WIDTH, HEIGHT),
+        bmp(WIDTH, -HEIGHT),
+        jpeg(exif(ByteOrder.LITTLE_ENDIAN, 6), sof(WIDTH, HEIGHT)),
+        tiff(ByteOrder.BIG_ENDIAN,
+            new int[]{IMAGE_WIDTH, TIFF_LONG, WIDTH},
+            new int[]{IMAGE_LENGTH, TIFF_LONG, HEIGHT}));
+    for (byte[] data : fixtures) {
+      for (int length = 0; length < data.length; length++) {
+        ImageHeader header = ImageHeader.parse(data, length);
+        if (header != null) {
+          // Whatever is read from a prefix must agree with the complete header.
+          assertTrue(header.getWidth() == null || header.getWidth() == WIDTH);
+          assertTrue(header.getHeight() == null || header.getHeight() == HEIGHT);
+        }
+      }
+    }
+    ImageHeader signatureOnly = ImageHeader.parse(png(WIDTH, HEIGHT), 8);
+    assertNotNull(signatureOnly);
+    assertEquals("image/png", signatureOnly.getContentType());
+    assertNull(signatureOnly.getWidth());
+    assertNull(ImageHeader.parse(png(WIDTH, HEIGHT), 7));
+  }
+
+  @Test
+  void parse_lengthBeyondData_limitedToData() {
+    byte[] data = png(WIDTH, HEIGHT);
+    assertHeader("image/png", WIDTH, HEIGHT, null, data, data.length + 100);
+  }
+
+  @Test
+  void parse_unrecognized_null() {
+    assertNull(ImageHeader.parse(new byte[0], 0));
+    assertNull(ImageHeader.parse("<svg></svg>".getBytes(StandardCharsets.US_ASCII), 11));
+  }
+
+  @Test
+  void isRecognized_parsedTypes_true() {
+    for (String type : List.of("image/bmp", "image/gif", "image/jpeg", "image/png", "image/tiff")) {
+      assertTrue(ImageHeader.isRecognized(type));
+    }
+    assertFalse(ImageHeader.isRecognized("image/webp"));
+    assertFalse(ImageHeader.isRecognized(null));
+  }
+
+  private static void assertHeader(String contentType, Integer width, Integer height,
+      Integer orientation, byte[] data) {
+    assertHeader(contentType, width, height, orientation, data, data.length);
+  }
+
+  private static void assertHeader(String contentType, Integer width, Integer height,
+      Integer orientation, byte[] data, int length) {
+    ImageHeader header = ImageHeader.parse(data, length);
+    assertNotNull(header);
+    assertEquals(contentType, header.getContentType());
+    assertEquals(width, header.getWidth());
+    assertEquals(height, header.getHeight());
+    assertEquals(orientation, header.getOrientation());
+  }
+
+  private static byte[] png(int width, int height) {
+    return bigEndian(33)
+        .put(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'})
+        .putInt(13)
+        .put("IHDR".getBytes(StandardCharsets.US_ASCII))
+        .putInt(width).putInt(height)
+        .put(new byte[]{8, 2, 0, 0, 0}) // Bit depth, color type, and methods.
+        .putInt(0) // CRC (not checked).
+        .array();
+  }
+
+  private static byte[] gif(String signature, int width, int height) {
+    return littleEndian(13)
+        .put(signature.getBytes(StandardCharsets.US_ASCII))
+        .putShort((short) width).putShort((short) height)
+        .put(new byte[3])
+        .array();
+  }
+
+  private static byte[] bmp(int width, int height) {
+    return littleEndian(54)
+        .put("BM".getBytes(StandardCharsets.US_ASCII))
+        .putInt(54).putInt(0).putInt(54)
+        .putInt(40).putInt(width).putInt(height)
+        .putShort((short) 1).putShort((short) 24)
+        .put(new byte[24])
+        .array();
+  }
+
+  private static byte[] jpeg(byte[]... segments) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    output.write(0xff);
+    output.write(SOI);
+    for (byte[] segment : segments) {
+      output.writeBytes(segment);
+    }
+    output.writeBytes(segment(SOS, new byte[10]));
+    return output.toByteArray();
+  }
+
+  private static byte[] segment(int marker, byte[] payload) {
+    return bigEndian(4 + payload.length)
+        .put((byte) 0xff).put((byte) marker)
+        .putShort((short) (2 + payload.length))
+        .put(payload)
+        .array();
+  }
+
+  private static byte[] sof(int width, int height) {
+    // Sample precision, height, width, and a single component.
+    return segment(SOF0, bigEndian(9)
+        .put((byte) 8).putShort((short) height).putShort((short) width)
+        .put(new byte[]{1, 1, 0x11, 0})
+        .array());
+  }
+
+  private static byte[] exif(ByteOrder order, int orientation) {
+    byte[] tiff = tiff(order, new int[]{ORIENTATION, TIFF_SHORT, orientation});
+    return segment(APP1, ByteBuffer.allocate(6 + tiff.length)
+        .put(new byte[]{'E', 'x', 'i', 'f', 0, 0})
+        .put(tiff)
+        .array());
+  }
+
+  /**
+   * Returns a TIFF structure with a single image file directory, containing entries specified as
+   * tag, type, and value.
+   */
+  private static byte[] tiff(ByteOrder order, int[]... entries) {
+    ByteBuffer buffer = ByteBuffer.allocate(8 + 2 + 12 * entries.length + 4).order(order);
+    buffer.put((order == ByteOrder.LITTLE_ENDIAN)
+        ? new byte[]{'I', 'I', 42, 0}
+        : new byte[]{'M', 'M', 0, 42});
+    buffer.putInt(8).putShort((short) entries.length);
+    for (int[] entry : entries) {
+      buffer.putShort((short) entry[0]).putShort((short) entry[1]).putInt(1);
+      if (entry[1] == TIFF_SHORT) {
+        buffer.putShort((short) entry[2]).putShort((short) 0);
+      } else {
+        buffer.putInt(entry[2]);
+      }
+    }
+    return buffer.putInt(0).array();
+  }
+
+  private static ByteBuffer bigEndian(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+  }
+
+  private static ByteBuffer littleEndian(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+}
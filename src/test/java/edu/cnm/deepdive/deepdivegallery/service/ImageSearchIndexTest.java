@@ -0,0 +1,102 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.ImageSearchIndex.Results;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ImageSearchIndexTest {
+
+  private final ImageSearchIndex index = new ImageSearchIndex(mock(ImageRepository.class),
+      mock(PlatformTransactionManager.class), 1000, 10, Duration.ofMinutes(5));
+  private final User owner = user();
+  private final User other = user();
+  private final List<UUID> cats = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < 3; i++) {
+      cats.add(add(owner, "cat " + i));
+    }
+    add(other, "dog");
+  }
+
+  @Test
+  void search_continuationWithinSnapshot_nextPage() {
+    Results first = index.search("cat", null, null, null, 2);
+    assertEquals(2, first.getIds().size());
+    // A newly added match does not appear in the retained ranking.
+    add(owner, "cat 3");
+    Results second = index.search("cat", null, first.getKey(), first.getIds().get(1), 2);
+    assertEquals(first.getKey(), second.getKey());
+    List<UUID> all = new ArrayList<>(first.getIds());
+    all.addAll(second.getIds());
+    assertEquals(cats.size(), all.size());
+    assertTrue(all.containsAll(cats));
+  }
+
+  @Test
+  void search_keyFromOtherQuery_reranked() {
+    Results cat = index.search("cat", null, null, null, 2);
+    Results dog = index.search("dog", null, cat.getKey(), cat.getIds().get(1), 10);
+    assertNotEquals(cat.getKey(), dog.getKey());
+    // The last result of the other query is not ranked for this one, so there are no more pages.
+    assertTrue(dog.getIds().isEmpty());
+  }
+
+  @Test
+  void search_keyFromOtherContributor_reranked() {
+    Results all = index.search("cat", null, null, null, 2);
+    Results own = index.search("cat", other.getId(), all.getKey(), all.getIds().get(1), 10);
+    assertNotEquals(all.getKey(), own.getKey());
+    assertTrue(own.getIds().isEmpty());
+  }
+
+  @Test
+  void search_afterIdNotRanked_emptyPage() {
+    Results first = index.search("cat", null, null, null, 2);
+    Results next = index.search("cat", null, first.getKey(), UUID.randomUUID(), 2);
+    assertTrue(next.getIds().isEmpty());
+  }
+
+  @Test
+  void search_expiredOrUnknownKey_continuesAfterIdInNewRanking() {
+    Results first = index.search("cat", null, null, null, 2);
+    Results next = index.search("cat", null, "not-a-key", first.getIds().get(1), 2);
+    assertNotEquals(first.getKey(), next.getKey());
+    assertEquals(1, next.getIds().size());
+    assertTrue(cats.contains(next.getIds().get(0)));
+    assertFalse(first.getIds().contains(next.getIds().get(0)));
+  }
+
+  private UUID add(User contributor, String title) {
+    UUID id = UUID.randomUUID();
+    Image image = mock(Image.class);
+    when(image.getId()).thenReturn(id);
+    when(image.getTitle()).thenReturn(title);
+    when(image.getContributor()).thenReturn(contributor);
+    index.update(image);
+    return id;
+  }
+
+  private static User user() {
+    User user = mock(User.class);
+    when(user.getId()).thenReturn(UUID.randomUUID());
+    return user;
+  }
+
+}
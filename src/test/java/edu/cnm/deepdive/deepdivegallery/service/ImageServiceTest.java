@@ -0,0 +1,172 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Derivative;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Gallery;
+import edu.cnm.deepdive.deepdivegallery.model.entity.Image;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.GalleryService.GalleryNotFoundException;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.InvalidMetadataException;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.MetadataError;
+import edu.cnm.deepdive.deepdivegallery.service.ImageService.MetadataUpdate;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+class ImageServiceTest {
+
+  private final ImageRepository imageRepository = mock(ImageRepository.class);
+  private final StorageService storageService = mock(StorageService.class);
+  private final DerivativeService derivativeService = mock(DerivativeService.class);
+  private final ImageSearchIndex searchIndex = mock(ImageSearchIndex.class);
+  private final GalleryService galleryService = mock(GalleryService.class);
+  private final ImageService service = new ImageService(imageRepository, storageService,
+      derivativeService, mock(ResizeService.class), searchIndex, galleryService,
+      mock(PlatformTransactionManager.class));
+  private final User contributor = new User();
+
+  @Test
+  void update_overlongFields_rejectedPerItem() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    String longestTitle = "t".repeat(Image.MAX_TITLE_LENGTH);
+    String longestDescription = "d".repeat(Image.MAX_DESCRIPTION_LENGTH);
+    List<MetadataUpdate> updates = List.of(
+        update(first, longestTitle, longestDescription),
+        update(second, longestTitle + "t", null),
+        update(null, null, longestDescription + "d"));
+    InvalidMetadataException e = assertThrows(InvalidMetadataException.class,
+        () -> service.update(updates, contributor));
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    List<MetadataError> errors = e.getErrors();
+    assertEquals(3, errors.size());
+    assertError(errors.get(0), 1, second, "title");
+    assertError(errors.get(1), 2, null, "id");
+    assertError(errors.get(2), 2, null, "description");
+    verifyNoInteractions(imageRepository, searchIndex);
+  }
+
+  @Test
+  void update_maximumLengths_applied() {
+    Image image = mock(Image.class);
+    UUID id = UUID.randomUUID();
+    when(image.getId()).thenReturn(id);
+    when(imageRepository.findAllByContributorAndIdIn(eq(contributor), anyCollection()))
+        .thenReturn(List.of(image));
+    String title = "t".repeat(Image.MAX_TITLE_LENGTH);
+    List<Image> updated = service.update(List.of(update(id, title, null)), contributor);
+    assertEquals(List.of(image), updated);
+    verify(image).setTitle(title);
+    verify(image, never()).setDescription(any());
+    verify(searchIndex).update(image);
+  }
+
+  @Test
+  void delete_multipleImages_batched() {
+    List<Image> images = List.of(mock(Image.class), mock(Image.class), mock(Image.class));
+    when(imageRepository.findAllByContributorAndIdIn(eq(contributor), anyCollection()))
+        .thenReturn(images);
+    service.delete(List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()), contributor);
+    verify(derivativeService, times(1)).deleteAll(images);
+    verify(galleryService, times(1)).removeAll(images);
+    verify(imageRepository, times(1)).deleteInBatch(images);
+    verify(imageRepository, never()).delete(any());
+    images.forEach((image) -> verify(searchIndex).remove(image));
+  }
+
+  @Test
+  void delete_noMatchingImages_nothingDeleted() {
+    when(imageRepository.findAllByContributorAndIdIn(eq(contributor), anyCollection()))
+        .thenReturn(List.of());
+    service.delete(List.of(UUID.randomUUID()), contributor);
+    verifyNoInteractions(derivativeService, galleryService);
+    verify(imageRepository, never()).deleteInBatch(anyIterable());
+  }
+
+  @Test
+  void delete_activeTransaction_contentRemovedAfterCommit() {
+    Image image = mock(Image.class);
+    when(image.getPath()).thenReturn("ab/image");
+    Derivative derivative = mock(Derivative.class);
+    when(derivative.isGenerated()).thenReturn(true);
+    when(derivative.getPath()).thenReturn("ab/derivative");
+    when(derivativeService.deleteAll(image)).thenReturn(List.of(derivative));
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      service.delete(image);
+      verify(galleryService).removeAll(image);
+      verify(imageRepository).delete(image);
+      verify(storageService, never()).delete(any());
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    verify(storageService).delete("ab/image");
+    verify(storageService).delete("ab/derivative");
+  }
+
+  @Test
+  void store_placementFails_contentDiscarded() throws Exception {
+    MultipartFile file = mock(MultipartFile.class);
+    StorageReference reference =
+        new StorageReference("a.png", "ab/ref", "image/png", "digest", 10);
+    when(storageService.store(file)).thenReturn(reference);
+    when(imageRepository.save(any())).thenAnswer((invocation) -> invocation.getArgument(0));
+    Gallery gallery = new Gallery();
+    doThrow(new GalleryNotFoundException())
+        .when(galleryService).place(eq(gallery), any(), isNull());
+    assertThrows(GalleryNotFoundException.class,
+        () -> service.store(file, contributor, gallery, null, null));
+    verify(storageService).delete("ab/ref");
+  }
+
+  @Test
+  void store_withGallery_createdAndPlaced() throws Exception {
+    MultipartFile file = mock(MultipartFile.class);
+    when(storageService.store(file))
+        .thenReturn(new StorageReference("a.png", "ab/ref", "image/png", "digest", 10));
+    when(imageRepository.save(any())).thenAnswer((invocation) -> invocation.getArgument(0));
+    Gallery gallery = new Gallery();
+    Image image = service.store(file, contributor, gallery, "Title", null);
+    assertEquals("ab/ref", image.getPath());
+    verify(galleryService).place(gallery, image, null);
+    verify(storageService, never()).delete(any());
+  }
+
+  private static MetadataUpdate update(UUID id, String title, String description) {
+    MetadataUpdate update = new MetadataUpdate();
+    update.setId(id);
+    update.setTitle(title);
+    update.setDescription(description);
+    return update;
+  }
+
+  private static void assertError(MetadataError error, int index, UUID id, String field) {
+    assertEquals(index, error.getIndex());
+    assertEquals(id, error.getId());
+    assertEquals(field, error.getField());
+  }
+
+}
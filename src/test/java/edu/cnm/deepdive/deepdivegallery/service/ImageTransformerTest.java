@@ -0,0 +1,79 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ImageTransformerTest {
+
+  private static final int WIDTH = 3;
+  private static final int HEIGHT = 2;
+  private static final int TOP_LEFT = 0xff0000;
+  private static final int TOP_RIGHT = 0x00ff00;
+  private static final int OTHER = 0x0000ff;
+
+  private final ImageTransformer transformer = new ImageTransformer();
+
+  /**
+   * Verifies where the stored top-left and top-right pixels of a 3 &times; 2 image appear after
+   * each EXIF orientation is applied.
+   */
+  @ParameterizedTest
+  @CsvSource({
+      "1, 3, 2, 0, 0, 2, 0",
+      "2, 3, 2, 2, 0, 0, 0",
+      "3, 3, 2, 2, 1, 0, 1",
+      "4, 3, 2, 0, 1, 2, 1",
+      "5, 2, 3, 0, 0, 0, 2",
+      "6, 2, 3, 1, 0, 1, 2",
+      "7, 2, 3, 1, 2, 1, 0",
+      "8, 2, 3, 0, 2, 0, 0",
+  })
+  void orient_cornersMoved(int orientation, int width, int height,
+      int topLeftX, int topLeftY, int topRightX, int topRightY) {
+    BufferedImage result = transformer.orient(source(), orientation);
+    assertEquals(width, result.getWidth());
+    assertEquals(height, result.getHeight());
+    assertEquals(TOP_LEFT, result.getRGB(topLeftX, topLeftY) & 0xffffff);
+    assertEquals(TOP_RIGHT, result.getRGB(topRightX, topRightY) & 0xffffff);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 9, -1})
+  void orient_invalidOrientation_unchanged(int orientation) {
+    BufferedImage source = source();
+    assertSame(source, transformer.orient(source, orientation));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {5, 6, 7, 8})
+  void isTransposed_quarterTurns_true(int orientation) {
+    assertTrue(ImageTransformer.isTransposed(orientation));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 3, 4})
+  void isTransposed_uprightOrMirrored_false(int orientation) {
+    assertFalse(ImageTransformer.isTransposed(orientation));
+    assertFalse(ImageTransformer.isTransposed(null));
+  }
+
+  private BufferedImage source() {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        image.setRGB(x, y, OTHER);
+      }
+    }
+    image.setRGB(0, 0, TOP_LEFT);
+    image.setRGB(WIDTH - 1, 0, TOP_RIGHT);
+    return image;
+  }
+
+}
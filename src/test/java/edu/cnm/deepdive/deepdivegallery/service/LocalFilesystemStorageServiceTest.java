@@ -0,0 +1,105 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.FilenameProperties;
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
+import edu.cnm.deepdive.deepdivegallery.service.StorageService.StorageReference;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+class LocalFilesystemStorageServiceTest {
+
+  private static final int WIDTH = 32;
+  private static final int HEIGHT = 16;
+
+  @TempDir
+  Path directory;
+
+  private LocalFilesystemStorageService service;
+
+  @BeforeEach
+  void setUp() {
+    TimestampProperties timestamp = new TimestampProperties();
+    timestamp.setFormat("yyyyMMddHHmmssSSS");
+    timestamp.setTimeZone("UTC");
+    FilenameProperties filename = new FilenameProperties();
+    filename.setFormat("%1$s-%2$d.%3$s");
+    filename.setRandomizerLimit(1_000_000);
+    filename.setTimestamp(timestamp);
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.setDirectory(directory.toString());
+    configuration.setWhitelist(Set.of("image/png", "image/jpeg", "text/plain"));
+    configuration.setFilename(filename);
+    service = new LocalFilesystemStorageService(configuration, mock(ApplicationHome.class));
+  }
+
+  @Test
+  void store_matchingDeclaredType_stored() throws Exception {
+    byte[] content = png();
+    StorageReference reference =
+        service.store(new ByteArrayInputStream(content), "image.png", "image/png");
+    assertEquals("image/png", reference.getContentType());
+    assertEquals(content.length, reference.getSize());
+    assertEquals(WIDTH, reference.getHeader().getWidth());
+    assertEquals(HEIGHT, reference.getHeader().getHeight());
+    assertEquals(1, storedFiles());
+  }
+
+  @Test
+  void store_recognizedContentOfOtherRecognizedType_rejected() throws Exception {
+    assertThrows(HttpMediaTypeNotAcceptableException.class,
+        () -> service.store(new ByteArrayInputStream(png()), "image.jpg", "image/jpeg"));
+    assertEquals(0, storedFiles());
+  }
+
+  @Test
+  void store_unrecognizedContentOfRecognizedType_rejected() throws Exception {
+    assertThrows(HttpMediaTypeNotAcceptableException.class, () -> service.store(
+        new ByteArrayInputStream("not an image".getBytes()), "image.png", "image/png"));
+    assertEquals(0, storedFiles());
+  }
+
+  @Test
+  void store_recognizedContentOfGenericType_storedWithActualType() throws Exception {
+    StorageReference reference = service.store(
+        new ByteArrayInputStream(png()), "image.bin", "application/octet-stream");
+    assertEquals("image/png", reference.getContentType());
+  }
+
+  @Test
+  void store_unrecognizedContentOfUnrecognizedType_storedWithDeclaredType() throws Exception {
+    StorageReference reference = service.store(
+        new ByteArrayInputStream("plain text".getBytes()), "notes.txt", "text/plain");
+    assertEquals("text/plain", reference.getContentType());
+  }
+
+  private long storedFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files.filter(Files::isRegularFile).count();
+    }
+  }
+
+  private static byte[] png() {
+    return ByteBuffer.allocate(33)
+        .put(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'})
+        .putInt(13)
+        .put(new byte[]{'I', 'H', 'D', 'R'})
+        .putInt(WIDTH).putInt(HEIGHT)
+        .array();
+  }
+
+}
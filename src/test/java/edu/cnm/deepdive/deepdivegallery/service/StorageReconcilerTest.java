@@ -0,0 +1,110 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.model.dao.ContentBlobRepository;
+import edu.cnm.deepdive.deepdivegallery.model.dao.DerivativeRepository;
+import edu.cnm.deepdive.deepdivegallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.ContentBlob;
+import edu.cnm.deepdive.deepdivegallery.service.StorageReconciler.Report;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class StorageReconcilerTest {
+
+  private static final String DIGEST = "ab".repeat(32);
+  private static final String REFERENCE = "ab/" + DIGEST;
+  private static final long STALE = System.currentTimeMillis() - Duration.ofDays(1).toMillis();
+
+  private final ImageRepository imageRepository = mock(ImageRepository.class);
+  private final DerivativeRepository derivativeRepository = mock(DerivativeRepository.class);
+  private final ContentBlobRepository blobRepository = mock(ContentBlobRepository.class);
+
+  @TempDir
+  Path directory;
+
+  private Path file;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    file = directory.resolve(REFERENCE);
+    Files.createDirectories(file.getParent());
+    Files.write(file, new byte[10]);
+    //noinspection ResultOfMethodCallIgnored
+    file.toFile().setLastModified(STALE);
+    when(imageRepository.findPaths(anyCollection())).thenReturn(List.of());
+    when(derivativeRepository.findPaths(anyCollection())).thenReturn(List.of());
+  }
+
+  @Test
+  void reconcile_orphanWithBlob_fileAndBlobRemoved() {
+    ContentBlob blob = new ContentBlob();
+    when(blobRepository.findByDigest(DIGEST)).thenReturn(Optional.of(blob));
+    Report report = reconciler(false).reconcile();
+    assertFalse(Files.exists(file));
+    verify(blobRepository).delete(blob);
+    assertEquals(1, report.getOrphans());
+    assertEquals(10, report.getBytesReclaimed());
+  }
+
+  @Test
+  void reconcile_orphanQuarantined_blobRemoved() {
+    ContentBlob blob = new ContentBlob();
+    when(blobRepository.findByDigest(DIGEST)).thenReturn(Optional.of(blob));
+    reconciler(true).reconcile();
+    assertFalse(Files.exists(file));
+    assertTrue(Files.exists(directory.resolve(".quarantine").resolve(REFERENCE)));
+    verify(blobRepository).delete(blob);
+  }
+
+  @Test
+  void reconcile_reacquiredAfterQuery_notRemoved() {
+    // Simulates storage of identical content between the batch query and the removal.
+    when(blobRepository.findByDigest(DIGEST)).thenAnswer((invocation) -> {
+      //noinspection ResultOfMethodCallIgnored
+      file.toFile().setLastModified(System.currentTimeMillis());
+      return Optional.of(new ContentBlob());
+    });
+    Report report = reconciler(false).reconcile();
+    assertTrue(Files.exists(file));
+    verify(blobRepository, never()).delete(any());
+    assertEquals(0, report.getOrphans());
+  }
+
+  @Test
+  void reconcile_referencedFile_notRemoved() {
+    when(imageRepository.findPaths(anyCollection())).thenReturn(List.of(REFERENCE));
+    Report report = reconciler(false).reconcile();
+    assertTrue(Files.exists(file));
+    verify(blobRepository, never()).findByDigest(any());
+    assertEquals(1, report.getScanned());
+  }
+
+  private StorageReconciler reconciler(boolean quarantine) {
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.setDirectory(directory.toString());
+    configuration.getReconcile().setQuarantine(quarantine);
+    configuration.getReconcile().setMaxRemovalsPerSecond(1000);
+    return new StorageReconciler(imageRepository, derivativeRepository, blobRepository,
+        mock(PlatformTransactionManager.class), configuration, mock(ApplicationHome.class));
+  }
+
+}
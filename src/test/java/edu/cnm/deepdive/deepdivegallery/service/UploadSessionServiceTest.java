@@ -0,0 +1,146 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.ChunkInProgressException;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.Session;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.SessionLimitException;
+import edu.cnm.deepdive.deepdivegallery.service.UploadSessionService.SessionRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+class UploadSessionServiceTest {
+
+  private static final String CONTENT_TYPE = "image/png";
+  private static final int MAX_SESSIONS = 2;
+  private static final long MAX_STAGED_SIZE = 1000;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void create_disallowedType_rejectedWithoutStaging() throws IOException {
+    UploadSessionService service = service();
+    assertThrows(HttpMediaTypeNotAcceptableException.class,
+        () -> service.create(request("application/x-msdownload", 10), user()));
+    assertThrows(HttpMediaTypeNotAcceptableException.class,
+        () -> service.create(request(null, 10), user()));
+    try (Stream<Path> files = Files.list(directory.resolve(".staging"))) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void create_beyondMaxSessions_rejected() throws Exception {
+    UploadSessionService service = service();
+    User user = user();
+    for (int i = 0; i < MAX_SESSIONS; i++) {
+      service.create(request(CONTENT_TYPE, 10), user);
+    }
+    SessionLimitException e = assertThrows(SessionLimitException.class,
+        () -> service.create(request(CONTENT_TYPE, 10), user));
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+    service.create(request(CONTENT_TYPE, 10), user());
+  }
+
+  @Test
+  void create_beyondMaxStagedSize_rejected() throws Exception {
+    UploadSessionService service = service();
+    User user = user();
+    Session session = service.create(request(CONTENT_TYPE, MAX_STAGED_SIZE - 1), user);
+    assertThrows(SessionLimitException.class,
+        () -> service.create(request(CONTENT_TYPE, 2), user));
+    service.delete(session);
+    service.create(request(CONTENT_TYPE, 2), user);
+  }
+
+  @Test
+  void create_stagedSessions_countedAfterRestart() throws Exception {
+    User user = user();
+    UploadSessionService service = service();
+    for (int i = 0; i < MAX_SESSIONS; i++) {
+      service.create(request(CONTENT_TYPE, 10), user);
+    }
+    UploadSessionService restarted = service();
+    assertThrows(SessionLimitException.class,
+        () -> restarted.create(request(CONTENT_TYPE, 10), user));
+  }
+
+  @Test
+  void write_concurrentChunk_rejectedWithoutHoldingLock() throws Exception {
+    UploadSessionService service = service();
+    Session session = service.create(request(CONTENT_TYPE, 8), user());
+    InputStream input = new ByteArrayInputStream(new byte[8]) {
+      private boolean checked;
+
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        if (!checked) {
+          checked = true;
+          assertThrows(ChunkInProgressException.class,
+              () -> service.write(session, 0, new ByteArrayInputStream(new byte[1])));
+          assertTrue(isUnlocked(session));
+        }
+        return super.read(b, off, len);
+      }
+    };
+    assertEquals(8, service.write(session, 0, input).getOffset());
+    assertEquals(8, service.write(session, 4, new ByteArrayInputStream(new byte[4])).getOffset());
+  }
+
+  private UploadSessionService service() {
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.setDirectory(directory.toString());
+    configuration.setWhitelist(Set.of(CONTENT_TYPE));
+    configuration.getChunked().setMaxSessions(MAX_SESSIONS);
+    configuration.getChunked().setMaxStagedSize(DataSize.ofBytes(MAX_STAGED_SIZE));
+    return new UploadSessionService(mock(StorageService.class), mock(ImageService.class),
+        configuration, mock(ApplicationHome.class));
+  }
+
+  private static SessionRequest request(String contentType, long size) {
+    SessionRequest request = new SessionRequest();
+    request.setContentType(contentType);
+    request.setSize(size);
+    return request;
+  }
+
+  private static User user() {
+    User user = mock(User.class);
+    when(user.getId()).thenReturn(UUID.randomUUID());
+    return user;
+  }
+
+  private static boolean isUnlocked(Session session) {
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        synchronized (session) {
+          return true;
+        }
+      }).get(5, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package edu.cnm.deepdive.deepdivegallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.cnm.deepdive.deepdivegallery.model.dao.UserRepository;
+import edu.cnm.deepdive.deepdivegallery.model.entity.User;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class UserServiceTest {
+
+  private static final String ADMIN_SUBJECT = "admin-subject";
+
+  private final UserRepository userRepository = mock(UserRepository.class);
+  private final UserService service = new UserService(userRepository, mock(EntityManager.class),
+      mock(PlatformTransactionManager.class), 10, Duration.ofMinutes(5), Set.of(ADMIN_SUBJECT));
+
+  @Test
+  void convert_adminSubject_adminRoleGranted() {
+    assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), authorities(ADMIN_SUBJECT));
+  }
+
+  @Test
+  void convert_otherSubject_userRoleOnly() {
+    assertEquals(Set.of("ROLE_USER"), authorities("other-subject"));
+  }
+
+  private Set<String> authorities(String subject) {
+    User user = mock(User.class);
+    when(user.getId()).thenReturn(UUID.randomUUID());
+    when(userRepository.findFirstByOauthKey(anyString())).thenReturn(Optional.of(user));
+    Jwt jwt = Jwt.withTokenValue("token")
+        .header("alg", "RS256")
+        .subject(subject)
+        .claim("name", "Name")
+        .issuedAt(Instant.now())
+        .build();
+    UsernamePasswordAuthenticationToken token = service.convert(jwt);
+    return token.getAuthorities().stream()
+        .map(GrantedAuthority::getAuthority)
+        .collect(Collectors.toSet());
+  }
+
+}
@@ -0,0 +1,121 @@
+package edu.cnm.deepdive.deepdivegallery.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  private static final Duration TIME_TO_LIVE = Duration.ofMinutes(5);
+
+  private final MutableClock clock = new MutableClock(Instant.parse("2021-01-01T00:00:00Z"));
+
+  @Test
+  void get_beforeTimeToLive_cached() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha");
+    clock.advance(TIME_TO_LIVE.minusMillis(1));
+    assertEquals("alpha", cache.get("a"));
+  }
+
+  @Test
+  void get_afterTimeToLive_expiredAndRemoved() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha");
+    clock.advance(TIME_TO_LIVE);
+    assertEquals(1, cache.size());
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void put_earlierExpiry_honored() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha", clock.instant().plusSeconds(10));
+    clock.advance(Duration.ofSeconds(10));
+    assertNull(cache.get("a"));
+  }
+
+  @Test
+  void put_laterExpiry_limitedToTimeToLive() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha", clock.instant().plus(TIME_TO_LIVE.multipliedBy(2)));
+    clock.advance(TIME_TO_LIVE);
+    assertNull(cache.get("a"));
+  }
+
+  @Test
+  void put_full_leastRecentlyAccessedEvicted() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(2, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha");
+    cache.put("b", "bravo");
+    cache.get("a");
+    cache.put("c", "charlie");
+    assertEquals(2, cache.size());
+    assertEquals("alpha", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("charlie", cache.get("c"));
+  }
+
+  @Test
+  void put_existingKey_replacedWithoutEviction() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(2, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha");
+    cache.put("b", "bravo");
+    cache.put("a", "alpha2");
+    assertEquals(2, cache.size());
+    assertEquals("alpha2", cache.get("a"));
+    assertEquals("bravo", cache.get("b"));
+  }
+
+  @Test
+  void remove_clear_entriesRemoved() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TIME_TO_LIVE, clock);
+    cache.put("a", "alpha");
+    cache.put("b", "bravo");
+    cache.remove("a");
+    assertNull(cache.get("a"));
+    assertEquals("bravo", cache.get("b"));
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Clock that only advances when instructed to.
+   */
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    void advance(Duration duration) {
+      instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+
+  }
+
+}
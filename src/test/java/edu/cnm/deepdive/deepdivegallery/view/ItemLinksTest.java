@@ -0,0 +1,78 @@
+package edu.cnm.deepdive.deepdivegallery.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.EntityLinks;
+import org.springframework.hateoas.server.LinkBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class ItemLinksTest {
+
+  private static final String COLLECTION = "http://localhost/gallery/images";
+
+  private final EntityLinks entityLinks = mock(EntityLinks.class);
+  private final ItemLinks itemLinks = new ItemLinks(entityLinks);
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void linkForItem_withinRequest_collectionResolvedOnce() {
+    when(entityLinks.linkToCollectionResource(String.class)).thenReturn(collection());
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    assertEquals(item(first), itemLinks.linkForItem(String.class, first));
+    assertEquals(item(second), itemLinks.linkForItem(String.class, second));
+    verify(entityLinks, times(1)).linkToCollectionResource(String.class);
+  }
+
+  @Test
+  void linkForItem_separateRequests_collectionResolvedPerRequest() {
+    when(entityLinks.linkToCollectionResource(String.class)).thenReturn(collection());
+    for (int i = 0; i < 2; i++) {
+      RequestContextHolder.setRequestAttributes(
+          new ServletRequestAttributes(new MockHttpServletRequest()));
+      itemLinks.linkForItem(String.class, UUID.randomUUID());
+    }
+    verify(entityLinks, times(2)).linkToCollectionResource(String.class);
+  }
+
+  @Test
+  void linkForItem_outsideRequest_itemResolvedDirectly() {
+    UUID id = UUID.randomUUID();
+    LinkBuilder builder = mock(LinkBuilder.class);
+    when(builder.toUri()).thenReturn(item(id));
+    when(entityLinks.linkForItemResource(String.class, id)).thenReturn(builder);
+    assertEquals(item(id), itemLinks.linkForItem(String.class, id));
+  }
+
+  @Test
+  void linkForItem_nullId_null() {
+    assertNull(itemLinks.linkForItem(String.class, null));
+  }
+
+  private static Link collection() {
+    return Link.of(COLLECTION);
+  }
+
+  private static URI item(UUID id) {
+    return URI.create(COLLECTION + "/" + id);
+  }
+
+}